@@ -0,0 +1,427 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core;
+
+import com.google.api.client.util.NanoClock;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded cache that retains values for a limited time.
+ *
+ * When the cache is full, the least recently used entry is evicted.
+ * Entries can be invalidated explicitly if the underlying data is
+ * known to have changed.
+ *
+ * Optionally, entries can be refreshed ahead of their expiry: Once
+ * an entry has reached a certain age, the next lookup triggers a
+ * reload in the background but is still served from the cache.
+ */
+public class Cache<K, V> {
+  private final @NotNull Options options;
+  private final @NotNull NanoClock clock;
+  private final @NotNull LinkedHashMap<K, Entry<V>> entries;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long invalidations;
+  private long refreshes;
+  private long staleHits;
+  private long totalHitAge;
+
+  /**
+   * Loads in progress, keyed by the key they load. Used to detect loads
+   * that might have returned outdated data because their key was
+   * invalidated or updated in the meantime. Only keys that are being
+   * loaded are tracked, so the map doesn't outgrow the number of
+   * concurrent loads.
+   */
+  private final @NotNull Map<K, Loads> loads = new HashMap<>();
+
+  Cache(
+    @NotNull Options options,
+    @NotNull NanoClock clock
+  ) {
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkNotNull(clock, "clock");
+
+    this.options = options;
+    this.clock = clock;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        if (size() > options.maxSize()) {
+          Cache.this.evictions++;
+          return true;
+        }
+        else {
+          return false;
+        }
+      }
+    };
+  }
+
+  public Cache(@NotNull Options options) {
+    this(options, NanoClock.SYSTEM);
+  }
+
+  private long age(@NotNull Entry<V> entry) {
+    return this.clock.nanoTime() - entry.created;
+  }
+
+  private synchronized @Nullable Entry<V> lookup(@NotNull K key) {
+    Preconditions.checkNotNull(key, "key");
+
+    var entry = this.entries.get(key);
+    if (entry != null) {
+      var age = age(entry);
+      if (age < this.options.ttl().toNanos()) {
+        this.hits++;
+        this.totalHitAge += age;
+        return entry;
+      }
+
+      this.entries.remove(key);
+      this.evictions++;
+    }
+
+    this.misses++;
+    return null;
+  }
+
+  /**
+   * Look up a value, ignoring entries that have expired.
+   */
+  public @NotNull Optional<V> getIfPresent(@NotNull K key) {
+    var entry = lookup(key);
+    return entry != null ? Optional.of(entry.value) : Optional.empty();
+  }
+
+  /**
+   * Add or replace a value.
+   */
+  public synchronized void put(@NotNull K key, @NotNull V value) {
+    Preconditions.checkNotNull(key, "key");
+    Preconditions.checkNotNull(value, "value");
+
+    if (this.options.isEnabled()) {
+      this.entries.put(key, new Entry<>(value, this.clock.nanoTime()));
+    }
+  }
+
+  /**
+   * Register a load that's about to start.
+   *
+   * @return number of modifications of the key, to be passed
+   * to endLoad.
+   */
+  private synchronized long beginLoad(@NotNull K key) {
+    var loads = this.loads.computeIfAbsent(key, k -> new Loads());
+    loads.pending++;
+    return loads.modifications;
+  }
+
+  /**
+   * Unregister a load, and cache its value unless the key has been
+   * modified while the load was in progress.
+   *
+   * @param value loaded value, or null if the load failed.
+   */
+  private synchronized void endLoad(
+    @NotNull K key,
+    long modificationsBeforeLoad,
+    @Nullable V value
+  ) {
+    var loads = this.loads.get(key);
+    assert loads != null;
+
+    if (value != null && loads.modifications == modificationsBeforeLoad) {
+      put(key, value);
+    }
+
+    if (--loads.pending == 0) {
+      this.loads.remove(key);
+    }
+  }
+
+  /**
+   * Record that a key has been modified so that loads that are in
+   * progress for the key don't populate the cache.
+   */
+  private synchronized void recordModification(@NotNull K key) {
+    var loads = this.loads.get(key);
+    if (loads != null) {
+      loads.modifications++;
+    }
+  }
+
+  /**
+   * Look up a value, or load it synchronously if it's not cached.
+   *
+   * Failed loads aren't cached, and values aren't refreshed
+   * in the background.
+   */
+  public V get(
+    @NotNull K key,
+    @NotNull SingleFlight.Call<V> load
+  ) throws AccessException, IOException {
+    Preconditions.checkNotNull(load, "load");
+
+    long modificationsBeforeLoad;
+    synchronized (this) {
+      var entry = lookup(key);
+      if (entry != null) {
+        return entry.value;
+      }
+
+      modificationsBeforeLoad = beginLoad(key);
+    }
+
+    V value = null;
+    try {
+      value = load.execute();
+      return value;
+    }
+    finally {
+      endLoad(key, modificationsBeforeLoad, value);
+    }
+  }
+
+  /**
+   * Look up a value, or load it asynchronously if it's not cached.
+   *
+   * Failed loads aren't cached. If the key is invalidated or
+   * updated while a load is in progress, the loaded value is returned
+   * to the caller, but not cached as it might be outdated already.
+   *
+   * If the value is cached, but due for a refresh, the value
+   * is reloaded in the background.
+   */
+  public @NotNull CompletableFuture<V> execute(
+    @NotNull K key,
+    @NotNull Supplier<CompletableFuture<V>> load
+  ) {
+    Preconditions.checkNotNull(load, "load");
+
+    Entry<V> entry;
+    long modificationsBeforeLoad;
+    synchronized (this) {
+      entry = lookup(key);
+
+      if (entry != null) {
+        if (age(entry) < this.options.refreshAfter().toNanos()) {
+          return CompletableFuture.completedFuture(entry.value);
+        }
+
+        this.staleHits++;
+        if (entry.refreshing) {
+          return CompletableFuture.completedFuture(entry.value);
+        }
+
+        entry.refreshing = true;
+        this.refreshes++;
+      }
+
+      modificationsBeforeLoad = beginLoad(key);
+    }
+
+    if (entry == null) {
+      return loadAndPut(key, load, modificationsBeforeLoad);
+    }
+
+    //
+    // Refresh the value in the background, detached from the current
+    // request's deadline so that the refresh isn't cut short when the
+    // request completes. Until then, keep serving the cached value.
+    //
+    try (var scope = Deadline.enter(null)) {
+      loadAndPut(key, load, modificationsBeforeLoad).whenComplete((value, e) -> {
+        synchronized (this) {
+          entry.refreshing = false;
+        }
+      });
+    }
+
+    return CompletableFuture.completedFuture(entry.value);
+  }
+
+  private @NotNull CompletableFuture<V> loadAndPut(
+    @NotNull K key,
+    @NotNull Supplier<CompletableFuture<V>> load,
+    long modificationsBeforeLoad
+  ) {
+    CompletableFuture<V> future;
+    try {
+      future = load.get();
+    }
+    catch (RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+
+    return future.whenComplete(
+      (value, e) -> endLoad(key, modificationsBeforeLoad, e == null ? value : null));
+  }
+
+  /**
+   * Remove a value because it's known to be outdated.
+   */
+  public synchronized void invalidate(@NotNull K key) {
+    Preconditions.checkNotNull(key, "key");
+
+    //
+    // Record the modification even if the key isn't cached so that
+    // in-progress loads for the key don't populate the cache.
+    //
+    this.entries.remove(key);
+    this.invalidations++;
+    recordModification(key);
+  }
+
+  /**
+   * Replace a cached value because the underlying data is known
+   * to have changed. The entry retains its original expiry.
+   */
+  public synchronized void update(
+    @NotNull K key,
+    @NotNull UnaryOperator<V> update
+  ) {
+    Preconditions.checkNotNull(key, "key");
+    Preconditions.checkNotNull(update, "update");
+
+    var entry = this.entries.get(key);
+    if (entry != null) {
+      this.entries.put(key, new Entry<>(update.apply(entry.value), entry.created));
+    }
+
+    recordModification(key);
+  }
+
+  /**
+   * Get statistics about cache usage.
+   */
+  public synchronized @NotNull Statistics statistics() {
+    return new Statistics(
+      this.hits,
+      this.misses,
+      this.evictions,
+      this.invalidations,
+      this.refreshes,
+      this.staleHits,
+      this.entries.size(),
+      Duration.ofNanos(this.totalHitAge));
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  private static class Entry<V> {
+    private final V value;
+    private final long created;
+    private boolean refreshing;
+
+    private Entry(V value, long created) {
+      this.value = value;
+      this.created = created;
+    }
+  }
+
+  private static class Loads {
+    /**
+     * Number of loads in progress.
+     */
+    private int pending;
+
+    /**
+     * Number of invalidations and updates since the first
+     * of the pending loads started.
+     */
+    private long modifications;
+  }
+
+  /**
+   * @param hits number of lookups that were served from the cache
+   * @param misses number of lookups that weren't
+   * @param evictions number of entries removed because they expired or
+   *                  because the cache was full
+   * @param invalidations number of explicit invalidations
+   * @param refreshes number of background refreshes
+   * @param staleHits number of hits that were served while the entry
+   *                  was due for a refresh
+   * @param size current number of entries
+   * @param totalHitAge sum of the ages of all values served from the cache
+   */
+  public record Statistics(
+    long hits,
+    long misses,
+    long evictions,
+    long invalidations,
+    long refreshes,
+    long staleHits,
+    int size,
+    @NotNull Duration totalHitAge
+  ) {}
+
+  /**
+   * @param ttl time to retain values, zero to disable caching
+   * @param maxSize maximum number of values to retain
+   * @param refreshAfter age after which values are refreshed in the
+   *                     background, equal to the TTL to disable refreshes
+   */
+  public record Options(
+    @NotNull Duration ttl,
+    int maxSize,
+    @NotNull Duration refreshAfter
+  ) {
+    public static final @NotNull Options DISABLED = new Options(Duration.ZERO, 0);
+
+    public Options {
+      Preconditions.checkNotNull(ttl, "ttl");
+      Preconditions.checkNotNull(refreshAfter, "refreshAfter");
+      Preconditions.checkArgument(!ttl.isNegative(), "The TTL must not be negative");
+      Preconditions.checkArgument(maxSize >= 0, "The maximum size must not be negative");
+      Preconditions.checkArgument(
+        !refreshAfter.isNegative() && refreshAfter.compareTo(ttl) <= 0,
+        "The refresh interval must not be negative or exceed the TTL");
+    }
+
+    public Options(@NotNull Duration ttl, int maxSize) {
+      this(ttl, maxSize, ttl);
+    }
+
+    public boolean isEnabled() {
+      return !this.ttl.isZero() && this.maxSize > 0;
+    }
+  }
+}
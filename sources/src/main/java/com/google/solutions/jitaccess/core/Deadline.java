@@ -0,0 +1,147 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core;
+
+import com.google.api.client.util.NanoClock;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Point in time by which a request must be complete.
+ *
+ * The deadline of the current request is associated with the
+ * current thread so that backend calls can pick it up without
+ * having to pass it through every layer. Executors that are wrapped
+ * using propagate() carry the deadline over to their tasks.
+ */
+public class Deadline {
+  private static final @NotNull ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+  private final @NotNull NanoClock clock;
+  private final long expiryTime;
+
+  Deadline(
+    @NotNull NanoClock clock,
+    @NotNull Duration timeout
+  ) {
+    Preconditions.checkNotNull(clock, "clock");
+    Preconditions.checkNotNull(timeout, "timeout");
+
+    this.clock = clock;
+    this.expiryTime = clock.nanoTime() + timeout.toNanos();
+  }
+
+  /**
+   * Create a deadline that expires after the given time.
+   */
+  public static @NotNull Deadline after(@NotNull Duration timeout) {
+    return new Deadline(NanoClock.SYSTEM, timeout);
+  }
+
+  /**
+   * Get the time that remains until the deadline expires, or
+   * zero if it has expired already.
+   */
+  public @NotNull Duration remaining() {
+    return Duration.ofNanos(Math.max(0, this.expiryTime - this.clock.nanoTime()));
+  }
+
+  public boolean isExpired() {
+    return this.expiryTime - this.clock.nanoTime() <= 0;
+  }
+
+  /**
+   * Throw an exception if the deadline has expired.
+   */
+  public void checkNotExpired() throws DeadlineExceededException {
+    if (isExpired()) {
+      throw new DeadlineExceededException(
+        "The request took too long to complete, try again later");
+    }
+  }
+
+  /**
+   * Get the deadline associated with the current thread.
+   *
+   * @return deadline, or null if there is none.
+   */
+  public static @Nullable Deadline current() {
+    return current.get();
+  }
+
+  /**
+   * Associate a deadline with the current thread until the
+   * returned scope is closed.
+   */
+  public static @NotNull Scope enter(@Nullable Deadline deadline) {
+    var previous = current.get();
+    current.set(deadline);
+    return new Scope(previous);
+  }
+
+  /**
+   * Wrap an executor so that tasks inherit the deadline of the
+   * thread that submitted them.
+   */
+  public static @NotNull Executor propagate(@NotNull Executor executor) {
+    Preconditions.checkNotNull(executor, "executor");
+
+    return task -> {
+      var deadline = current();
+      executor.execute(() -> {
+        try (var scope = enter(deadline)) {
+          task.run();
+        }
+      });
+    };
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Scope in which a deadline is associated with the current thread.
+   * Closing the scope restores the previous deadline.
+   */
+  public static class Scope implements AutoCloseable {
+    private final @Nullable Deadline previous;
+
+    private Scope(@Nullable Deadline previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (this.previous != null) {
+        current.set(this.previous);
+      }
+      else {
+        current.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent, identical calls so that only one of them
+ * is actually executed.
+ *
+ * If a call is issued while an identical call (i.e., one with an
+ * equal key) is still in flight, the second caller doesn't execute
+ * the call itself, but shares the result (or exception) of the
+ * first one. Results are not cached: once a call completes, the
+ * next call executes again.
+ */
+public class SingleFlight<K, V> {
+  private final @NotNull Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final @NotNull AtomicLong issued = new AtomicLong();
+  private final @NotNull AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * Execute a call synchronously, or wait for an identical
+   * call that's already in flight.
+   *
+   * Waiting is bounded by the deadline of the current thread, if any.
+   */
+  public V get(
+    @NotNull K key,
+    @NotNull Call<V> call
+  ) throws AccessException, IOException {
+    Preconditions.checkNotNull(key, "key");
+    Preconditions.checkNotNull(call, "call");
+
+    var future = new CompletableFuture<V>();
+    var existing = this.inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      this.coalesced.incrementAndGet();
+      return ThrowingCompletableFuture.awaitAndRethrow(existing, Deadline.current());
+    }
+
+    this.issued.incrementAndGet();
+    try {
+      var result = call.execute();
+      complete(key, future, result, null);
+      return result;
+    }
+    catch (Throwable e) {
+      //
+      // Complete the future for any kind of exception, including
+      // errors. Otherwise, the key would remain in flight and
+      // subsequent callers would wait forever.
+      //
+      complete(key, future, null, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Execute a call asynchronously, or join an identical
+   * call that's already in flight.
+   */
+  public @NotNull CompletableFuture<V> execute(
+    @NotNull K key,
+    @NotNull Supplier<CompletableFuture<V>> call
+  ) {
+    Preconditions.checkNotNull(key, "key");
+    Preconditions.checkNotNull(call, "call");
+
+    var future = new CompletableFuture<V>();
+    var existing = this.inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      this.coalesced.incrementAndGet();
+      return existing.copy();
+    }
+
+    this.issued.incrementAndGet();
+    try {
+      call.get().whenComplete((result, e) -> complete(key, future, result, e));
+    }
+    catch (RuntimeException e) {
+      complete(key, future, null, e);
+    }
+    catch (Error e) {
+      complete(key, future, null, e);
+      throw e;
+    }
+
+    //
+    // Hand out a copy so that callers can't cancel or complete the
+    // future that other callers depend on.
+    //
+    return future.copy();
+  }
+
+  /**
+   * Execute a batch call asynchronously for all keys that aren't
+   * in flight yet, and join the calls that are.
+   *
+   * @param call batch call, receives the keys that aren't in flight and
+   *             returns a future for each of them. Keys that the batch call
+   *             doesn't return a future for fail.
+   * @return futures, keyed by key
+   */
+  public @NotNull Map<K, CompletableFuture<V>> executeAll(
+    @NotNull Collection<K> keys,
+    @NotNull Function<Collection<K>, Map<K, CompletableFuture<V>>> call
+  ) {
+    Preconditions.checkNotNull(keys, "keys");
+    Preconditions.checkNotNull(call, "call");
+
+    var futures = new LinkedHashMap<K, CompletableFuture<V>>();
+    var ownFutures = new LinkedHashMap<K, CompletableFuture<V>>();
+    for (var key : keys) {
+      if (futures.containsKey(key)) {
+        continue;
+      }
+
+      var future = new CompletableFuture<V>();
+      var existing = this.inFlight.putIfAbsent(key, future);
+      if (existing != null) {
+        this.coalesced.incrementAndGet();
+        futures.put(key, existing.copy());
+      }
+      else {
+        this.issued.incrementAndGet();
+        ownFutures.put(key, future);
+        futures.put(key, future.copy());
+      }
+    }
+
+    if (ownFutures.isEmpty()) {
+      return futures;
+    }
+
+    Map<K, CompletableFuture<V>> results;
+    try {
+      results = call.apply(List.copyOf(ownFutures.keySet()));
+    }
+    catch (RuntimeException e) {
+      ownFutures.forEach((key, future) -> complete(key, future, null, e));
+      return futures;
+    }
+    catch (Error e) {
+      ownFutures.forEach((key, future) -> complete(key, future, null, e));
+      throw e;
+    }
+
+    ownFutures.forEach((key, future) -> {
+      var result = results.get(key);
+      if (result != null) {
+        result.whenComplete((r, e) -> complete(key, future, r, e));
+      }
+      else {
+        complete(key, future, null, new IOException(
+          String.format("The batch call did not return a result for '%s'", key)));
+      }
+    });
+
+    return futures;
+  }
+
+  private void complete(
+    @NotNull K key,
+    @NotNull CompletableFuture<V> future,
+    V result,
+    Throwable exception
+  ) {
+    //
+    // Remove the future before completing it so that subsequent
+    // calls don't pick up a result that's already complete.
+    //
+    this.inFlight.remove(key, future);
+
+    if (exception != null) {
+      future.completeExceptionally(exception);
+    }
+    else {
+      future.complete(result);
+    }
+  }
+
+  /**
+   * Get statistics about issued and coalesced calls.
+   */
+  public @NotNull Statistics statistics() {
+    return new Statistics(this.issued.get(), this.coalesced.get());
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  @FunctionalInterface
+  public interface Call<V> {
+    V execute() throws AccessException, IOException;
+  }
+
+  /**
+   * @param issued number of calls that were executed
+   * @param coalesced number of calls that shared the result of another call
+   */
+  public record Statistics(
+    long issued,
+    long coalesced
+  ) {}
+}
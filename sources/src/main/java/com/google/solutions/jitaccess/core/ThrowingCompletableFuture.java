@@ -22,11 +22,15 @@
 package com.google.solutions.jitaccess.core;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Completable future for a supplier that can throw a checked exception.
@@ -45,14 +49,23 @@ public class ThrowingCompletableFuture {
     @NotNull Executor executor
   ) {
     var future = new CompletableFuture<T>();
-    executor.execute(() -> {
-      try {
-        future.complete(supplier.supply());
-      }
-      catch (Exception e) {
-        future.completeExceptionally(e);
-      }
-    });
+    try {
+      executor.execute(() -> {
+        try {
+          future.complete(supplier.supply());
+        }
+        catch (Exception e) {
+          future.completeExceptionally(e);
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      //
+      // The executor is saturated, which means that whatever the
+      // tasks are waiting for isn't keeping up.
+      //
+      future.completeExceptionally(new BackendUnavailableException(e.getMessage()));
+    }
 
     return future;
   }
@@ -62,9 +75,28 @@ public class ThrowingCompletableFuture {
    */
   public static <T> T awaitAndRethrow(
     @NotNull CompletableFuture<T> future
+  ) throws AccessException, IOException {
+    return awaitAndRethrow(future, null);
+  }
+
+  /**
+   * Await a future, but no longer than until a deadline expires,
+   * and rethrow exceptions, unwrapping known exceptions.
+   *
+   * @param deadline deadline, or null to wait indefinitely.
+   */
+  public static <T> T awaitAndRethrow(
+    @NotNull CompletableFuture<T> future,
+    @Nullable Deadline deadline
   ) throws AccessException, IOException {
     try {
-      return future.get();
+      return deadline == null
+        ? future.get()
+        : future.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+    }
+    catch (TimeoutException e) {
+      throw new DeadlineExceededException(
+        "The request took too long to complete, try again later");
     }
     catch (InterruptedException | ExecutionException e) {
       if (e.getCause() instanceof AccessException) {
@@ -24,6 +24,7 @@ package com.google.solutions.jitaccess.core.catalog;
 import com.google.solutions.jitaccess.core.AccessException;
 import com.google.solutions.jitaccess.core.auth.UserId;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.SortedSet;
@@ -63,6 +64,19 @@ public interface Catalog<
     @NotNull MpaActivationRequest<TEntitlementId> request
   ) throws AccessException, IOException;
 
+  /**
+   * Notify the catalog that a request has been provisioned so that
+   * it can update or discard any cached information that's now outdated.
+   *
+   * @param activation resulting activation, or null if provisioning
+   *                   failed and might have been applied partially
+   */
+  default void onRequestProvisioned(
+    @NotNull ActivationRequest<TEntitlementId> request,
+    @Nullable Activation activation
+  ) {
+  }
+
   /**
    * List scopes that the user has any entitlements for.
    */
@@ -149,7 +149,18 @@ public abstract class EntitlementActivator<
     //
     // Request is legit, apply it.
     //
-    return provisionAccess(request);
+    Activation activation = null;
+    try {
+      activation = provisionAccess(request);
+      return activation;
+    }
+    finally {
+      //
+      // Let the catalog know that the request has been applied, or
+      // might have been partially applied if provisioning failed.
+      //
+      this.catalog.onRequestProvisioned(request, activation);
+    }
   }
 
   /**
@@ -190,7 +201,18 @@ public abstract class EntitlementActivator<
     //
     // Request is legit, apply it.
     //
-    return provisionAccess(userContext.user(), request);
+    Activation activation = null;
+    try {
+      activation = provisionAccess(userContext.user(), request);
+      return activation;
+    }
+    finally {
+      //
+      // Let the catalog know that the request has been applied, or
+      // might have been partially applied if provisioning failed.
+      //
+      this.catalog.onRequestProvisioned(request, activation);
+    }
   }
 
   /**
@@ -25,6 +25,8 @@ import com.google.common.base.Preconditions;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
@@ -57,6 +59,37 @@ public record EntitlementSet<TId extends EntitlementId>(
     Preconditions.checkArgument(expiredActivations.values().stream().allMatch(a -> !a.isValid(Instant.now())));
   }
 
+  /**
+   * Create a copy of this set that reflects an additional activation.
+   *
+   * Existing activations of the same entitlements are replaced, and
+   * current activations that have expired in the meantime are moved
+   * to the expired activations.
+   */
+  public @NotNull EntitlementSet<TId> withActivation(
+    @NotNull Collection<TId> entitlements,
+    @NotNull Activation activation
+  ) {
+    Preconditions.checkNotNull(entitlements, "entitlements");
+    Preconditions.checkNotNull(activation, "activation");
+
+    var now = Instant.now();
+    var current = new HashMap<TId, Activation>();
+    var expired = new HashMap<TId, Activation>(this.expiredActivations);
+
+    for (var existing : this.currentActivations.entrySet()) {
+      (existing.getValue().isValid(now) ? current : expired).put(existing.getKey(), existing.getValue());
+    }
+
+    for (var entitlement : entitlements) {
+      current.remove(entitlement);
+      expired.remove(entitlement);
+      (activation.isValid(now) ? current : expired).put(entitlement, activation);
+    }
+
+    return new EntitlementSet<>(this.available, current, expired, this.warnings);
+  }
+
   public static <TId extends EntitlementId> @NotNull EntitlementSet<TId> empty() {
     return new EntitlementSet<TId>(new TreeSet<>(), Map.of(), Map.of(), Set.of());
   }
@@ -22,7 +22,7 @@
 package com.google.solutions.jitaccess.core.catalog.project;
 
 import com.google.api.services.cloudasset.v1.model.Binding;
-import com.google.api.services.directory.model.Member;
+import com.google.api.services.cloudasset.v1.model.PolicyInfo;
 import com.google.common.base.Preconditions;
 import com.google.solutions.jitaccess.core.*;
 import com.google.solutions.jitaccess.core.auth.GroupId;
@@ -31,12 +31,13 @@ import com.google.solutions.jitaccess.core.catalog.*;
 import com.google.solutions.jitaccess.core.clients.AssetInventoryClient;
 import com.google.solutions.jitaccess.core.clients.DirectoryGroupsClient;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -50,27 +51,151 @@ import java.util.stream.Collectors;
 public class AssetInventoryRepository extends ProjectRoleRepository {
   public static final String GROUP_PREFIX = "group:";
   public static final String USER_PREFIX = "user:";
+  public static final String EFFECTIVE_IAM_POLICIES_CACHE = "EffectiveIamPolicies";
+  public static final String GROUP_MEMBERSHIPS_CACHE = "GroupMemberships";
+  public static final String GROUP_MEMBERS_CACHE = "GroupMembers";
+  public static final String INACCESSIBLE_GROUPS_CACHE = "InaccessibleGroups";
 
   private final @NotNull Options options;
-  private final @NotNull Executor executor;
   private final @NotNull DirectoryGroupsClient groupsClient;
   private final @NotNull AssetInventoryClient assetInventoryClient;
+  private final @NotNull Cache<ProjectId, List<PolicyInfo>> effectiveIamPolicies;
+  private final @NotNull Cache<UserId, List<GroupId>> groupMemberships;
+  private final @NotNull Cache<String, Set<UserId>> groupMembers;
+  private final @NotNull Cache<String, Boolean> inaccessibleGroups;
+  private final @NotNull SingleFlight<String, Set<UserId>> groupMembersLoads = new SingleFlight<>();
 
   public AssetInventoryRepository(
-    @NotNull Executor executor,
     @NotNull DirectoryGroupsClient groupsClient,
     @NotNull AssetInventoryClient assetInventoryClient,
     @NotNull Options options
   ) {
-    Preconditions.checkNotNull(executor, "executor");
     Preconditions.checkNotNull(groupsClient, "groupsClient");
     Preconditions.checkNotNull(assetInventoryClient, "assetInventoryClient");
     Preconditions.checkNotNull(options, "options");
 
-    this.executor = executor;
     this.groupsClient = groupsClient;
     this.assetInventoryClient = assetInventoryClient;
     this.options = options;
+    this.effectiveIamPolicies = new Cache<>(options.effectiveIamPoliciesCache());
+    this.groupMemberships = new Cache<>(options.groupMembershipsCache());
+    this.groupMembers = new Cache<>(options.groupMembersCache());
+    this.inaccessibleGroups = new Cache<>(options.inaccessibleGroupsCache());
+  }
+
+  /**
+   * Get the effective set of IAM policies for a project, using
+   * cached policies if possible.
+   */
+  private @NotNull CompletableFuture<List<PolicyInfo>> getEffectiveIamPoliciesAsync(
+    @NotNull ProjectId projectId
+  ) {
+    return this.effectiveIamPolicies.execute(
+      projectId,
+      () -> this.assetInventoryClient.getEffectiveIamPoliciesAsync(this.options.scope(), projectId));
+  }
+
+  /**
+   * Get all groups that a user is a direct member of, using
+   * cached memberships if possible.
+   */
+  private @NotNull CompletableFuture<List<GroupId>> getGroupMembershipsAsync(
+    @NotNull UserId user
+  ) {
+    return this.groupMemberships.execute(
+      user,
+      () -> this.groupsClient
+        .listDirectGroupMembershipsAsync(user)
+        .thenApply(groups -> groups
+          .stream()
+          .map(group -> new GroupId(group.getEmail()))
+          .toList()));
+  }
+
+  /**
+   * Get the direct members of multiple groups, using cached members
+   * if possible.
+   *
+   * Groups that aren't cached are looked up in a single batch, except
+   * for groups that another thread is already looking up.
+   *
+   * Groups that we're not allowed to access are treated as having no
+   * members. They're cached separately, and typically for a shorter
+   * time, so that a group that becomes accessible is picked up soon.
+   */
+  private @NotNull Map<String, CompletableFuture<Set<UserId>>> getGroupMembersAsync(
+    @NotNull Collection<String> groupEmails
+  ) {
+    var futures = new HashMap<String, CompletableFuture<Set<UserId>>>();
+    var uncachedGroups = new ArrayList<String>();
+
+    for (var groupEmail : groupEmails) {
+      if (this.inaccessibleGroups.getIfPresent(groupEmail).isPresent()) {
+        futures.put(groupEmail, CompletableFuture.completedFuture(Set.of()));
+        continue;
+      }
+
+      var members = this.groupMembers.getIfPresent(groupEmail);
+      if (members.isPresent()) {
+        futures.put(groupEmail, CompletableFuture.completedFuture(members.get()));
+      }
+      else {
+        uncachedGroups.add(groupEmail);
+      }
+    }
+
+    this.groupMembersLoads
+      .executeAll(uncachedGroups, this::loadGroupMembersAsync)
+      .forEach((groupEmail, future) -> futures.put(
+        groupEmail,
+        future.exceptionallyCompose(e -> {
+          var cause = unwrap(e);
+          return cause instanceof AccessDeniedException
+            ? CompletableFuture.completedFuture(Set.of())
+            : CompletableFuture.failedFuture(cause);
+        })));
+
+    return futures;
+  }
+
+  /**
+   * Look up the direct members of multiple groups in a single batch,
+   * and cache the results.
+   */
+  private @NotNull Map<String, CompletableFuture<Set<UserId>>> loadGroupMembersAsync(
+    @NotNull Collection<String> groupEmails
+  ) {
+    var loads = new HashMap<String, CompletableFuture<Set<UserId>>>();
+    this.groupsClient
+      .batchListDirectGroupMembersAsync(groupEmails)
+      .forEach((groupEmail, future) -> loads.put(
+        groupEmail,
+        future
+          .thenApply(members -> members
+            .stream()
+            .map(m -> new UserId(m.getEmail()))
+            .collect(Collectors.toSet()))
+          .whenComplete((members, e) -> {
+            if (unwrap(e) instanceof AccessDeniedException) {
+              //
+              // Access might be denied if this is an external group,
+              // but this is okay. Remember that the group is inaccessible
+              // so that we don't keep asking.
+              //
+              this.inaccessibleGroups.put(groupEmail, true);
+            }
+            else if (e == null) {
+              this.groupMembers.put(groupEmail, members);
+            }
+          })));
+
+    return loads;
+  }
+
+  private static @Nullable Throwable unwrap(@Nullable Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null
+      ? e.getCause()
+      : e;
   }
 
   @NotNull List<Binding> findProjectBindings(
@@ -82,31 +207,66 @@ public class AssetInventoryRepository extends ProjectRoleRepository {
     // - the effective set of IAM policies applying to this project. This
     //   includes the IAM policy of the project itself, plus any policies
     //   applied to its ancestry (folders, organization).
-    // - groups that the user is a member of.
+    // - groups that the user is a member of. If memberships are cached,
+    //   read all of them at once so that they can be reused for other
+    //   projects. Otherwise, read them page by page.
     //
-    var listMembershipsFuture = ThrowingCompletableFuture.submit(
-      () -> this.groupsClient.listDirectGroupMemberships(user),
-      this.executor);
+    var cachedMembershipsFuture = this.options.groupMembershipsCache().isEnabled()
+      ? getGroupMembershipsAsync(user)
+      : null;
 
-    var effectivePoliciesFuture = ThrowingCompletableFuture.submit(
-      () -> this.assetInventoryClient.getEffectiveIamPolicies(
-        this.options.scope(),
-        projectId),
-      this.executor);
+    //
+    // Close the iterator when we're done so that we don't leave
+    // a prefetch of the next page running if we stop early.
+    //
+    List<Binding> allBindings;
+    var groups = new ArrayList<GroupId>();
+    try (var memberships = cachedMembershipsFuture == null
+      ? this.groupsClient.iterateDirectGroupMemberships(user)
+      : null) {
+      var effectivePoliciesFuture = getEffectiveIamPoliciesAsync(projectId);
+
+      allBindings = ThrowingCompletableFuture.awaitAndRethrow(effectivePoliciesFuture)
+        .stream()
 
-    var principalSetForUser = new PrincipalSet(
-      user,
-      ThrowingCompletableFuture
-        .awaitAndRethrow(listMembershipsFuture)
+        // All bindings, across all resources in the ancestry.
+        .flatMap(policy -> policy.getPolicy().getBindings().stream())
+        .collect(Collectors.toList());
+
+      //
+      // We only care about groups that are referenced by any of the
+      // bindings. Users can be members of a large number of groups, so
+      // stop reading group memberships as soon as we've found all the
+      // groups that matter.
+      //
+      var referencedGroups = allBindings
         .stream()
-        .map(g -> new GroupId(g.getEmail()))
-        .collect(Collectors.toList()));
+        .flatMap(binding -> binding.getMembers().stream())
+        .map(String::toLowerCase)
+        .filter(member -> member.startsWith(GROUP_PREFIX))
+        .map(member -> new GroupId(member.substring(GROUP_PREFIX.length())))
+        .collect(Collectors.toCollection(HashSet::new));
+
+      if (cachedMembershipsFuture != null) {
+        ThrowingCompletableFuture.awaitAndRethrow(cachedMembershipsFuture)
+          .stream()
+          .filter(referencedGroups::contains)
+          .forEach(groups::add);
+      }
+      else {
+        while (!referencedGroups.isEmpty() && memberships.hasNext()) {
+          var group = new GroupId(memberships.next().getEmail());
+          if (referencedGroups.remove(group)) {
+            groups.add(group);
+          }
+        }
+      }
+    }
 
-    return ThrowingCompletableFuture.awaitAndRethrow(effectivePoliciesFuture)
-      .stream()
+    var principalSetForUser = new PrincipalSet(user, groups);
 
-      // All bindings, across all resources in the ancestry.
-      .flatMap(policy -> policy.getPolicy().getBindings().stream())
+    return allBindings
+      .stream()
 
       // Only bindings that apply to the user.
       .filter(binding -> principalSetForUser.isMember(binding))
@@ -221,9 +381,8 @@ public class AssetInventoryRepository extends ProjectRoleRepository {
     @NotNull ActivationType activationType
   ) throws AccessException, IOException {
 
-    var policies = this.assetInventoryClient.getEffectiveIamPolicies(
-      this.options.scope,
-      projectRole.projectId());
+    var policies = ThrowingCompletableFuture.awaitAndRethrow(
+      getEffectiveIamPoliciesAsync(projectRole.projectId()));
 
     var principals = policies
       .stream()
@@ -255,40 +414,39 @@ public class AssetInventoryRepository extends ProjectRoleRepository {
       .collect(Collectors.toSet());
 
     //
-    // Resolve groups.
+    // Resolve groups. Lookups are batched so that we don't need a
+    // separate round trip for each group.
     //
-    List<CompletableFuture<Collection<Member>>> listMembersFutures = principals.stream()
-      .filter(p -> p.startsWith(GROUP_PREFIX))
-      .map(p -> p.substring(GROUP_PREFIX.length()))
-      .distinct()
-      .map(groupEmail -> ThrowingCompletableFuture.submit(
-        () -> {
-          try {
-            return this.groupsClient.listDirectGroupMembers(groupEmail);
-          }
-          catch (AccessDeniedException e) {
-            //
-            // Access might be denied if this is an external group,
-            // but this is okay.
-            //
-            return List.<Member>of();
-          }
-        },
-        this.executor))
-      .toList();
+    var listMembersFutures = getGroupMembersAsync(
+      principals.stream()
+        .filter(p -> p.startsWith(GROUP_PREFIX))
+        .map(p -> p.substring(GROUP_PREFIX.length()))
+        .distinct()
+        .toList());
 
     var allMembers = new HashSet<>(allUserMembers);
 
-    for (var listMembersFuture : listMembersFutures) {
-      var members = ThrowingCompletableFuture.awaitAndRethrow(listMembersFuture)
-        .stream()
-        .map(m -> new UserId(m.getEmail())).toList();
-      allMembers.addAll(members);
+    for (var listMembersFuture : listMembersFutures.values()) {
+      allMembers.addAll(ThrowingCompletableFuture.awaitAndRethrow(listMembersFuture));
     }
 
     return allMembers;
   }
 
+  @Override
+  void invalidate(@NotNull ProjectId projectId) {
+    this.effectiveIamPolicies.invalidate(projectId);
+  }
+
+  @Override
+  public @NotNull Map<String, Cache.Statistics> cacheStatistics() {
+    return Map.of(
+      EFFECTIVE_IAM_POLICIES_CACHE, this.effectiveIamPolicies.statistics(),
+      GROUP_MEMBERSHIPS_CACHE, this.groupMemberships.statistics(),
+      GROUP_MEMBERS_CACHE, this.groupMembers.statistics(),
+      INACCESSIBLE_GROUPS_CACHE, this.inaccessibleGroups.statistics());
+  }
+
   // -------------------------------------------------------------------------
   // Inner classes.
   // -------------------------------------------------------------------------
@@ -324,13 +482,44 @@ public class AssetInventoryRepository extends ProjectRoleRepository {
 
   /**
    * @param scope Scope to use for queries.
+   * @param effectiveIamPoliciesCache Options for caching effective IAM policies.
+   * @param groupMembershipsCache Options for caching the groups a user is a member of.
+   * @param groupMembersCache Options for caching the members of a group.
+   * @param inaccessibleGroupsCache Options for caching groups that we're
+   *                                not allowed to look up members for.
    */
   public record Options(
-    @NotNull String scope
+    @NotNull String scope,
+    @NotNull Cache.Options effectiveIamPoliciesCache,
+    @NotNull Cache.Options groupMembershipsCache,
+    @NotNull Cache.Options groupMembersCache,
+    @NotNull Cache.Options inaccessibleGroupsCache
   ) {
 
     public Options {
       Preconditions.checkNotNull(scope, "scope");
+      Preconditions.checkNotNull(effectiveIamPoliciesCache, "effectiveIamPoliciesCache");
+      Preconditions.checkNotNull(groupMembershipsCache, "groupMembershipsCache");
+      Preconditions.checkNotNull(groupMembersCache, "groupMembersCache");
+      Preconditions.checkNotNull(inaccessibleGroupsCache, "inaccessibleGroupsCache");
+    }
+
+    public Options(
+      @NotNull String scope,
+      @NotNull Cache.Options effectiveIamPoliciesCache,
+      @NotNull Cache.Options groupMembershipsCache,
+      @NotNull Cache.Options groupMembersCache
+    ) {
+      this(
+        scope,
+        effectiveIamPoliciesCache,
+        groupMembershipsCache,
+        groupMembersCache,
+        Cache.Options.DISABLED);
+    }
+
+    public Options(@NotNull String scope) {
+      this(scope, Cache.Options.DISABLED, Cache.Options.DISABLED, Cache.Options.DISABLED);
     }
   }
 }
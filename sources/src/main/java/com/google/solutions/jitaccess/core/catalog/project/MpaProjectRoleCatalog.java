@@ -25,10 +25,12 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.solutions.jitaccess.core.AccessDeniedException;
 import com.google.solutions.jitaccess.core.AccessException;
+import com.google.solutions.jitaccess.core.Cache;
+import com.google.solutions.jitaccess.core.Deadline;
+import com.google.solutions.jitaccess.core.ThrowingCompletableFuture;
 import com.google.solutions.jitaccess.core.catalog.ProjectId;
 import com.google.solutions.jitaccess.core.auth.UserId;
 import com.google.solutions.jitaccess.core.catalog.*;
-import com.google.solutions.jitaccess.core.clients.ResourceManagerClient;
 import jakarta.inject.Singleton;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -36,6 +38,7 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -47,22 +50,49 @@ public class MpaProjectRoleCatalog implements Catalog<
   ProjectRole,
   ProjectId,
   MpaProjectRoleCatalog.UserContext> {
+  public static final String ENTITLEMENTS_CACHE = "Entitlements";
+  public static final String SCOPES_CACHE = "Scopes";
+
   private final @NotNull ProjectRoleRepository repository;
-  private final @NotNull ResourceManagerClient resourceManagerClient;
+  private final @NotNull ProjectListRefresher projectList;
+  private final @NotNull Executor executor;
   private final @NotNull Options options;
+  private final @NotNull Cache<EntitlementsKey, EntitlementSet<ProjectRole>> entitlements;
+  private final @NotNull Cache<UserId, SortedSet<ProjectId>> scopes;
 
   public MpaProjectRoleCatalog(
     @NotNull ProjectRoleRepository repository,
-    @NotNull ResourceManagerClient resourceManagerClient,
+    @NotNull ProjectListRefresher projectList,
+    @NotNull Executor executor,
     @NotNull Options options
   ) {
     Preconditions.checkNotNull(repository, "repository");
-    Preconditions.checkNotNull(resourceManagerClient, "resourceManagerClient");
+    Preconditions.checkNotNull(projectList, "projectList");
+    Preconditions.checkNotNull(executor, "executor");
     Preconditions.checkNotNull(options, "options");
 
     this.repository = repository;
-    this.resourceManagerClient = resourceManagerClient;
+    this.projectList = projectList;
+    this.executor = Deadline.propagate(executor);
     this.options = options;
+    this.entitlements = new Cache<>(options.entitlementsCache());
+    this.scopes = new Cache<>(options.scopesCache());
+  }
+
+  /**
+   * Find JIT- and MPA-eligible entitlements for a user, using cached
+   * entitlements if possible.
+   */
+  private @NotNull EntitlementSet<ProjectRole> findEntitlements(
+    @NotNull UserId user,
+    @NotNull ProjectId projectId
+  ) throws AccessException, IOException {
+    return this.entitlements.get(
+      new EntitlementsKey(user, projectId),
+      () -> this.repository.findEntitlements(
+        user,
+        projectId,
+        EnumSet.of(ActivationType.JIT, ActivationType.MPA)));
   }
 
   void validateRequest(
@@ -108,14 +138,31 @@ public class MpaProjectRoleCatalog implements Catalog<
     // NB. It doesn't matter whether the user has already
     // activated the role.
     //
-    var userEntitlements = this.repository
-      .findEntitlements(
-        user,
-        projectId,
-        EnumSet.of(activationType))
-      .available()
-      .stream()
-      .collect(Collectors.toMap(ent -> ent.id(), ent -> ent));
+    Map<ProjectRole, Entitlement<ProjectRole>> userEntitlements = Map.of();
+    if (this.options.entitlementsCache().isEnabled()) {
+      userEntitlements = findEntitlements(user, projectId)
+        .available()
+        .stream()
+        .filter(ent -> ent.activationType() == activationType)
+        .collect(Collectors.toMap(ent -> ent.id(), ent -> ent));
+    }
+
+    if (!userEntitlements.keySet().containsAll(entitlements)) {
+      //
+      // Cached entitlements might be outdated, and they omit
+      // MPA-eligible roles that are also JIT-eligible. So unless
+      // the cached entitlements suffice, look up the entitlements
+      // of the requested type.
+      //
+      userEntitlements = this.repository
+        .findEntitlements(
+          user,
+          projectId,
+          EnumSet.of(activationType))
+        .available()
+        .stream()
+        .collect(Collectors.toMap(ent -> ent.id(), ent -> ent));
+    }
 
     assert userEntitlements.values().stream().allMatch(e -> e.activationType() == activationType);
 
@@ -156,7 +203,17 @@ public class MpaProjectRoleCatalog implements Catalog<
       // Find projects for which the user has any role bindings (eligible
       // or regular bindings). This method is slow, but accurate.
       //
-      return this.repository.findProjectsWithEntitlements(userContext.user());
+      // Users mostly return to the same projects, so serve the last
+      // known result (if any) and refresh it in the background once
+      // it's outdated. Only when the result has expired entirely,
+      // the user has to wait.
+      //
+      var user = userContext.user();
+      return ThrowingCompletableFuture.awaitAndRethrow(this.scopes.execute(
+        user,
+        () -> ThrowingCompletableFuture.submit(
+          () -> this.repository.findProjectsWithEntitlements(user),
+          this.executor)));
     }
     else {
       //
@@ -166,8 +223,10 @@ public class MpaProjectRoleCatalog implements Catalog<
       // entitlements for. Depending on the nature of the projects,
       // this might be acceptable or considered information disclosure.
       //
-      return this.resourceManagerClient.searchProjectIds(
-        this.options.availableProjectsQuery);
+      // The list is the same for all users and refreshed in the
+      // background, so there's no need to search on every request.
+      //
+      return this.projectList.projects();
     }
   }
 
@@ -176,10 +235,7 @@ public class MpaProjectRoleCatalog implements Catalog<
     @NotNull UserContext userContext,
     @NotNull ProjectId projectId
   ) throws AccessException, IOException {
-    return this.repository.findEntitlements(
-      userContext.user(),
-      projectId,
-      EnumSet.of(ActivationType.JIT, ActivationType.MPA));
+    return findEntitlements(userContext.user(), projectId);
   }
 
   @Override
@@ -254,6 +310,47 @@ public class MpaProjectRoleCatalog implements Catalog<
       request.entitlements());
   }
 
+  @Override
+  public void onRequestProvisioned(
+    @NotNull ActivationRequest<ProjectRole> request,
+    @Nullable Activation activation
+  ) {
+    var projectId = ProjectActivationRequest.projectId(request);
+
+    //
+    // The request added bindings to the project's IAM policy, so any
+    // cached copy of that policy is outdated.
+    //
+    this.repository.invalidate(projectId);
+
+    //
+    // The requesting user's entitlements only changed in that the
+    // requested roles are now active, so we can update the cached
+    // entitlements in place. If provisioning failed, we don't know
+    // what changed.
+    //
+    var key = new EntitlementsKey(request.requestingUser(), projectId);
+    if (activation != null) {
+      this.entitlements.update(
+        key,
+        cached -> cached.withActivation(request.entitlements(), activation));
+    }
+    else {
+      this.entitlements.invalidate(key);
+    }
+  }
+
+  /**
+   * Get statistics about caches used by this catalog and its
+   * repository, keyed by cache name.
+   */
+  public @NotNull Map<String, Cache.Statistics> cacheStatistics() {
+    var statistics = new TreeMap<>(this.repository.cacheStatistics());
+    statistics.put(ENTITLEMENTS_CACHE, this.entitlements.statistics());
+    statistics.put(SCOPES_CACHE, this.scopes.statistics());
+    return statistics;
+  }
+
   // -------------------------------------------------------------------------
   // Inner classes.
   // -------------------------------------------------------------------------
@@ -263,6 +360,12 @@ public class MpaProjectRoleCatalog implements Catalog<
   ) implements CatalogUserContext {
   }
 
+  private record EntitlementsKey(
+    @NotNull UserId user,
+    @NotNull ProjectId projectId
+  ) {
+  }
+
   /**
    * If a query is provided, the class performs a Resource Manager project
    * search instead of Policy Analyzer query to list projects. This is faster,
@@ -271,17 +374,26 @@ public class MpaProjectRoleCatalog implements Catalog<
    * @param availableProjectsQuery optional, search query, for example:
    *      - parent:folders/{folder_id}
    * @param maxActivationDuration maximum duration for an activation
+   * @param entitlementsCache options for caching the entitlements of a user
+   * @param scopesCache options for caching the projects a user has
+   *                    entitlements for, the refresh interval
+   *                    determines when outdated results are refreshed
+   *                    in the background
    */
   public record Options(
     @Nullable String availableProjectsQuery,
     @NotNull Duration maxActivationDuration,
     @NotNull int minNumberOfReviewersPerActivationRequest,
-    @NotNull int maxNumberOfReviewersPerActivationRequest
+    @NotNull int maxNumberOfReviewersPerActivationRequest,
+    @NotNull Cache.Options entitlementsCache,
+    @NotNull Cache.Options scopesCache
   ) {
     static final int MIN_ACTIVATION_TIMEOUT_MINUTES = 5;
 
     public Options {
       Preconditions.checkNotNull(maxActivationDuration, "maxActivationDuration");
+      Preconditions.checkNotNull(entitlementsCache, "entitlementsCache");
+      Preconditions.checkNotNull(scopesCache, "scopesCache");
 
       Preconditions.checkArgument(!maxActivationDuration.isNegative());
       Preconditions.checkArgument(
@@ -295,6 +407,21 @@ public class MpaProjectRoleCatalog implements Catalog<
         "The minimum number of reviewers must not exceed the maximum");
     }
 
+    public Options(
+      @Nullable String availableProjectsQuery,
+      @NotNull Duration maxActivationDuration,
+      int minNumberOfReviewersPerActivationRequest,
+      int maxNumberOfReviewersPerActivationRequest
+    ) {
+      this(
+        availableProjectsQuery,
+        maxActivationDuration,
+        minNumberOfReviewersPerActivationRequest,
+        maxNumberOfReviewersPerActivationRequest,
+        Cache.Options.DISABLED,
+        Cache.Options.DISABLED);
+    }
+
     public @NotNull Duration minActivationDuration() {
       return Duration.ofMinutes(MIN_ACTIVATION_TIMEOUT_MINUTES);
     }
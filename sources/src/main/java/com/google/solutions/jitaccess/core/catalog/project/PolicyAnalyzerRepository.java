@@ -22,8 +22,8 @@
 package com.google.solutions.jitaccess.core.catalog.project;
 
 import com.google.api.services.cloudasset.v1.model.Expr;
-import com.google.api.services.cloudasset.v1.model.IamPolicyAnalysis;
 import com.google.api.services.cloudasset.v1.model.IamPolicyAnalysisResult;
+import com.google.api.services.cloudasset.v1.model.IamPolicyAnalysisState;
 import com.google.common.base.Preconditions;
 import com.google.solutions.jitaccess.cel.TemporaryIamCondition;
 import com.google.solutions.jitaccess.core.AccessException;
@@ -34,7 +34,6 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -66,42 +65,44 @@ public class PolicyAnalyzerRepository extends ProjectRoleRepository {
     String role,
     Expr condition) {}
 
-  static @NotNull List<ConditionalRoleBinding> findRoleBindings(
-    @NotNull IamPolicyAnalysis analysisResult,
+  /**
+   * Find role bindings in an analysis result that satisfy the given
+   * condition and condition evaluation predicates.
+   */
+  static @NotNull Stream<ConditionalRoleBinding> findRoleBindings(
+    @NotNull IamPolicyAnalysisResult result,
     @NotNull Predicate<Expr> conditionPredicate,
     @NotNull Predicate<String> conditionEvaluationPredicate
   ) {
-    Function<IamPolicyAnalysisResult, Expr> getIamCondition =
-      res -> res.getIamBinding() != null ? res.getIamBinding().getCondition() : null;
+    var condition = result.getIamBinding() != null ? result.getIamBinding().getCondition() : null;
+
+    // Narrow down to IAM bindings with a specific IAM condition.
+    if (!conditionPredicate.test(condition)) {
+      return Stream.empty();
+    }
 
     //
     // NB. We don't really care which resource a policy is attached to
     // (indicated by AttachedResourceFullName). Instead, we care about
     // which resources it applies to.
     //
-    return Stream.ofNullable(analysisResult.getAnalysisResults())
-      .flatMap(Collection::stream)
+    return result
+      .getAccessControlLists()
+      .stream()
 
-      // Narrow down to IAM bindings with a specific IAM condition.
-      .filter(result -> conditionPredicate.test(getIamCondition.apply(result)))
-      .flatMap(result -> result
-        .getAccessControlLists()
-        .stream()
+      // Narrow down to ACLs with a specific IAM condition evaluation result.
+      .filter(acl -> conditionEvaluationPredicate.test(acl.getConditionEvaluation() != null
+        ? acl.getConditionEvaluation().getEvaluationValue()
+        : null))
 
-        // Narrow down to ACLs with a specific IAM condition evaluation result.
-        .filter(acl -> conditionEvaluationPredicate.test(acl.getConditionEvaluation() != null
-          ? acl.getConditionEvaluation().getEvaluationValue()
-          : null))
-
-        // Collect all (supported) resources covered by these bindings/ACLs.
-        .flatMap(acl -> acl.getResources()
-          .stream()
-          .filter(res -> ProjectId.canParse(res.getFullResourceName()))
-          .map(res -> new ConditionalRoleBinding(
-            ProjectId.parse(res.getFullResourceName()),
-            result.getIamBinding().getRole(),
-            getIamCondition.apply(result)))))
-      .collect(Collectors.toList());
+      // Collect all (supported) resources covered by these bindings/ACLs.
+      .flatMap(acl -> acl.getResources()
+        .stream()
+        .filter(res -> ProjectId.canParse(res.getFullResourceName()))
+        .map(res -> new ConditionalRoleBinding(
+          ProjectId.parse(res.getFullResourceName()),
+          result.getIamBinding().getRole(),
+          condition)));
   }
 
   //---------------------------------------------------------------------------
@@ -128,27 +129,26 @@ public class PolicyAnalyzerRepository extends ProjectRoleRepository {
     // - only applies to projects, and has no meaning on descendant resources
     // - represents the lowest level of access to a project.
     //
-    var analysisResult = this.policyAnalyzerClient.findAccessibleResourcesByUser(
+    // Consider permanent and eligible bindings. Process analysis
+    // results as they're parsed so that we only need to retain
+    // the project IDs.
+    //
+    var projectIds = new TreeSet<ProjectId>();
+    this.policyAnalyzerClient.findAccessibleResourcesByUser(
       this.options.scope,
       user,
       Optional.of("resourcemanager.projects.get"),
       Optional.empty(),
-      true);
-
-    //
-    // Consider permanent and eligible bindings.
-    //
-    var roleBindings = findRoleBindings(
-      analysisResult,
-      condition -> condition == null || ProjectRole.EligibilityCondition.parse(condition).isPresent(),
-      evalResult -> evalResult == null ||
-        "TRUE".equalsIgnoreCase(evalResult) ||
-        "CONDITIONAL".equalsIgnoreCase(evalResult));
-
-    return roleBindings
-      .stream()
-      .map(b -> b.projectId())
-      .collect(Collectors.toCollection(TreeSet::new));
+      true,
+      result -> findRoleBindings(
+          result,
+          condition -> condition == null || ProjectRole.EligibilityCondition.parse(condition).isPresent(),
+          evalResult -> evalResult == null ||
+            "TRUE".equalsIgnoreCase(evalResult) ||
+            "CONDITIONAL".equalsIgnoreCase(evalResult))
+        .forEach(binding -> projectIds.add(binding.projectId())));
+
+    return projectIds;
   }
 
   @Override
@@ -174,62 +174,34 @@ public class PolicyAnalyzerRepository extends ProjectRoleRepository {
     // admin role.
     //
 
-    var analysisResult = this.policyAnalyzerClient.findAccessibleResourcesByUser(
+    //
+    // Classify analysis results as they're parsed so that we only
+    // need to retain the role bindings that are relevant.
+    //
+    var roleBindings = new RoleBindingCollector(typesToInclude);
+    this.policyAnalyzerClient.findAccessibleResourcesByUser(
       this.options.scope,
       user,
       Optional.empty(),
       Optional.of(projectId.getFullResourceName()),
-      false);
+      false,
+      roleBindings);
 
-    //
-    // Find all JIT-eligible role bindings. The bindings are
-    // conditional and have a special condition that serves
-    // as marker.
-    //
-    Set<Entitlement<ProjectRole>> jitEligible;
-    if (typesToInclude.contains(ActivationType.JIT)) {
-      jitEligible = findRoleBindings(
-        analysisResult,
-        condition -> ProjectRole.EligibilityCondition
-          .parse(condition)
-          .filter(ProjectRole.EligibilityCondition::isJitEligible)
-          .isPresent(),
-        evalResult -> "CONDITIONAL".equalsIgnoreCase(evalResult))
-        .stream()
-        .map(conditionalBinding -> new Entitlement<>(
-          new ProjectRole(conditionalBinding.projectId(), conditionalBinding.role()),
-          conditionalBinding.role(),
-          ActivationType.JIT))
-        .collect(Collectors.toSet());
-    }
-    else {
-      jitEligible = Set.of();
-    }
+    Set<Entitlement<ProjectRole>> jitEligible = roleBindings.jitEligible
+      .stream()
+      .map(conditionalBinding -> new Entitlement<>(
+        new ProjectRole(conditionalBinding.projectId(), conditionalBinding.role()),
+        conditionalBinding.role(),
+        ActivationType.JIT))
+      .collect(Collectors.toSet());
 
-    //
-    // Find all MPA-eligible role bindings. The bindings are
-    // conditional and have a special condition that serves
-    // as marker.
-    //
-    Set<Entitlement<ProjectRole>> mpaEligible;
-    if (typesToInclude.contains(ActivationType.MPA)) {
-      mpaEligible = findRoleBindings(
-        analysisResult,
-        condition -> ProjectRole.EligibilityCondition
-          .parse(condition)
-          .filter(ProjectRole.EligibilityCondition::isMpaEligible)
-          .isPresent(),
-        evalResult -> "CONDITIONAL".equalsIgnoreCase(evalResult))
-        .stream()
-        .map(conditionalBinding -> new Entitlement<>(
-          new ProjectRole(conditionalBinding.projectId(), conditionalBinding.role()),
-          conditionalBinding.role(),
-          ActivationType.MPA))
-        .collect(Collectors.toSet());
-    }
-    else {
-      mpaEligible = Set.of();
-    }
+    Set<Entitlement<ProjectRole>> mpaEligible = roleBindings.mpaEligible
+      .stream()
+      .map(conditionalBinding -> new Entitlement<>(
+        new ProjectRole(conditionalBinding.projectId(), conditionalBinding.role()),
+        conditionalBinding.role(),
+        ActivationType.MPA))
+      .collect(Collectors.toSet());
 
     //
     // Determine effective set of eligible roles. If a role is both JIT- and
@@ -242,16 +214,7 @@ public class PolicyAnalyzerRepository extends ProjectRoleRepository {
       .filter(r -> jitEligible.stream().noneMatch(a -> a.id().equals(r.id())))
       .toList());
 
-    //
-    // Find role bindings that represent an activation.
-    // These bindings have a time condition that we created, and
-    // the condition evaluates to TRUE (indicating it's still
-    // valid).
-    //
-    var currentActivations = findRoleBindings(
-        analysisResult,
-        condition -> ProjectRole.ActivationCondition.parse(condition).isPresent(),
-        evalResult -> "TRUE".equalsIgnoreCase(evalResult))
+    var currentActivations = roleBindings.currentActivations
       .stream()
       .collect(Collectors.toMap(
         conditionalBinding -> new ProjectRole(
@@ -260,13 +223,7 @@ public class PolicyAnalyzerRepository extends ProjectRoleRepository {
         conditionalBinding -> new Activation(
           new TemporaryIamCondition(conditionalBinding.condition.getExpression()).getValidity())));
 
-    //
-    // Do the same for conditions that evaluated to FALSE.
-    //
-    var expiredActivations = findRoleBindings(
-        analysisResult,
-      condition -> ProjectRole.ActivationCondition.parse(condition).isPresent(),
-        evalResult -> "FALSE".equalsIgnoreCase(evalResult))
+    var expiredActivations = roleBindings.expiredActivations
       .stream()
       .collect(Collectors.toMap(
         conditionalBinding -> new ProjectRole(
@@ -275,12 +232,7 @@ public class PolicyAnalyzerRepository extends ProjectRoleRepository {
         conditionalBinding -> new Activation(
           new TemporaryIamCondition(conditionalBinding.condition.getExpression()).getValidity())));
 
-    var warnings = Stream.ofNullable(analysisResult.getNonCriticalErrors())
-      .flatMap(Collection::stream)
-      .map(e -> e.getCause())
-      .collect(Collectors.toSet());
-
-    return new EntitlementSet<>(allAvailable, currentActivations, expiredActivations, warnings);
+    return new EntitlementSet<>(allAvailable, currentActivations, expiredActivations, roleBindings.warnings);
   }
 
   @Override
@@ -319,6 +271,76 @@ public class PolicyAnalyzerRepository extends ProjectRoleRepository {
   // Inner classes.
   // -------------------------------------------------------------------------
 
+  /**
+   * Classifies analysis results into eligible role bindings and
+   * activations, discarding everything else.
+   */
+  private static class RoleBindingCollector implements PolicyAnalyzerClient.AnalysisHandler {
+    private final @NotNull EnumSet<ActivationType> typesToInclude;
+    private final @NotNull List<ConditionalRoleBinding> jitEligible = new ArrayList<>();
+    private final @NotNull List<ConditionalRoleBinding> mpaEligible = new ArrayList<>();
+    private final @NotNull List<ConditionalRoleBinding> currentActivations = new ArrayList<>();
+    private final @NotNull List<ConditionalRoleBinding> expiredActivations = new ArrayList<>();
+    private final @NotNull Set<String> warnings = new HashSet<>();
+
+    private RoleBindingCollector(@NotNull EnumSet<ActivationType> typesToInclude) {
+      this.typesToInclude = typesToInclude;
+    }
+
+    @Override
+    public void onAnalysisResult(@NotNull IamPolicyAnalysisResult result) {
+      //
+      // Find JIT- and MPA-eligible role bindings. The bindings are
+      // conditional and have a special condition that serves
+      // as marker.
+      //
+      if (this.typesToInclude.contains(ActivationType.JIT)) {
+        findRoleBindings(
+          result,
+          condition -> ProjectRole.EligibilityCondition
+            .parse(condition)
+            .filter(ProjectRole.EligibilityCondition::isJitEligible)
+            .isPresent(),
+          evalResult -> "CONDITIONAL".equalsIgnoreCase(evalResult))
+          .forEach(this.jitEligible::add);
+      }
+
+      if (this.typesToInclude.contains(ActivationType.MPA)) {
+        findRoleBindings(
+          result,
+          condition -> ProjectRole.EligibilityCondition
+            .parse(condition)
+            .filter(ProjectRole.EligibilityCondition::isMpaEligible)
+            .isPresent(),
+          evalResult -> "CONDITIONAL".equalsIgnoreCase(evalResult))
+          .forEach(this.mpaEligible::add);
+      }
+
+      //
+      // Find role bindings that represent an activation.
+      // These bindings have a time condition that we created, and
+      // the condition evaluates to TRUE if the activation is still
+      // valid, or FALSE if it has expired.
+      //
+      findRoleBindings(
+        result,
+        condition -> ProjectRole.ActivationCondition.parse(condition).isPresent(),
+        evalResult -> "TRUE".equalsIgnoreCase(evalResult))
+        .forEach(this.currentActivations::add);
+
+      findRoleBindings(
+        result,
+        condition -> ProjectRole.ActivationCondition.parse(condition).isPresent(),
+        evalResult -> "FALSE".equalsIgnoreCase(evalResult))
+        .forEach(this.expiredActivations::add);
+    }
+
+    @Override
+    public void onNonCriticalError(@NotNull IamPolicyAnalysisState error) {
+      this.warnings.add(error.getCause());
+    }
+  }
+
   /**
    * @param scope Scope to use for queries.
    */
@@ -0,0 +1,199 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.catalog.project;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.solutions.jitaccess.core.AccessException;
+import com.google.solutions.jitaccess.core.SingleFlight;
+import com.google.solutions.jitaccess.core.catalog.ProjectId;
+import com.google.solutions.jitaccess.core.clients.ResourceManagerClient;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Maintains the list of projects that match a search query.
+ *
+ * The result of the search is the same for all users, so rather than
+ * searching for projects on every request, the refresher searches
+ * periodically in the background and replaces the list as a whole.
+ * Requests only read the current list.
+ *
+ * If a refresh fails, the refresher keeps the current list and
+ * retries after a backoff.
+ *
+ * Refreshes are coalesced: Requests that arrive before the list has
+ * been populated share a single search, including the one that was
+ * started in the background.
+ */
+public class ProjectListRefresher {
+  private final @NotNull ResourceManagerClient resourceManagerClient;
+  private final @NotNull Options options;
+  private final @NotNull ScheduledExecutorService scheduler;
+  private final @NotNull AtomicReference<SortedSet<ProjectId>> projects = new AtomicReference<>();
+  private final @NotNull SingleFlight<String, SortedSet<ProjectId>> refreshes = new SingleFlight<>();
+
+  public ProjectListRefresher(
+    @NotNull ResourceManagerClient resourceManagerClient,
+    @NotNull Options options,
+    @NotNull ScheduledExecutorService scheduler
+  ) {
+    Preconditions.checkNotNull(resourceManagerClient, "resourceManagerClient");
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkNotNull(scheduler, "scheduler");
+
+    this.resourceManagerClient = resourceManagerClient;
+    this.options = options;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Check if a query has been configured. If not, the list of
+   * projects isn't available.
+   */
+  public boolean isEnabled() {
+    return !Strings.isNullOrEmpty(this.options.query);
+  }
+
+  /**
+   * Start refreshing the list in the background. The first
+   * refresh happens immediately.
+   */
+  public void start() {
+    if (isEnabled()) {
+      this.scheduler.execute(this::refreshAndReschedule);
+    }
+  }
+
+  private void refreshAndReschedule() {
+    Duration delay;
+    try {
+      refresh();
+
+      //
+      // Add jitter so that instances that started at the same time
+      // don't all search at the same time.
+      //
+      delay = this.options.refreshInterval.plusMillis(
+        ThreadLocalRandom.current().nextLong(this.options.maxJitter.toMillis() + 1));
+    }
+    catch (AccessException | IOException | RuntimeException e) {
+      //
+      // Keep the schedule going, an exception escaping the
+      // task would cancel all further refreshes.
+      //
+      delay = this.options.retryBackoff;
+    }
+
+    this.scheduler.schedule(
+      this::refreshAndReschedule,
+      delay.toMillis(),
+      TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Search for projects and replace the current list. If a search
+   * is already in flight, wait for its result instead.
+   */
+  @NotNull SortedSet<ProjectId> refresh() throws AccessException, IOException {
+    Preconditions.checkState(isEnabled(), "No query configured");
+
+    return this.refreshes.get(this.options.query, () -> {
+      var projects = Collections.unmodifiableSortedSet(
+        this.resourceManagerClient.searchProjectIds(this.options.query));
+
+      this.projects.set(projects);
+      return projects;
+    });
+  }
+
+  /**
+   * Get statistics about how many refreshes were coalesced.
+   */
+  @NotNull SingleFlight.Statistics refreshStatistics() {
+    return this.refreshes.statistics();
+  }
+
+  /**
+   * Get the current list of projects. If the list hasn't been
+   * populated yet, search for projects synchronously, or wait for
+   * the search that's already in flight.
+   */
+  public @NotNull SortedSet<ProjectId> projects() throws AccessException, IOException {
+    var projects = this.projects.get();
+    return projects != null ? projects : refresh();
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * @param query search query, for example:
+   *      - parent:folders/{folder_id}
+   *      Null or empty to disable.
+   * @param refreshInterval time between refreshes
+   * @param maxJitter maximum random time to add to the refresh interval
+   * @param retryBackoff time to wait before retrying a failed refresh
+   */
+  public record Options(
+    @Nullable String query,
+    @NotNull Duration refreshInterval,
+    @NotNull Duration maxJitter,
+    @NotNull Duration retryBackoff
+  ) {
+    public static final Duration DEFAULT_MAX_JITTER = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofSeconds(30);
+
+    public Options {
+      Preconditions.checkNotNull(refreshInterval, "refreshInterval");
+      Preconditions.checkNotNull(maxJitter, "maxJitter");
+      Preconditions.checkNotNull(retryBackoff, "retryBackoff");
+
+      Preconditions.checkArgument(
+        !refreshInterval.isNegative() && !refreshInterval.isZero(),
+        "The refresh interval must be positive");
+      Preconditions.checkArgument(
+        !maxJitter.isNegative(),
+        "The jitter must not be negative");
+      Preconditions.checkArgument(
+        !retryBackoff.isNegative() && !retryBackoff.isZero(),
+        "The retry backoff must be positive");
+    }
+
+    public Options(
+      @Nullable String query,
+      @NotNull Duration refreshInterval
+    ) {
+      this(query, refreshInterval, DEFAULT_MAX_JITTER, DEFAULT_RETRY_BACKOFF);
+    }
+  }
+}
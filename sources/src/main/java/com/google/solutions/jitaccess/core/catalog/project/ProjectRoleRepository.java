@@ -22,6 +22,7 @@
 package com.google.solutions.jitaccess.core.catalog.project;
 
 import com.google.solutions.jitaccess.core.AccessException;
+import com.google.solutions.jitaccess.core.Cache;
 import com.google.solutions.jitaccess.core.catalog.ProjectId;
 import com.google.solutions.jitaccess.core.auth.UserId;
 import com.google.solutions.jitaccess.core.catalog.ActivationType;
@@ -30,6 +31,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.util.EnumSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 
@@ -61,4 +63,18 @@ public abstract class ProjectRoleRepository {
     @NotNull ProjectRole roleBinding,
     @NotNull ActivationType activationType
   ) throws AccessException, IOException;
+
+  /**
+   * Discard any cached information about a project's IAM policy,
+   * for example because a binding has been added to it.
+   */
+  void invalidate(@NotNull ProjectId projectId) {
+  }
+
+  /**
+   * Get statistics about caches used by this repository, keyed by cache name.
+   */
+  public @NotNull Map<String, Cache.Statistics> cacheStatistics() {
+    return Map.of();
+  }
 }
@@ -22,7 +22,6 @@
 package com.google.solutions.jitaccess.core.clients;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.cloudasset.v1.CloudAsset;
 import com.google.api.services.cloudasset.v1.model.PolicyInfo;
 import com.google.auth.oauth2.GoogleCredentials;
@@ -32,44 +31,81 @@ import com.google.solutions.jitaccess.core.catalog.ProjectId;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.security.GeneralSecurityException;
+import java.io.InterruptedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Adapter for the Asset Inventory API.
  */
 public class AssetInventoryClient {
   public static final String OAUTH_SCOPE = "https://www.googleapis.com/auth/cloud-platform";
+  public static final String BATCH_GET_EFFECTIVE_IAM_POLICIES = "BatchGetEffectiveIamPolicies";
+
   private final @NotNull GoogleCredentials credentials;
-  protected final @NotNull HttpTransport.Options httpOptions;
+  protected final @NotNull ClientFactory clientFactory;
+
+  private final @NotNull SingleFlight<EffectiveIamPoliciesKey, List<PolicyInfo>> effectiveIamPolicies =
+    new SingleFlight<>();
 
   public AssetInventoryClient(
     @NotNull GoogleCredentials credentials,
-    @NotNull HttpTransport.Options httpOptions
+    @NotNull ClientFactory clientFactory
   ) {
     Preconditions.checkNotNull(credentials, "credentials");
-    Preconditions.checkNotNull(httpOptions, "httpOptions");
+    Preconditions.checkNotNull(clientFactory, "clientFactory");
 
     this.credentials = credentials;
-    this.httpOptions = httpOptions;
+    this.clientFactory = clientFactory;
   }
 
-  protected @NotNull CloudAsset createClient() throws IOException {
-    try {
-      return new CloudAsset.Builder(
-        HttpTransport.newTransport(),
-        new GsonFactory(),
-        HttpTransport.newAuthenticatingRequestInitializer(this.credentials, this.httpOptions))
+  protected @NotNull CloudAsset createClient() throws AccessException, IOException {
+    return this.clientFactory.getClient(
+      CloudAsset.class,
+      this.credentials,
+      (transport, jsonFactory, initializer) -> new CloudAsset
+        .Builder(transport, jsonFactory, initializer)
         .setApplicationName(ApplicationVersion.USER_AGENT)
-        .build();
-    }
-    catch (GeneralSecurityException e) {
-      throw new IOException("Creating a CloudAsset client failed", e);
+        .build());
+  }
+
+  /**
+   * Acquire a permit from the rate limiter of an API method.
+   *
+   * Retries of requests sent while the returned scope is open
+   * acquire their permits from the same rate limiter.
+   *
+   * @throws QuotaExceededException if no permit is available in time,
+   * which means that the request would likely exceed the API quota.
+   */
+  protected @NotNull RateLimiter.Scope acquirePermit(
+    @NotNull String method
+  ) throws QuotaExceededException, InterruptedIOException {
+    var rateLimiter = this.clientFactory.policies().rateLimiter(method);
+    if (!rateLimiter.tryAcquire()) {
+      throw new QuotaExceededException(
+        String.format(
+          "Exceeded the rate limit for %s API requests. Try again later or increase the rate " +
+            "limit in the application configuration.",
+          method),
+        null);
     }
+
+    return rateLimiter.enter();
+  }
+
+  /**
+   * Get statistics about coalesced calls, keyed by API method name.
+   */
+  public @NotNull Map<String, SingleFlight.Statistics> coalescingStatistics() {
+    return Map.of(BATCH_GET_EFFECTIVE_IAM_POLICIES, this.effectiveIamPolicies.statistics());
   }
 
   /**
    * Get effective set of IAM policies for a project.
+   *
+   * Concurrent calls for the same project share a single request.
    */
   public List<PolicyInfo> getEffectiveIamPolicies(
     @NotNull String scope,
@@ -78,19 +114,43 @@ public class AssetInventoryClient {
     Preconditions.checkNotNull(scope, "scope");
     Preconditions.checkNotNull(projectId, "projectId");
 
+    return this.effectiveIamPolicies.get(
+      new EffectiveIamPoliciesKey(scope, projectId),
+      () -> fetchEffectiveIamPolicies(scope, projectId));
+  }
+
+  private List<PolicyInfo> fetchEffectiveIamPolicies(
+    @NotNull String scope,
+    @NotNull ProjectId projectId
+  ) throws AccessException, IOException {
     try
     {
-      var results = createClient()
-        .effectiveIamPolicies()
-        .batchGet(scope)
-        .setNames(List.of(projectId.getFullResourceName()))
-        .execute()
+      //
+      // Acquire a permit for each attempt so that hedged requests
+      // count against the rate limit, too.
+      //
+      var results = this.clientFactory
+        .policies()
+        .hedgingPolicy(CloudAsset.class, BATCH_GET_EFFECTIVE_IAM_POLICIES)
+        .execute(() -> {
+          try (var permit = acquirePermit(BATCH_GET_EFFECTIVE_IAM_POLICIES)) {
+            return createClient()
+              .effectiveIamPolicies()
+              .batchGet(scope)
+              .setNames(List.of(projectId.getFullResourceName()))
+              .setFields(ResponseFields.BATCH_GET_EFFECTIVE_IAM_POLICIES)
+              .execute();
+          }
+        })
         .getPolicyResults();
 
       return results.isEmpty()
         ? List.of()
         : results.get(0).getPolicies();
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
         case 401:
@@ -111,4 +171,30 @@ public class AssetInventoryClient {
       }
     }
   }
+
+  /**
+   * Get effective set of IAM policies for a project, asynchronously.
+   */
+  public @NotNull CompletableFuture<List<PolicyInfo>> getEffectiveIamPoliciesAsync(
+    @NotNull String scope,
+    @NotNull ProjectId projectId
+  ) {
+    Preconditions.checkNotNull(scope, "scope");
+    Preconditions.checkNotNull(projectId, "projectId");
+
+    return this.effectiveIamPolicies.execute(
+      new EffectiveIamPoliciesKey(scope, projectId),
+      () -> ThrowingCompletableFuture.submit(
+        () -> fetchEffectiveIamPolicies(scope, projectId),
+        this.clientFactory.policies().executor(CloudAsset.class)));
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  private record EffectiveIamPoliciesKey(
+    @NotNull String scope,
+    @NotNull ProjectId projectId
+  ) {}
 }
@@ -0,0 +1,332 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.common.base.Preconditions;
+import com.google.solutions.jitaccess.core.Deadline;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Resilience policies for backend APIs.
+ *
+ * Provides the executor that clients use to run asynchronous calls,
+ * the retry policy, circuit breaker, metrics, and bulkhead for each
+ * API, the rate limiter for each quota-constrained API method, and
+ * the hedging policy for each latency-sensitive API method.
+ *
+ * Policies are created on first use and then reused.
+ */
+public class BackendPolicies implements Diagnosable {
+  /**
+   * Maximum number of calls to an API that might be hedged and that
+   * can be pending at a time, unless the API's bulkhead specifies a
+   * limit.
+   */
+  static final int DEFAULT_MAX_HEDGING_THREADS = 20;
+
+  private final @NotNull Executor executor;
+  private final @NotNull Function<String, ApiOptions> apiOptions;
+  private final @NotNull Function<String, MethodOptions> methodOptions;
+  private final boolean openCircuitsAffectReadiness;
+  private final @NotNull Map<String, RetryPolicy> retryPolicies = new ConcurrentHashMap<>();
+  private final @NotNull Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private final @NotNull Map<String, Optional<Bulkhead>> bulkheads = new ConcurrentHashMap<>();
+  private final @NotNull Map<String, ClientMetrics> metrics = new ConcurrentHashMap<>();
+  private final @NotNull Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+  private final @NotNull Map<String, HedgingPolicy> hedgingPolicies = new ConcurrentHashMap<>();
+  private final @NotNull Map<String, Executor> hedgingExecutors = new ConcurrentHashMap<>();
+
+  /**
+   * @param executor shared executor for asynchronous calls
+   * @param apiOptions options, keyed by API name
+   * @param methodOptions options, keyed by API method name
+   * @param openCircuitsAffectReadiness report APIs whose circuit is open as unhealthy
+   */
+  public BackendPolicies(
+    @NotNull Executor executor,
+    @NotNull Function<String, ApiOptions> apiOptions,
+    @NotNull Function<String, MethodOptions> methodOptions,
+    boolean openCircuitsAffectReadiness
+  ) {
+    Preconditions.checkNotNull(executor, "executor");
+    Preconditions.checkNotNull(apiOptions, "apiOptions");
+    Preconditions.checkNotNull(methodOptions, "methodOptions");
+
+    //
+    // Let asynchronous calls inherit the deadline of the request
+    // that initiated them.
+    //
+    this.executor = Deadline.propagate(executor);
+    this.apiOptions = apiOptions;
+    this.methodOptions = methodOptions;
+    this.openCircuitsAffectReadiness = openCircuitsAffectReadiness;
+  }
+
+  public BackendPolicies(
+    @NotNull Executor executor,
+    @NotNull Function<String, ApiOptions> apiOptions,
+    @NotNull Function<String, MethodOptions> methodOptions
+  ) {
+    this(executor, apiOptions, methodOptions, false);
+  }
+
+  public BackendPolicies(@NotNull Executor executor) {
+    this(
+      executor,
+      api -> ApiOptions.DEFAULT,
+      method -> MethodOptions.DEFAULT);
+  }
+
+  /**
+   * Get the API name for a client class, for example CLOUDASSET
+   * for the CloudAsset client.
+   */
+  static @NotNull String apiName(@NotNull Class<?> clientClass) {
+    return clientClass.getSimpleName().toUpperCase();
+  }
+
+  /**
+   * Executor for asynchronous client calls.
+   */
+  public @NotNull Executor executor() {
+    return this.executor;
+  }
+
+  /**
+   * Executor for asynchronous calls to an API. Unless disabled, each
+   * API gets its own bulkhead so that a slow API can't starve calls
+   * to other APIs.
+   */
+  public @NotNull Executor executor(@NotNull Class<?> clientClass) {
+    return this.bulkheads
+      .computeIfAbsent(
+        apiName(clientClass),
+        api -> {
+          var options = this.apiOptions.apply(api).bulkhead();
+          return options.maxThreads() > 0
+            ? Optional.of(new Bulkhead(api, options))
+            : Optional.empty();
+        })
+      .map(bulkhead -> Deadline.propagate(bulkhead))
+      .orElse(this.executor);
+  }
+
+  /**
+   * Get the bulkheads of all APIs that are in use, keyed by API name.
+   */
+  public @NotNull Map<String, Bulkhead> bulkheads() {
+    var bulkheads = new TreeMap<String, Bulkhead>();
+    this.bulkheads.forEach((api, bulkhead) -> bulkhead.ifPresent(b -> bulkheads.put(api, b)));
+    return bulkheads;
+  }
+
+  /**
+   * Get the retry policy for an API.
+   */
+  public @NotNull RetryPolicy retryPolicy(@NotNull Class<?> clientClass) {
+    return this.retryPolicies.computeIfAbsent(
+      apiName(clientClass),
+      api -> new RetryPolicy(this.apiOptions.apply(api).retry()));
+  }
+
+  /**
+   * Get the circuit breaker for an API.
+   */
+  public @NotNull CircuitBreaker circuitBreaker(@NotNull Class<?> clientClass) {
+    return this.circuitBreakers.computeIfAbsent(
+      apiName(clientClass),
+      api -> new CircuitBreaker(this.apiOptions.apply(api).circuitBreaker()));
+  }
+
+  /**
+   * Get the state of all circuit breakers that are in use and
+   * enabled, keyed by API name.
+   */
+  public @NotNull Map<String, CircuitBreaker.State> circuitBreakerStates() {
+    var states = new TreeMap<String, CircuitBreaker.State>();
+    this.circuitBreakers.forEach((api, circuitBreaker) -> {
+      if (circuitBreaker.options().windowSize() > 0) {
+        states.put(api, circuitBreaker.state());
+      }
+    });
+    return states;
+  }
+
+  /**
+   * Get the metrics for an API.
+   */
+  public @NotNull ClientMetrics metrics(@NotNull Class<?> clientClass) {
+    return this.metrics.computeIfAbsent(
+      apiName(clientClass),
+      api -> new ClientMetrics());
+  }
+
+  /**
+   * Get the metrics of all APIs that are in use, keyed by API name.
+   */
+  public @NotNull Map<String, ClientMetrics> metrics() {
+    return new TreeMap<>(this.metrics);
+  }
+
+  /**
+   * Get the rate limiter for an API method, for example AnalyzeIamPolicy.
+   */
+  public @NotNull RateLimiter rateLimiter(@NotNull String method) {
+    return this.rateLimiters.computeIfAbsent(
+      method,
+      m -> new RateLimiter(this.methodOptions.apply(m).rateLimit()));
+  }
+
+  /**
+   * Get the fill level of all rate limiters that are in use, keyed
+   * by API method name.
+   */
+  public @NotNull Map<String, Double> rateLimiterFillLevels() {
+    return this.rateLimiters
+      .entrySet()
+      .stream()
+      .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue().fillLevel()));
+  }
+
+  /**
+   * Get the executor for calls to an API that might be hedged.
+   *
+   * Callers might already be running on the API's bulkhead or on the
+   * shared executor, and must not wait for other tasks on it. Hedged
+   * calls therefore run on a separate bulkhead, which is sized like the
+   * API's bulkhead, but doesn't queue calls: if it's saturated, hedging
+   * is skipped.
+   */
+  private @NotNull Executor hedgingExecutor(@NotNull String api) {
+    return this.hedgingExecutors.computeIfAbsent(
+      api,
+      a -> {
+        var maxThreads = this.apiOptions.apply(a).bulkhead().maxThreads();
+        return Deadline.propagate(new Bulkhead(
+          "hedging-" + a,
+          new Bulkhead.Options(
+            maxThreads > 0 ? maxThreads : DEFAULT_MAX_HEDGING_THREADS,
+            0,
+            Bulkhead.RejectionPolicy.ABORT)));
+      });
+  }
+
+  /**
+   * Get the hedging policy for an API method, for example GetAncestry.
+   */
+  public @NotNull HedgingPolicy hedgingPolicy(
+    @NotNull Class<?> clientClass,
+    @NotNull String method
+  ) {
+    return this.hedgingPolicies.computeIfAbsent(
+      method,
+      m -> new HedgingPolicy(
+        this.methodOptions.apply(m).hedging(),
+        hedgingExecutor(apiName(clientClass))));
+  }
+
+  //---------------------------------------------------------------------------
+  // Diagnosable.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Report APIs whose circuit is open as unhealthy, if enabled.
+   *
+   * An open circuit affects all instances of the application alike
+   * and closes by itself once the API recovers, so failing the readiness
+   * check would take all instances out of service without any benefit.
+   * By default, open circuits are therefore only reported as metrics.
+   */
+  @Override
+  public Collection<DiagnosticsResult> diagnose() {
+    if (!this.openCircuitsAffectReadiness) {
+      return List.of();
+    }
+
+    return circuitBreakerStates()
+      .entrySet()
+      .stream()
+      .map(e -> {
+        var name = String.format("%sApiIsAvailable", e.getKey());
+        return e.getValue() == CircuitBreaker.State.CLOSED
+          ? new DiagnosticsResult(name)
+          : new DiagnosticsResult(
+              name,
+              false,
+              String.format(
+                "The circuit breaker is %s because too many requests failed",
+                e.getValue().name().toLowerCase().replace('_', '-')));
+      })
+      .toList();
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Options that apply to all methods of an API.
+   */
+  public record ApiOptions(
+    @NotNull RetryPolicy.Options retry,
+    @NotNull CircuitBreaker.Options circuitBreaker,
+    @NotNull Bulkhead.Options bulkhead
+  ) {
+    public static final @NotNull ApiOptions DEFAULT = new ApiOptions(
+      RetryPolicy.Options.DEFAULT,
+      CircuitBreaker.Options.DISABLED,
+      Bulkhead.Options.DISABLED);
+
+    public ApiOptions {
+      Preconditions.checkNotNull(retry, "retry");
+      Preconditions.checkNotNull(circuitBreaker, "circuitBreaker");
+      Preconditions.checkNotNull(bulkhead, "bulkhead");
+    }
+  }
+
+  /**
+   * Options that apply to a single API method.
+   */
+  public record MethodOptions(
+    @NotNull RateLimiter.Options rateLimit,
+    @NotNull HedgingPolicy.Options hedging
+  ) {
+    public static final @NotNull MethodOptions DEFAULT = new MethodOptions(
+      RateLimiter.Options.UNLIMITED,
+      HedgingPolicy.Options.DISABLED);
+
+    public MethodOptions {
+      Preconditions.checkNotNull(rateLimit, "rateLimit");
+      Preconditions.checkNotNull(hedging, "hedging");
+    }
+  }
+}
@@ -0,0 +1,174 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded executor for calls to a single backend API.
+ *
+ * If all API calls shared the same executor, a slow API could tie
+ * up all threads, and calls to other APIs would queue up behind
+ * it. Giving each API its own bounded pool of threads and its own
+ * bounded queue confines the damage to callers of that API.
+ *
+ * When both the threads and the queue are exhausted, the bulkhead
+ * either rejects the task, or runs it on the submitting thread,
+ * depending on the rejection policy.
+ *
+ * Tasks must not submit other tasks to the same bulkhead and wait
+ * for them, as that could exhaust the pool and deadlock.
+ */
+public class Bulkhead implements Executor {
+  private static final Duration KEEP_ALIVE_TIME = Duration.ofSeconds(60);
+
+  private final @NotNull Options options;
+  private final @NotNull ThreadPoolExecutor executor;
+  private final @NotNull AtomicLong rejectedTasks = new AtomicLong();
+
+  public Bulkhead(
+    @NotNull String name,
+    @NotNull Options options
+  ) {
+    Preconditions.checkNotNull(name, "name");
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkArgument(options.maxThreads > 0, "The bulkhead is disabled");
+
+    BlockingQueue<Runnable> queue = options.maxQueueSize > 0
+      ? new ArrayBlockingQueue<>(options.maxQueueSize)
+      : new SynchronousQueue<>();
+
+    var threadNumber = new AtomicInteger();
+    this.options = options;
+    this.executor = new ThreadPoolExecutor(
+      options.maxThreads,
+      options.maxThreads,
+      KEEP_ALIVE_TIME.toMillis(),
+      TimeUnit.MILLISECONDS,
+      queue,
+      runnable -> {
+        var thread = new Thread(
+          runnable,
+          String.format("bulkhead-%s-%d", name.toLowerCase(), threadNumber.incrementAndGet()));
+        thread.setDaemon(true);
+        return thread;
+      },
+      (runnable, executor) -> {
+        this.rejectedTasks.incrementAndGet();
+
+        switch (options.rejectionPolicy) {
+          case CALLER_RUNS -> runnable.run();
+          case ABORT -> throw new RejectedExecutionException(String.format(
+            "Too many requests to the %s API are pending", name));
+        }
+      });
+
+    //
+    // Let idle threads die so that rarely-used APIs don't hold
+    // on to threads.
+    //
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  public @NotNull Options options() {
+    return this.options;
+  }
+
+  @Override
+  public void execute(@NotNull Runnable command) {
+    this.executor.execute(command);
+  }
+
+  public @NotNull Statistics statistics() {
+    return new Statistics(
+      this.executor.getActiveCount(),
+      this.executor.getQueue().size(),
+      this.rejectedTasks.get());
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * @param activeThreads number of threads that are executing tasks
+   * @param queueDepth number of tasks waiting for a thread
+   * @param rejectedTasks number of tasks that couldn't be queued
+   */
+  public record Statistics(
+    int activeThreads,
+    int queueDepth,
+    long rejectedTasks
+  ) {}
+
+  public enum RejectionPolicy {
+    /**
+     * Fail tasks that can't be queued.
+     */
+    ABORT,
+
+    /**
+     * Run tasks that can't be queued on the submitting thread.
+     */
+    CALLER_RUNS
+  }
+
+  /**
+   * @param maxThreads maximum number of concurrent tasks, zero to disable the bulkhead
+   * @param maxQueueSize maximum number of tasks waiting for a thread
+   * @param rejectionPolicy what to do with tasks that can't be queued
+   */
+  public record Options(
+    int maxThreads,
+    int maxQueueSize,
+    @NotNull RejectionPolicy rejectionPolicy
+  ) {
+    public static final int DEFAULT_MAX_THREADS = 10;
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 100;
+
+    public static final @NotNull Options DEFAULT = new Options(
+      DEFAULT_MAX_THREADS,
+      DEFAULT_MAX_QUEUE_SIZE,
+      RejectionPolicy.ABORT);
+
+    public static final @NotNull Options DISABLED = new Options(0, 0, RejectionPolicy.ABORT);
+
+    public Options {
+      Preconditions.checkNotNull(rejectionPolicy, "rejectionPolicy");
+      Preconditions.checkArgument(
+        maxThreads >= 0 && maxQueueSize >= 0,
+        "Bulkhead sizes must not be negative");
+    }
+  }
+}
@@ -0,0 +1,427 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseInterceptor;
+import com.google.api.client.util.NanoClock;
+import com.google.common.base.Preconditions;
+import com.google.solutions.jitaccess.core.BackendUnavailableException;
+import com.google.solutions.jitaccess.core.Deadline;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Circuit breaker for a backend API.
+ *
+ * The breaker keeps track of the outcome of the most recent requests.
+ * If the share of failed requests exceeds a threshold, the circuit
+ * opens and further requests are rejected without contacting the
+ * API, so that callers don't tie up threads waiting for timeouts.
+ *
+ * Once the cool-down time has elapsed, the circuit becomes
+ * half-open and lets a single probe request through. If that request
+ * succeeds, the circuit closes again; otherwise, it re-opens. Outcomes
+ * of other requests that complete while the circuit is half-open
+ * don't affect the decision.
+ *
+ * The circuit is checked before each attempt of a request, so requests
+ * sent through long-lived client stubs are rejected, too.
+ *
+ * Only server errors, timeouts, and I/O errors count as failures. Client
+ * errors like 403 or 404 indicate that the API is responsive. I/O errors
+ * don't count either if the caller is to blame for them, that is, if
+ * the request ran out of time because of its deadline, or if the caller
+ * abandoned the request because a hedged call completed first.
+ */
+public class CircuitBreaker {
+  private final @NotNull Options options;
+  private final @NotNull NanoClock clock;
+
+  /**
+   * Outcomes of the most recent requests, used as a ring buffer.
+   */
+  private final boolean[] outcomes;
+  private int nextOutcome = 0;
+  private int recordedOutcomes = 0;
+  private int failedOutcomes = 0;
+
+  private @NotNull State state = State.CLOSED;
+  private long stateChangeTime;
+  private long lastProbeTime;
+
+  CircuitBreaker(
+    @NotNull Options options,
+    @NotNull NanoClock clock
+  ) {
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkNotNull(clock, "clock");
+
+    this.options = options;
+    this.clock = clock;
+    this.outcomes = new boolean[options.windowSize];
+    this.stateChangeTime = clock.nanoTime();
+  }
+
+  public CircuitBreaker(@NotNull Options options) {
+    this(options, NanoClock.SYSTEM);
+  }
+
+  public @NotNull Options options() {
+    return this.options;
+  }
+
+  private boolean isCoolDownElapsed(long since, long now) {
+    return now - since >= this.options.coolDown.toNanos();
+  }
+
+  private void transitionTo(@NotNull State state, long now) {
+    this.state = state;
+    this.stateChangeTime = now;
+    this.nextOutcome = 0;
+    this.recordedOutcomes = 0;
+    this.failedOutcomes = 0;
+  }
+
+  /**
+   * Get the current state.
+   */
+  public synchronized @NotNull State state() {
+    return this.state;
+  }
+
+  /**
+   * Get the share of failed requests in the current window,
+   * between 0 and 1.
+   */
+  public synchronized double failureRate() {
+    return this.recordedOutcomes == 0
+      ? 0
+      : (double)this.failedOutcomes / this.recordedOutcomes;
+  }
+
+  /**
+   * Check if a request may be sent.
+   *
+   * @return permit, or null if the circuit is open and the request
+   * should be rejected.
+   */
+  public synchronized @Nullable Permit tryAcquire() {
+    var now = this.clock.nanoTime();
+
+    switch (this.state) {
+      case CLOSED:
+        return Permit.REQUEST;
+
+      case OPEN:
+        if (!isCoolDownElapsed(this.stateChangeTime, now)) {
+          return null;
+        }
+
+        transitionTo(State.HALF_OPEN, now);
+        this.lastProbeTime = now;
+        return Permit.PROBE;
+
+      case HALF_OPEN:
+      default:
+        //
+        // Let one probe through per cool-down period. If the previous
+        // probe never reported back (for example, because the caller
+        // didn't end up sending a request), allow another one.
+        //
+        if (!isCoolDownElapsed(this.lastProbeTime, now)) {
+          return null;
+        }
+
+        this.lastProbeTime = now;
+        return Permit.PROBE;
+    }
+  }
+
+  /**
+   * Record the outcome of a regular request.
+   */
+  public void record(boolean successful) {
+    record(Permit.REQUEST, successful);
+  }
+
+  /**
+   * Record the outcome of a request.
+   *
+   * @param permit permit that the request was sent with
+   */
+  public synchronized void record(@NotNull Permit permit, boolean successful) {
+    if (this.options.windowSize == 0) {
+      return;
+    }
+
+    var now = this.clock.nanoTime();
+
+    switch (this.state) {
+      case HALF_OPEN:
+        //
+        // Only the probe decides whether the circuit closes. Other
+        // requests were sent before the circuit opened, so their
+        // outcome doesn't tell us whether the API has recovered.
+        //
+        if (permit == Permit.PROBE) {
+          transitionTo(successful ? State.CLOSED : State.OPEN, now);
+        }
+        break;
+
+      case OPEN:
+        //
+        // Late outcome of a request that was sent before the circuit
+        // opened, ignore.
+        //
+        break;
+
+      case CLOSED:
+      default:
+        if (this.recordedOutcomes == this.outcomes.length) {
+          //
+          // Window is full, evict the oldest outcome.
+          //
+          if (!this.outcomes[this.nextOutcome]) {
+            this.failedOutcomes--;
+          }
+        }
+        else {
+          this.recordedOutcomes++;
+        }
+
+        this.outcomes[this.nextOutcome] = successful;
+        this.nextOutcome = (this.nextOutcome + 1) % this.outcomes.length;
+
+        if (!successful) {
+          this.failedOutcomes++;
+        }
+
+        if (this.recordedOutcomes == this.outcomes.length &&
+          this.failedOutcomes * 100 >= this.options.failureRateThreshold * this.recordedOutcomes) {
+          transitionTo(State.OPEN, now);
+        }
+        break;
+    }
+  }
+
+  /**
+   * Check if a status code indicates that the API is unhealthy.
+   */
+  static boolean isFailure(int statusCode) {
+    return statusCode >= 500 || statusCode == 408;
+  }
+
+  /**
+   * Apply the circuit breaker to a request so that each attempt
+   * is checked against the circuit, and its outcome is recorded.
+   *
+   * Must be called after the request's timeouts have been configured.
+   */
+  void apply(@NotNull HttpRequest request) {
+    if (this.options.windowSize == 0) {
+      return;
+    }
+
+    var interceptor = new Interceptor(request);
+
+    request.setInterceptor(interceptor);
+    request.setResponseInterceptor(interceptor);
+    request.setIOExceptionHandler(interceptor);
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  public enum State {
+    /**
+     * Requests are sent.
+     */
+    CLOSED,
+
+    /**
+     * Requests are rejected.
+     */
+    OPEN,
+
+    /**
+     * A single probe request is sent to check if the API has recovered.
+     */
+    HALF_OPEN
+  }
+
+  public enum Permit {
+    /**
+     * Regular request, sent while the circuit is closed.
+     */
+    REQUEST,
+
+    /**
+     * Probe request, sent while the circuit is half-open.
+     */
+    PROBE
+  }
+
+  /**
+   * @param failureRateThreshold percentage of failed requests that opens the circuit
+   * @param windowSize number of recent requests to consider, 0 to disable the circuit breaker
+   * @param coolDown time to keep the circuit open before sending a probe request
+   */
+  public record Options(
+    int failureRateThreshold,
+    int windowSize,
+    @NotNull Duration coolDown
+  ) {
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    public static final Duration DEFAULT_COOL_DOWN = Duration.ofSeconds(30);
+
+    public static final @NotNull Options DEFAULT = new Options(
+      DEFAULT_FAILURE_RATE_THRESHOLD,
+      DEFAULT_WINDOW_SIZE,
+      DEFAULT_COOL_DOWN);
+
+    public static final @NotNull Options DISABLED = new Options(
+      DEFAULT_FAILURE_RATE_THRESHOLD,
+      0,
+      DEFAULT_COOL_DOWN);
+
+    public Options {
+      Preconditions.checkNotNull(coolDown, "coolDown");
+
+      Preconditions.checkArgument(
+        failureRateThreshold > 0 && failureRateThreshold <= 100,
+        "The failure rate threshold must be between 1 and 100");
+      Preconditions.checkArgument(
+        windowSize >= 0,
+        "The window size must not be negative");
+      Preconditions.checkArgument(
+        !coolDown.isNegative(),
+        "The cool-down time must not be negative");
+    }
+  }
+
+  /**
+   * Thrown when a request is rejected because the circuit is open.
+   *
+   * HTTP interceptors can only throw IOExceptions, so clients must
+   * unwrap the BackendUnavailableException.
+   */
+  public static class OpenCircuitException extends IOException {
+    private OpenCircuitException(@NotNull BackendUnavailableException cause) {
+      super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized @NotNull BackendUnavailableException getCause() {
+      return (BackendUnavailableException)super.getCause();
+    }
+  }
+
+  /**
+   * Checks and tracks the attempts of a single request.
+   */
+  private class Interceptor
+    implements HttpExecuteInterceptor, HttpResponseInterceptor, HttpIOExceptionHandler {
+    private final @Nullable HttpExecuteInterceptor nextExecuteInterceptor;
+    private final @Nullable HttpResponseInterceptor nextResponseInterceptor;
+    private final @Nullable HttpIOExceptionHandler nextIOExceptionHandler;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int writeTimeout;
+    private @Nullable Permit permit;
+    private boolean boundByDeadline;
+
+    private Interceptor(@NotNull HttpRequest request) {
+      this.nextExecuteInterceptor = request.getInterceptor();
+      this.nextResponseInterceptor = request.getResponseInterceptor();
+      this.nextIOExceptionHandler = request.getIOExceptionHandler();
+      this.connectTimeout = request.getConnectTimeout();
+      this.readTimeout = request.getReadTimeout();
+      this.writeTimeout = request.getWriteTimeout();
+    }
+
+    /**
+     * Check if an I/O error is due to the caller rather than the API.
+     */
+    private boolean isCallerToBlame() {
+      var deadline = Deadline.current();
+      return this.boundByDeadline ||
+        (deadline != null && deadline.isExpired()) ||
+        HedgingPolicy.isCurrentCallAbandoned();
+    }
+
+    @Override
+    public void intercept(@NotNull HttpRequest request) throws IOException {
+      this.permit = tryAcquire();
+      if (this.permit == null) {
+        throw new OpenCircuitException(new BackendUnavailableException(String.format(
+          "The API at %s is currently unavailable, try again later",
+          request.getUrl().getHost())));
+      }
+
+      //
+      // Interceptors that run before this one cap the timeouts to
+      // the request's deadline, if any.
+      //
+      this.boundByDeadline =
+        request.getConnectTimeout() != this.connectTimeout ||
+        request.getReadTimeout() != this.readTimeout ||
+        request.getWriteTimeout() != this.writeTimeout;
+
+      if (this.nextExecuteInterceptor != null) {
+        this.nextExecuteInterceptor.intercept(request);
+      }
+    }
+
+    @Override
+    public void interceptResponse(@NotNull HttpResponse response) throws IOException {
+      if (this.permit != null) {
+        record(this.permit, !isFailure(response.getStatusCode()));
+      }
+
+      if (this.nextResponseInterceptor != null) {
+        this.nextResponseInterceptor.interceptResponse(response);
+      }
+    }
+
+    @Override
+    public boolean handleIOException(
+      @NotNull HttpRequest request,
+      boolean supportsRetry
+    ) throws IOException {
+      if (this.permit != null && !isCallerToBlame()) {
+        record(this.permit, false);
+      }
+
+      return this.nextIOExceptionHandler != null &&
+        this.nextIOExceptionHandler.handleIOException(request, supportsRetry);
+    }
+  }
+}
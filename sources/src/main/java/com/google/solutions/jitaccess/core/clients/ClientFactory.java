@@ -0,0 +1,210 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.googleapis.services.AbstractGoogleClient;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.auth.Credentials;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Factory for Google API client stubs.
+ *
+ * Building a stub involves a fair amount of reflection and allocations,
+ * but stubs are thread-safe. The factory therefore builds each stub once
+ * per credential and reuses it for subsequent calls.
+ *
+ * Stubs apply the retry policy, circuit breaker, and metrics that
+ * the backend policies define for the respective API.
+ */
+public class ClientFactory {
+  private final @NotNull HttpTransport transport;
+  private final @NotNull BackendPolicies policies;
+  private final @NotNull Map<Key, AbstractGoogleClient> clients = new ConcurrentHashMap<>();
+  private final @NotNull Map<String, BuildStatistics> statistics = new ConcurrentHashMap<>();
+
+  public ClientFactory(
+    @NotNull HttpTransport transport,
+    @NotNull BackendPolicies policies
+  ) {
+    Preconditions.checkNotNull(transport, "transport");
+    Preconditions.checkNotNull(policies, "policies");
+
+    this.transport = transport;
+    this.policies = policies;
+  }
+
+  public ClientFactory(
+    @NotNull HttpTransport transport,
+    @NotNull Executor executor
+  ) {
+    this(transport, new BackendPolicies(executor));
+  }
+
+  public @NotNull HttpTransport transport() {
+    return this.transport;
+  }
+
+  /**
+   * Resilience policies used by clients and stubs.
+   */
+  public @NotNull BackendPolicies policies() {
+    return this.policies;
+  }
+
+  /**
+   * Get a client stub for the given credentials, building it on first use.
+   *
+   * Requests sent through the stub fail with an OpenCircuitException
+   * if the circuit breaker for the API is open. Clients unwrap it so
+   * that callers see a BackendUnavailableException.
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends AbstractGoogleClient> @NotNull T getClient(
+    @NotNull Class<T> clientClass,
+    @NotNull Credentials credentials,
+    @NotNull Builder<T> builder
+  ) throws IOException {
+    Preconditions.checkNotNull(clientClass, "clientClass");
+    Preconditions.checkNotNull(credentials, "credentials");
+    Preconditions.checkNotNull(builder, "builder");
+
+    var key = new Key(clientClass, credentials);
+    var client = this.clients.get(key);
+    if (client != null) {
+      return (T)client;
+    }
+
+    //
+    // Build the stub outside the map so that we don't block other
+    // threads. If two threads race, both build a stub, but only the
+    // first one is retained.
+    //
+    var httpTransport = this.transport.get();
+    var requestInitializer = this.transport.newAuthenticatingRequestInitializer(
+      credentials,
+      this.policies.retryPolicy(clientClass),
+      this.policies.circuitBreaker(clientClass),
+      this.policies.metrics(clientClass));
+
+    var startTime = System.nanoTime();
+    var newClient = builder.build(
+      httpTransport,
+      GsonFactory.getDefaultInstance(),
+      requestInitializer);
+    var buildTime = Duration.ofNanos(System.nanoTime() - startTime);
+
+    this.statistics.merge(
+      clientClass.getSimpleName(),
+      new BuildStatistics(1, buildTime, buildTime),
+      BuildStatistics::add);
+
+    return (T)this.clients.computeIfAbsent(key, k -> newClient);
+  }
+
+  /**
+   * Get build statistics, keyed by client class name.
+   */
+  public @NotNull Map<String, BuildStatistics> statistics() {
+    return Map.copyOf(this.statistics);
+  }
+
+  /**
+   * Get the number of client stubs that have been built.
+   */
+  public int clientsBuilt() {
+    return this.statistics
+      .values()
+      .stream()
+      .collect(Collectors.summingInt(s -> s.clientsBuilt));
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  @FunctionalInterface
+  public interface Builder<T extends AbstractGoogleClient> {
+    @NotNull T build(
+      @NotNull com.google.api.client.http.HttpTransport transport,
+      @NotNull JsonFactory jsonFactory,
+      @NotNull HttpRequestInitializer requestInitializer
+    ) throws IOException;
+  }
+
+  /**
+   * @param clientsBuilt number of stubs built
+   * @param totalBuildTime time spent on building stubs
+   * @param maxBuildTime longest time spent on building a single stub
+   */
+  public record BuildStatistics(
+    int clientsBuilt,
+    @NotNull Duration totalBuildTime,
+    @NotNull Duration maxBuildTime
+  ) {
+    private @NotNull BuildStatistics add(@NotNull BuildStatistics other) {
+      return new BuildStatistics(
+        this.clientsBuilt + other.clientsBuilt,
+        this.totalBuildTime.plus(other.totalBuildTime),
+        this.maxBuildTime.compareTo(other.maxBuildTime) >= 0
+          ? this.maxBuildTime
+          : other.maxBuildTime);
+    }
+
+    public @NotNull Duration averageBuildTime() {
+      return this.clientsBuilt == 0
+        ? Duration.ZERO
+        : this.totalBuildTime.dividedBy(this.clientsBuilt);
+    }
+  }
+
+  /**
+   * Cache key. Credentials are compared by identity because their
+   * equality is based on mutable state such as the current access token.
+   */
+  private record Key(
+    @NotNull Class<?> clientClass,
+    @NotNull Credentials credentials
+  ) {
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key other &&
+        this.clientClass == other.clientClass &&
+        this.credentials == other.credentials;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.clientClass.hashCode() + System.identityHashCode(this.credentials);
+    }
+  }
+}
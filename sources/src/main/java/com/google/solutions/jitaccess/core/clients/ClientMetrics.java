@@ -0,0 +1,324 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseInterceptor;
+import com.google.api.client.util.NanoClock;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Latency, status code, and traffic metrics for the requests
+ * sent to a backend API, broken down by API method.
+ *
+ * Each attempt counts as a separate request, so retried requests
+ * are visible in the metrics.
+ */
+public class ClientMetrics {
+  /**
+   * Upper bounds of latency histogram buckets, in milliseconds.
+   */
+  public static final long[] LATENCY_BUCKETS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+  /**
+   * Pattern for the version segment of a URL path, for example
+   * v1 or directory_v1.
+   */
+  private static final Pattern VERSION_SEGMENT = Pattern.compile("^(\\w+_)?v\\d+\\w*$");
+
+  private final @NotNull NanoClock clock;
+  private final @NotNull Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+  ClientMetrics(@NotNull NanoClock clock) {
+    Preconditions.checkNotNull(clock, "clock");
+    this.clock = clock;
+  }
+
+  public ClientMetrics() {
+    this(NanoClock.SYSTEM);
+  }
+
+  /**
+   * Derive a method name from the HTTP method and URL path of a request,
+   * replacing resource IDs by wildcards. For example, a POST request for
+   * v3/projects/my-project:getAncestry becomes "POST projects/*:getAncestry".
+   *
+   * This relies on Google APIs alternating between collection names and
+   * resource IDs in their paths.
+   */
+  static @NotNull String methodName(
+    @NotNull String httpMethod,
+    @NotNull String path
+  ) {
+    var segments = path.replaceAll("^/+", "").split("/");
+
+    int version = -1;
+    for (int i = 0; i < segments.length; i++) {
+      if (VERSION_SEGMENT.matcher(segments[i]).matches()) {
+        version = i;
+        break;
+      }
+    }
+
+    if (version < 0 || version == segments.length - 1) {
+      return String.format("%s %s", httpMethod, path);
+    }
+
+    var name = new StringBuilder();
+    for (int i = version + 1; i < segments.length; i++) {
+      var segment = segments[i];
+      if (name.length() > 0) {
+        name.append('/');
+      }
+
+      if ((i - version) % 2 == 0) {
+        //
+        // Resource ID, possibly followed by a custom method, as in
+        // projects/my-project:getAncestry.
+        //
+        var colon = segment.indexOf(':');
+        name.append('*');
+        if (colon >= 0) {
+          name.append(segment.substring(colon));
+        }
+      }
+      else {
+        name.append(segment);
+      }
+    }
+
+    return String.format("%s %s", httpMethod, name);
+  }
+
+  /**
+   * Get the metrics for an API method.
+   */
+  public @NotNull MethodMetrics method(@NotNull String method) {
+    return this.methods.computeIfAbsent(method, m -> new MethodMetrics());
+  }
+
+  /**
+   * Get the metrics of all methods that have been used, keyed
+   * by method name.
+   */
+  public @NotNull Map<String, MethodMetrics> methods() {
+    return new TreeMap<>(this.methods);
+  }
+
+  /**
+   * Apply metrics to a request so that each attempt is recorded.
+   */
+  void apply(@NotNull HttpRequest request) {
+    var interceptor = new Interceptor(
+      request.getInterceptor(),
+      request.getResponseInterceptor(),
+      request.getIOExceptionHandler());
+
+    request.setInterceptor(interceptor);
+    request.setResponseInterceptor(interceptor);
+    request.setIOExceptionHandler(interceptor);
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Metrics for a single API method.
+   */
+  public static class MethodMetrics {
+    private final @NotNull AtomicInteger inFlight = new AtomicInteger();
+    private final @NotNull AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+    private final @NotNull LongAdder totalLatencyNanos = new LongAdder();
+    private final @NotNull LongAdder bytesReceived = new LongAdder();
+    private final @NotNull LongAdder ioErrors = new LongAdder();
+    private final @NotNull Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+
+    private MethodMetrics() {
+    }
+
+    private void recordResponse(
+      long latencyNanos,
+      int statusCode,
+      @Nullable Long contentLength
+    ) {
+      var latencyMillis = latencyNanos / 1_000_000;
+      int bucket = 0;
+      while (bucket < LATENCY_BUCKETS.length && latencyMillis > LATENCY_BUCKETS[bucket]) {
+        bucket++;
+      }
+
+      this.latencyBuckets.incrementAndGet(bucket);
+      this.totalLatencyNanos.add(latencyNanos);
+      this.statusCodes.computeIfAbsent(statusCode, c -> new LongAdder()).increment();
+
+      if (contentLength != null) {
+        this.bytesReceived.add(contentLength);
+      }
+    }
+
+    /**
+     * Number of requests that are currently waiting for a response.
+     */
+    public int inFlight() {
+      return this.inFlight.get();
+    }
+
+    /**
+     * Number of responses per latency bucket. The last bucket
+     * counts the responses that exceeded the largest bucket bound.
+     */
+    public long[] latencyBuckets() {
+      var buckets = new long[this.latencyBuckets.length()];
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = this.latencyBuckets.get(i);
+      }
+      return buckets;
+    }
+
+    /**
+     * Total time spent waiting for responses.
+     */
+    public @NotNull Duration totalLatency() {
+      return Duration.ofNanos(this.totalLatencyNanos.sum());
+    }
+
+    /**
+     * Number of response bytes received, as indicated by the
+     * Content-Length header of responses.
+     */
+    public long bytesReceived() {
+      return this.bytesReceived.sum();
+    }
+
+    /**
+     * Number of requests that failed without receiving a response,
+     * for example because of a timeout.
+     */
+    public long ioErrors() {
+      return this.ioErrors.sum();
+    }
+
+    /**
+     * Number of responses, keyed by HTTP status code.
+     */
+    public @NotNull Map<Integer, Long> statusCodes() {
+      return this.statusCodes
+        .entrySet()
+        .stream()
+        .collect(Collectors.toMap(
+          e -> e.getKey(),
+          e -> e.getValue().sum(),
+          (a, b) -> a,
+          TreeMap::new));
+    }
+  }
+
+  /**
+   * Tracks the attempts of a single request.
+   */
+  private class Interceptor
+    implements HttpExecuteInterceptor, HttpResponseInterceptor, HttpIOExceptionHandler {
+    private final @Nullable HttpExecuteInterceptor nextExecuteInterceptor;
+    private final @Nullable HttpResponseInterceptor nextResponseInterceptor;
+    private final @Nullable HttpIOExceptionHandler nextIOExceptionHandler;
+    private @Nullable MethodMetrics metrics;
+    private long startTime;
+
+    private Interceptor(
+      @Nullable HttpExecuteInterceptor nextExecuteInterceptor,
+      @Nullable HttpResponseInterceptor nextResponseInterceptor,
+      @Nullable HttpIOExceptionHandler nextIOExceptionHandler
+    ) {
+      this.nextExecuteInterceptor = nextExecuteInterceptor;
+      this.nextResponseInterceptor = nextResponseInterceptor;
+      this.nextIOExceptionHandler = nextIOExceptionHandler;
+    }
+
+    @Override
+    public void intercept(@NotNull HttpRequest request) throws IOException {
+      //
+      // Let the next interceptor (which typically adds credentials)
+      // run first so that its time doesn't count as latency, and so
+      // that a failure doesn't leave the request counted as in-flight.
+      //
+      if (this.nextExecuteInterceptor != null) {
+        this.nextExecuteInterceptor.intercept(request);
+      }
+
+      //
+      // NB. The request method and URL aren't known yet when the
+      // request is initialized, so we look up the metrics here.
+      //
+      this.metrics = method(methodName(
+        request.getRequestMethod(),
+        request.getUrl().getRawPath()));
+      this.startTime = clock.nanoTime();
+      this.metrics.inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void interceptResponse(@NotNull HttpResponse response) throws IOException {
+      if (this.metrics != null) {
+        this.metrics.inFlight.decrementAndGet();
+        this.metrics.recordResponse(
+          clock.nanoTime() - this.startTime,
+          response.getStatusCode(),
+          response.getHeaders().getContentLength());
+      }
+
+      if (this.nextResponseInterceptor != null) {
+        this.nextResponseInterceptor.interceptResponse(response);
+      }
+    }
+
+    @Override
+    public boolean handleIOException(
+      @NotNull HttpRequest request,
+      boolean supportsRetry
+    ) throws IOException {
+      if (this.metrics != null) {
+        this.metrics.inFlight.decrementAndGet();
+        this.metrics.ioErrors.increment();
+      }
+
+      return this.nextIOExceptionHandler != null &&
+        this.nextIOExceptionHandler.handleIOException(request, supportsRetry);
+    }
+  }
+}
@@ -22,7 +22,6 @@
 package com.google.solutions.jitaccess.core.clients;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.cloudidentity.v1.CloudIdentity;
 import com.google.api.services.cloudidentity.v1.model.*;
 import com.google.auth.oauth2.GoogleCredentials;
@@ -34,7 +33,6 @@ import jakarta.inject.Singleton;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.security.GeneralSecurityException;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
@@ -53,34 +51,30 @@ public class CloudIdentityGroupsClient {
 
   private final @NotNull Options options;
   private final @NotNull GoogleCredentials credentials;
-  private final @NotNull HttpTransport.Options httpOptions;
+  private final @NotNull ClientFactory clientFactory;
 
   public CloudIdentityGroupsClient(
     @NotNull GoogleCredentials credentials,
     @NotNull Options options,
-    @NotNull HttpTransport.Options httpOptions
+    @NotNull ClientFactory clientFactory
   ) {
     Preconditions.checkNotNull(credentials, "credentials");
     Preconditions.checkNotNull(options, "options");
-    Preconditions.checkNotNull(httpOptions, "httpOptions");
+    Preconditions.checkNotNull(clientFactory, "clientFactory");
 
     this.credentials = credentials;
     this.options = options;
-    this.httpOptions = httpOptions;
+    this.clientFactory = clientFactory;
   }
 
-  private @NotNull CloudIdentity createClient() throws IOException {
-    try {
-      return new CloudIdentity.Builder(
-        HttpTransport.newTransport(),
-        new GsonFactory(),
-        HttpTransport.newAuthenticatingRequestInitializer(this.credentials, this.httpOptions))
+  private @NotNull CloudIdentity createClient() throws AccessException, IOException {
+    return this.clientFactory.getClient(
+      CloudIdentity.class,
+      this.credentials,
+      (transport, jsonFactory, initializer) -> new CloudIdentity
+        .Builder(transport, jsonFactory, initializer)
         .setApplicationName(ApplicationVersion.USER_AGENT)
-        .build();
-    }
-    catch (GeneralSecurityException e) {
-      throw new IOException("Creating a Cloud Identity client failed", e);
-    }
+        .build());
   }
 
   private static boolean isAlreadyExistsError(
@@ -124,11 +118,15 @@ public class CloudIdentityGroupsClient {
         .groups()
         .lookup()
         .setGroupKeyId(email.email)
+        .setFields(ResponseFields.LOOKUP_NAME)
         .execute()
         .getName();
 
       return new GroupKey(id);
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
       return null;
@@ -148,6 +146,9 @@ public class CloudIdentityGroupsClient {
         .get(groupKey.toString())
         .execute();
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
       return null;
@@ -249,6 +250,9 @@ public class CloudIdentityGroupsClient {
 
       return groupKey;
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
       return null;
@@ -274,6 +278,9 @@ public class CloudIdentityGroupsClient {
             groupKey));
       }
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
     }
@@ -297,9 +304,13 @@ public class CloudIdentityGroupsClient {
         .memberships()
         .lookup(groupKey.toString())
         .setMemberKeyId(userId.email)
+        .setFields(ResponseFields.LOOKUP_NAME)
         .execute()
         .getName());
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
       return null;
@@ -332,6 +343,9 @@ public class CloudIdentityGroupsClient {
 
       return membership;
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
       return null;
@@ -372,6 +386,9 @@ public class CloudIdentityGroupsClient {
         .delete(membershipId.id)
         .execute();
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       if (e.getStatusCode() == 404) {
         //
@@ -406,6 +423,9 @@ public class CloudIdentityGroupsClient {
 
       return membershipId;
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
       return null;
@@ -452,6 +472,9 @@ public class CloudIdentityGroupsClient {
 
       return new MembershipId((String)operation.getResponse().get("name"));
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       if (isAlreadyExistsError(e)) {
         //
@@ -533,6 +556,9 @@ public class CloudIdentityGroupsClient {
 
       return Collections.unmodifiableList(result);
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
       return null;
@@ -589,6 +615,9 @@ public class CloudIdentityGroupsClient {
 
       return Collections.unmodifiableList(result);
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       if (e.getStatusCode() == 500) {
         //
@@ -635,6 +664,9 @@ public class CloudIdentityGroupsClient {
 
       return Collections.unmodifiableList(result);
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       translateAndThrowApiException(e);
       return null;
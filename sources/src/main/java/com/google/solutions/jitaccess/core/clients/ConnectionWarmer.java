@@ -0,0 +1,195 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.util.NanoClock;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Opens connections to backend APIs ahead of the first request.
+ *
+ * After a cold start, the connection pool is empty, so the first
+ * request to each API has to resolve the host name and perform a TCP
+ * and TLS handshake first. The warmer sends a cheap HEAD request to
+ * each endpoint in parallel so that these costs are paid before the
+ * application reports being ready, and the resulting connections
+ * remain in the pool for subsequent requests.
+ *
+ * The warmer reports success once all endpoints have been contacted,
+ * or the timeout has elapsed, whichever happens first. Failing to
+ * reach an endpoint doesn't prevent the application from becoming
+ * ready: the endpoint might be unavailable temporarily, and the
+ * first request will have to pay the setup costs either way.
+ */
+public class ConnectionWarmer implements Diagnosable {
+  private final @NotNull HttpTransport transport;
+  private final @NotNull Collection<GenericUrl> endpoints;
+  private final @NotNull Options options;
+  private final @NotNull Executor executor;
+  private final @NotNull NanoClock clock;
+
+  private volatile @Nullable CompletableFuture<Void> warmup;
+  private volatile long startTime;
+
+  ConnectionWarmer(
+    @NotNull HttpTransport transport,
+    @NotNull Collection<GenericUrl> endpoints,
+    @NotNull Options options,
+    @NotNull Executor executor,
+    @NotNull NanoClock clock
+  ) {
+    Preconditions.checkNotNull(transport, "transport");
+    Preconditions.checkNotNull(endpoints, "endpoints");
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkNotNull(executor, "executor");
+    Preconditions.checkNotNull(clock, "clock");
+
+    this.transport = transport;
+    this.endpoints = endpoints;
+    this.options = options;
+    this.executor = executor;
+    this.clock = clock;
+  }
+
+  public ConnectionWarmer(
+    @NotNull HttpTransport transport,
+    @NotNull Collection<GenericUrl> endpoints,
+    @NotNull Options options,
+    @NotNull Executor executor
+  ) {
+    this(transport, endpoints, options, executor, NanoClock.SYSTEM);
+  }
+
+  /**
+   * Contact a single endpoint.
+   */
+  private void warmUp(@NotNull GenericUrl endpoint) throws IOException {
+    var request = this.transport.get()
+      .createRequestFactory()
+      .buildHeadRequest(endpoint);
+
+    var timeout = (int)this.options.timeout.toMillis();
+    request.setConnectTimeout(timeout);
+    request.setReadTimeout(timeout);
+    request.setNumberOfRetries(0);
+    request.setThrowExceptionOnExecuteError(false);
+
+    //
+    // We don't care about the response, any status code indicates that
+    // the connection has been established. Consuming the response
+    // returns the connection to the pool.
+    //
+    request.execute().ignore();
+  }
+
+  /**
+   * Start contacting all endpoints in the background.
+   */
+  public synchronized void start() {
+    if (this.warmup != null || this.options.timeout.isZero()) {
+      return;
+    }
+
+    this.startTime = this.clock.nanoTime();
+    this.warmup = CompletableFuture.allOf(this.endpoints
+      .stream()
+      .map(endpoint -> CompletableFuture.runAsync(
+        () -> {
+          try {
+            warmUp(endpoint);
+          }
+          catch (IOException | RuntimeException ignored) {
+            //
+            // The endpoint isn't reachable right now, so leave it
+            // to the first request to establish a connection.
+            //
+          }
+        },
+        this.executor))
+      .toArray(CompletableFuture[]::new));
+  }
+
+  /**
+   * Check if warmup has finished, either because all endpoints
+   * have been contacted or because the timeout has elapsed.
+   */
+  public boolean isComplete() {
+    if (this.options.timeout.isZero()) {
+      return true;
+    }
+
+    var warmup = this.warmup;
+    if (warmup == null) {
+      return false;
+    }
+
+    return warmup.isDone() ||
+      this.clock.nanoTime() - this.startTime >= this.options.timeout.toNanos();
+  }
+
+  //---------------------------------------------------------------------------
+  // Diagnosable.
+  //---------------------------------------------------------------------------
+
+  @Override
+  public Collection<DiagnosticsResult> diagnose() {
+    var name = "ConnectionWarmupIsComplete";
+    if (isComplete()) {
+      return List.of(new DiagnosticsResult(name));
+    }
+    else if (this.warmup == null) {
+      return List.of(new DiagnosticsResult(name, false, "Warmup has not started"));
+    }
+    else {
+      return List.of(new DiagnosticsResult(name, false, "Warmup is in progress"));
+    }
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * @param timeout maximum time to wait for warmup to complete, zero to disable warmup
+   */
+  public record Options(@NotNull Duration timeout) {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    public static final @NotNull Options DEFAULT = new Options(DEFAULT_TIMEOUT);
+    public static final @NotNull Options DISABLED = new Options(Duration.ZERO);
+
+    public Options {
+      Preconditions.checkNotNull(timeout, "timeout");
+      Preconditions.checkArgument(!timeout.isNegative(), "The timeout must not be negative");
+    }
+  }
+}
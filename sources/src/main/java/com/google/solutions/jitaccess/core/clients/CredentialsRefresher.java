@@ -0,0 +1,263 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the access token of a credential in the background,
+ * ahead of its expiry.
+ *
+ * Credentials normally refresh their token lazily, on the thread that
+ * happens to need a token when the current one is about to expire.
+ * For the application's credentials, that's a user request, which then
+ * has to wait for a round trip to the metadata server or the IAM
+ * Credentials API. By refreshing the token before the credential
+ * considers it stale, requests always find a valid token.
+ *
+ * If a refresh fails, the refresher retries with exponential backoff.
+ * Should the token expire nevertheless, the credential falls back to
+ * refreshing the token lazily.
+ */
+public class CredentialsRefresher {
+  private final @NotNull GoogleCredentials credentials;
+  private final @NotNull Options options;
+  private final @NotNull ScheduledExecutorService scheduler;
+  private final @NotNull Clock clock;
+
+  private @Nullable Instant lastRefreshTime;
+  private @Nullable Duration lastRefreshLatency;
+  private long refreshes = 0;
+  private long failedRefreshes = 0;
+  private int consecutiveFailures = 0;
+
+  CredentialsRefresher(
+    @NotNull GoogleCredentials credentials,
+    @NotNull Options options,
+    @NotNull ScheduledExecutorService scheduler,
+    @NotNull Clock clock
+  ) {
+    Preconditions.checkNotNull(credentials, "credentials");
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkNotNull(scheduler, "scheduler");
+    Preconditions.checkNotNull(clock, "clock");
+
+    this.credentials = credentials;
+    this.options = options;
+    this.scheduler = scheduler;
+    this.clock = clock;
+  }
+
+  public CredentialsRefresher(
+    @NotNull GoogleCredentials credentials,
+    @NotNull Options options,
+    @NotNull ScheduledExecutorService scheduler
+  ) {
+    this(credentials, options, scheduler, Clock.systemUTC());
+  }
+
+  /**
+   * Start refreshing the token in the background. The first
+   * refresh happens immediately.
+   */
+  public void start() {
+    this.scheduler.execute(this::refreshAndReschedule);
+  }
+
+  private void refreshAndReschedule() {
+    Duration delay;
+    try {
+      delay = refresh();
+    }
+    catch (RuntimeException e) {
+      //
+      // Keep the schedule going, an exception escaping the
+      // task would cancel all further refreshes.
+      //
+      delay = this.options.retryBackoff;
+    }
+
+    this.scheduler.schedule(
+      this::refreshAndReschedule,
+      delay.toMillis(),
+      TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Refresh the token once.
+   *
+   * @return time to wait until the next refresh.
+   */
+  @NotNull Duration refresh() {
+    var startTime = this.clock.instant();
+    try {
+      this.credentials.refresh();
+
+      var now = this.clock.instant();
+      synchronized (this) {
+        this.lastRefreshTime = now;
+        this.lastRefreshLatency = Duration.between(startTime, now);
+        this.refreshes++;
+        this.consecutiveFailures = 0;
+      }
+
+      return nextRefreshDelay(this.credentials.getAccessToken(), now);
+    }
+    catch (IOException e) {
+      int failures;
+      synchronized (this) {
+        this.failedRefreshes++;
+        failures = ++this.consecutiveFailures;
+      }
+
+      //
+      // Cap the exponent to avoid overflows, the result is capped
+      // by the maximum backoff anyway.
+      //
+      var backoff = this.options.retryBackoff.multipliedBy(1L << Math.min(failures - 1, 20));
+      return backoff.compareTo(this.options.maxRetryBackoff) <= 0
+        ? backoff
+        : this.options.maxRetryBackoff;
+    }
+  }
+
+  private @NotNull Duration nextRefreshDelay(
+    @Nullable AccessToken token,
+    @NotNull Instant now
+  ) {
+    if (token == null || token.getExpirationTime() == null) {
+      //
+      // Token doesn't expire, but check again later in case
+      // that changes.
+      //
+      return this.options.refreshAhead;
+    }
+
+    //
+    // Add jitter so that instances that started at the same time
+    // don't all refresh at the same time.
+    //
+    var jitter = this.options.maxJitter.isZero()
+      ? Duration.ZERO
+      : Duration.ofMillis(ThreadLocalRandom.current().nextLong(this.options.maxJitter.toMillis() + 1));
+
+    var delay = Duration
+      .between(now, token.getExpirationTime().toInstant())
+      .minus(this.options.refreshAhead)
+      .minus(jitter);
+
+    //
+    // If the token's lifetime is shorter than the refresh-ahead time,
+    // don't keep refreshing it in a tight loop.
+    //
+    return delay.compareTo(this.options.retryBackoff) >= 0
+      ? delay
+      : this.options.retryBackoff;
+  }
+
+  /**
+   * Get statistics about refreshes.
+   */
+  public synchronized @NotNull Statistics statistics() {
+    return new Statistics(
+      this.lastRefreshTime != null
+        ? Duration.between(this.lastRefreshTime, this.clock.instant())
+        : null,
+      this.lastRefreshLatency,
+      this.refreshes,
+      this.failedRefreshes);
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * @param tokenAge time since the token was last refreshed, or null if it hasn't been refreshed yet
+   * @param lastRefreshLatency time the last successful refresh took, or null if there wasn't one
+   * @param refreshes number of successful refreshes
+   * @param failedRefreshes number of failed refreshes
+   */
+  public record Statistics(
+    @Nullable Duration tokenAge,
+    @Nullable Duration lastRefreshLatency,
+    long refreshes,
+    long failedRefreshes
+  ) {}
+
+  /**
+   * @param refreshAhead time before expiry at which to refresh a token
+   * @param maxJitter maximum random time to refresh a token earlier
+   * @param retryBackoff time to wait before retrying a failed refresh, doubled after each failure
+   * @param maxRetryBackoff maximum time to wait before retrying a failed refresh
+   */
+  public record Options(
+    @NotNull Duration refreshAhead,
+    @NotNull Duration maxJitter,
+    @NotNull Duration retryBackoff,
+    @NotNull Duration maxRetryBackoff
+  ) {
+    /**
+     * Credentials consider tokens stale 6 minutes before they expire,
+     * so refresh well before that.
+     */
+    public static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofMinutes(10);
+    public static final Duration DEFAULT_MAX_JITTER = Duration.ofMinutes(1);
+    public static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_MAX_RETRY_BACKOFF = Duration.ofMinutes(2);
+
+    public static final @NotNull Options DEFAULT = new Options(
+      DEFAULT_REFRESH_AHEAD,
+      DEFAULT_MAX_JITTER,
+      DEFAULT_RETRY_BACKOFF,
+      DEFAULT_MAX_RETRY_BACKOFF);
+
+    public Options {
+      Preconditions.checkNotNull(refreshAhead, "refreshAhead");
+      Preconditions.checkNotNull(maxJitter, "maxJitter");
+      Preconditions.checkNotNull(retryBackoff, "retryBackoff");
+      Preconditions.checkNotNull(maxRetryBackoff, "maxRetryBackoff");
+
+      Preconditions.checkArgument(
+        !refreshAhead.isNegative() && !maxJitter.isNegative(),
+        "The refresh-ahead time and jitter must not be negative");
+      Preconditions.checkArgument(
+        !retryBackoff.isNegative() && !retryBackoff.isZero(),
+        "The retry backoff must be positive");
+      Preconditions.checkArgument(
+        maxRetryBackoff.compareTo(retryBackoff) >= 0,
+        "The maximum retry backoff must not be less than the retry backoff");
+    }
+  }
+}
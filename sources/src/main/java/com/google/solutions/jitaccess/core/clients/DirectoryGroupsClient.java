@@ -21,22 +21,32 @@
 
 package com.google.solutions.jitaccess.core.clients;
 
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.directory.Directory;
 import com.google.api.services.directory.model.Group;
 import com.google.api.services.directory.model.Member;
+import com.google.api.services.directory.model.Members;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.google.solutions.jitaccess.core.*;
 import com.google.solutions.jitaccess.core.auth.UserId;
 import jakarta.inject.Singleton;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -45,60 +55,78 @@ import java.util.stream.Collectors;
 @Singleton
 public class DirectoryGroupsClient {
   public static final String OAUTH_SCOPE = "https://www.googleapis.com/auth/admin.directory.group.readonly";
+  public static final String LIST_GROUPS = "ListGroups";
+
+  /**
+   * Maximum number of requests the Directory API accepts in a
+   * single batch request.
+   */
+  static final int MAX_BATCH_SIZE = 50;
+
+  /**
+   * Maximum page size supported by the Directory API.
+   */
+  static final int PAGE_SIZE = 200;
 
   private final @NotNull Options options;
   private final @NotNull GoogleCredentials credentials;
-  private final @NotNull HttpTransport.Options httpOptions;
+  private final @NotNull ClientFactory clientFactory;
 
   public DirectoryGroupsClient(
     @NotNull GoogleCredentials credentials,
     @NotNull Options options,
-    @NotNull HttpTransport.Options httpOptions
+    @NotNull ClientFactory clientFactory
   ) {
     Preconditions.checkNotNull(credentials, "credentials");
     Preconditions.checkNotNull(options, "options");
-    Preconditions.checkNotNull(httpOptions, "httpOptions");
+    Preconditions.checkNotNull(clientFactory, "clientFactory");
 
     this.credentials = credentials;
     this.options = options;
-    this.httpOptions = httpOptions;
+    this.clientFactory = clientFactory;
   }
 
-  private @NotNull Directory createClient() throws IOException {
-    try {
-      return new Directory.Builder(
-          HttpTransport.newTransport(),
-          new GsonFactory(),
-          HttpTransport.newAuthenticatingRequestInitializer(this.credentials, this.httpOptions))
+  private @NotNull Directory createClient() throws AccessException, IOException {
+    return this.clientFactory.getClient(
+      Directory.class,
+      this.credentials,
+      (transport, jsonFactory, initializer) -> new Directory
+        .Builder(transport, jsonFactory, initializer)
         .setApplicationName(ApplicationVersion.USER_AGENT)
-        .build();
-    }
-    catch (GeneralSecurityException e) {
-      throw new IOException("Creating a Directory client failed", e);
-    }
+        .build());
   }
 
   /**
-   * List all groups a given user is a direct member of.
+   * Fetch a single page of groups a given user is a direct member of.
    */
-  public @NotNull Collection<Group> listDirectGroupMemberships(
-    @NotNull UserId user
+  private @NotNull PagedIterator.Page<Group> listDirectGroupMembershipsPage(
+    @NotNull UserId user,
+    @Nullable String pageToken
   ) throws AccessException, IOException {
     try {
       //
       // NB. Using userKey doesn't work for service account,
       // so we have to use a query.
       //
-      var result = createClient()
-        .groups()
-        .list()
-        .setCustomer(this.options.customerId)
-        .setQuery(String.format("memberKey=%s", user.email))
-        .execute();
+      var result = this.clientFactory
+        .policies()
+        .hedgingPolicy(Directory.class, LIST_GROUPS)
+        .execute(() -> createClient()
+          .groups()
+          .list()
+          .setCustomer(this.options.customerId)
+          .setQuery(String.format("memberKey=%s", user.email))
+          .setMaxResults(PAGE_SIZE)
+          .setPageToken(pageToken)
+          .setFields(ResponseFields.LIST_GROUPS)
+          .execute());
 
-      return result.getGroups() != null
-        ? result.getGroups()
-        : List.of();
+      return new PagedIterator.Page<>(
+        result.getGroups() != null ? result.getGroups() : List.of(),
+        result.getNextPageToken());
+    }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
     }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
@@ -121,40 +149,303 @@ public class DirectoryGroupsClient {
   }
 
   /**
-   * List users that are a direct member of the given group.
+   * Iterate over all groups a given user is a direct member of.
+   *
+   * Pages are fetched lazily, so callers that only need to find a
+   * particular group can stop iterating once they've found it.
+   *
+   * NB. Returned groups only contain an email address.
    */
-  public @NotNull Collection<Member> listDirectGroupMembers(
-    @NotNull String groupEmail
+  public @NotNull PagedIterator<Group> iterateDirectGroupMemberships(
+    @NotNull UserId user
+  ) {
+    return new PagedIterator<>(
+      pageToken -> listDirectGroupMembershipsPage(user, pageToken),
+      null,
+      this.clientFactory.policies().executor(Directory.class));
+  }
+
+  /**
+   * List all groups a given user is a direct member of.
+   *
+   * NB. Returned groups only contain an email address.
+   */
+  public @NotNull Collection<Group> listDirectGroupMemberships(
+    @NotNull UserId user
+  ) throws AccessException, IOException {
+    //
+    // We're reading all pages back-to-back, so there's no point in
+    // prefetching pages on a separate thread.
+    //
+    return new PagedIterator<>(
+      pageToken -> listDirectGroupMembershipsPage(user, pageToken),
+      null,
+      Runnable::run)
+      .toList();
+  }
+
+  /**
+   * List all groups a given user is a direct member of, asynchronously.
+   */
+  public @NotNull CompletableFuture<Collection<Group>> listDirectGroupMembershipsAsync(
+    @NotNull UserId user
+  ) {
+    return ThrowingCompletableFuture.submit(
+      () -> listDirectGroupMemberships(user),
+      this.clientFactory.policies().executor(Directory.class));
+  }
+
+  /**
+   * Fetch a single page of users that are a direct member of the
+   * given group.
+   */
+  private @NotNull PagedIterator.Page<Member> listDirectGroupMembersPage(
+    @NotNull String groupEmail,
+    @Nullable String pageToken
   ) throws AccessException, IOException {
     try {
       var result = createClient()
         .members()
         .list(groupEmail)
+        .setMaxResults(PAGE_SIZE)
+        .setPageToken(pageToken)
+        .setFields(ResponseFields.LIST_MEMBERS)
         .execute();
 
-      if (result.getMembers() == null) {
-        return List.of();
+      return new PagedIterator.Page<>(activeUsers(result), result.getNextPageToken());
+    }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
+    catch (GoogleJsonResponseException e) {
+      throwListMembersException(groupEmail, e);
+      return null;
+    }
+  }
+
+  /**
+   * Iterate over all users that are a direct member of the given group.
+   *
+   * Pages are fetched lazily, so callers that only need to find a
+   * particular user can stop iterating once they've found it.
+   *
+   * NB. Returned members only contain an email address, type, and status.
+   */
+  public @NotNull PagedIterator<Member> iterateDirectGroupMembers(
+    @NotNull String groupEmail
+  ) {
+    return new PagedIterator<>(
+      pageToken -> listDirectGroupMembersPage(groupEmail, pageToken),
+      null,
+      this.clientFactory.policies().executor(Directory.class));
+  }
+
+  /**
+   * List users that are a direct member of the given group.
+   *
+   * NB. Returned members only contain an email address, type, and status.
+   */
+  public @NotNull Collection<Member> listDirectGroupMembers(
+    @NotNull String groupEmail
+  ) throws AccessException, IOException {
+    return new PagedIterator<>(
+      pageToken -> listDirectGroupMembersPage(groupEmail, pageToken),
+      null,
+      Runnable::run)
+      .toList();
+  }
+
+  /**
+   * List users that are a direct member of the given group, asynchronously.
+   */
+  public @NotNull CompletableFuture<Collection<Member>> listDirectGroupMembersAsync(
+    @NotNull String groupEmail
+  ) {
+    return ThrowingCompletableFuture.submit(
+      () -> listDirectGroupMembers(groupEmail),
+      this.clientFactory.policies().executor(Directory.class));
+  }
+
+  /**
+   * List users that are a direct member of any of the given groups,
+   * asynchronously.
+   *
+   * Instead of issuing one request per group, lookups are combined
+   * into batch requests of up to MAX_BATCH_SIZE groups each.
+   *
+   * Each group gets its own future, which fails with the same
+   * exceptions as listDirectGroupMembers if the lookup for
+   * that particular group fails.
+   *
+   * @return futures, keyed by group email
+   */
+  public @NotNull Map<String, CompletableFuture<Collection<Member>>> batchListDirectGroupMembersAsync(
+    @NotNull Collection<String> groupEmails
+  ) {
+    Preconditions.checkNotNull(groupEmails, "groupEmails");
+
+    var futures = new LinkedHashMap<String, CompletableFuture<Collection<Member>>>();
+    for (var groupEmail : groupEmails) {
+      futures.putIfAbsent(groupEmail, new CompletableFuture<>());
+    }
+
+    for (var batchGroupEmails : Iterables.partition(futures.keySet(), MAX_BATCH_SIZE)) {
+      var batchFutures = new LinkedHashMap<String, CompletableFuture<Collection<Member>>>();
+      for (var groupEmail : batchGroupEmails) {
+        batchFutures.put(groupEmail, futures.get(groupEmail));
       }
 
-      return result.getMembers()
-        .stream()
-        .filter(member -> "USER".equals(member.getType()))
-        .filter(member -> "ACTIVE".equals(member.getStatus()))
-        .collect(Collectors.toList());
+      try {
+        this.clientFactory.policies().executor(Directory.class).execute(() -> {
+          try {
+            executeListMembersBatch(batchFutures);
+          }
+          catch (Exception e) {
+            batchFutures.values().forEach(f -> f.completeExceptionally(e));
+          }
+        });
+      }
+      catch (RejectedExecutionException e) {
+        batchFutures.values().forEach(f -> f.completeExceptionally(
+          new BackendUnavailableException(e.getMessage())));
+      }
     }
-    catch (GoogleJsonResponseException e) {
+
+    return futures;
+  }
+
+  /**
+   * Look up the members of multiple groups in a single batch request,
+   * completing each group's future as its part of the response is
+   * processed.
+   */
+  private void executeListMembersBatch(
+    @NotNull Map<String, CompletableFuture<Collection<Member>>> futures
+  ) throws AccessException, IOException {
+    var client = createClient();
+    var batch = client.batch();
+    var incompleteGroups = new LinkedHashMap<String, PagedIterator.Page<Member>>();
+
+    for (var entry : futures.entrySet()) {
+      var groupEmail = entry.getKey();
+      var future = entry.getValue();
+
+      client
+        .members()
+        .list(groupEmail)
+        .setMaxResults(PAGE_SIZE)
+        .setFields(ResponseFields.LIST_MEMBERS)
+        .queue(batch, new JsonBatchCallback<>() {
+          @Override
+          public void onSuccess(Members result, HttpHeaders responseHeaders) {
+            if (result.getNextPageToken() == null || result.getNextPageToken().isEmpty()) {
+              future.complete(activeUsers(result));
+            }
+            else {
+              incompleteGroups.put(
+                groupEmail,
+                new PagedIterator.Page<>(activeUsers(result), result.getNextPageToken()));
+            }
+          }
+
+          @Override
+          public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+            var exception = new GoogleJsonResponseException(
+              new HttpResponseException.Builder(error.getCode(), error.getMessage(), responseHeaders),
+              error);
+
+            try {
+              throwListMembersException(groupEmail, exception);
+            }
+            catch (Exception e) {
+              future.completeExceptionally(e);
+            }
+          }
+        });
+    }
+
+    try {
+      batch.execute();
+    }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
+    catch (HttpResponseException e) {
+      //
+      // The batch request as a whole failed.
+      //
       switch (e.getStatusCode()) {
         case 401:
           throw new NotAuthenticatedException("Not authenticated", e);
         case 403:
           throw new AccessDeniedException("Access to Directory API was denied", e);
-        case 404:
-          throw new ResourceNotFoundException(
-            String.format("The group '%s' does not exist", groupEmail), e);
         default:
-          throw (GoogleJsonResponseException)e.fillInStackTrace();
+          throw (HttpResponseException)e.fillInStackTrace();
       }
     }
+
+    //
+    // Large groups span multiple pages. The batch only contained
+    // the requests for the first page, so fetch the remaining pages
+    // individually.
+    //
+    for (var entry : incompleteGroups.entrySet()) {
+      var groupEmail = entry.getKey();
+      var firstPage = entry.getValue();
+      var future = futures.get(groupEmail);
+
+      try {
+        var members = new ArrayList<>(firstPage.items());
+        members.addAll(new PagedIterator<>(
+          pageToken -> listDirectGroupMembersPage(groupEmail, pageToken),
+          firstPage.nextPageToken(),
+          Runnable::run)
+          .toList());
+
+        future.complete(members);
+      }
+      catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+    }
+
+    //
+    // The batch response should contain one part per request, but
+    // don't leave callers waiting forever if it doesn't.
+    //
+    for (var entry : futures.entrySet()) {
+      entry.getValue().completeExceptionally(new IOException(
+        String.format("The batch response did not contain a result for group '%s'", entry.getKey())));
+    }
+  }
+
+  private static @NotNull List<Member> activeUsers(@NotNull Members result) {
+    if (result.getMembers() == null) {
+      return List.of();
+    }
+
+    return result.getMembers()
+      .stream()
+      .filter(member -> "USER".equals(member.getType()))
+      .filter(member -> "ACTIVE".equals(member.getStatus()))
+      .collect(Collectors.toList());
+  }
+
+  private static void throwListMembersException(
+    @NotNull String groupEmail,
+    @NotNull GoogleJsonResponseException e
+  ) throws AccessException, IOException {
+    switch (e.getStatusCode()) {
+      case 401:
+        throw new NotAuthenticatedException("Not authenticated", e);
+      case 403:
+        throw new AccessDeniedException("Access to Directory API was denied", e);
+      case 404:
+        throw new ResourceNotFoundException(
+          String.format("The group '%s' does not exist", groupEmail), e);
+      default:
+        throw (GoogleJsonResponseException)e.fillInStackTrace();
+    }
   }
 
   //---------------------------------------------------------------------------
@@ -0,0 +1,392 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.util.NanoClock;
+import com.google.common.base.Preconditions;
+import com.google.solutions.jitaccess.core.AccessException;
+import com.google.solutions.jitaccess.core.ThrowingCompletableFuture;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hedging policy for an idempotent API method.
+ *
+ * If a call doesn't complete within the usual latency of the method
+ * (as measured by a percentile of recent latencies), a second,
+ * identical call is sent. Whichever call succeeds first wins. This
+ * cuts tail latency that's caused by individual slow backends, at the
+ * cost of a few additional requests.
+ *
+ * The losing call is abandoned, but not aborted: its HTTP request
+ * keeps running until it completes or times out, and its result is
+ * discarded. If it fails, the failure isn't held against the API's
+ * circuit breaker. Each hedged call therefore adds a full request's worth
+ * of load to the backend and occupies an executor thread meanwhile.
+ * To prevent hedging from amplifying load when the API is slow
+ * across the board, the number of hedged calls is capped by a budget
+ * that's expressed as a percentage of primary calls.
+ *
+ * Calls run on the calling thread unless they might be hedged, that
+ * is, unless there's a hedging delay and budget for a hedged call.
+ * Calls that might be hedged run on a dedicated executor, which must
+ * not be used for anything else: callers might already be running on
+ * a shared executor, and waiting for another task on that executor
+ * could exhaust it. If the dedicated executor is saturated, calls
+ * aren't queued, but run on the calling thread without hedging.
+ *
+ * Only use hedging for reads: a hedged call might be executed twice.
+ */
+public class HedgingPolicy {
+  /**
+   * Number of recent latencies to derive the hedging delay from.
+   */
+  static final int LATENCY_SAMPLES = 100;
+
+  /**
+   * Minimum number of latencies to collect before hedging any calls.
+   */
+  static final int MIN_LATENCY_SAMPLES = 20;
+
+  /**
+   * Maximum number of hedged calls that can be saved up, which limits
+   * bursts of hedged calls after a period of fast responses.
+   */
+  static final double MAX_BUDGET = 10;
+
+  /**
+   * Flag that indicates whether the call that the current thread
+   * executes has been abandoned.
+   */
+  private static final @NotNull ThreadLocal<AtomicBoolean> currentCallAbandoned = new ThreadLocal<>();
+
+  private final @NotNull Options options;
+  private final @NotNull Executor executor;
+  private final @NotNull NanoClock clock;
+
+  /**
+   * Latencies of the most recent successful calls, in nanoseconds,
+   * used as a ring buffer.
+   */
+  private final long[] latencies = new long[LATENCY_SAMPLES];
+  private int nextLatency = 0;
+  private int recordedLatencies = 0;
+
+  /**
+   * Number of hedged calls that may currently be sent.
+   */
+  private double budget = 0;
+
+  private long calls = 0;
+  private long hedgedCalls = 0;
+  private long hedgedCallsWon = 0;
+
+  HedgingPolicy(
+    @NotNull Options options,
+    @NotNull Executor executor,
+    @NotNull NanoClock clock
+  ) {
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkNotNull(executor, "executor");
+    Preconditions.checkNotNull(clock, "clock");
+
+    this.options = options;
+    this.executor = executor;
+    this.clock = clock;
+  }
+
+  public HedgingPolicy(
+    @NotNull Options options,
+    @NotNull Executor executor
+  ) {
+    this(options, executor, NanoClock.SYSTEM);
+  }
+
+  public @NotNull Options options() {
+    return this.options;
+  }
+
+  private synchronized void recordLatency(long nanos) {
+    this.latencies[this.nextLatency] = nanos;
+    this.nextLatency = (this.nextLatency + 1) % this.latencies.length;
+    this.recordedLatencies = Math.min(this.recordedLatencies + 1, this.latencies.length);
+  }
+
+  /**
+   * Get the time to wait for a call before sending a hedged call.
+   *
+   * @return delay, or null if there's not enough data yet to
+   * determine a delay.
+   */
+  synchronized @Nullable Duration hedgingDelay() {
+    if (this.recordedLatencies < MIN_LATENCY_SAMPLES) {
+      return null;
+    }
+
+    var sorted = Arrays.copyOf(this.latencies, this.recordedLatencies);
+    Arrays.sort(sorted);
+
+    var index = (int)Math.ceil(this.options.percentile / 100.0 * sorted.length) - 1;
+    var delay = Duration.ofNanos(sorted[Math.max(0, index)]);
+
+    return delay.compareTo(this.options.minDelay) >= 0 ? delay : this.options.minDelay;
+  }
+
+  private synchronized void recordCall() {
+    this.calls++;
+    this.budget = Math.min(MAX_BUDGET, this.budget + this.options.budget / 100.0);
+  }
+
+  private synchronized boolean hasBudget() {
+    return this.budget >= 1;
+  }
+
+  private synchronized boolean tryAcquireHedge() {
+    if (this.budget < 1) {
+      return false;
+    }
+
+    this.budget--;
+    this.hedgedCalls++;
+    return true;
+  }
+
+  private synchronized void releaseHedge() {
+    this.budget++;
+    this.hedgedCalls--;
+  }
+
+  private synchronized void recordHedgeWon() {
+    this.hedgedCallsWon++;
+  }
+
+  private <V> V executeAndRecordLatency(@NotNull Call<V> call) throws AccessException, IOException {
+    var startTime = this.clock.nanoTime();
+    var result = call.execute();
+    recordLatency(this.clock.nanoTime() - startTime);
+    return result;
+  }
+
+  /**
+   * Submit a call to the executor.
+   *
+   * @return future, or null if the executor is saturated.
+   */
+  private <V> @Nullable CompletableFuture<V> trySubmit(
+    @NotNull Call<V> call,
+    @NotNull AtomicBoolean abandoned
+  ) {
+    var future = new CompletableFuture<V>();
+    try {
+      this.executor.execute(() -> {
+        currentCallAbandoned.set(abandoned);
+        try {
+          future.complete(executeAndRecordLatency(call));
+        }
+        catch (Exception e) {
+          future.completeExceptionally(e);
+        }
+        finally {
+          currentCallAbandoned.remove();
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      return null;
+    }
+
+    return future;
+  }
+
+  /**
+   * Check if the call that the current thread executes has been
+   * abandoned because another call completed first.
+   */
+  static boolean isCurrentCallAbandoned() {
+    var abandoned = currentCallAbandoned.get();
+    return abandoned != null && abandoned.get();
+  }
+
+  /**
+   * Execute a call, hedging it if it takes longer than usual.
+   */
+  public <V> V execute(@NotNull Call<V> call) throws AccessException, IOException {
+    Preconditions.checkNotNull(call, "call");
+
+    if (this.options.percentile == 0) {
+      return call.execute();
+    }
+
+    recordCall();
+
+    var delay = hedgingDelay();
+    if (delay == null || !hasBudget()) {
+      //
+      // The call can't be hedged, so there's no point in moving
+      // it to another thread.
+      //
+      return executeAndRecordLatency(call);
+    }
+
+    var primaryAbandoned = new AtomicBoolean(false);
+    var primary = trySubmit(call, primaryAbandoned);
+    if (primary == null) {
+      //
+      // Too many calls are pending already. Sending even more
+      // requests won't help, so don't hedge this call.
+      //
+      return executeAndRecordLatency(call);
+    }
+
+    try {
+      try {
+        return primary.get(delay.toNanos(), TimeUnit.NANOSECONDS);
+      }
+      catch (ExecutionException e) {
+        return ThrowingCompletableFuture.awaitAndRethrow(primary);
+      }
+      catch (TimeoutException e) {
+        if (!tryAcquireHedge()) {
+          return ThrowingCompletableFuture.awaitAndRethrow(primary);
+        }
+      }
+
+      //
+      // Use the first successful result. If one call fails, keep
+      // waiting for the other one, and only fail if both did.
+      //
+      var hedgeAbandoned = new AtomicBoolean(false);
+      var hedge = trySubmit(call, hedgeAbandoned);
+      if (hedge == null) {
+        releaseHedge();
+        return ThrowingCompletableFuture.awaitAndRethrow(primary);
+      }
+
+      var winner = new CompletableFuture<V>();
+      var pending = new AtomicInteger(2);
+      for (var attempt : List.of(primary, hedge)) {
+        attempt.whenComplete((result, e) -> {
+          if (e == null) {
+            //
+            // Abandon the other call before releasing the caller. If the
+            // other call has completed already, the flag has no effect.
+            //
+            (attempt == hedge ? primaryAbandoned : hedgeAbandoned).set(true);
+
+            if (winner.complete(result) && attempt == hedge) {
+              recordHedgeWon();
+            }
+          }
+          else if (pending.decrementAndGet() == 0) {
+            winner.completeExceptionally(e);
+          }
+        });
+      }
+
+      return ThrowingCompletableFuture.awaitAndRethrow(winner);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("The call was interrupted");
+    }
+  }
+
+  /**
+   * Get statistics about hedged calls.
+   */
+  public synchronized @NotNull Statistics statistics() {
+    return new Statistics(this.calls, this.hedgedCalls, this.hedgedCallsWon);
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  @FunctionalInterface
+  public interface Call<V> {
+    V execute() throws AccessException, IOException;
+  }
+
+  /**
+   * @param calls number of calls that were subject to hedging
+   * @param hedgedCalls number of additional calls that were sent
+   * @param hedgedCallsWon number of hedged calls that completed before the primary call
+   */
+  public record Statistics(
+    long calls,
+    long hedgedCalls,
+    long hedgedCallsWon
+  ) {}
+
+  /**
+   * @param percentile latency percentile after which to hedge a call, 0 to disable hedging
+   * @param minDelay minimum time to wait before hedging a call
+   * @param budget maximum number of hedged calls (and thus additional requests), as a percentage of calls
+   */
+  public record Options(
+    int percentile,
+    @NotNull Duration minDelay,
+    int budget
+  ) {
+    public static final int DEFAULT_PERCENTILE = 95;
+    public static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis(50);
+    public static final int DEFAULT_BUDGET = 10;
+
+    public static final @NotNull Options DEFAULT = new Options(
+      DEFAULT_PERCENTILE,
+      DEFAULT_MIN_DELAY,
+      DEFAULT_BUDGET);
+
+    public static final @NotNull Options DISABLED = new Options(
+      0,
+      DEFAULT_MIN_DELAY,
+      DEFAULT_BUDGET);
+
+    public Options {
+      Preconditions.checkNotNull(minDelay, "minDelay");
+
+      Preconditions.checkArgument(
+        percentile >= 0 && percentile < 100,
+        "The percentile must be between 0 and 99");
+      Preconditions.checkArgument(
+        !minDelay.isNegative(),
+        "The minimum delay must not be negative");
+      Preconditions.checkArgument(
+        budget >= 0 && budget <= 100,
+        "The budget must be between 0 and 100");
+    }
+  }
+}
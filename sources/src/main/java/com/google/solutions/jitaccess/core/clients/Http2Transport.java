@@ -0,0 +1,296 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transport that uses the JDK HTTP client and HTTP/2.
+ *
+ * HTTP/2 multiplexes concurrent requests to the same host over a
+ * single connection, so parallel API calls don't require a connection
+ * each.
+ *
+ * Unlike the default transport, this transport buffers request bodies
+ * in memory before sending them, and it doesn't support separate read
+ * and write timeouts, see Request.setTimeout().
+ */
+class Http2Transport extends com.google.api.client.http.HttpTransport {
+  /**
+   * Headers that the JDK HTTP client manages itself and doesn't permit
+   * to be set explicitly.
+   */
+  private static final Set<String> RESTRICTED_HEADERS = Set.of(
+    "connection",
+    "content-length",
+    "expect",
+    "host",
+    "upgrade");
+
+  private final @NotNull HttpClient client;
+
+  Http2Transport(
+    @NotNull SSLContext sslContext,
+    @NotNull Duration connectTimeout
+  ) {
+    Preconditions.checkNotNull(sslContext, "sslContext");
+    Preconditions.checkNotNull(connectTimeout, "connectTimeout");
+
+    var builder = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_2)
+      .followRedirects(HttpClient.Redirect.NEVER)
+      .sslContext(sslContext);
+
+    if (!connectTimeout.isZero()) {
+      builder.connectTimeout(connectTimeout);
+    }
+
+    this.client = builder.build();
+  }
+
+  @Override
+  public boolean supportsMethod(@NotNull String method) {
+    return true;
+  }
+
+  @Override
+  protected @NotNull LowLevelHttpRequest buildRequest(
+    @NotNull String method,
+    @NotNull String url
+  ) {
+    return new Request(method, url);
+  }
+
+  @Override
+  public void shutdown() {
+    //
+    // The client releases its connections once it's no longer
+    // referenced, there's nothing to close explicitly.
+    //
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  class Request extends LowLevelHttpRequest {
+    private final @NotNull String method;
+    private final @NotNull String url;
+    private final @NotNull List<Map.Entry<String, String>> headers = new ArrayList<>();
+    private @NotNull Duration readTimeout = Duration.ZERO;
+    private @NotNull Duration writeTimeout = Duration.ZERO;
+
+    private Request(@NotNull String method, @NotNull String url) {
+      this.method = method;
+      this.url = url;
+    }
+
+    @Override
+    public void addHeader(@NotNull String name, @NotNull String value) {
+      if (!RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+        this.headers.add(Map.entry(name, value));
+      }
+    }
+
+    @Override
+    public void setTimeout(int connectTimeout, int readTimeout) {
+      //
+      // The connect timeout is a property of the client.
+      //
+      this.readTimeout = Duration.ofMillis(readTimeout);
+    }
+
+    @Override
+    public void setWriteTimeout(int writeTimeout) {
+      this.writeTimeout = Duration.ofMillis(writeTimeout);
+    }
+
+    /**
+     * Get the time to wait for the response headers, or zero if
+     * there's no limit.
+     *
+     * The JDK client doesn't distinguish between read and write
+     * timeouts: its timeout covers sending the request and receiving
+     * the response headers. We therefore allow the sum of both.
+     */
+    @NotNull Duration timeout() {
+      return this.readTimeout.isZero()
+        ? Duration.ZERO
+        : this.readTimeout.plus(this.writeTimeout);
+    }
+
+    @Override
+    public @NotNull LowLevelHttpResponse execute() throws IOException {
+      HttpRequest.BodyPublisher body;
+      if (getStreamingContent() != null) {
+        //
+        // The JDK client pulls the body from a publisher while the
+        // content wants to push it to a stream. Request bodies are
+        // small JSON documents, so buffer them instead of bridging
+        // the two using a pipe and an extra thread.
+        //
+        var buffer = new ByteArrayOutputStream();
+        getStreamingContent().writeTo(buffer);
+        body = HttpRequest.BodyPublishers.ofByteArray(buffer.toByteArray());
+
+        if (getContentType() != null) {
+          this.headers.add(Map.entry("Content-Type", getContentType()));
+        }
+        if (getContentEncoding() != null) {
+          this.headers.add(Map.entry("Content-Encoding", getContentEncoding()));
+        }
+      }
+      else {
+        body = HttpRequest.BodyPublishers.noBody();
+      }
+
+      var request = HttpRequest.newBuilder(URI.create(this.url))
+        .method(this.method, body);
+
+      for (var header : this.headers) {
+        request.header(header.getKey(), header.getValue());
+      }
+
+      var timeout = timeout();
+      if (!timeout.isZero()) {
+        request.timeout(timeout);
+      }
+
+      try {
+        return new Response(client.send(
+          request.build(),
+          HttpResponse.BodyHandlers.ofInputStream()));
+      }
+      catch (HttpTimeoutException e) {
+        throw new SocketTimeoutException(e.getMessage());
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("The request was interrupted");
+      }
+    }
+  }
+
+  private static class Response extends LowLevelHttpResponse {
+    private final @NotNull HttpResponse<InputStream> response;
+    private final @NotNull List<Map.Entry<String, String>> headers = new ArrayList<>();
+
+    private Response(@NotNull HttpResponse<InputStream> response) {
+      this.response = response;
+
+      //
+      // Flatten headers so that they can be accessed by index.
+      //
+      for (var header : response.headers().map().entrySet()) {
+        for (var value : header.getValue()) {
+          this.headers.add(Map.entry(header.getKey(), value));
+        }
+      }
+    }
+
+    private @Nullable String firstHeaderValue(@NotNull String name) {
+      return this.response.headers().firstValue(name).orElse(null);
+    }
+
+    @Override
+    public @NotNull InputStream getContent() {
+      return this.response.body();
+    }
+
+    @Override
+    public @Nullable String getContentEncoding() {
+      return firstHeaderValue("Content-Encoding");
+    }
+
+    @Override
+    public long getContentLength() {
+      return this.response.headers().firstValueAsLong("Content-Length").orElse(-1);
+    }
+
+    @Override
+    public @Nullable String getContentType() {
+      return firstHeaderValue("Content-Type");
+    }
+
+    @Override
+    public @NotNull String getStatusLine() {
+      return String.format(
+        "%s %d",
+        this.response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1",
+        this.response.statusCode());
+    }
+
+    @Override
+    public int getStatusCode() {
+      return this.response.statusCode();
+    }
+
+    @Override
+    public @Nullable String getReasonPhrase() {
+      //
+      // HTTP/2 doesn't have reason phrases.
+      //
+      return null;
+    }
+
+    @Override
+    public int getHeaderCount() {
+      return this.headers.size();
+    }
+
+    @Override
+    public @NotNull String getHeaderName(int index) {
+      return this.headers.get(index).getKey();
+    }
+
+    @Override
+    public @NotNull String getHeaderValue(int index) {
+      return this.headers.get(index).getValue();
+    }
+
+    @Override
+    public void disconnect() throws IOException {
+      this.response.body().close();
+    }
+  }
+}
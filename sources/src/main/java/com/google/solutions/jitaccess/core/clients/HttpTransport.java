@@ -21,28 +21,61 @@
 
 package com.google.solutions.jitaccess.core.clients;
 
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.GoogleUtils;
+import com.google.api.client.http.HttpExecuteInterceptor;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestInitializer;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.util.SslUtils;
 import com.google.auth.Credentials;
 import com.google.auth.http.HttpCredentialsAdapter;
+import com.google.common.base.Preconditions;
+import com.google.solutions.jitaccess.core.Deadline;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import javax.net.ssl.SSLContext;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Factory for creating transports based on the 'javax.net.ssl.trustStore'
- * system property.
+ * Shared HTTP transport for Google API clients.
+ *
+ * The transport maintains a pool of persistent connections, so that
+ * subsequent API calls can reuse existing connections and TLS sessions
+ * instead of performing a new TCP and TLS handshake each time.
+ *
+ * Depending on the configured protocol, the transport uses either
+ * HTTP/1.1 with a pool of connections, or HTTP/2, which multiplexes
+ * concurrent requests over a single connection per host.
+ *
+ * The transport is expensive to create and should be shared across the
+ * application. To be injected using CDI.
  */
 public class HttpTransport {
-  private HttpTransport() {}
+  private final @NotNull Options options;
+  private com.google.api.client.http.HttpTransport transport;
 
-  public static @NotNull NetHttpTransport newTransport() throws GeneralSecurityException, IOException {
+  public HttpTransport(@NotNull Options options) {
+    Preconditions.checkNotNull(options, "options");
+
+    this.options = options;
+  }
+
+  /**
+   * Load the trust store based on the 'javax.net.ssl.trustStore'
+   * system property, or use the Google trust store by default.
+   */
+  private static @NotNull KeyStore loadTrustStore() throws GeneralSecurityException, IOException {
     var trustStore = System.getProperty("javax.net.ssl.trustStore");
     var trustStorePassword = System.getProperty("javax.net.ssl.trustStorePassword");
 
@@ -57,25 +90,95 @@ public class HttpTransport {
       try (var trustStoreStream = new FileInputStream(trustStore)) {
         var keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
         keyStore.load(trustStoreStream, trustStorePassword.toCharArray());
-
-        return new NetHttpTransport
-          .Builder()
-          .trustCertificates(keyStore)
-          .build();
+        return keyStore;
       }
     }
     else {
       //
       // Use the Google keystore.
       //
-      return GoogleNetHttpTransport.newTrustedTransport();
+      return GoogleUtils.getCertificateTrustStore();
     }
   }
 
-  public static @NotNull HttpRequestInitializer newAuthenticatingRequestInitializer(
+  /**
+   * Create an SSL context to use for all connections. The context
+   * caches TLS sessions, which allows new connections to resume
+   * an existing session instead of performing a full handshake.
+   */
+  private static @NotNull SSLContext newSslContext() throws GeneralSecurityException, IOException {
+    return SslUtils.initSslContext(
+      SslUtils.getTlsSslContext(),
+      loadTrustStore(),
+      SslUtils.getPkixTrustManagerFactory());
+  }
+
+  private static @NotNull ApacheHttpTransport newPooledTransport(
+    @NotNull Options options
+  ) throws GeneralSecurityException, IOException {
+    var sslContext = newSslContext();
+    var connectionManager = new PoolingHttpClientConnectionManager(
+      RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .register("https", new SSLConnectionSocketFactory(sslContext))
+        .build(),
+      null,
+      null,
+      null,
+      options.connectionTimeToLive().toMillis(),
+      TimeUnit.MILLISECONDS);
+
+    //
+    // All requests go to a handful of googleapis.com hosts, so there's
+    // no point in limiting the number of connections per host any further
+    // than the total number of connections.
+    //
+    connectionManager.setMaxTotal(options.maxConnections());
+    connectionManager.setDefaultMaxPerRoute(options.maxConnections());
+
+    var httpClientBuilder = ApacheHttpTransport.newDefaultHttpClientBuilder()
+      .setConnectionManager(connectionManager)
+      .evictExpiredConnections();
+
+    if (!options.connectionIdleTimeout().isZero()) {
+      httpClientBuilder.evictIdleConnections(
+        options.connectionIdleTimeout().toMillis(),
+        TimeUnit.MILLISECONDS);
+    }
+
+    return new ApacheHttpTransport(httpClientBuilder.build());
+  }
+
+  public @NotNull Options options() {
+    return this.options;
+  }
+
+  /**
+   * Get the underlying transport, creating it on first use.
+   */
+  public synchronized @NotNull com.google.api.client.http.HttpTransport get() throws IOException {
+    if (this.transport == null) {
+      try {
+        this.transport = switch (this.options.protocol()) {
+          case HTTP_1_1 -> newPooledTransport(this.options);
+          case HTTP_2 -> new Http2Transport(newSslContext(), this.options.connectTimeout());
+        };
+      }
+      catch (GeneralSecurityException e) {
+        throw new IOException("Creating an HTTP transport failed", e);
+      }
+    }
+
+    return this.transport;
+  }
+
+  public @NotNull HttpRequestInitializer newAuthenticatingRequestInitializer(
     @NotNull Credentials credentials,
-    @NotNull Options httpOptions
+    @NotNull RetryPolicy retryPolicy,
+    @NotNull CircuitBreaker circuitBreaker,
+    @NotNull ClientMetrics metrics
   ) {
+    var httpOptions = this.options;
     return new HttpCredentialsAdapter(credentials) {
       @Override
       public void initialize(@NotNull HttpRequest request) throws IOException {
@@ -85,22 +188,160 @@ public class HttpTransport {
           request.setReadTimeout((int) httpOptions.readTimeout.toMillis());
         }
 
-        if (!httpOptions.writeTimeout.isZero()) {
+        //
+        // NB. The Apache transport ignores write timeouts, so
+        // only apply it if we're using HTTP/2.
+        //
+        if (!httpOptions.writeTimeout.isZero() && httpOptions.protocol == Protocol.HTTP_2) {
           request.setWriteTimeout((int) httpOptions.writeTimeout.toMillis());
         }
 
         if (!httpOptions.connectTimeout.isZero()) {
           request.setConnectTimeout((int) httpOptions.connectTimeout.toMillis());
         }
+
+        //
+        // NB. The adapter installs itself as unsuccessful response handler
+        // to refresh credentials. The retry policy chains to that handler.
+        //
+        retryPolicy.apply(request);
+
+        //
+        // NB. The circuit breaker needs to know the regular timeouts to
+        // tell whether an attempt was cut short by a deadline.
+        //
+        circuitBreaker.apply(request);
+
+        //
+        // Apply metrics last so that they're recorded before any
+        // of the other handlers run.
+        //
+        metrics.apply(request);
+
+        //
+        // If the request is subject to a deadline, cap the timeouts
+        // of each attempt to the time that remains.
+        //
+        var deadline = Deadline.current();
+        if (deadline != null) {
+          request.setInterceptor(new DeadlineInterceptor(deadline, request.getInterceptor()));
+        }
       }
     };
   }
 
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Interceptor that fails requests whose deadline has expired, and
+   * limits the timeouts of all other requests to the remaining time.
+   */
+  private static class DeadlineInterceptor implements HttpExecuteInterceptor {
+    private final @NotNull Deadline deadline;
+    private final @Nullable HttpExecuteInterceptor next;
+
+    private DeadlineInterceptor(
+      @NotNull Deadline deadline,
+      @Nullable HttpExecuteInterceptor next
+    ) {
+      this.deadline = deadline;
+      this.next = next;
+    }
+
+    private static int capTimeout(int timeout, int remaining) {
+      //
+      // NB. A timeout of zero means infinite.
+      //
+      return timeout == 0 ? remaining : Math.min(timeout, remaining);
+    }
+
+    @Override
+    public void intercept(@NotNull HttpRequest request) throws IOException {
+      this.deadline.checkNotExpired();
+
+      var remaining = (int)Math.max(1, Math.min(
+        Integer.MAX_VALUE,
+        this.deadline.remaining().toMillis()));
+
+      request.setConnectTimeout(capTimeout(request.getConnectTimeout(), remaining));
+      request.setReadTimeout(capTimeout(request.getReadTimeout(), remaining));
+      request.setWriteTimeout(capTimeout(request.getWriteTimeout(), remaining));
+
+      if (this.next != null) {
+        this.next.intercept(request);
+      }
+    }
+  }
+
+  /**
+   * @param connectTimeout timeout for establishing a connection, zero for default
+   * @param readTimeout timeout for reading a response, zero for default
+   * @param writeTimeout timeout for writing a request, zero for default. Only
+   *                     applies to HTTP/2, the HTTP/1.1 transport ignores it
+   * @param maxConnections maximum number of pooled connections
+   * @param connectionIdleTimeout duration after which idle connections are closed, zero for never
+   * @param connectionTimeToLive maximum lifetime of a pooled connection, zero for unlimited
+   * @param protocol HTTP protocol version to use
+   */
   public record Options(
-    Duration connectTimeout,
-    Duration readTimeout,
-    Duration writeTimeout
+    @NotNull Duration connectTimeout,
+    @NotNull Duration readTimeout,
+    @NotNull Duration writeTimeout,
+    int maxConnections,
+    @NotNull Duration connectionIdleTimeout,
+    @NotNull Duration connectionTimeToLive,
+    @NotNull Protocol protocol
   ) {
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    public static final Duration DEFAULT_CONNECTION_IDLE_TIMEOUT = Duration.ofSeconds(60);
+    public static final Duration DEFAULT_CONNECTION_TIME_TO_LIVE = Duration.ofMinutes(10);
+
     public static @NotNull Options DEFAULT = new Options(Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+    public Options {
+      Preconditions.checkNotNull(connectTimeout, "connectTimeout");
+      Preconditions.checkNotNull(readTimeout, "readTimeout");
+      Preconditions.checkNotNull(writeTimeout, "writeTimeout");
+      Preconditions.checkNotNull(connectionIdleTimeout, "connectionIdleTimeout");
+      Preconditions.checkNotNull(connectionTimeToLive, "connectionTimeToLive");
+      Preconditions.checkNotNull(protocol, "protocol");
+
+      Preconditions.checkArgument(
+        maxConnections > 0,
+        "The maximum number of connections must be greater than zero");
+      Preconditions.checkArgument(
+        !connectionIdleTimeout.isNegative() && !connectionTimeToLive.isNegative(),
+        "Connection timeouts must not be negative");
+    }
+
+    public Options(
+      @NotNull Duration connectTimeout,
+      @NotNull Duration readTimeout,
+      @NotNull Duration writeTimeout
+    ) {
+      this(
+        connectTimeout,
+        readTimeout,
+        writeTimeout,
+        DEFAULT_MAX_CONNECTIONS,
+        DEFAULT_CONNECTION_IDLE_TIMEOUT,
+        DEFAULT_CONNECTION_TIME_TO_LIVE,
+        Protocol.HTTP_1_1);
+    }
+  }
+
+  public enum Protocol {
+    /**
+     * Use HTTP/1.1 with a pool of persistent connections.
+     */
+    HTTP_1_1,
+
+    /**
+     * Use HTTP/2, multiplexing concurrent requests over a single
+     * connection per host. Connection pool settings don't apply.
+     */
+    HTTP_2
   }
 }
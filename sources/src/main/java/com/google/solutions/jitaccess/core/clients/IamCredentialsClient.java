@@ -34,7 +34,7 @@ import jakarta.inject.Singleton;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Adapter for IAM Credentials API
@@ -44,32 +44,27 @@ public class IamCredentialsClient {
   public static final String OAUTH_SCOPE = "https://www.googleapis.com/auth/cloud-platform";
 
   private final @NotNull GoogleCredentials credentials;
-  private final @NotNull HttpTransport.Options httpOptions;
+  private final @NotNull ClientFactory clientFactory;
 
-  private @NotNull IAMCredentials createClient() throws IOException
+  private @NotNull IAMCredentials createClient() throws AccessException, IOException
   {
-    try {
-      return new IAMCredentials
-        .Builder(
-          HttpTransport.newTransport(),
-          new GsonFactory(),
-          HttpTransport.newAuthenticatingRequestInitializer(this.credentials, this.httpOptions))
+    return this.clientFactory.getClient(
+      IAMCredentials.class,
+      this.credentials,
+      (transport, jsonFactory, initializer) -> new IAMCredentials
+        .Builder(transport, jsonFactory, initializer)
         .setApplicationName(ApplicationVersion.USER_AGENT)
-        .build();
-    }
-    catch (GeneralSecurityException e) {
-      throw new IOException("Creating a IAMCredentials client failed", e);
-    }
+        .build());
   }
 
   public IamCredentialsClient(
     @NotNull GoogleCredentials credentials,
-    @NotNull HttpTransport.Options httpOptions
+    @NotNull ClientFactory clientFactory
   )  {
     Preconditions.checkNotNull(credentials, "credentials");
-    Preconditions.checkNotNull(httpOptions, "httpOptions");
+    Preconditions.checkNotNull(clientFactory, "clientFactory");
 
-    this.httpOptions = httpOptions;
+    this.clientFactory = clientFactory;
     this.credentials = credentials;
   }
 
@@ -86,7 +81,7 @@ public class IamCredentialsClient {
     try
     {
       if (payload.getFactory() == null) {
-        payload.setFactory(new GsonFactory());
+        payload.setFactory(GsonFactory.getDefaultInstance());
       }
 
       var payloadJson = payload.toString();
@@ -104,6 +99,9 @@ public class IamCredentialsClient {
         .execute()
         .getSignedJwt();
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
         case 401:
@@ -117,6 +115,18 @@ public class IamCredentialsClient {
     }
   }
 
+  /**
+   * Sign a JWT using the Google-managed service account key, asynchronously.
+   */
+  public @NotNull CompletableFuture<String> signJwtAsync(
+    @NotNull UserId serviceAccount,
+    @NotNull JsonWebToken.Payload payload
+  ) {
+    return ThrowingCompletableFuture.submit(
+      () -> signJwt(serviceAccount, payload),
+      this.clientFactory.policies().executor(IAMCredentials.class));
+  }
+
   /**
    * Get JWKS location for service account key set.
    */
@@ -0,0 +1,180 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.common.base.Preconditions;
+import com.google.solutions.jitaccess.core.AccessException;
+import com.google.solutions.jitaccess.core.ThrowingCompletableFuture;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Iterator over the items of a paged API result.
+ *
+ * Pages are fetched lazily, but whenever the iterator moves to a new
+ * page, it starts fetching the next page in the background so that
+ * the round trip overlaps with the caller's processing of the current
+ * page. A caller that stops iterating early therefore causes at most
+ * one additional page to be fetched, and closing the iterator cancels
+ * that fetch if it hasn't started yet.
+ *
+ * Unlike java.util.Iterator, the iterator surfaces API errors as
+ * checked exceptions. Instances are not thread-safe.
+ */
+public class PagedIterator<T> implements AutoCloseable {
+  private final @NotNull PageFetcher<T> fetcher;
+  private final @NotNull Executor executor;
+
+  private @NotNull Iterator<T> currentPage = Collections.emptyIterator();
+  private @Nullable CompletableFuture<Page<T>> nextPage;
+  private volatile boolean closed;
+
+  /**
+   * Create an iterator and start fetching the first page.
+   *
+   * @param fetcher function to fetch a single page
+   * @param pageToken token of the first page, null to start from the beginning
+   * @param executor executor used to fetch pages
+   */
+  public PagedIterator(
+    @NotNull PageFetcher<T> fetcher,
+    @Nullable String pageToken,
+    @NotNull Executor executor
+  ) {
+    Preconditions.checkNotNull(fetcher, "fetcher");
+    Preconditions.checkNotNull(executor, "executor");
+
+    this.fetcher = fetcher;
+    this.executor = executor;
+    this.nextPage = fetch(pageToken);
+  }
+
+  private @NotNull CompletableFuture<Page<T>> fetch(@Nullable String pageToken) {
+    return ThrowingCompletableFuture.submit(
+      () -> {
+        if (this.closed) {
+          //
+          // The iterator was closed while the fetch was queued.
+          //
+          throw new CancellationException();
+        }
+
+        return this.fetcher.fetch(pageToken);
+      },
+      this.executor);
+  }
+
+  /**
+   * Check if there are more items, waiting for the next page
+   * to be fetched if necessary.
+   */
+  public boolean hasNext() throws AccessException, IOException {
+    while (!this.currentPage.hasNext() && this.nextPage != null) {
+      var page = ThrowingCompletableFuture.awaitAndRethrow(this.nextPage);
+
+      //
+      // Prefetch the next page before handing out items of this one.
+      //
+      this.nextPage = page.nextPageToken() != null && !page.nextPageToken().isEmpty()
+        ? fetch(page.nextPageToken())
+        : null;
+      this.currentPage = page.items().iterator();
+    }
+
+    return this.currentPage.hasNext();
+  }
+
+  /**
+   * Get the next item.
+   */
+  public @NotNull T next() throws AccessException, IOException {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    return this.currentPage.next();
+  }
+
+  /**
+   * Read all remaining items.
+   */
+  public @NotNull List<T> toList() throws AccessException, IOException {
+    var result = new ArrayList<T>();
+    while (hasNext()) {
+      result.add(next());
+    }
+
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Stop iterating and cancel the prefetch of the next page.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+
+    if (this.nextPage != null) {
+      this.nextPage.cancel(false);
+      this.nextPage = null;
+    }
+
+    this.currentPage = Collections.emptyIterator();
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Function that fetches a single page.
+   */
+  @FunctionalInterface
+  public interface PageFetcher<T> {
+    @NotNull Page<T> fetch(@Nullable String pageToken) throws AccessException, IOException;
+  }
+
+  /**
+   * A single page of results.
+   *
+   * @param items items on this page
+   * @param nextPageToken token for the next page, null if this is the last page
+   */
+  public record Page<T>(
+    @NotNull List<T> items,
+    @Nullable String nextPageToken
+  ) {
+    public Page {
+      Preconditions.checkNotNull(items, "items");
+    }
+  }
+}
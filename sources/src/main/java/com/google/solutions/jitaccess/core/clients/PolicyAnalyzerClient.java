@@ -22,7 +22,13 @@
 package com.google.solutions.jitaccess.core.clients;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.json.JsonToken;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.cloudasset.v1.CloudAsset;
 import com.google.api.services.cloudasset.v1.model.IamPolicyAnalysis;
+import com.google.api.services.cloudasset.v1.model.IamPolicyAnalysisResult;
+import com.google.api.services.cloudasset.v1.model.IamPolicyAnalysisState;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.common.base.Preconditions;
 import com.google.solutions.jitaccess.core.*;
@@ -31,10 +37,15 @@ import jakarta.inject.Singleton;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Adapter for the Policy Analyzer API.
@@ -44,20 +55,26 @@ import java.util.Optional;
  */
 @Singleton
 public class PolicyAnalyzerClient extends AssetInventoryClient {
+  public static final String ANALYZE_IAM_POLICY = "AnalyzeIamPolicy";
+
+  private final @NotNull SingleFlight<PermissionedPrincipalsKey, IamPolicyAnalysis> permissionedPrincipals =
+    new SingleFlight<>();
+
   public PolicyAnalyzerClient(
     @NotNull GoogleCredentials credentials,
-    @NotNull HttpTransport.Options httpOptions
+    @NotNull ClientFactory clientFactory
   ) {
-    super(credentials, httpOptions);
+    super(credentials, clientFactory);
   }
 
-  /**
-   * Find resources that a user can access, considering inherited IAM bindings and group memberships.
-   *
-   * NB. For group membership resolution to work, the service account must have the right
-   * privileges in Cloud Identity/Workspace.
-   */
-  public IamPolicyAnalysis findAccessibleResourcesByUser(
+  @Override
+  public @NotNull Map<String, SingleFlight.Statistics> coalescingStatistics() {
+    var statistics = new HashMap<>(super.coalescingStatistics());
+    statistics.put(ANALYZE_IAM_POLICY, this.permissionedPrincipals.statistics());
+    return statistics;
+  }
+
+  private @NotNull CloudAsset.V1.AnalyzeIamPolicy newAccessibleResourcesRequest(
     @NotNull String scope,
     @NotNull UserId user,
     @NotNull Optional<String> permission,
@@ -74,51 +91,194 @@ public class PolicyAnalyzerClient extends AssetInventoryClient {
       || scope.startsWith("folders/")
       || scope.startsWith("projects/"));
 
-    try {
-      var request = createClient().v1()
-        .analyzeIamPolicy(scope)
-        .setAnalysisQueryIdentitySelectorIdentity("user:" + user.email)
-        .setAnalysisQueryOptionsExpandResources(expandResources)
-        .setAnalysisQueryConditionContextAccessTime(DateTimeFormatter.ISO_INSTANT.format(Instant.now()))
-        .setExecutionTimeout(String.format("%ds", this.httpOptions.readTimeout().toSeconds()));
+    var request = createClient().v1()
+      .analyzeIamPolicy(scope)
+      .setAnalysisQueryIdentitySelectorIdentity("user:" + user.email)
+      .setAnalysisQueryOptionsExpandResources(expandResources)
+      .setAnalysisQueryConditionContextAccessTime(DateTimeFormatter.ISO_INSTANT.format(Instant.now()))
+      .setExecutionTimeout(String.format("%ds", this.clientFactory.transport().options().readTimeout().toSeconds()))
+      .setFields(ResponseFields.ANALYZE_IAM_POLICY_ACCESSIBLE_RESOURCES);
 
-      if (fullResourceName.isPresent()) {
-        request.setAnalysisQueryResourceSelectorFullResourceName(fullResourceName.get());
-      }
+    if (fullResourceName.isPresent()) {
+      request.setAnalysisQueryResourceSelectorFullResourceName(fullResourceName.get());
+    }
 
-      if (permission.isPresent()) {
-        request.setAnalysisQueryAccessSelectorPermissions(List.of(permission.get()));
-      }
+    if (permission.isPresent()) {
+      request.setAnalysisQueryAccessSelectorPermissions(List.of(permission.get()));
+    }
+
+    return request;
+  }
 
+  /**
+   * Translate an error response for a request created by
+   * newAccessibleResourcesRequest.
+   */
+  private static void throwAccessibleResourcesException(
+    @NotNull String scope,
+    @NotNull GoogleJsonResponseException e
+  ) throws AccessException, IOException {
+    switch (e.getStatusCode()) {
+      case 401:
+        throw new NotAuthenticatedException("Not authenticated", e);
+      case 403:
+        throw new AccessDeniedException(String.format("Denied access to scope '%s'", scope), e);
+      case 429:
+        throw new QuotaExceededException(
+          "Exceeded quota for AnalyzeIamPolicy API requests. Consider increasing the request " +
+            "quota in the application project or reconfigure the application to use the " +
+            "AssetInventory catalog instead.",
+          e);
+      default:
+        throw (GoogleJsonResponseException) e.fillInStackTrace();
+    }
+  }
+
+  /**
+   * Find resources that a user can access, considering inherited IAM bindings and group memberships.
+   *
+   * NB. For group membership resolution to work, the service account must have the right
+   * privileges in Cloud Identity/Workspace.
+   */
+  public IamPolicyAnalysis findAccessibleResourcesByUser(
+    @NotNull String scope,
+    @NotNull UserId user,
+    @NotNull Optional<String> permission,
+    @NotNull Optional<String> fullResourceName,
+    boolean expandResources
+  ) throws AccessException, IOException {
+    var request = newAccessibleResourcesRequest(scope, user, permission, fullResourceName, expandResources);
+
+    try (var permit = acquirePermit(ANALYZE_IAM_POLICY)) {
       return request
         .execute()
         .getMainAnalysis();
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
-      switch (e.getStatusCode()) {
-        case 400:
-          //
-          // NB. The API returns 400 if the resource doesn't exist. Convert to empty result.
-          //
-          return new IamPolicyAnalysis();
-        case 401:
-          throw new NotAuthenticatedException("Not authenticated", e);
-        case 403:
-          throw new AccessDeniedException(String.format("Denied access to scope '%s'", scope), e);
-        case 429:
-          throw new QuotaExceededException(
-            "Exceeded quota for AnalyzeIamPolicy API requests. Consider increasing the request " +
-              "quota in the application project or reconfigure the application to use the " +
-              "AssetInventory catalog instead.",
-            e);
-        default:
-          throw (GoogleJsonResponseException) e.fillInStackTrace();
+      if (e.getStatusCode() == 400) {
+        //
+        // NB. The API returns 400 if the resource doesn't exist. Convert to empty result.
+        //
+        return new IamPolicyAnalysis();
       }
+
+      throwAccessibleResourcesException(scope, e);
+      return null;
     }
   }
 
+  /**
+   * Find resources that a user can access, and pass each analysis result
+   * to a handler as soon as it's been parsed.
+   *
+   * Unlike the other overload, this method doesn't materialize the
+   * entire analysis, so its memory consumption doesn't grow with
+   * the size of the response.
+   */
+  public void findAccessibleResourcesByUser(
+    @NotNull String scope,
+    @NotNull UserId user,
+    @NotNull Optional<String> permission,
+    @NotNull Optional<String> fullResourceName,
+    boolean expandResources,
+    @NotNull AnalysisHandler handler
+  ) throws AccessException, IOException {
+    Preconditions.checkNotNull(handler, "handler");
+
+    var request = newAccessibleResourcesRequest(scope, user, permission, fullResourceName, expandResources);
+
+    HttpResponse response;
+    try (var permit = acquirePermit(ANALYZE_IAM_POLICY)) {
+      response = request.executeUnparsed();
+    }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
+    catch (GoogleJsonResponseException e) {
+      if (e.getStatusCode() == 400) {
+        //
+        // NB. The API returns 400 if the resource doesn't exist. Treat as empty result.
+        //
+        return;
+      }
+
+      throwAccessibleResourcesException(scope, e);
+      return;
+    }
+
+    try {
+      parseAnalysis(response.getContent(), response.getContentCharset(), handler);
+    }
+    finally {
+      response.disconnect();
+    }
+  }
+
+  /**
+   * Parse an AnalyzeIamPolicy response token by token, and pass
+   * the main analysis' results and errors to a handler.
+   */
+  static void parseAnalysis(
+    @NotNull InputStream content,
+    @NotNull Charset charset,
+    @NotNull AnalysisHandler handler
+  ) throws IOException {
+    try (var parser = GsonFactory.getDefaultInstance().createJsonParser(content, charset)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("The analysis response is malformed");
+      }
+
+      parser.skipToKey("mainAnalysis");
+      if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+        //
+        // No analysis.
+        //
+        return;
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        var field = parser.getCurrentName();
+        var token = parser.nextToken();
+
+        if ("analysisResults".equals(field) && token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            handler.onAnalysisResult(parser.parse(IamPolicyAnalysisResult.class));
+          }
+        }
+        else if ("nonCriticalErrors".equals(field) && token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            handler.onNonCriticalError(parser.parse(IamPolicyAnalysisState.class));
+          }
+        }
+        else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  /**
+   * Find resources that a user can access, asynchronously.
+   */
+  public @NotNull CompletableFuture<IamPolicyAnalysis> findAccessibleResourcesByUserAsync(
+    @NotNull String scope,
+    @NotNull UserId user,
+    @NotNull Optional<String> permission,
+    @NotNull Optional<String> fullResourceName,
+    boolean expandResources
+  ) {
+    return ThrowingCompletableFuture.submit(
+      () -> findAccessibleResourcesByUser(scope, user, permission, fullResourceName, expandResources),
+      this.clientFactory.policies().executor(CloudAsset.class));
+  }
+
   /**
    * Find users or groups that have been (conditionally) granted a given role on a given resource.
+   *
+   * Concurrent calls for the same resource and role share a single request.
    */
   public IamPolicyAnalysis findPermissionedPrincipalsByResource(
     @NotNull String scope,
@@ -129,21 +289,35 @@ public class PolicyAnalyzerClient extends AssetInventoryClient {
     Preconditions.checkNotNull(fullResourceName, "fullResourceName");
     Preconditions.checkNotNull(role, "role");
 
+    return this.permissionedPrincipals.get(
+      new PermissionedPrincipalsKey(scope, fullResourceName, role),
+      () -> analyzePermissionedPrincipals(scope, fullResourceName, role));
+  }
+
+  private IamPolicyAnalysis analyzePermissionedPrincipals(
+    @NotNull String scope,
+    @NotNull String fullResourceName,
+    @NotNull String role
+  ) throws AccessException, IOException {
     assert (scope.startsWith("organizations/")
       || scope.startsWith("folders/")
       || scope.startsWith("projects/"));
 
-    try {
+    try (var permit = acquirePermit(ANALYZE_IAM_POLICY)) {
       return createClient().v1()
         .analyzeIamPolicy(scope)
         .setAnalysisQueryResourceSelectorFullResourceName(fullResourceName)
         .setAnalysisQueryAccessSelectorRoles(List.of(role))
         .setAnalysisQueryConditionContextAccessTime(DateTimeFormatter.ISO_INSTANT.format(Instant.now()))
         .setAnalysisQueryOptionsExpandGroups(true)
-        .setExecutionTimeout(String.format("%ds", this.httpOptions.readTimeout().toSeconds()))
+        .setExecutionTimeout(String.format("%ds", this.clientFactory.transport().options().readTimeout().toSeconds()))
+        .setFields(ResponseFields.ANALYZE_IAM_POLICY_PERMISSIONED_PRINCIPALS)
         .execute()
         .getMainAnalysis();
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
         case 401:
@@ -161,4 +335,25 @@ public class PolicyAnalyzerClient extends AssetInventoryClient {
       }
     }
   }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Handler for streamed analysis results.
+   */
+  @FunctionalInterface
+  public interface AnalysisHandler {
+    void onAnalysisResult(@NotNull IamPolicyAnalysisResult result);
+
+    default void onNonCriticalError(@NotNull IamPolicyAnalysisState error) {
+    }
+  }
+
+  private record PermissionedPrincipalsKey(
+    @NotNull String scope,
+    @NotNull String fullResourceName,
+    @NotNull String role
+  ) {}
 }
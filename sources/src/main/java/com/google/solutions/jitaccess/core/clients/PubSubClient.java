@@ -22,7 +22,6 @@
 package com.google.solutions.jitaccess.core.clients;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.pubsub.Pubsub;
 import com.google.api.services.pubsub.model.PublishRequest;
 import com.google.api.services.pubsub.model.PubsubMessage;
@@ -32,41 +31,38 @@ import com.google.solutions.jitaccess.core.AccessDeniedException;
 import com.google.solutions.jitaccess.core.AccessException;
 import com.google.solutions.jitaccess.core.ApplicationVersion;
 import com.google.solutions.jitaccess.core.NotAuthenticatedException;
+import com.google.solutions.jitaccess.core.ThrowingCompletableFuture;
 import jakarta.inject.Singleton;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.security.GeneralSecurityException;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 @Singleton
 public class PubSubClient {
   private final @NotNull GoogleCredentials credentials;
-  private final @NotNull HttpTransport.Options httpOptions;
+  private final @NotNull ClientFactory clientFactory;
 
   public PubSubClient(
     @NotNull GoogleCredentials credentials,
-    @NotNull HttpTransport.Options httpOptions)
+    @NotNull ClientFactory clientFactory)
   {
     Preconditions.checkNotNull(credentials, "credentials");
-    Preconditions.checkNotNull(httpOptions, "httpOptions");
+    Preconditions.checkNotNull(clientFactory, "clientFactory");
 
     this.credentials = credentials;
-    this.httpOptions = httpOptions;
+    this.clientFactory = clientFactory;
   }
 
-  private @NotNull Pubsub createClient() throws IOException {
-    try {
-      return new Pubsub.Builder(
-          HttpTransport.newTransport(),
-          new GsonFactory(),
-          HttpTransport.newAuthenticatingRequestInitializer(this.credentials, this.httpOptions))
+  private @NotNull Pubsub createClient() throws AccessException, IOException {
+    return this.clientFactory.getClient(
+      Pubsub.class,
+      this.credentials,
+      (transport, jsonFactory, initializer) -> new Pubsub
+        .Builder(transport, jsonFactory, initializer)
         .setApplicationName(ApplicationVersion.USER_AGENT)
-        .build();
-    }
-    catch (GeneralSecurityException e) {
-      throw new IOException("Creating a PubSub client failed", e);
-    }
+        .build());
   }
 
   public String publish(
@@ -91,6 +87,9 @@ public class PubSubClient {
 
       return result.getMessageIds().get(0);
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
         case 401:
@@ -108,4 +107,16 @@ public class PubSubClient {
       }
     }
   }
+
+  /**
+   * Publish a message to a topic, asynchronously.
+   */
+  public @NotNull CompletableFuture<String> publishAsync(
+    @NotNull PubSubTopic topic,
+    @NotNull PubsubMessage message
+  ) {
+    return ThrowingCompletableFuture.submit(
+      () -> publish(topic, message),
+      this.clientFactory.policies().executor(Pubsub.class));
+  }
 }
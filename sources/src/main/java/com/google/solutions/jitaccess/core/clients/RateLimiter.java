@@ -0,0 +1,235 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.util.NanoClock;
+import com.google.api.client.util.Sleeper;
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+
+/**
+ * Client-side token bucket rate limiter for backend requests.
+ *
+ * The bucket holds up to `burst` permits and is refilled at a
+ * constant rate. If the bucket is empty, callers wait for the next
+ * permit, but only up to a maximum wait time: requests that
+ * can't get a permit in time are bound to exceed the API quota,
+ * so it's better to fail them without sending them.
+ */
+public class RateLimiter {
+  private static final @NotNull ThreadLocal<RateLimiter> current = new ThreadLocal<>();
+
+  private final @NotNull Options options;
+  private final @NotNull Sleeper sleeper;
+  private final @NotNull NanoClock clock;
+
+  /**
+   * Number of permits in the bucket. Can become negative if
+   * callers have reserved permits that haven't been refilled yet.
+   */
+  private double permits;
+  private long lastRefillTime;
+
+  RateLimiter(
+    @NotNull Options options,
+    @NotNull Sleeper sleeper,
+    @NotNull NanoClock clock
+  ) {
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkNotNull(sleeper, "sleeper");
+    Preconditions.checkNotNull(clock, "clock");
+
+    this.options = options;
+    this.sleeper = sleeper;
+    this.clock = clock;
+    this.permits = options.burst;
+    this.lastRefillTime = clock.nanoTime();
+  }
+
+  public RateLimiter(@NotNull Options options) {
+    this(options, Sleeper.DEFAULT, NanoClock.SYSTEM);
+  }
+
+  public @NotNull Options options() {
+    return this.options;
+  }
+
+  private void refill(long now) {
+    var elapsedNanos = now - this.lastRefillTime;
+    this.permits = Math.min(
+      this.options.burst,
+      this.permits + elapsedNanos * this.options.requestsPerMinute / 60_000_000_000.0);
+    this.lastRefillTime = now;
+  }
+
+  /**
+   * Reserve a permit.
+   *
+   * @return time to wait before the permit can be used, or null
+   * if the permit isn't available within the maximum wait time.
+   */
+  private synchronized @Nullable Duration reserve() {
+    refill(this.clock.nanoTime());
+
+    if (this.permits >= 1) {
+      this.permits--;
+      return Duration.ZERO;
+    }
+
+    var wait = Duration.ofNanos((long)Math.ceil(
+      (1 - this.permits) * 60_000_000_000.0 / this.options.requestsPerMinute));
+    if (wait.compareTo(this.options.maxWait) > 0) {
+      return null;
+    }
+
+    this.permits--;
+    return wait;
+  }
+
+  /**
+   * Acquire a permit, waiting if necessary.
+   *
+   * @return false if no permit became available within
+   * the maximum wait time.
+   */
+  public boolean tryAcquire() throws InterruptedIOException {
+    if (this.options.isUnlimited()) {
+      return true;
+    }
+
+    var wait = reserve();
+    if (wait == null) {
+      return false;
+    }
+    else if (!wait.isZero()) {
+      try {
+        this.sleeper.sleep(wait.toMillis());
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Waiting for rate limit permit was interrupted");
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Get the rate limiter associated with the current thread.
+   *
+   * @return rate limiter, or null if none has been associated.
+   */
+  public static @Nullable RateLimiter current() {
+    return current.get();
+  }
+
+  /**
+   * Associate the rate limiter with the current thread until the
+   * returned scope is closed. This lets retries of the current
+   * request acquire permits from the same rate limiter.
+   */
+  public @NotNull Scope enter() {
+    var previous = current.get();
+    current.set(this);
+    return new Scope(previous);
+  }
+
+  /**
+   * Get the fraction of the bucket that's currently filled,
+   * between 0 (exhausted) and 1 (full). A low fill level indicates
+   * that there's little quota headroom left.
+   */
+  public synchronized double fillLevel() {
+    if (this.options.isUnlimited()) {
+      return 1.0;
+    }
+
+    refill(this.clock.nanoTime());
+    return Math.max(0, this.permits) / this.options.burst;
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * @param requestsPerMinute sustained rate, 0 disables rate limiting
+   * @param burst maximum number of requests that can be sent at once
+   * @param maxWait maximum time to wait for a permit
+   */
+  public record Options(
+    int requestsPerMinute,
+    int burst,
+    @NotNull Duration maxWait
+  ) {
+    public static final int DEFAULT_BURST = 10;
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(5);
+
+    public static final @NotNull Options UNLIMITED = new Options(
+      0,
+      DEFAULT_BURST,
+      DEFAULT_MAX_WAIT);
+
+    public Options {
+      Preconditions.checkNotNull(maxWait, "maxWait");
+
+      Preconditions.checkArgument(
+        requestsPerMinute >= 0,
+        "The number of requests per minute must not be negative");
+      Preconditions.checkArgument(
+        burst > 0,
+        "The burst size must be greater than zero");
+      Preconditions.checkArgument(
+        !maxWait.isNegative(),
+        "The maximum wait time must not be negative");
+    }
+
+    public boolean isUnlimited() {
+      return this.requestsPerMinute == 0;
+    }
+  }
+
+  /**
+   * Scope in which a rate limiter is associated with the current thread.
+   */
+  public static class Scope implements AutoCloseable {
+    private final @Nullable RateLimiter previous;
+
+    private Scope(@Nullable RateLimiter previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (this.previous != null) {
+        current.set(this.previous);
+      }
+      else {
+        current.remove();
+      }
+    }
+  }
+}
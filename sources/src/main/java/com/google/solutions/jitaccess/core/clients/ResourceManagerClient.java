@@ -23,7 +23,6 @@ package com.google.solutions.jitaccess.core.clients;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.client.json.GenericJson;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.Key;
 import com.google.api.services.cloudresourcemanager.v3.CloudResourceManager;
 import com.google.api.services.cloudresourcemanager.v3.CloudResourceManagerRequest;
@@ -41,8 +40,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.security.GeneralSecurityException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -52,27 +51,24 @@ import java.util.stream.Collectors;
 @Singleton
 public class ResourceManagerClient {
   public static final String OAUTH_SCOPE = "https://www.googleapis.com/auth/cloud-platform";
+  public static final String SEARCH_PROJECTS = "SearchProjects";
+  public static final String GET_ANCESTRY = "GetAncestry";
   private static final int MAX_SET_IAM_POLICY_ATTEMPTS = 4;
 
   private static final int SEARCH_PROJECTS_PAGE_SIZE = 1000;
 
   private final @NotNull GoogleCredentials credentials;
-  private final @NotNull HttpTransport.Options httpOptions;
+  private final @NotNull ClientFactory clientFactory;
 
-  private @NotNull CloudResourceManager createClient() throws IOException
+  private @NotNull CloudResourceManager createClient() throws AccessException, IOException
   {
-    try {
-      return new CloudResourceManager
-        .Builder(
-          HttpTransport.newTransport(),
-          new GsonFactory(),
-          HttpTransport.newAuthenticatingRequestInitializer(this.credentials, this.httpOptions))
+    return this.clientFactory.getClient(
+      CloudResourceManager.class,
+      this.credentials,
+      (transport, jsonFactory, initializer) -> new CloudResourceManager
+        .Builder(transport, jsonFactory, initializer)
         .setApplicationName(ApplicationVersion.USER_AGENT)
-        .build();
-    }
-    catch (GeneralSecurityException e) {
-      throw new IOException("Creating a ResourceManager client failed", e);
-    }
+        .build());
   }
 
   private static boolean isRoleNotGrantableErrorMessage(@Nullable String message)
@@ -83,13 +79,13 @@ public class ResourceManagerClient {
 
   public ResourceManagerClient(
     @NotNull GoogleCredentials credentials,
-    @NotNull HttpTransport.Options httpOptions
+    @NotNull ClientFactory clientFactory
   ) {
     Preconditions.checkNotNull(credentials, "credentials");
-    Preconditions.checkNotNull(httpOptions, "httpOptions");
+    Preconditions.checkNotNull(clientFactory, "clientFactory");
 
     this.credentials = credentials;
-    this.httpOptions = httpOptions;
+    this.clientFactory = clientFactory;
   }
 
   /**
@@ -118,6 +114,9 @@ public class ResourceManagerClient {
         // NB. The API might return a v1 policy even if we
         // request a v3 policy.
         //
+        // NB. Don't use a partial response here: the policy
+        // is written back, so it must be complete.
+        //
 
         var policy = service
           .projects()
@@ -194,7 +193,11 @@ public class ResourceManagerClient {
             // Concurrent modification - back off and retry.
             //
             try {
-              Thread.sleep(200);
+              Thread.sleep(this.clientFactory
+                .policies()
+                .retryPolicy(CloudResourceManager.class)
+                .backoff(attempt)
+                .toMillis());
             }
             catch (InterruptedException ignored) {
             }
@@ -208,6 +211,9 @@ public class ResourceManagerClient {
       throw new AlreadyExistsException(
         "Failed to update IAM bindings due to concurrent modifications");
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
         case 400:
@@ -234,13 +240,31 @@ public class ResourceManagerClient {
     }
   }
 
+  /**
+   * Add an IAM binding using the optimistic concurrency control-mechanism,
+   * asynchronously.
+   */
+  public @NotNull CompletableFuture<Void> addProjectIamBindingAsync(
+    @NotNull ProjectId projectId,
+    @NotNull Binding binding,
+    @NotNull EnumSet<ResourceManagerClient.IamBindingOptions> options,
+    String requestReason
+  ) {
+    return ThrowingCompletableFuture.submit(
+      () -> {
+        addProjectIamBinding(projectId, binding, options, requestReason);
+        return null;
+      },
+      this.clientFactory.policies().executor(CloudResourceManager.class));
+  }
+
   /**
    * Test whether certain permissions have been granted on the project.
    */
   public @NotNull List<String> testIamPermissions(
     @NotNull ProjectId projectId,
     @NotNull List<String> permissions
-  ) throws NotAuthenticatedException, IOException {
+  ) throws AccessException, IOException {
     try
     {
       var response = createClient()
@@ -249,12 +273,16 @@ public class ResourceManagerClient {
           String.format("projects/%s", projectId),
           new TestIamPermissionsRequest()
             .setPermissions(permissions))
+        .setFields(ResponseFields.TEST_IAM_PERMISSIONS)
         .execute();
 
       return response.getPermissions() != null
         ? response.getPermissions()
         : List.of();
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
         case 401:
@@ -266,46 +294,41 @@ public class ResourceManagerClient {
   }
 
   /**
-   * Search for projects.
+   * Fetch a single page of projects that match a query.
    */
-  public @NotNull SortedSet<ProjectId> searchProjectIds(
-    @NotNull String query
-  ) throws NotAuthenticatedException, IOException {
+  private @NotNull PagedIterator.Page<ProjectId> searchProjectIdsPage(
+    @NotNull CloudResourceManager client,
+    @NotNull String query,
+    @Nullable String pageToken
+  ) throws AccessException, IOException {
     try {
-      var client = createClient();
-
-      var response = client
-        .projects()
-        .search()
-        .setQuery(query)
-        .setPageSize(SEARCH_PROJECTS_PAGE_SIZE)
-        .execute();
-
-      ArrayList<Project> allProjects = new ArrayList<>();
-      if(response.getProjects() != null) {
-        allProjects.addAll(response.getProjects());
-      }
-
-      while(response.getNextPageToken() != null
-              && !response.getNextPageToken().isEmpty()
-              && response.getProjects() !=null
-              && response.getProjects().size() >= SEARCH_PROJECTS_PAGE_SIZE) {
-        response = client
+      var response = this.clientFactory
+        .policies()
+        .hedgingPolicy(CloudResourceManager.class, SEARCH_PROJECTS)
+        .execute(() -> client
           .projects()
           .search()
           .setQuery(query)
-          .setPageToken(response.getNextPageToken())
+          .setPageToken(pageToken)
           .setPageSize(SEARCH_PROJECTS_PAGE_SIZE)
-          .execute();
+          .setFields(ResponseFields.SEARCH_PROJECTS)
+          .execute());
 
-        if(response.getProjects() != null) {
-          allProjects.addAll(response.getProjects());
-        }
+      if (response.getProjects() == null) {
+        return new PagedIterator.Page<>(List.of(), null);
       }
 
-      return allProjects.stream()
+      var projectIds = response.getProjects()
+        .stream()
         .map(p -> new ProjectId(p.getProjectId()))
-        .collect(Collectors.toCollection(TreeSet::new));
+        .toList();
+
+      return new PagedIterator.Page<>(
+        projectIds,
+        projectIds.size() >= SEARCH_PROJECTS_PAGE_SIZE ? response.getNextPageToken() : null);
+    }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
     }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
@@ -317,6 +340,40 @@ public class ResourceManagerClient {
     }
   }
 
+  /**
+   * Search for projects, and return project IDs as soon as the
+   * page containing them has been received.
+   *
+   * The request for the next page is issued while the caller is
+   * processing the current page, so for large result sets, the total
+   * time is dominated by the API's latency, not the caller's.
+   */
+  public @NotNull PagedIterator<ProjectId> iterateProjectIds(
+    @NotNull String query
+  ) throws AccessException, IOException {
+    var client = createClient();
+    return new PagedIterator<>(
+      pageToken -> searchProjectIdsPage(client, query, pageToken),
+      null,
+      this.clientFactory.policies().executor(CloudResourceManager.class));
+  }
+
+  /**
+   * Search for projects.
+   */
+  public @NotNull SortedSet<ProjectId> searchProjectIds(
+    @NotNull String query
+  ) throws AccessException, IOException {
+    try (var projects = iterateProjectIds(query)) {
+      var projectIds = new TreeSet<ProjectId>();
+      while (projects.hasNext()) {
+        projectIds.add(projects.next());
+      }
+
+      return projectIds;
+    }
+  }
+
   /**
    * Get the ancestry of a project.
    *
@@ -326,7 +383,12 @@ public class ResourceManagerClient {
     @NotNull ProjectId projectId
   ) throws AccessException, IOException {
     try {
-      var response = new GetAncestry(createClient(), projectId.id(), new GetAncestryRequest()).execute();
+      var response = this.clientFactory
+        .policies()
+        .hedgingPolicy(CloudResourceManager.class, GET_ANCESTRY)
+        .execute(() -> new GetAncestry(createClient(), projectId.id(), new GetAncestryRequest())
+          .setFields(ResponseFields.GET_ANCESTRY)
+          .execute());
       return response.ancestor
         .stream()
         .map(a -> {
@@ -347,6 +409,9 @@ public class ResourceManagerClient {
         })
         .collect(Collectors.toList());
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
         case 401:
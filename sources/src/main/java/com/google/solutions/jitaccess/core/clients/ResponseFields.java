@@ -0,0 +1,117 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+/**
+ * Partial response field masks for API reads.
+ *
+ * Most API responses contain far more data than we use. Requesting
+ * only the fields we need reduces the size of responses and
+ * the time and memory spent on parsing them.
+ *
+ * NB. Fields that aren't listed here are null in responses. When
+ * changing the code that consumes a response, update its mask too.
+ */
+final class ResponseFields {
+  private ResponseFields() {}
+
+  //---------------------------------------------------------------------------
+  // Asset Inventory.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Bindings of effective policies, consumed by AssetInventoryRepository.
+   */
+  static final String BATCH_GET_EFFECTIVE_IAM_POLICIES =
+    "policyResults/policies/policy/bindings(role,members,condition)";
+
+  /**
+   * Resources a user can access, consumed by
+   * PolicyAnalyzerRepository.findProjectsWithEntitlements and
+   * PolicyAnalyzerRepository.findEntitlements.
+   */
+  static final String ANALYZE_IAM_POLICY_ACCESSIBLE_RESOURCES =
+    "mainAnalysis(" +
+      "analysisResults(" +
+        "iamBinding(role,condition)," +
+        "accessControlLists(resources/fullResourceName,conditionEvaluation/evaluationValue))," +
+      "nonCriticalErrors/cause)";
+
+  /**
+   * Principals that have been granted a role, consumed by
+   * PolicyAnalyzerRepository.findEntitlementHolders.
+   */
+  static final String ANALYZE_IAM_POLICY_PERMISSIONED_PRINCIPALS =
+    "mainAnalysis/analysisResults(iamBinding(role,condition),identityList/identities/name)";
+
+  //---------------------------------------------------------------------------
+  // Cloud Identity.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Resource name of a group or membership.
+   */
+  static final String LOOKUP_NAME = "name";
+
+  //---------------------------------------------------------------------------
+  // Directory.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Email addresses of the groups a user is a member of.
+   */
+  static final String LIST_GROUPS = "groups/email,nextPageToken";
+
+  /**
+   * Email addresses of group members, and what's needed to
+   * filter them by type and status.
+   */
+  static final String LIST_MEMBERS = "members(email,type,status),nextPageToken";
+
+  //---------------------------------------------------------------------------
+  // Resource Manager.
+  //---------------------------------------------------------------------------
+
+  /**
+   * IDs of projects that match a search.
+   */
+  static final String SEARCH_PROJECTS = "projects/projectId,nextPageToken";
+
+  /**
+   * Type and ID of each ancestor of a project.
+   */
+  static final String GET_ANCESTRY = "ancestor/resourceId(type,id)";
+
+  /**
+   * Permissions that a caller has been granted.
+   */
+  static final String TEST_IAM_PERMISSIONS = "permissions";
+
+  //---------------------------------------------------------------------------
+  // Secret Manager.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Secret payload.
+   */
+  static final String ACCESS_SECRET_VERSION = "payload/data";
+}
@@ -0,0 +1,322 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.util.NanoClock;
+import com.google.api.client.util.Sleeper;
+import com.google.common.base.Preconditions;
+import com.google.solutions.jitaccess.core.Deadline;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy for retrying failed backend requests.
+ *
+ * Requests that fail with a transient error (like 429 or 503) are
+ * retried using exponential backoff with full jitter, until either
+ * the maximum number of attempts or the maximum elapsed time
+ * is exceeded. If the server indicates a Retry-After time, that time
+ * takes precedence over the calculated backoff.
+ *
+ * Only idempotent requests are retried: a request that failed with a
+ * 5xx error might still have taken effect, so retrying a request that
+ * isn't safe to repeat (like publishing a message) could duplicate it.
+ *
+ * Retries acquire a permit from the rate limiter associated with the
+ * current thread (if any) so that they count against the rate limit.
+ */
+public class RetryPolicy {
+  /**
+   * Status codes that indicate a transient error.
+   */
+  private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(
+    408, // Request timeout
+    429, // Too many requests, quota exceeded
+    500, // Internal server error
+    502, // Bad gateway
+    503, // Service unavailable
+    504  // Gateway timeout
+  );
+
+  /**
+   * Custom methods that are sent as POST requests, but only read data.
+   */
+  private static final Set<String> READ_ONLY_CUSTOM_METHODS = Set.of(
+    "getIamPolicy",
+    "getAncestry",
+    "testIamPermissions",
+    "search",
+    "batchGet",
+    "analyzeIamPolicy",
+    "signJwt"
+  );
+
+  private final @NotNull Options options;
+  private final @NotNull Sleeper sleeper;
+  private final @NotNull NanoClock clock;
+
+  RetryPolicy(
+    @NotNull Options options,
+    @NotNull Sleeper sleeper,
+    @NotNull NanoClock clock
+  ) {
+    Preconditions.checkNotNull(options, "options");
+    Preconditions.checkNotNull(sleeper, "sleeper");
+    Preconditions.checkNotNull(clock, "clock");
+
+    this.options = options;
+    this.sleeper = sleeper;
+    this.clock = clock;
+  }
+
+  public RetryPolicy(@NotNull Options options) {
+    this(options, Sleeper.DEFAULT, NanoClock.SYSTEM);
+  }
+
+  public @NotNull Options options() {
+    return this.options;
+  }
+
+  /**
+   * Check if a status code indicates a transient error
+   * that's worth retrying.
+   */
+  public static boolean isRetryable(int statusCode) {
+    return RETRYABLE_STATUS_CODES.contains(statusCode);
+  }
+
+  /**
+   * Check if a request can safely be repeated. That's the case
+   * for GET and HEAD requests, and for POST requests that invoke
+   * a read-only custom method, like <code>.../resource:getIamPolicy</code>.
+   */
+  static boolean isIdempotent(@NotNull HttpRequest request) {
+    var method = request.getRequestMethod();
+    if ("GET".equals(method) || "HEAD".equals(method)) {
+      return true;
+    }
+    else if (!"POST".equals(method)) {
+      return false;
+    }
+
+    var path = request.getUrl().getRawPath();
+    if (path == null) {
+      return false;
+    }
+
+    var separator = path.lastIndexOf(':');
+    return separator > path.lastIndexOf('/') &&
+      READ_ONLY_CUSTOM_METHODS.contains(path.substring(separator + 1));
+  }
+
+  /**
+   * Calculate the backoff for a retry, using full jitter.
+   *
+   * @param attempt zero-based number of the failed attempt
+   */
+  public @NotNull Duration backoff(int attempt) {
+    Preconditions.checkArgument(attempt >= 0, "attempt");
+
+    //
+    // Cap the exponent to avoid overflows, the result is capped by the
+    // maximum backoff anyway.
+    //
+    var ceiling = Math.min(
+      this.options.maxBackoff.toMillis(),
+      this.options.initialBackoff.toMillis() * (1L << Math.min(attempt, 20)));
+
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+  }
+
+  /**
+   * Parse a Retry-After header, which can either contain a
+   * number of seconds or an HTTP date.
+   */
+  static @NotNull Optional<Duration> parseRetryAfter(
+    @Nullable String value,
+    @NotNull Instant now
+  ) {
+    if (value == null || value.isBlank()) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim()))));
+    }
+    catch (NumberFormatException ignored) {
+    }
+
+    try {
+      var date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+      var delay = Duration.between(now, date.toInstant());
+      return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+    }
+    catch (DateTimeParseException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Apply the policy to a request.
+   */
+  void apply(@NotNull HttpRequest request) {
+    request.setNumberOfRetries(Math.max(0, this.options.maxAttempts - 1));
+    request.setUnsuccessfulResponseHandler(
+      new ResponseHandler(request.getUnsuccessfulResponseHandler()));
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * @param maxAttempts maximum number of attempts, including the initial one
+   * @param initialBackoff backoff ceiling for the first retry
+   * @param maxBackoff maximum backoff ceiling
+   * @param maxElapsedTime time after which no further retries are attempted
+   */
+  public record Options(
+    int maxAttempts,
+    @NotNull Duration initialBackoff,
+    @NotNull Duration maxBackoff,
+    @NotNull Duration maxElapsedTime
+  ) {
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(250);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(4);
+    public static final Duration DEFAULT_MAX_ELAPSED_TIME = Duration.ofSeconds(15);
+
+    public static final @NotNull Options DEFAULT = new Options(
+      DEFAULT_MAX_ATTEMPTS,
+      DEFAULT_INITIAL_BACKOFF,
+      DEFAULT_MAX_BACKOFF,
+      DEFAULT_MAX_ELAPSED_TIME);
+
+    public Options {
+      Preconditions.checkNotNull(initialBackoff, "initialBackoff");
+      Preconditions.checkNotNull(maxBackoff, "maxBackoff");
+      Preconditions.checkNotNull(maxElapsedTime, "maxElapsedTime");
+
+      Preconditions.checkArgument(
+        maxAttempts > 0,
+        "The maximum number of attempts must be greater than zero");
+      Preconditions.checkArgument(
+        !initialBackoff.isNegative() && initialBackoff.compareTo(maxBackoff) <= 0,
+        "The initial backoff must not exceed the maximum backoff");
+      Preconditions.checkArgument(
+        !maxElapsedTime.isNegative(),
+        "The maximum elapsed time must not be negative");
+    }
+  }
+
+  /**
+   * Handler for a single request. Not thread-safe.
+   */
+  private class ResponseHandler implements HttpUnsuccessfulResponseHandler {
+    private final @Nullable HttpUnsuccessfulResponseHandler next;
+    private final @Nullable Deadline deadline;
+    private final long startTime;
+    private int attempt = 0;
+
+    private ResponseHandler(@Nullable HttpUnsuccessfulResponseHandler next) {
+      this.next = next;
+      this.deadline = Deadline.current();
+      this.startTime = clock.nanoTime();
+    }
+
+    @Override
+    public boolean handleResponse(
+      @NotNull HttpRequest request,
+      @NotNull HttpResponse response,
+      boolean supportsRetry
+    ) throws IOException {
+      //
+      // Let the existing handler have a go first, this might
+      // be the credentials adapter refreshing a token.
+      //
+      if (this.next != null && this.next.handleResponse(request, response, supportsRetry)) {
+        return true;
+      }
+
+      if (!supportsRetry ||
+        !isIdempotent(request) ||
+        !isRetryable(response.getStatusCode())) {
+        return false;
+      }
+
+      var failedAttempt = this.attempt++;
+      if (this.attempt >= options.maxAttempts) {
+        return false;
+      }
+
+      var delay = parseRetryAfter(
+          response.getHeaders().getRetryAfter(),
+          Instant.now())
+        .orElseGet(() -> backoff(failedAttempt));
+
+      var elapsed = Duration.ofNanos(clock.nanoTime() - this.startTime);
+      if (elapsed.plus(delay).compareTo(options.maxElapsedTime) > 0) {
+        //
+        // Retrying would exceed the time budget, give up.
+        //
+        return false;
+      }
+
+      if (this.deadline != null && delay.compareTo(this.deadline.remaining()) >= 0) {
+        //
+        // The request would time out before we get to retry, so
+        // there's no point in waiting.
+        //
+        return false;
+      }
+
+      try {
+        sleeper.sleep(delay.toMillis());
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Waiting for retry was interrupted");
+      }
+
+      //
+      // Retries count against the rate limit, too. If there's no
+      // permit, give up instead of adding to the load.
+      //
+      var rateLimiter = RateLimiter.current();
+      return rateLimiter == null || rateLimiter.tryAcquire();
+    }
+  }
+}
@@ -22,7 +22,6 @@
 package com.google.solutions.jitaccess.core.clients;
 
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.secretmanager.v1.SecretManager;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.common.base.Preconditions;
@@ -32,7 +31,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.security.GeneralSecurityException;
 
 /**
  * Client for the Secrets Manager API.
@@ -43,31 +41,27 @@ public class SecretManagerClient {
   public static final String OAUTH_SCOPE = "https://www.googleapis.com/auth/cloud-platform";
 
   private final @NotNull GoogleCredentials credentials;
-  private final @NotNull HttpTransport.Options httpOptions;
+  private final @NotNull ClientFactory clientFactory;
 
   public SecretManagerClient(
     @NotNull GoogleCredentials credentials,
-    @NotNull HttpTransport.Options httpOptions
+    @NotNull ClientFactory clientFactory
   ) {
     Preconditions.checkNotNull(credentials, "credentials");
-    Preconditions.checkNotNull(httpOptions, "httpOptions");
+    Preconditions.checkNotNull(clientFactory, "clientFactory");
 
     this.credentials = credentials;
-    this.httpOptions = httpOptions;
+    this.clientFactory = clientFactory;
   }
 
-  private @NotNull SecretManager createClient() throws IOException {
-    try {
-      return new SecretManager.Builder(
-          HttpTransport.newTransport(),
-          new GsonFactory(),
-          HttpTransport.newAuthenticatingRequestInitializer(this.credentials, this.httpOptions))
+  private @NotNull SecretManager createClient() throws AccessException, IOException {
+    return this.clientFactory.getClient(
+      SecretManager.class,
+      this.credentials,
+      (transport, jsonFactory, initializer) -> new SecretManager
+        .Builder(transport, jsonFactory, initializer)
         .setApplicationName(ApplicationVersion.USER_AGENT)
-        .build();
-    }
-    catch (GeneralSecurityException e) {
-      throw new IOException("Creating a SecretManager client failed", e);
-    }
+        .build());
   }
 
   /**
@@ -83,6 +77,7 @@ public class SecretManagerClient {
         .secrets()
         .versions()
         .access(secretPath)
+        .setFields(ResponseFields.ACCESS_SECRET_VERSION)
         .execute()
         .getPayload();
 
@@ -98,6 +93,9 @@ public class SecretManagerClient {
         return new String(payloadData, SECRET_CHARSET);
       }
     }
+    catch (CircuitBreaker.OpenCircuitException e) {
+      throw e.getCause();
+    }
     catch (GoogleJsonResponseException e) {
       switch (e.getStatusCode()) {
         case 401:
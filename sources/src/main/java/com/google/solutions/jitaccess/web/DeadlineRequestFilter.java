@@ -0,0 +1,124 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.web;
+
+import com.google.common.base.Preconditions;
+import com.google.solutions.jitaccess.core.Deadline;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.Dependent;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Assign each request a deadline so that backend calls made on
+ * behalf of the request don't outlive it.
+ */
+@Dependent
+@Provider
+@Priority(Priorities.AUTHENTICATION - 200)
+public class DeadlineRequestFilter implements ContainerRequestFilter, ContainerResponseFilter {
+  @Inject
+  Options options;
+
+  @Inject
+  RequestDeadline requestDeadline;
+
+  @Override
+  public void filter(@NotNull ContainerRequestContext requestContext) {
+    Preconditions.checkNotNull(this.options, "options");
+    Preconditions.checkNotNull(this.requestDeadline, "requestDeadline");
+
+    if (!this.options.timeout().isZero()) {
+      this.requestDeadline.enter(Deadline.after(this.options.timeout()));
+    }
+  }
+
+  @Override
+  public void filter(
+    @NotNull ContainerRequestContext requestContext,
+    @NotNull ContainerResponseContext responseContext
+  ) {
+    //
+    // Disassociate the deadline from the (pooled) thread.
+    //
+    this.requestDeadline.close();
+  }
+
+  //---------------------------------------------------------------------------
+  // Inner classes.
+  //---------------------------------------------------------------------------
+
+  /**
+   * Deadline of the current request.
+   *
+   * Response filters aren't invoked for all requests, so the deadline
+   * is also disassociated from the thread when the request context is
+   * destroyed. Otherwise, the deadline could leak to whatever task the
+   * (pooled) thread runs next.
+   */
+  @RequestScoped
+  public static class RequestDeadline {
+    private @Nullable Deadline.Scope scope;
+    private @Nullable Thread thread;
+
+    void enter(@NotNull Deadline deadline) {
+      close();
+
+      this.scope = Deadline.enter(deadline);
+      this.thread = Thread.currentThread();
+    }
+
+    @PreDestroy
+    void close() {
+      //
+      // The deadline is associated with the thread that entered
+      // the scope, so the scope can only be closed on that thread.
+      //
+      if (this.scope != null && this.thread == Thread.currentThread()) {
+        this.scope.close();
+        this.scope = null;
+        this.thread = null;
+      }
+    }
+  }
+
+  /**
+   * @param timeout time budget for each request, zero for unlimited
+   */
+  public record Options(@NotNull Duration timeout) {
+    public Options {
+      Preconditions.checkNotNull(timeout, "timeout");
+      Preconditions.checkArgument(!timeout.isNegative(), "The timeout must not be negative");
+    }
+  }
+}
@@ -22,6 +22,9 @@
 package com.google.solutions.jitaccess.web;
 
 import com.google.solutions.jitaccess.core.AccessException;
+import com.google.solutions.jitaccess.core.BackendUnavailableException;
+import com.google.solutions.jitaccess.core.Deadline;
+import com.google.solutions.jitaccess.core.DeadlineExceededException;
 import com.google.solutions.jitaccess.core.NotAuthenticatedException;
 import com.google.solutions.jitaccess.core.ResourceNotFoundException;
 import jakarta.ws.rs.ForbiddenException;
@@ -41,6 +44,8 @@ public class ExceptionMappers {
     NotAuthenticatedExceptionMapper.class,
     ResourceNotFoundExceptionMapper.class,
     AccessExceptionMapper.class,
+    BackendUnavailableExceptionMapper.class,
+    DeadlineExceededExceptionMapper.class,
     ForbiddenExceptionMapper.class,
     IllegalArgumentExceptionMapper.class,
     IllegalStateExceptionMapper.class,
@@ -52,6 +57,23 @@ public class ExceptionMappers {
     NotFoundExceptionMapper.class
   };
 
+  /**
+   * Check if the deadline of the current request has expired. If so,
+   * the request most likely failed because of that, regardless of
+   * how the failure was reported.
+   */
+  private static boolean isDeadlineExpired() {
+    var deadline = Deadline.current();
+    return deadline != null && deadline.isExpired();
+  }
+
+  private static @NotNull Response gatewayTimeout(@NotNull Exception exception) {
+    return Response
+      .status(Response.Status.GATEWAY_TIMEOUT)
+      .entity(new ErrorEntity(exception))
+      .build();
+  }
+
   @Provider
   public static class NotAuthenticatedExceptionMapper
     implements ExceptionMapper<NotAuthenticatedException> {
@@ -68,12 +90,36 @@ public class ExceptionMappers {
     implements ExceptionMapper<AccessException> {
     @Override
     public Response toResponse(@NotNull AccessException exception) {
+      if (isDeadlineExpired()) {
+        return gatewayTimeout(exception);
+      }
+
       return Response
         .status(Response.Status.FORBIDDEN)
         .entity(new ErrorEntity(exception)).build();
     }
   }
 
+  @Provider
+  public static class BackendUnavailableExceptionMapper
+    implements ExceptionMapper<BackendUnavailableException> {
+    @Override
+    public Response toResponse(@NotNull BackendUnavailableException exception) {
+      return Response
+        .status(Response.Status.SERVICE_UNAVAILABLE)
+        .entity(new ErrorEntity(exception)).build();
+    }
+  }
+
+  @Provider
+  public static class DeadlineExceededExceptionMapper
+    implements ExceptionMapper<DeadlineExceededException> {
+    @Override
+    public Response toResponse(@NotNull DeadlineExceededException exception) {
+      return gatewayTimeout(exception);
+    }
+  }
+
   @Provider
   public static class ResourceNotFoundExceptionMapper
     implements ExceptionMapper<ResourceNotFoundException> {
@@ -132,6 +178,10 @@ public class ExceptionMappers {
   public static class IOExceptionMapper implements ExceptionMapper<IOException> {
     @Override
     public Response toResponse(@NotNull IOException exception) {
+      if (isDeadlineExpired()) {
+        return gatewayTimeout(exception);
+      }
+
       return Response
         .status(Response.Status.BAD_GATEWAY)
         .entity(new ErrorEntity(exception))
@@ -95,6 +95,10 @@ class RuntimeConfiguration {
       this.catalog.getValue() == Catalog.ASSETINVENTORY
         ? "state:ACTIVE"
         : null);
+    this.availableProjectsRefreshInterval = new DurationSetting(
+      List.of("AVAILABLE_PROJECTS_REFRESH_INTERVAL"),
+      ChronoUnit.SECONDS,
+      Duration.ofMinutes(5));
 
     //
     // Backend service id (Cloud Run only).
@@ -136,6 +140,135 @@ class RuntimeConfiguration {
       List.of("BACKEND_WRITE_TIMEOUT"),
       ChronoUnit.SECONDS,
       Duration.ofSeconds(5));
+    this.backendMaxConnections = new IntSetting(
+      List.of("BACKEND_MAX_CONNECTIONS"),
+      HttpTransport.Options.DEFAULT_MAX_CONNECTIONS);
+    this.backendConnectionIdleTimeout = new DurationSetting(
+      List.of("BACKEND_CONNECTION_IDLE_TIMEOUT"),
+      ChronoUnit.SECONDS,
+      HttpTransport.Options.DEFAULT_CONNECTION_IDLE_TIMEOUT);
+    this.backendProtocol = new EnumSetting<HttpTransport.Protocol>(
+      HttpTransport.Protocol.class,
+      List.of("BACKEND_PROTOCOL"),
+      HttpTransport.Protocol.HTTP_1_1);
+    this.backendRetryMaxAttempts = new IntSetting(
+      List.of("BACKEND_RETRY_MAX_ATTEMPTS"),
+      RetryPolicy.Options.DEFAULT_MAX_ATTEMPTS);
+    this.backendRetryInitialBackoff = new DurationSetting(
+      List.of("BACKEND_RETRY_INITIAL_BACKOFF"),
+      ChronoUnit.MILLIS,
+      RetryPolicy.Options.DEFAULT_INITIAL_BACKOFF);
+    this.backendRetryMaxBackoff = new DurationSetting(
+      List.of("BACKEND_RETRY_MAX_BACKOFF"),
+      ChronoUnit.MILLIS,
+      RetryPolicy.Options.DEFAULT_MAX_BACKOFF);
+    this.backendRetryMaxElapsedTime = new DurationSetting(
+      List.of("BACKEND_RETRY_MAX_ELAPSED_TIME"),
+      ChronoUnit.SECONDS,
+      RetryPolicy.Options.DEFAULT_MAX_ELAPSED_TIME);
+    this.backendRateLimitMaxWait = new DurationSetting(
+      List.of("BACKEND_RATE_LIMIT_MAX_WAIT"),
+      ChronoUnit.SECONDS,
+      RateLimiter.Options.DEFAULT_MAX_WAIT);
+    this.backendCircuitBreakerFailureRate = new IntSetting(
+      List.of("BACKEND_CIRCUIT_BREAKER_FAILURE_RATE"),
+      CircuitBreaker.Options.DEFAULT_FAILURE_RATE_THRESHOLD);
+    this.backendCircuitBreakerWindowSize = new IntSetting(
+      List.of("BACKEND_CIRCUIT_BREAKER_WINDOW_SIZE"),
+      CircuitBreaker.Options.DEFAULT_WINDOW_SIZE);
+    this.backendCircuitBreakerCoolDown = new DurationSetting(
+      List.of("BACKEND_CIRCUIT_BREAKER_COOL_DOWN"),
+      ChronoUnit.SECONDS,
+      CircuitBreaker.Options.DEFAULT_COOL_DOWN);
+    this.backendCircuitBreakerAffectsReadiness = new BooleanSetting(
+      List.of("BACKEND_CIRCUIT_BREAKER_AFFECTS_READINESS"),
+      false);
+    this.backendHedgingPercentile = new IntSetting(
+      List.of("BACKEND_HEDGING_PERCENTILE"),
+      0);
+    this.backendHedgingMinDelay = new DurationSetting(
+      List.of("BACKEND_HEDGING_MIN_DELAY"),
+      ChronoUnit.MILLIS,
+      HedgingPolicy.Options.DEFAULT_MIN_DELAY);
+    this.backendHedgingBudget = new IntSetting(
+      List.of("BACKEND_HEDGING_BUDGET"),
+      HedgingPolicy.Options.DEFAULT_BUDGET);
+    this.backendBulkheadMaxThreads = new IntSetting(
+      List.of("BACKEND_BULKHEAD_MAX_THREADS"),
+      Bulkhead.Options.DEFAULT_MAX_THREADS);
+    this.backendBulkheadMaxQueueSize = new IntSetting(
+      List.of("BACKEND_BULKHEAD_MAX_QUEUE_SIZE"),
+      Bulkhead.Options.DEFAULT_MAX_QUEUE_SIZE);
+    this.backendBulkheadRejectionPolicy = new EnumSetting<Bulkhead.RejectionPolicy>(
+      Bulkhead.RejectionPolicy.class,
+      List.of("BACKEND_BULKHEAD_REJECTION_POLICY"),
+      Bulkhead.RejectionPolicy.ABORT);
+    this.backendWarmupTimeout = new DurationSetting(
+      List.of("BACKEND_WARMUP_TIMEOUT"),
+      ChronoUnit.SECONDS,
+      ConnectionWarmer.Options.DEFAULT_TIMEOUT);
+    this.credentialsRefreshAhead = new DurationSetting(
+      List.of("CREDENTIALS_REFRESH_AHEAD"),
+      ChronoUnit.SECONDS,
+      CredentialsRefresher.Options.DEFAULT_REFRESH_AHEAD);
+    this.credentialsRefreshRetryBackoff = new DurationSetting(
+      List.of("CREDENTIALS_REFRESH_RETRY_BACKOFF"),
+      ChronoUnit.SECONDS,
+      CredentialsRefresher.Options.DEFAULT_RETRY_BACKOFF);
+    this.requestTimeout = new DurationSetting(
+      List.of("REQUEST_TIMEOUT"),
+      ChronoUnit.SECONDS,
+      Duration.ofSeconds(50));
+    this.iamPolicyCacheTtl = new DurationSetting(
+      List.of("IAM_POLICY_CACHE_TTL"),
+      ChronoUnit.SECONDS,
+      Duration.ofSeconds(30));
+    this.iamPolicyCacheSize = new IntSetting(
+      List.of("IAM_POLICY_CACHE_SIZE"),
+      1000);
+    this.groupMembershipCacheTtl = new DurationSetting(
+      List.of("GROUP_MEMBERSHIP_CACHE_TTL"),
+      ChronoUnit.SECONDS,
+      Duration.ofMinutes(5));
+    this.groupMembershipCacheRefresh = new DurationSetting(
+      List.of("GROUP_MEMBERSHIP_CACHE_REFRESH"),
+      ChronoUnit.SECONDS,
+      Duration.ofMinutes(1));
+    this.groupMembershipCacheSize = new IntSetting(
+      List.of("GROUP_MEMBERSHIP_CACHE_SIZE"),
+      1000);
+    this.groupMembersCacheTtl = new DurationSetting(
+      List.of("GROUP_MEMBERS_CACHE_TTL"),
+      ChronoUnit.SECONDS,
+      Duration.ofMinutes(5));
+    this.groupMembersCacheSize = new IntSetting(
+      List.of("GROUP_MEMBERS_CACHE_SIZE"),
+      1000);
+    this.inaccessibleGroupsCacheTtl = new DurationSetting(
+      List.of("INACCESSIBLE_GROUPS_CACHE_TTL"),
+      ChronoUnit.SECONDS,
+      Duration.ofSeconds(30));
+    this.inaccessibleGroupsCacheSize = new IntSetting(
+      List.of("INACCESSIBLE_GROUPS_CACHE_SIZE"),
+      1000);
+    this.entitlementsCacheTtl = new DurationSetting(
+      List.of("ENTITLEMENTS_CACHE_TTL"),
+      ChronoUnit.SECONDS,
+      Duration.ofSeconds(10));
+    this.entitlementsCacheSize = new IntSetting(
+      List.of("ENTITLEMENTS_CACHE_SIZE"),
+      1000);
+    this.availableProjectsCacheTtl = new DurationSetting(
+      List.of("AVAILABLE_PROJECTS_CACHE_TTL"),
+      ChronoUnit.SECONDS,
+      Duration.ofMinutes(30));
+    this.availableProjectsCacheRefresh = new DurationSetting(
+      List.of("AVAILABLE_PROJECTS_CACHE_REFRESH"),
+      ChronoUnit.SECONDS,
+      Duration.ofMinutes(1));
+    this.availableProjectsCacheSize = new IntSetting(
+      List.of("AVAILABLE_PROJECTS_CACHE_SIZE"),
+      1000);
   }
 
   // -------------------------------------------------------------------------
@@ -273,6 +406,12 @@ class RuntimeConfiguration {
    */
   public final @NotNull StringSetting availableProjectsQuery;
 
+  /**
+   * Interval in which to refresh the list of projects that match
+   * the available projects query.
+   */
+  public final @NotNull DurationSetting availableProjectsRefreshInterval;
+
   /**
    * Connect timeout for HTTP requests to backends.
    */
@@ -284,10 +423,210 @@ class RuntimeConfiguration {
   public final @NotNull DurationSetting backendReadTimeout;
 
   /**
-   * Write timeout for HTTP requests to backends.
+   * Write timeout for HTTP requests to backends, only applies to HTTP/2.
    */
   public final @NotNull DurationSetting backendWriteTimeout;
 
+  /**
+   * Maximum number of pooled HTTP connections to backends.
+   */
+  public final @NotNull IntSetting backendMaxConnections;
+
+  /**
+   * Time after which idle HTTP connections to backends are closed.
+   */
+  public final @NotNull DurationSetting backendConnectionIdleTimeout;
+
+  /**
+   * HTTP protocol version to use for backends.
+   */
+  public final @NotNull EnumSetting<HttpTransport.Protocol> backendProtocol;
+
+  /**
+   * Maximum number of attempts for backend requests that fail
+   * with a transient error.
+   */
+  public final @NotNull IntSetting backendRetryMaxAttempts;
+
+  /**
+   * Backoff ceiling for the first retry of a backend request.
+   */
+  public final @NotNull DurationSetting backendRetryInitialBackoff;
+
+  /**
+   * Maximum backoff ceiling for retries of backend requests.
+   */
+  public final @NotNull DurationSetting backendRetryMaxBackoff;
+
+  /**
+   * Time after which failed backend requests are no longer retried.
+   */
+  public final @NotNull DurationSetting backendRetryMaxElapsedTime;
+
+  /**
+   * Maximum time to wait for a rate-limited backend request
+   * to become eligible.
+   */
+  public final @NotNull DurationSetting backendRateLimitMaxWait;
+
+  /**
+   * Percentage of failed backend requests that causes the circuit
+   * breaker to open.
+   */
+  public final @NotNull IntSetting backendCircuitBreakerFailureRate;
+
+  /**
+   * Number of recent backend requests that the circuit breaker
+   * considers, 0 to disable the circuit breaker.
+   */
+  public final @NotNull IntSetting backendCircuitBreakerWindowSize;
+
+  /**
+   * Time to keep a circuit open before probing the backend again.
+   */
+  public final @NotNull DurationSetting backendCircuitBreakerCoolDown;
+
+  /**
+   * Fail the readiness check while the circuit for a backend
+   * API is open.
+   */
+  public final @NotNull BooleanSetting backendCircuitBreakerAffectsReadiness;
+
+  /**
+   * Latency percentile after which idempotent backend reads are
+   * hedged, 0 to disable hedging.
+   */
+  public final @NotNull IntSetting backendHedgingPercentile;
+
+  /**
+   * Minimum time to wait before hedging a backend read.
+   */
+  public final @NotNull DurationSetting backendHedgingMinDelay;
+
+  /**
+   * Maximum number of hedged backend reads, as a percentage of reads.
+   */
+  public final @NotNull IntSetting backendHedgingBudget;
+
+  /**
+   * Maximum number of concurrent asynchronous calls to a backend API,
+   * 0 to let all APIs share the same executor.
+   */
+  public final @NotNull IntSetting backendBulkheadMaxThreads;
+
+  /**
+   * Maximum number of asynchronous calls to a backend API that
+   * wait for a thread.
+   */
+  public final @NotNull IntSetting backendBulkheadMaxQueueSize;
+
+  /**
+   * What to do with asynchronous calls to a backend API that
+   * exceed the queue size.
+   */
+  public final @NotNull EnumSetting<Bulkhead.RejectionPolicy> backendBulkheadRejectionPolicy;
+
+  /**
+   * Maximum time to spend warming up connections to backends
+   * during startup, 0 to disable warmup.
+   */
+  public final @NotNull DurationSetting backendWarmupTimeout;
+
+  /**
+   * Time before expiry at which to refresh the application's
+   * access token in the background.
+   */
+  public final @NotNull DurationSetting credentialsRefreshAhead;
+
+  /**
+   * Time to wait before retrying a failed background refresh of the
+   * application's access token, doubled after each failure.
+   */
+  public final @NotNull DurationSetting credentialsRefreshRetryBackoff;
+
+  /**
+   * Time budget for handling a request, including all backend calls
+   * made on its behalf, 0 for unlimited.
+   */
+  public final @NotNull DurationSetting requestTimeout;
+
+  /**
+   * Time to cache the effective IAM policy of a project, 0 to
+   * disable caching.
+   */
+  public final @NotNull DurationSetting iamPolicyCacheTtl;
+
+  /**
+   * Maximum number of projects to cache effective IAM policies for.
+   */
+  public final @NotNull IntSetting iamPolicyCacheSize;
+
+  /**
+   * Time to cache the groups a user is a member of, 0 to disable
+   * caching.
+   */
+  public final @NotNull DurationSetting groupMembershipCacheTtl;
+
+  /**
+   * Age after which cached group memberships are refreshed in
+   * the background.
+   */
+  public final @NotNull DurationSetting groupMembershipCacheRefresh;
+
+  /**
+   * Maximum number of users to cache group memberships for.
+   */
+  public final @NotNull IntSetting groupMembershipCacheSize;
+
+  /**
+   * Time to cache the members of a group, 0 to disable caching.
+   */
+  public final @NotNull DurationSetting groupMembersCacheTtl;
+
+  /**
+   * Maximum number of groups to cache members for.
+   */
+  public final @NotNull IntSetting groupMembersCacheSize;
+
+  /**
+   * Time to cache that the application isn't allowed to look up the
+   * members of a group, 0 to disable caching.
+   */
+  public final @NotNull DurationSetting inaccessibleGroupsCacheTtl;
+
+  /**
+   * Maximum number of groups to cache as inaccessible.
+   */
+  public final @NotNull IntSetting inaccessibleGroupsCacheSize;
+
+  /**
+   * Time to cache a user's entitlements for a project, 0 to disable
+   * caching.
+   */
+  public final @NotNull DurationSetting entitlementsCacheTtl;
+
+  /**
+   * Maximum number of users and projects to cache entitlements for.
+   */
+  public final @NotNull IntSetting entitlementsCacheSize;
+
+  /**
+   * Time to cache the projects a user has entitlements for, 0 to
+   * disable caching.
+   */
+  public final @NotNull DurationSetting availableProjectsCacheTtl;
+
+  /**
+   * Age after which cached projects are served while being refreshed
+   * in the background.
+   */
+  public final @NotNull DurationSetting availableProjectsCacheRefresh;
+
+  /**
+   * Maximum number of users to cache projects for.
+   */
+  public final @NotNull IntSetting availableProjectsCacheSize;
+
   public boolean isSmtpConfigured() {
     var requiredSettings = List.of(smtpHost, smtpPort, smtpSenderName, smtpSenderAddress);
     return requiredSettings.stream().allMatch(s -> s.isValid());
@@ -313,6 +652,121 @@ class RuntimeConfiguration {
     return map;
   }
 
+  /**
+   * Get retry options for a particular API. API-specific settings,
+   * such as BACKEND_RETRY_MAX_ATTEMPTS_CLOUDASSET, take precedence
+   * over the general settings.
+   */
+  public @NotNull RetryPolicy.Options getBackendRetryOptions(@NotNull String api) {
+    return new RetryPolicy.Options(
+      new IntSetting(
+        List.of("BACKEND_RETRY_MAX_ATTEMPTS_" + api),
+        this.backendRetryMaxAttempts.getValue()).getValue(),
+      new DurationSetting(
+        List.of("BACKEND_RETRY_INITIAL_BACKOFF_" + api),
+        ChronoUnit.MILLIS,
+        this.backendRetryInitialBackoff.getValue()).getValue(),
+      new DurationSetting(
+        List.of("BACKEND_RETRY_MAX_BACKOFF_" + api),
+        ChronoUnit.MILLIS,
+        this.backendRetryMaxBackoff.getValue()).getValue(),
+      new DurationSetting(
+        List.of("BACKEND_RETRY_MAX_ELAPSED_TIME_" + api),
+        ChronoUnit.SECONDS,
+        this.backendRetryMaxElapsedTime.getValue()).getValue());
+  }
+
+  /**
+   * Get rate limit options for a particular API method. Rate limiting
+   * is disabled unless BACKEND_RATE_LIMIT_<METHOD> specifies the
+   * number of requests per minute, for example
+   * BACKEND_RATE_LIMIT_ANALYZEIAMPOLICY.
+   */
+  public @NotNull RateLimiter.Options getBackendRateLimitOptions(@NotNull String method) {
+    var suffix = method.toUpperCase();
+    return new RateLimiter.Options(
+      new IntSetting(
+        List.of("BACKEND_RATE_LIMIT_" + suffix),
+        0).getValue(),
+      new IntSetting(
+        List.of("BACKEND_RATE_LIMIT_BURST_" + suffix),
+        RateLimiter.Options.DEFAULT_BURST).getValue(),
+      this.backendRateLimitMaxWait.getValue());
+  }
+
+  /**
+   * Get circuit breaker options for a particular API. API-specific
+   * settings, such as BACKEND_CIRCUIT_BREAKER_WINDOW_SIZE_DIRECTORY,
+   * take precedence over the general settings.
+   */
+  public @NotNull CircuitBreaker.Options getBackendCircuitBreakerOptions(@NotNull String api) {
+    return new CircuitBreaker.Options(
+      new IntSetting(
+        List.of("BACKEND_CIRCUIT_BREAKER_FAILURE_RATE_" + api),
+        this.backendCircuitBreakerFailureRate.getValue()).getValue(),
+      new IntSetting(
+        List.of("BACKEND_CIRCUIT_BREAKER_WINDOW_SIZE_" + api),
+        this.backendCircuitBreakerWindowSize.getValue()).getValue(),
+      new DurationSetting(
+        List.of("BACKEND_CIRCUIT_BREAKER_COOL_DOWN_" + api),
+        ChronoUnit.SECONDS,
+        this.backendCircuitBreakerCoolDown.getValue()).getValue());
+  }
+
+  /**
+   * Get hedging options for a particular API method. Method-specific
+   * settings, such as BACKEND_HEDGING_PERCENTILE_GETANCESTRY, take
+   * precedence over the general settings.
+   */
+  public @NotNull HedgingPolicy.Options getBackendHedgingOptions(@NotNull String method) {
+    var suffix = method.toUpperCase();
+    return new HedgingPolicy.Options(
+      new IntSetting(
+        List.of("BACKEND_HEDGING_PERCENTILE_" + suffix),
+        this.backendHedgingPercentile.getValue()).getValue(),
+      new DurationSetting(
+        List.of("BACKEND_HEDGING_MIN_DELAY_" + suffix),
+        ChronoUnit.MILLIS,
+        this.backendHedgingMinDelay.getValue()).getValue(),
+      new IntSetting(
+        List.of("BACKEND_HEDGING_BUDGET_" + suffix),
+        this.backendHedgingBudget.getValue()).getValue());
+  }
+
+  /**
+   * Get options for refreshing the application's access token
+   * in the background.
+   */
+  public @NotNull CredentialsRefresher.Options getCredentialsRefresherOptions() {
+    var retryBackoff = this.credentialsRefreshRetryBackoff.getValue();
+    return new CredentialsRefresher.Options(
+      this.credentialsRefreshAhead.getValue(),
+      CredentialsRefresher.Options.DEFAULT_MAX_JITTER,
+      retryBackoff,
+      retryBackoff.compareTo(CredentialsRefresher.Options.DEFAULT_MAX_RETRY_BACKOFF) > 0
+        ? retryBackoff
+        : CredentialsRefresher.Options.DEFAULT_MAX_RETRY_BACKOFF);
+  }
+
+  /**
+   * Get bulkhead options for a particular API. API-specific settings,
+   * such as BACKEND_BULKHEAD_MAX_THREADS_DIRECTORY, take precedence
+   * over the general settings.
+   */
+  public @NotNull Bulkhead.Options getBackendBulkheadOptions(@NotNull String api) {
+    return new Bulkhead.Options(
+      new IntSetting(
+        List.of("BACKEND_BULKHEAD_MAX_THREADS_" + api),
+        this.backendBulkheadMaxThreads.getValue()).getValue(),
+      new IntSetting(
+        List.of("BACKEND_BULKHEAD_MAX_QUEUE_SIZE_" + api),
+        this.backendBulkheadMaxQueueSize.getValue()).getValue(),
+      new EnumSetting<Bulkhead.RejectionPolicy>(
+        Bulkhead.RejectionPolicy.class,
+        List.of("BACKEND_BULKHEAD_REJECTION_POLICY_" + api),
+        this.backendBulkheadRejectionPolicy.getValue()).getValue());
+  }
+
   public @NotNull Set<String> getRequiredOauthScopes() {
     var scopes = new HashSet<String>();
 
@@ -27,11 +27,19 @@ import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonObjectParser;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.GenericData;
+import com.google.api.services.cloudasset.v1.CloudAsset;
+import com.google.api.services.cloudidentity.v1.CloudIdentity;
+import com.google.api.services.cloudresourcemanager.v3.CloudResourceManager;
+import com.google.api.services.directory.Directory;
+import com.google.api.services.iamcredentials.v1.IAMCredentials;
+import com.google.api.services.pubsub.Pubsub;
+import com.google.api.services.secretmanager.v1.SecretManager;
 import com.google.auth.oauth2.ComputeEngineCredentials;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ImpersonatedCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials;
 import com.google.solutions.jitaccess.core.ApplicationVersion;
+import com.google.solutions.jitaccess.core.Cache;
 import com.google.solutions.jitaccess.core.auth.EmailMapping;
 import com.google.solutions.jitaccess.core.auth.UserId;
 import com.google.solutions.jitaccess.core.catalog.RegexJustificationPolicy;
@@ -41,6 +49,8 @@ import com.google.solutions.jitaccess.core.clients.*;
 import com.google.solutions.jitaccess.core.notifications.MailNotificationService;
 import com.google.solutions.jitaccess.core.notifications.NotificationService;
 import com.google.solutions.jitaccess.core.notifications.PubSubNotificationService;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.event.Observes;
 import jakarta.enterprise.inject.Instance;
 import jakarta.enterprise.inject.Produces;
 import jakarta.inject.Singleton;
@@ -54,6 +64,7 @@ import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 /**
@@ -254,6 +265,22 @@ public class RuntimeEnvironment {
     }
   }
 
+  /**
+   * Warm up connections to backends, populate the project list, and
+   * start refreshing the application's access token while the
+   * application is starting.
+   */
+  void onStartup(
+    @Observes StartupEvent event,
+    @NotNull ConnectionWarmer connectionWarmer,
+    @NotNull ProjectListRefresher projectListRefresher,
+    @NotNull CredentialsRefresher credentialsRefresher
+  ) {
+    connectionWarmer.start();
+    projectListRefresher.start();
+    credentialsRefresher.start();
+  }
+
   public boolean isDebugModeEnabled() {
     return Boolean.getBoolean(CONFIG_DEBUG_MODE);
   }
@@ -285,6 +312,23 @@ public class RuntimeEnvironment {
     return applicationCredentials;
   }
 
+  @Produces
+  @Singleton
+  public @NotNull CredentialsRefresher getApplicationCredentialsRefresher() {
+    //
+    // Refresh the application's access token in the background so
+    // that user requests don't have to wait for a refresh.
+    //
+    return new CredentialsRefresher(
+      this.applicationCredentials,
+      this.configuration.getCredentialsRefresherOptions(),
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "credentials-refresher");
+        thread.setDaemon(true);
+        return thread;
+      }));
+  }
+
   @Produces
   public @NotNull TokenSigner.Options getTokenServiceOptions() {
     //
@@ -372,12 +416,83 @@ public class RuntimeEnvironment {
       this.configuration.maxNumberOfEntitlementsPerSelfApproval.getValue());
   }
 
+  @Produces
+  public @NotNull DeadlineRequestFilter.Options getDeadlineRequestFilterOptions() {
+    return new DeadlineRequestFilter.Options(this.configuration.requestTimeout.getValue());
+  }
+
   @Produces
   public @NotNull HttpTransport.Options getHttpTransportOptions() {
     return new HttpTransport.Options(
       this.configuration.backendConnectTimeout.getValue(),
       this.configuration.backendReadTimeout.getValue(),
-      this.configuration.backendWriteTimeout.getValue());
+      this.configuration.backendWriteTimeout.getValue(),
+      this.configuration.backendMaxConnections.getValue(),
+      this.configuration.backendConnectionIdleTimeout.getValue(),
+      HttpTransport.Options.DEFAULT_CONNECTION_TIME_TO_LIVE,
+      this.configuration.backendProtocol.getValue());
+  }
+
+  @Produces
+  @Singleton
+  public @NotNull HttpTransport getHttpTransport(
+    @NotNull HttpTransport.Options options
+  ) {
+    //
+    // Use a single transport for all clients so that they
+    // share the same connection pool.
+    //
+    return new HttpTransport(options);
+  }
+
+  @Produces
+  @Singleton
+  public @NotNull BackendPolicies getBackendPolicies(
+    @NotNull Executor executor
+  ) {
+    return new BackendPolicies(
+      executor,
+      api -> new BackendPolicies.ApiOptions(
+        this.configuration.getBackendRetryOptions(api),
+        this.configuration.getBackendCircuitBreakerOptions(api),
+        this.configuration.getBackendBulkheadOptions(api)),
+      method -> new BackendPolicies.MethodOptions(
+        this.configuration.getBackendRateLimitOptions(method),
+        this.configuration.getBackendHedgingOptions(method)),
+      this.configuration.backendCircuitBreakerAffectsReadiness.getValue());
+  }
+
+  @Produces
+  @Singleton
+  public @NotNull ClientFactory getClientFactory(
+    @NotNull HttpTransport transport,
+    @NotNull BackendPolicies policies
+  ) {
+    //
+    // Use a single factory so that API client stubs are built
+    // once and reused across requests.
+    //
+    return new ClientFactory(transport, policies);
+  }
+
+  @Produces
+  @Singleton
+  public @NotNull ConnectionWarmer getConnectionWarmer(
+    @NotNull HttpTransport transport,
+    @NotNull Executor executor
+  ) {
+    return new ConnectionWarmer(
+      transport,
+      List.of(
+        new GenericUrl(CloudAsset.DEFAULT_ROOT_URL),
+        new GenericUrl(CloudIdentity.DEFAULT_ROOT_URL),
+        new GenericUrl(CloudResourceManager.DEFAULT_ROOT_URL),
+        new GenericUrl(Directory.DEFAULT_ROOT_URL),
+        new GenericUrl(IAMCredentials.DEFAULT_ROOT_URL),
+        new GenericUrl(Pubsub.DEFAULT_ROOT_URL),
+        new GenericUrl(SecretManager.DEFAULT_ROOT_URL)),
+      new ConnectionWarmer.Options(this.configuration.backendWarmupTimeout.getValue()),
+      executor);
   }
 
   @Produces
@@ -387,6 +502,28 @@ public class RuntimeEnvironment {
       Pattern.compile(this.configuration.justificationPattern.getValue()));
   }
 
+  @Produces
+  @Singleton
+  public @NotNull ProjectListRefresher getProjectListRefresher(
+    @NotNull ResourceManagerClient resourceManagerClient,
+    @NotNull MpaProjectRoleCatalog.Options catalogOptions
+  ) {
+    //
+    // The list of projects is the same for all users, so search
+    // for projects in the background instead of on every request.
+    //
+    return new ProjectListRefresher(
+      resourceManagerClient,
+      new ProjectListRefresher.Options(
+        catalogOptions.availableProjectsQuery(),
+        this.configuration.availableProjectsRefreshInterval.getValue()),
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "project-list-refresher");
+        thread.setDaemon(true);
+        return thread;
+      }));
+  }
+
   @Produces
   public @NotNull MpaProjectRoleCatalog.Options getIamPolicyCatalogOptions() {
     return new MpaProjectRoleCatalog.Options(
@@ -395,7 +532,16 @@ public class RuntimeEnvironment {
         : null,
       this.configuration.activationTimeout.getValue(),
       this.configuration.minNumberOfReviewersPerActivationRequest.getValue(),
-      this.configuration.maxNumberOfReviewersPerActivationRequest.getValue());
+      this.configuration.maxNumberOfReviewersPerActivationRequest.getValue(),
+      new Cache.Options(
+        this.configuration.entitlementsCacheTtl.getValue(),
+        this.configuration.entitlementsCacheSize.getValue()),
+      new Cache.Options(
+        this.configuration.availableProjectsCacheTtl.getValue(),
+        this.configuration.availableProjectsCacheSize.getValue(),
+        Duration.ofSeconds(Math.min(
+          this.configuration.availableProjectsCacheRefresh.getValue().getSeconds(),
+          this.configuration.availableProjectsCacheTtl.getValue().getSeconds()))));
   }
 
   @Produces
@@ -413,17 +559,31 @@ public class RuntimeEnvironment {
   @Produces
   @Singleton
   public @NotNull ProjectRoleRepository getProjectRoleRepository(
-    @NotNull Executor executor,
     @NotNull Instance<DirectoryGroupsClient> groupsClient,
     @NotNull PolicyAnalyzerClient policyAnalyzerClient
   ) {
     switch (this.configuration.catalog.getValue()) {
       case ASSETINVENTORY:
         return new AssetInventoryRepository(
-          executor,
           groupsClient.get(),
           (AssetInventoryClient)policyAnalyzerClient,
-          new AssetInventoryRepository.Options(this.configuration.scope.getValue()));
+          new AssetInventoryRepository.Options(
+            this.configuration.scope.getValue(),
+            new Cache.Options(
+              this.configuration.iamPolicyCacheTtl.getValue(),
+              this.configuration.iamPolicyCacheSize.getValue()),
+            new Cache.Options(
+              this.configuration.groupMembershipCacheTtl.getValue(),
+              this.configuration.groupMembershipCacheSize.getValue(),
+              Duration.ofSeconds(Math.min(
+                this.configuration.groupMembershipCacheRefresh.getValue().getSeconds(),
+                this.configuration.groupMembershipCacheTtl.getValue().getSeconds()))),
+            new Cache.Options(
+              this.configuration.groupMembersCacheTtl.getValue(),
+              this.configuration.groupMembersCacheSize.getValue()),
+            new Cache.Options(
+              this.configuration.inaccessibleGroupsCacheTtl.getValue(),
+              this.configuration.inaccessibleGroupsCacheSize.getValue())));
 
       case POLICYANALYZER:
       default:
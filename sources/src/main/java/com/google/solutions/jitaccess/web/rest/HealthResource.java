@@ -38,6 +38,9 @@ import org.jetbrains.annotations.NotNull;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -48,8 +51,26 @@ import java.util.stream.Collectors;
 @Dependent
 @Path("/health")
 public class HealthResource {
-  @Inject
-  Executor executor;
+  /**
+   * Executor for running diagnostics. Diagnostics don't use the shared
+   * executor so that a saturated executor can't stall readiness checks.
+   */
+  private static final @NotNull Executor DIAGNOSTICS_EXECUTOR = Executors.newFixedThreadPool(
+    4,
+    new ThreadFactory() {
+      private final AtomicInteger threadNumber = new AtomicInteger();
+
+      @Override
+      public Thread newThread(@NotNull Runnable runnable) {
+        var thread = new Thread(
+          runnable,
+          String.format("health-check-%d", this.threadNumber.incrementAndGet()));
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+  Executor executor = DIAGNOSTICS_EXECUTOR;
 
   @Inject
   Instance<Diagnosable> diagnosables;
@@ -0,0 +1,314 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.web.rest;
+
+import com.google.solutions.jitaccess.core.catalog.project.MpaProjectRoleCatalog;
+import com.google.solutions.jitaccess.core.clients.BackendPolicies;
+import com.google.solutions.jitaccess.core.clients.CircuitBreaker;
+import com.google.solutions.jitaccess.core.clients.ClientMetrics;
+import com.google.solutions.jitaccess.core.clients.CredentialsRefresher;
+import jakarta.enterprise.context.Dependent;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * REST API controller for scraping metrics, using the
+ * Prometheus text exposition format.
+ *
+ * Metrics only describe backend API usage, caches, and token refreshes,
+ * and don't contain any user data, so this controller allows anonymous
+ * requests.
+ */
+@Dependent
+@Path("/metrics")
+public class MetricsResource {
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  @Inject
+  BackendPolicies policies;
+
+  @Inject
+  CredentialsRefresher credentialsRefresher;
+
+  @Inject
+  MpaProjectRoleCatalog catalog;
+
+  private static @NotNull String escape(@NotNull String labelValue) {
+    return labelValue
+      .replace("\\", "\\\\")
+      .replace("\"", "\\\"")
+      .replace("\n", "\\n");
+  }
+
+  private static @NotNull String seconds(double millis) {
+    return String.format(Locale.ROOT, "%s", millis / 1000.0);
+  }
+
+  /**
+   * Get metrics for all backend APIs that have been used.
+   */
+  @GET
+  @Produces(CONTENT_TYPE)
+  public @NotNull String getMetrics() {
+    var apis = this.policies.metrics();
+    var buffer = new StringBuilder();
+
+    buffer.append("# HELP jitaccess_backend_request_duration_seconds Time until a backend API responded.\n");
+    buffer.append("# TYPE jitaccess_backend_request_duration_seconds histogram\n");
+    for (var api : apis.entrySet()) {
+      for (var method : api.getValue().methods().entrySet()) {
+        var labels = String.format(
+          "api=\"%s\",method=\"%s\"",
+          escape(api.getKey()),
+          escape(method.getKey()));
+
+        var buckets = method.getValue().latencyBuckets();
+        long cumulativeCount = 0;
+        for (int i = 0; i < buckets.length; i++) {
+          cumulativeCount += buckets[i];
+          buffer.append(String.format(
+            "jitaccess_backend_request_duration_seconds_bucket{%s,le=\"%s\"} %d\n",
+            labels,
+            i < ClientMetrics.LATENCY_BUCKETS.length
+              ? seconds(ClientMetrics.LATENCY_BUCKETS[i])
+              : "+Inf",
+            cumulativeCount));
+        }
+
+        buffer.append(String.format(
+          "jitaccess_backend_request_duration_seconds_sum{%s} %s\n",
+          labels,
+          seconds(method.getValue().totalLatency().toNanos() / 1_000_000.0)));
+        buffer.append(String.format(
+          "jitaccess_backend_request_duration_seconds_count{%s} %d\n",
+          labels,
+          cumulativeCount));
+      }
+    }
+
+    buffer.append("# HELP jitaccess_backend_requests_in_flight Backend API requests waiting for a response.\n");
+    buffer.append("# TYPE jitaccess_backend_requests_in_flight gauge\n");
+    for (var api : apis.entrySet()) {
+      for (var method : api.getValue().methods().entrySet()) {
+        buffer.append(String.format(
+          "jitaccess_backend_requests_in_flight{api=\"%s\",method=\"%s\"} %d\n",
+          escape(api.getKey()),
+          escape(method.getKey()),
+          method.getValue().inFlight()));
+      }
+    }
+
+    buffer.append("# HELP jitaccess_backend_responses_total Backend API responses by status code.\n");
+    buffer.append("# TYPE jitaccess_backend_responses_total counter\n");
+    for (var api : apis.entrySet()) {
+      for (var method : api.getValue().methods().entrySet()) {
+        for (var status : method.getValue().statusCodes().entrySet()) {
+          buffer.append(String.format(
+            "jitaccess_backend_responses_total{api=\"%s\",method=\"%s\",code=\"%d\"} %d\n",
+            escape(api.getKey()),
+            escape(method.getKey()),
+            status.getKey(),
+            status.getValue()));
+        }
+      }
+    }
+
+    buffer.append("# HELP jitaccess_backend_io_errors_total Backend API requests that failed without a response.\n");
+    buffer.append("# TYPE jitaccess_backend_io_errors_total counter\n");
+    for (var api : apis.entrySet()) {
+      for (var method : api.getValue().methods().entrySet()) {
+        buffer.append(String.format(
+          "jitaccess_backend_io_errors_total{api=\"%s\",method=\"%s\"} %d\n",
+          escape(api.getKey()),
+          escape(method.getKey()),
+          method.getValue().ioErrors()));
+      }
+    }
+
+    buffer.append("# HELP jitaccess_backend_response_bytes_total Bytes received from backend APIs.\n");
+    buffer.append("# TYPE jitaccess_backend_response_bytes_total counter\n");
+    for (var api : apis.entrySet()) {
+      for (var method : api.getValue().methods().entrySet()) {
+        buffer.append(String.format(
+          "jitaccess_backend_response_bytes_total{api=\"%s\",method=\"%s\"} %d\n",
+          escape(api.getKey()),
+          escape(method.getKey()),
+          method.getValue().bytesReceived()));
+      }
+    }
+
+    buffer.append("# HELP jitaccess_backend_rate_limiter_fill_level Share of rate limit permits available.\n");
+    buffer.append("# TYPE jitaccess_backend_rate_limiter_fill_level gauge\n");
+    for (var limiter : this.policies.rateLimiterFillLevels().entrySet()) {
+      buffer.append(String.format(
+        Locale.ROOT,
+        "jitaccess_backend_rate_limiter_fill_level{method=\"%s\"} %s\n",
+        escape(limiter.getKey()),
+        limiter.getValue()));
+    }
+
+    buffer.append("# HELP jitaccess_backend_circuit_breaker_state State of backend API circuit breakers.\n");
+    buffer.append("# TYPE jitaccess_backend_circuit_breaker_state gauge\n");
+    for (var circuitBreaker : this.policies.circuitBreakerStates().entrySet()) {
+      for (var state : CircuitBreaker.State.values()) {
+        buffer.append(String.format(
+          "jitaccess_backend_circuit_breaker_state{api=\"%s\",state=\"%s\"} %d\n",
+          escape(circuitBreaker.getKey()),
+          state.name().toLowerCase(),
+          circuitBreaker.getValue() == state ? 1 : 0));
+      }
+    }
+
+    var bulkheads = this.policies.bulkheads();
+    buffer.append("# HELP jitaccess_backend_bulkhead_active_threads Threads executing backend API calls.\n");
+    buffer.append("# TYPE jitaccess_backend_bulkhead_active_threads gauge\n");
+    for (var bulkhead : bulkheads.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_backend_bulkhead_active_threads{api=\"%s\"} %d\n",
+        escape(bulkhead.getKey()),
+        bulkhead.getValue().statistics().activeThreads()));
+    }
+
+    buffer.append("# HELP jitaccess_backend_bulkhead_queue_depth Backend API calls waiting for a thread.\n");
+    buffer.append("# TYPE jitaccess_backend_bulkhead_queue_depth gauge\n");
+    for (var bulkhead : bulkheads.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_backend_bulkhead_queue_depth{api=\"%s\"} %d\n",
+        escape(bulkhead.getKey()),
+        bulkhead.getValue().statistics().queueDepth()));
+    }
+
+    buffer.append("# HELP jitaccess_backend_bulkhead_rejections_total Backend API calls rejected because the queue was full.\n");
+    buffer.append("# TYPE jitaccess_backend_bulkhead_rejections_total counter\n");
+    for (var bulkhead : bulkheads.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_backend_bulkhead_rejections_total{api=\"%s\"} %d\n",
+        escape(bulkhead.getKey()),
+        bulkhead.getValue().statistics().rejectedTasks()));
+    }
+
+    var caches = this.catalog.cacheStatistics();
+    buffer.append("# HELP jitaccess_cache_requests_total Cache lookups by result.\n");
+    buffer.append("# TYPE jitaccess_cache_requests_total counter\n");
+    for (var cache : caches.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_cache_requests_total{cache=\"%s\",result=\"hit\"} %d\n",
+        escape(cache.getKey()),
+        cache.getValue().hits()));
+      buffer.append(String.format(
+        "jitaccess_cache_requests_total{cache=\"%s\",result=\"miss\"} %d\n",
+        escape(cache.getKey()),
+        cache.getValue().misses()));
+    }
+
+    buffer.append("# HELP jitaccess_cache_evictions_total Cache entries removed because they expired or the cache was full.\n");
+    buffer.append("# TYPE jitaccess_cache_evictions_total counter\n");
+    for (var cache : caches.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_cache_evictions_total{cache=\"%s\"} %d\n",
+        escape(cache.getKey()),
+        cache.getValue().evictions()));
+    }
+
+    buffer.append("# HELP jitaccess_cache_invalidations_total Cache entries removed because the underlying data changed.\n");
+    buffer.append("# TYPE jitaccess_cache_invalidations_total counter\n");
+    for (var cache : caches.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_cache_invalidations_total{cache=\"%s\"} %d\n",
+        escape(cache.getKey()),
+        cache.getValue().invalidations()));
+    }
+
+    buffer.append("# HELP jitaccess_cache_refreshes_total Cache entries reloaded in the background ahead of their expiry.\n");
+    buffer.append("# TYPE jitaccess_cache_refreshes_total counter\n");
+    for (var cache : caches.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_cache_refreshes_total{cache=\"%s\"} %d\n",
+        escape(cache.getKey()),
+        cache.getValue().refreshes()));
+    }
+
+    buffer.append("# HELP jitaccess_cache_stale_hits_total Cache lookups served with entries that were due for a refresh.\n");
+    buffer.append("# TYPE jitaccess_cache_stale_hits_total counter\n");
+    for (var cache : caches.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_cache_stale_hits_total{cache=\"%s\"} %d\n",
+        escape(cache.getKey()),
+        cache.getValue().staleHits()));
+    }
+
+    buffer.append("# HELP jitaccess_cache_size Entries in the cache.\n");
+    buffer.append("# TYPE jitaccess_cache_size gauge\n");
+    for (var cache : caches.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_cache_size{cache=\"%s\"} %d\n",
+        escape(cache.getKey()),
+        cache.getValue().size()));
+    }
+
+    buffer.append("# HELP jitaccess_cache_hit_age_seconds Age of cache entries at the time they were served.\n");
+    buffer.append("# TYPE jitaccess_cache_hit_age_seconds summary\n");
+    for (var cache : caches.entrySet()) {
+      buffer.append(String.format(
+        "jitaccess_cache_hit_age_seconds_sum{cache=\"%s\"} %s\n",
+        escape(cache.getKey()),
+        seconds(cache.getValue().totalHitAge().toNanos() / 1_000_000.0)));
+      buffer.append(String.format(
+        "jitaccess_cache_hit_age_seconds_count{cache=\"%s\"} %d\n",
+        escape(cache.getKey()),
+        cache.getValue().hits()));
+    }
+
+    var credentials = this.credentialsRefresher.statistics();
+    if (credentials.tokenAge() != null) {
+      buffer.append("# HELP jitaccess_credentials_token_age_seconds Time since the application's access token was refreshed.\n");
+      buffer.append("# TYPE jitaccess_credentials_token_age_seconds gauge\n");
+      buffer.append(String.format(
+        "jitaccess_credentials_token_age_seconds %s\n",
+        seconds(credentials.tokenAge().toMillis())));
+    }
+
+    if (credentials.lastRefreshLatency() != null) {
+      buffer.append("# HELP jitaccess_credentials_refresh_duration_seconds Time the last refresh of the application's access token took.\n");
+      buffer.append("# TYPE jitaccess_credentials_refresh_duration_seconds gauge\n");
+      buffer.append(String.format(
+        "jitaccess_credentials_refresh_duration_seconds %s\n",
+        seconds(credentials.lastRefreshLatency().toMillis())));
+    }
+
+    buffer.append("# HELP jitaccess_credentials_refreshes_total Refreshes of the application's access token.\n");
+    buffer.append("# TYPE jitaccess_credentials_refreshes_total counter\n");
+    buffer.append(String.format(
+      "jitaccess_credentials_refreshes_total{result=\"success\"} %d\n",
+      credentials.refreshes()));
+    buffer.append(String.format(
+      "jitaccess_credentials_refreshes_total{result=\"failure\"} %d\n",
+      credentials.failedRefreshes()));
+
+    return buffer.toString();
+  }
+}
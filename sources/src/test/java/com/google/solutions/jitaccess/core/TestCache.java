@@ -0,0 +1,358 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCache {
+  private static final Cache.Options OPTIONS = new Cache.Options(Duration.ofSeconds(10), 2);
+
+  private static class FakeClock {
+    private long nanos = 0;
+
+    void advance(@NotNull Duration duration) {
+      this.nanos += duration.toNanos();
+    }
+
+    <K, V> @NotNull Cache<K, V> newCache(@NotNull Cache.Options options) {
+      return new Cache<>(options, () -> this.nanos);
+    }
+  }
+
+  //---------------------------------------------------------------------------
+  // getIfPresent.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenKeyNotCached_ThenGetIfPresentReturnsEmpty() {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+    assertEquals(1, cache.statistics().misses());
+  }
+
+  @Test
+  public void whenKeyCached_ThenGetIfPresentReturnsValue() {
+    var clock = new FakeClock();
+    var cache = clock.<String, String>newCache(OPTIONS);
+
+    cache.put("key", "value");
+    clock.advance(Duration.ofSeconds(4));
+
+    assertEquals(Optional.of("value"), cache.getIfPresent("key"));
+    assertEquals(
+      new Cache.Statistics(1, 0, 0, 0, 0, 0, 1, Duration.ofSeconds(4)),
+      cache.statistics());
+  }
+
+  @Test
+  public void whenEntryExpired_ThenGetIfPresentReturnsEmpty() {
+    var clock = new FakeClock();
+    var cache = clock.<String, String>newCache(OPTIONS);
+
+    cache.put("key", "value");
+    clock.advance(Duration.ofSeconds(10));
+
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+    assertEquals(
+      new Cache.Statistics(0, 1, 1, 0, 0, 0, 0, Duration.ZERO),
+      cache.statistics());
+  }
+
+  //---------------------------------------------------------------------------
+  // put.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenCacheFull_ThenPutEvictsLeastRecentlyUsedEntry() {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+
+    cache.put("key-1", "value-1");
+    cache.put("key-2", "value-2");
+    cache.getIfPresent("key-1");
+    cache.put("key-3", "value-3");
+
+    assertTrue(cache.getIfPresent("key-1").isPresent());
+    assertFalse(cache.getIfPresent("key-2").isPresent());
+    assertTrue(cache.getIfPresent("key-3").isPresent());
+    assertEquals(1, cache.statistics().evictions());
+  }
+
+  @Test
+  public void whenCacheDisabled_ThenPutIsIgnored() {
+    var cache = new FakeClock().<String, String>newCache(Cache.Options.DISABLED);
+
+    cache.put("key", "value");
+
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+    assertEquals(0, cache.statistics().size());
+  }
+
+  //---------------------------------------------------------------------------
+  // get.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenKeyCached_ThenGetReturnsValueWithoutLoading() throws Exception {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+    var loads = new AtomicInteger();
+
+    assertEquals("value", cache.get("key", () -> { loads.incrementAndGet(); return "value"; }));
+    assertEquals("value", cache.get("key", () -> { loads.incrementAndGet(); return "other"; }));
+
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void whenLoadFails_ThenGetDoesNotCacheResult() {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+
+    assertThrows(
+      AccessDeniedException.class,
+      () -> cache.get("key", () -> { throw new AccessDeniedException("mock"); }));
+    assertEquals(0, cache.statistics().size());
+  }
+
+  //---------------------------------------------------------------------------
+  // execute.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenKeyCached_ThenExecuteReturnsValueWithoutLoading() throws Exception {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+    var loads = new AtomicInteger();
+
+    assertEquals("value", cache.execute("key", () -> {
+      loads.incrementAndGet();
+      return CompletableFuture.completedFuture("value");
+    }).get());
+    assertEquals("value", cache.execute("key", () -> {
+      loads.incrementAndGet();
+      return CompletableFuture.completedFuture("other");
+    }).get());
+
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void whenLoadFails_ThenExecuteDoesNotCacheResult() {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+
+    var future = cache.execute(
+      "key",
+      () -> CompletableFuture.failedFuture(new AccessDeniedException("mock")));
+
+    assertTrue(future.isCompletedExceptionally());
+    assertEquals(0, cache.statistics().size());
+  }
+
+  @Test
+  public void whenInvalidatedDuringLoad_ThenExecuteDoesNotCacheResult() throws Exception {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+    var pending = new CompletableFuture<String>();
+
+    var future = cache.execute("key", () -> pending);
+    cache.invalidate("key");
+    pending.complete("outdated");
+
+    assertEquals("outdated", future.get());
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+  }
+
+  @Test
+  public void whenOtherKeyInvalidatedDuringLoad_ThenExecuteCachesResult() throws Exception {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+    var pending = new CompletableFuture<String>();
+
+    var future = cache.execute("key", () -> pending);
+    cache.invalidate("other-key");
+    cache.update("other-key", value -> value + "-updated");
+    pending.complete("value");
+
+    assertEquals("value", future.get());
+    assertEquals(Optional.of("value"), cache.getIfPresent("key"));
+  }
+
+  @Test
+  public void whenInvalidatedBeforeLoad_ThenExecuteCachesResult() throws Exception {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+
+    cache.invalidate("key");
+    assertEquals("value", cache.execute("key", () -> CompletableFuture.completedFuture("value")).get());
+
+    assertEquals(Optional.of("value"), cache.getIfPresent("key"));
+  }
+
+  @Test
+  public void whenInvalidatedDuringOneOfTwoLoads_ThenExecuteCachesResultOfLaterLoad() throws Exception {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+    var first = new CompletableFuture<String>();
+    var second = new CompletableFuture<String>();
+
+    cache.execute("key", () -> first);
+    cache.invalidate("key");
+    cache.execute("key", () -> second);
+
+    first.complete("outdated");
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+
+    second.complete("current");
+    assertEquals(Optional.of("current"), cache.getIfPresent("key"));
+  }
+
+  @Test
+  public void whenEntryDueForRefresh_ThenExecuteReturnsCachedValueAndRefreshes() throws Exception {
+    var clock = new FakeClock();
+    var cache = clock.<String, String>newCache(
+      new Cache.Options(Duration.ofSeconds(10), 2, Duration.ofSeconds(5)));
+    var pending = new CompletableFuture<String>();
+
+    cache.put("key", "old");
+    clock.advance(Duration.ofSeconds(6));
+
+    assertEquals("old", cache.execute("key", () -> pending).get());
+    assertEquals("old", cache.execute("key", () -> CompletableFuture.completedFuture("other")).get());
+    assertEquals(1, cache.statistics().refreshes());
+    assertEquals(2, cache.statistics().staleHits());
+
+    pending.complete("new");
+
+    assertEquals(Optional.of("new"), cache.getIfPresent("key"));
+  }
+
+  @Test
+  public void whenEntryNotDueForRefresh_ThenExecuteReturnsCachedValue() throws Exception {
+    var clock = new FakeClock();
+    var cache = clock.<String, String>newCache(
+      new Cache.Options(Duration.ofSeconds(10), 2, Duration.ofSeconds(5)));
+
+    cache.put("key", "old");
+    clock.advance(Duration.ofSeconds(4));
+
+    assertEquals("old", cache.execute("key", () -> CompletableFuture.completedFuture("new")).get());
+    assertEquals(0, cache.statistics().refreshes());
+    assertEquals(0, cache.statistics().staleHits());
+  }
+
+  @Test
+  public void whenEntryExpiredBeforeRefresh_ThenExecuteLoadsValue() throws Exception {
+    var clock = new FakeClock();
+    var cache = clock.<String, String>newCache(
+      new Cache.Options(Duration.ofSeconds(10), 2, Duration.ofSeconds(5)));
+
+    cache.put("key", "old");
+    clock.advance(Duration.ofSeconds(10));
+
+    var pending = new CompletableFuture<String>();
+    var future = cache.execute("key", () -> pending);
+    assertFalse(future.isDone());
+
+    pending.complete("new");
+
+    assertEquals("new", future.get());
+    assertEquals(0, cache.statistics().staleHits());
+  }
+
+  @Test
+  public void whenRefreshFails_ThenExecuteKeepsCachedValue() throws Exception {
+    var clock = new FakeClock();
+    var cache = clock.<String, String>newCache(
+      new Cache.Options(Duration.ofSeconds(10), 2, Duration.ofSeconds(5)));
+
+    cache.put("key", "old");
+    clock.advance(Duration.ofSeconds(6));
+
+    assertEquals("old", cache.execute(
+      "key",
+      () -> CompletableFuture.failedFuture(new AccessDeniedException("mock"))).get());
+    assertEquals("old", cache.execute(
+      "key",
+      () -> { throw new IllegalStateException("mock"); }).get());
+
+    assertEquals(2, cache.statistics().refreshes());
+    assertEquals(Optional.of("old"), cache.getIfPresent("key"));
+  }
+
+  //---------------------------------------------------------------------------
+  // invalidate.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenKeyCached_ThenInvalidateRemovesEntry() {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+
+    cache.put("key", "value");
+    cache.invalidate("key");
+
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+    assertEquals(1, cache.statistics().invalidations());
+  }
+
+  //---------------------------------------------------------------------------
+  // update.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenKeyCached_ThenUpdateReplacesValueAndRetainsExpiry() {
+    var clock = new FakeClock();
+    var cache = clock.<String, String>newCache(OPTIONS);
+
+    cache.put("key", "value");
+    clock.advance(Duration.ofSeconds(6));
+    cache.update("key", value -> value + "-updated");
+
+    assertEquals(Optional.of("value-updated"), cache.getIfPresent("key"));
+
+    clock.advance(Duration.ofSeconds(4));
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+  }
+
+  @Test
+  public void whenKeyNotCached_ThenUpdateIsIgnored() {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+
+    cache.update("key", value -> value + "-updated");
+
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+  }
+
+  @Test
+  public void whenUpdatedDuringLoad_ThenExecuteDoesNotCacheResult() throws Exception {
+    var cache = new FakeClock().<String, String>newCache(OPTIONS);
+    var pending = new CompletableFuture<String>();
+
+    var future = cache.execute("key", () -> pending);
+    cache.update("key", value -> value + "-updated");
+    pending.complete("outdated");
+
+    assertEquals("outdated", future.get());
+    assertEquals(Optional.empty(), cache.getIfPresent("key"));
+  }
+}
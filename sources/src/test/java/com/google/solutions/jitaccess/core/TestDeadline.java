@@ -0,0 +1,155 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDeadline {
+  private static class FakeClock {
+    private long nanos = 0;
+
+    @NotNull Deadline newDeadline(@NotNull Duration timeout) {
+      return new Deadline(() -> this.nanos, timeout);
+    }
+
+    void advance(@NotNull Duration duration) {
+      this.nanos += duration.toNanos();
+    }
+  }
+
+  //---------------------------------------------------------------------------
+  // remaining.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenTimePasses_ThenRemainingDecreases() {
+    var clock = new FakeClock();
+    var deadline = clock.newDeadline(Duration.ofSeconds(10));
+
+    assertEquals(Duration.ofSeconds(10), deadline.remaining());
+
+    clock.advance(Duration.ofSeconds(4));
+    assertEquals(Duration.ofSeconds(6), deadline.remaining());
+    assertFalse(deadline.isExpired());
+  }
+
+  @Test
+  public void whenExpired_ThenRemainingIsZero() {
+    var clock = new FakeClock();
+    var deadline = clock.newDeadline(Duration.ofSeconds(10));
+
+    clock.advance(Duration.ofSeconds(11));
+    assertEquals(Duration.ZERO, deadline.remaining());
+    assertTrue(deadline.isExpired());
+  }
+
+  //---------------------------------------------------------------------------
+  // checkNotExpired.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenNotExpired_ThenCheckNotExpiredReturns() throws Exception {
+    var clock = new FakeClock();
+    clock.newDeadline(Duration.ofSeconds(1)).checkNotExpired();
+  }
+
+  @Test
+  public void whenExpired_ThenCheckNotExpiredThrowsException() {
+    var clock = new FakeClock();
+    var deadline = clock.newDeadline(Duration.ofSeconds(1));
+
+    clock.advance(Duration.ofSeconds(1));
+    assertThrows(
+      DeadlineExceededException.class,
+      () -> deadline.checkNotExpired());
+  }
+
+  //---------------------------------------------------------------------------
+  // enter.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenScopeClosed_ThenPreviousDeadlineIsRestored() {
+    var outer = Deadline.after(Duration.ofSeconds(10));
+    var inner = Deadline.after(Duration.ofSeconds(1));
+
+    assertNull(Deadline.current());
+
+    try (var outerScope = Deadline.enter(outer)) {
+      assertSame(outer, Deadline.current());
+
+      try (var innerScope = Deadline.enter(inner)) {
+        assertSame(inner, Deadline.current());
+      }
+
+      assertSame(outer, Deadline.current());
+    }
+
+    assertNull(Deadline.current());
+  }
+
+  //---------------------------------------------------------------------------
+  // propagate.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenTaskSubmitted_ThenPropagateCarriesDeadlineOver() {
+    var deadline = Deadline.after(Duration.ofSeconds(10));
+    var observed = new AtomicReference<Deadline>();
+
+    //
+    // Run tasks on a separate thread, but synchronously.
+    //
+    Executor executor = task -> {
+      var thread = new Thread(task);
+      thread.start();
+      try {
+        thread.join();
+      }
+      catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    };
+
+    try (var scope = Deadline.enter(deadline)) {
+      Deadline.propagate(executor).execute(() -> observed.set(Deadline.current()));
+    }
+
+    assertSame(deadline, observed.get());
+  }
+
+  @Test
+  public void whenNoDeadline_ThenPropagateRunsTaskWithoutDeadline() {
+    var observed = new AtomicReference<Deadline>(Deadline.after(Duration.ZERO));
+
+    Deadline.propagate(Runnable::run).execute(() -> observed.set(Deadline.current()));
+
+    assertNull(observed.get());
+  }
+}
@@ -0,0 +1,290 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSingleFlight {
+
+  //---------------------------------------------------------------------------
+  // execute.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenIdenticalCallInFlight_ThenExecuteJoinsCall() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+    var pending = new CompletableFuture<String>();
+    var calls = new AtomicInteger();
+
+    var first = singleFlight.execute("key", () -> { calls.incrementAndGet(); return pending; });
+    var second = singleFlight.execute("key", () -> { calls.incrementAndGet(); return pending; });
+
+    assertFalse(first.isDone());
+    assertFalse(second.isDone());
+
+    pending.complete("result");
+
+    assertEquals("result", first.get());
+    assertEquals("result", second.get());
+    assertEquals(1, calls.get());
+    assertEquals(new SingleFlight.Statistics(1, 1), singleFlight.statistics());
+  }
+
+  @Test
+  public void whenDifferentCallInFlight_ThenExecuteIssuesCall() {
+    var singleFlight = new SingleFlight<String, String>();
+    var calls = new AtomicInteger();
+
+    singleFlight.execute("key-1", () -> { calls.incrementAndGet(); return new CompletableFuture<>(); });
+    singleFlight.execute("key-2", () -> { calls.incrementAndGet(); return new CompletableFuture<>(); });
+
+    assertEquals(2, calls.get());
+    assertEquals(new SingleFlight.Statistics(2, 0), singleFlight.statistics());
+  }
+
+  @Test
+  public void whenIdenticalCallCompleted_ThenExecuteIssuesCall() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+
+    assertEquals("first", singleFlight.execute("key", () -> CompletableFuture.completedFuture("first")).get());
+    assertEquals("second", singleFlight.execute("key", () -> CompletableFuture.completedFuture("second")).get());
+
+    assertEquals(new SingleFlight.Statistics(2, 0), singleFlight.statistics());
+  }
+
+  @Test
+  public void whenCallFails_ThenExecutePropagatesExceptionToAllCallers() {
+    var singleFlight = new SingleFlight<String, String>();
+    var pending = new CompletableFuture<String>();
+
+    var first = singleFlight.execute("key", () -> pending);
+    var second = singleFlight.execute("key", () -> pending);
+
+    pending.completeExceptionally(new AccessDeniedException("mock"));
+
+    var exception = assertThrows(ExecutionException.class, () -> first.get());
+    assertInstanceOf(AccessDeniedException.class, exception.getCause());
+
+    exception = assertThrows(ExecutionException.class, () -> second.get());
+    assertInstanceOf(AccessDeniedException.class, exception.getCause());
+  }
+
+  @Test
+  public void whenCallThrowsImmediately_ThenExecuteReturnsFailedFuture() {
+    var singleFlight = new SingleFlight<String, String>();
+
+    var future = singleFlight.execute("key", () -> { throw new IllegalStateException("mock"); });
+
+    assertTrue(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public void whenCallerCancelsFuture_ThenOtherCallersAreUnaffected() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+    var pending = new CompletableFuture<String>();
+
+    var first = singleFlight.execute("key", () -> pending);
+    var second = singleFlight.execute("key", () -> pending);
+
+    first.cancel(true);
+    pending.complete("result");
+
+    assertEquals("result", second.get());
+  }
+
+  //---------------------------------------------------------------------------
+  // executeAll.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenSomeKeysInFlight_ThenExecuteAllIssuesCallForOtherKeys() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+    var pending = new CompletableFuture<String>();
+    singleFlight.execute("key-1", () -> pending);
+
+    var batchKeys = new ArrayList<String>();
+    var futures = singleFlight.executeAll(
+      List.of("key-1", "key-2", "key-2"),
+      keys -> {
+        batchKeys.addAll(keys);
+        return Map.of("key-2", CompletableFuture.completedFuture("result-2"));
+      });
+
+    assertEquals(List.of("key-2"), batchKeys);
+    assertEquals(Set.of("key-1", "key-2"), futures.keySet());
+    assertEquals("result-2", futures.get("key-2").get());
+    assertFalse(futures.get("key-1").isDone());
+
+    pending.complete("result-1");
+
+    assertEquals("result-1", futures.get("key-1").get());
+    assertEquals(new SingleFlight.Statistics(2, 1), singleFlight.statistics());
+  }
+
+  @Test
+  public void whenAllKeysInFlight_ThenExecuteAllDoesNotIssueCall() {
+    var singleFlight = new SingleFlight<String, String>();
+    singleFlight.execute("key", () -> new CompletableFuture<>());
+
+    var calls = new AtomicInteger();
+    var futures = singleFlight.executeAll(
+      List.of("key"),
+      keys -> { calls.incrementAndGet(); return Map.of(); });
+
+    assertEquals(Set.of("key"), futures.keySet());
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void whenBatchCallOmitsKey_ThenExecuteAllFailsKey() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+
+    var futures = singleFlight.executeAll(
+      List.of("key-1", "key-2"),
+      keys -> Map.of("key-1", CompletableFuture.completedFuture("result-1")));
+
+    assertEquals("result-1", futures.get("key-1").get());
+
+    var exception = assertThrows(ExecutionException.class, () -> futures.get("key-2").get());
+    assertInstanceOf(IOException.class, exception.getCause());
+
+    //
+    // The failed key must not remain in flight.
+    //
+    assertEquals(
+      "retry",
+      singleFlight.execute("key-2", () -> CompletableFuture.completedFuture("retry")).get());
+  }
+
+  @Test
+  public void whenBatchCallThrowsImmediately_ThenExecuteAllFailsAllKeys() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+
+    var futures = singleFlight.executeAll(
+      List.of("key-1", "key-2"),
+      keys -> { throw new IllegalStateException("mock"); });
+
+    assertTrue(futures.get("key-1").isCompletedExceptionally());
+    assertTrue(futures.get("key-2").isCompletedExceptionally());
+    assertEquals(
+      "retry",
+      singleFlight.execute("key-1", () -> CompletableFuture.completedFuture("retry")).get());
+  }
+
+  //---------------------------------------------------------------------------
+  // get.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenIdenticalCallInFlight_ThenGetWaitsForCall() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+    var pending = new CompletableFuture<String>();
+
+    singleFlight.execute("key", () -> pending);
+
+    var follower = CompletableFuture.supplyAsync(
+      () -> {
+        try {
+          return singleFlight.get("key", () -> "not coalesced");
+        }
+        catch (AccessException | IOException e) {
+          throw new RuntimeException(e);
+        }
+      },
+      ForkJoinPool.commonPool());
+
+    while (singleFlight.statistics().coalesced() == 0) {
+      Thread.sleep(10);
+    }
+
+    pending.complete("result");
+
+    assertEquals("result", follower.get());
+    assertEquals(new SingleFlight.Statistics(1, 1), singleFlight.statistics());
+  }
+
+  @Test
+  public void whenCallFails_ThenGetPropagatesException() {
+    var singleFlight = new SingleFlight<String, String>();
+
+    assertThrows(
+      AccessDeniedException.class,
+      () -> singleFlight.get("key", () -> { throw new AccessDeniedException("mock"); }));
+    assertThrows(
+      IOException.class,
+      () -> singleFlight.get("key", () -> { throw new IOException("mock"); }));
+
+    assertEquals(new SingleFlight.Statistics(2, 0), singleFlight.statistics());
+  }
+
+  @Test
+  public void whenIdenticalCallFailed_ThenGetIssuesNewCall() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+    var pending = new CompletableFuture<String>();
+
+    singleFlight.execute("key", () -> pending);
+    pending.completeExceptionally(new AccessDeniedException("mock"));
+
+    assertEquals("result", singleFlight.get("key", () -> "result"));
+  }
+
+  @Test
+  public void whenCallThrowsError_ThenGetIssuesNewCall() throws Exception {
+    var singleFlight = new SingleFlight<String, String>();
+
+    assertThrows(
+      AssertionError.class,
+      () -> singleFlight.get("key", () -> { throw new AssertionError("mock"); }));
+
+    assertEquals("result", singleFlight.get("key", () -> "result"));
+    assertEquals(new SingleFlight.Statistics(2, 0), singleFlight.statistics());
+  }
+
+  @Test
+  public void whenDeadlineExpires_ThenGetStopsWaiting() {
+    var singleFlight = new SingleFlight<String, String>();
+    var pending = new CompletableFuture<String>();
+
+    singleFlight.execute("key", () -> pending);
+
+    try (var scope = Deadline.enter(Deadline.after(Duration.ofMillis(10)))) {
+      assertThrows(
+        DeadlineExceededException.class,
+        () -> singleFlight.get("key", () -> "not coalesced"));
+    }
+
+    assertEquals(new SingleFlight.Statistics(1, 1), singleFlight.statistics());
+  }
+}
@@ -26,6 +26,8 @@ import com.google.solutions.jitaccess.core.catalog.project.TestAssetInventoryRep
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -75,4 +77,15 @@ public class TestThrowingCompletableFuture {
       IOException.class,
       () -> ThrowingCompletableFuture.awaitAndRethrow(future));
   }
+
+  @Test
+  public void whenDeadlineExpires_ThenAwaitAndRethrowThrowsException() {
+    var future = new CompletableFuture<String>();
+
+    assertThrows(
+      DeadlineExceededException.class,
+      () -> ThrowingCompletableFuture.awaitAndRethrow(
+        future,
+        Deadline.after(Duration.ofMillis(10))));
+  }
 }
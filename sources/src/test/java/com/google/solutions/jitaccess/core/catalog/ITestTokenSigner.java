@@ -24,6 +24,7 @@ package com.google.solutions.jitaccess.core.catalog;
 import com.google.api.client.json.webtoken.JsonWebToken;
 import com.google.auth.oauth2.TokenVerifier;
 import com.google.solutions.jitaccess.core.auth.UserId;
+import com.google.solutions.jitaccess.core.clients.ClientFactory;
 import com.google.solutions.jitaccess.core.clients.HttpTransport;
 import com.google.solutions.jitaccess.core.clients.ITestEnvironment;
 import com.google.solutions.jitaccess.core.clients.IamCredentialsClient;
@@ -31,6 +32,7 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -54,7 +56,7 @@ public class ITestTokenSigner {
   public void signAddsObligatoryClaims() throws Exception {
     var credentialsAdapter = new IamCredentialsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
     var serviceAccount = ITestEnvironment.NO_ACCESS_USER;
 
     var tokenSignerOptions = new TokenSigner.Options(serviceAccount, Duration.ofMinutes(5));
@@ -99,7 +101,7 @@ public class ITestTokenSigner {
   public void whenJwtMissesAudienceClaim_ThenVerifyThrowsException() throws Exception {
     var credentialsAdapter = new IamCredentialsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
     var serviceAccount = ITestEnvironment.NO_ACCESS_USER;
 
     var tokenSigner = new TokenSigner(
@@ -121,7 +123,7 @@ public class ITestTokenSigner {
   public void whenJwtMissesIssuerClaim_ThenVerifyThrowsException() throws Exception {
     var credentialsAdapter = new IamCredentialsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
     var serviceAccount = ITestEnvironment.NO_ACCESS_USER;
 
     var tokenSigner = new TokenSigner(
@@ -144,7 +146,7 @@ public class ITestTokenSigner {
   public void whenJwtSignedByWrongServiceAccount_ThenVerifyThrowsException() throws Exception {
     var credentialsAdapter = new IamCredentialsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
     var serviceAccount = ITestEnvironment.TEMPORARY_ACCESS_USER;
 
     var tokenSigner = new TokenSigner(
@@ -168,7 +170,7 @@ public class ITestTokenSigner {
   public void whenJwtValid_ThenVerifySucceeds() throws Exception {
     var credentialsAdapter = new IamCredentialsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
     var serviceAccount = ITestEnvironment.NO_ACCESS_USER;
 
     var tokenSigner = new TokenSigner(
@@ -217,6 +217,27 @@ public class TestEntitlementActivator {
       () -> activator.activate(requestingUserContext, request));
   }
 
+  @Test
+  public void whenActivationSucceeds_ThenActivateNotifiesCatalog() throws Exception {
+    var catalog = Mockito.mock(Catalog.class);
+    var requestingUserContext = new UserContext(SAMPLE_REQUESTING_USER);
+
+    var activator = new SampleActivator(
+      catalog,
+      Mockito.mock(JustificationPolicy.class));
+
+    var request = activator.createJitRequest(
+      requestingUserContext,
+      Set.of(new SampleEntitlementId("cat", "1")),
+      "justification",
+      Instant.now(),
+      Duration.ofMinutes(5));
+
+    var activation = activator.activate(requestingUserContext, request);
+
+    verify(catalog, times(1)).onRequestProvisioned(eq(request), eq(activation));
+  }
+
   // -------------------------------------------------------------------------
   // approve (MPA).
   // -------------------------------------------------------------------------
@@ -0,0 +1,71 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestEntitlementSet {
+  private static final SampleEntitlementId SAMPLE_ENTITLEMENT_1 = new SampleEntitlementId("cat", "1");
+  private static final SampleEntitlementId SAMPLE_ENTITLEMENT_2 = new SampleEntitlementId("cat", "2");
+
+  // -------------------------------------------------------------------------
+  // withActivation.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenActivationIsValid_ThenWithActivationAddsCurrentActivation() {
+    var expired = new Activation(Instant.now().minus(Duration.ofHours(2)), Duration.ofHours(1));
+    var set = new EntitlementSet<SampleEntitlementId>(
+      new TreeSet<>(Set.of(new Entitlement<>(SAMPLE_ENTITLEMENT_1, "-", ActivationType.JIT))),
+      Map.of(),
+      Map.of(SAMPLE_ENTITLEMENT_1, expired),
+      Set.of("warning"));
+
+    var activation = new Activation(Instant.now(), Duration.ofMinutes(5));
+    var updated = set.withActivation(List.of(SAMPLE_ENTITLEMENT_1), activation);
+
+    assertEquals(set.available(), updated.available());
+    assertEquals(Map.of(SAMPLE_ENTITLEMENT_1, activation), updated.currentActivations());
+    assertEquals(Map.of(), updated.expiredActivations());
+    assertEquals(set.warnings(), updated.warnings());
+  }
+
+  @Test
+  public void whenActivationHasExpired_ThenWithActivationAddsExpiredActivation() {
+    var set = EntitlementSet.<SampleEntitlementId>empty();
+
+    var activation = new Activation(Instant.now().minus(Duration.ofHours(2)), Duration.ofHours(1));
+    var updated = set.withActivation(List.of(SAMPLE_ENTITLEMENT_2), activation);
+
+    assertEquals(Map.of(), updated.currentActivations());
+    assertEquals(Map.of(SAMPLE_ENTITLEMENT_2, activation), updated.expiredActivations());
+  }
+}
@@ -34,20 +34,27 @@ import com.google.solutions.jitaccess.core.catalog.ActivationType;
 import com.google.solutions.jitaccess.core.catalog.ProjectId;
 import com.google.solutions.jitaccess.core.clients.AssetInventoryClient;
 import com.google.solutions.jitaccess.core.clients.DirectoryGroupsClient;
+import com.google.solutions.jitaccess.core.clients.PagedIterator;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Executor;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TestAssetInventoryRepository {
@@ -56,12 +63,28 @@ public class TestAssetInventoryRepository {
   private static final String JIT_CONDITION = "has({}.jitAccessConstraint)";
   private static final String MPA_CONDITION = "has({}.multiPartyApprovalConstraint)";
 
-  private class SynchronousExecutor implements Executor {
-
-    @Override
-    public void execute(Runnable command) {
-      command.run();
-    }
+  private static DirectoryGroupsClient createGroupsClient() {
+    var groupsClient = Mockito.mock(DirectoryGroupsClient.class);
+    when(groupsClient
+      .listDirectGroupMembershipsAsync(any()))
+      .thenReturn(CompletableFuture.completedFuture(List.of()));
+    when(groupsClient
+      .iterateDirectGroupMemberships(any()))
+      .thenAnswer(invocation -> new PagedIterator<Group>(
+        pageToken -> new PagedIterator.Page<>(List.of(), null),
+        null,
+        Runnable::run));
+    when(groupsClient
+      .listDirectGroupMembersAsync(any()))
+      .thenReturn(CompletableFuture.completedFuture(List.of()));
+    when(groupsClient
+      .batchListDirectGroupMembersAsync(any()))
+      .thenAnswer(invocation -> ((Collection<String>)invocation.getArgument(0))
+        .stream()
+        .collect(Collectors.toMap(
+          groupEmail -> groupEmail,
+          groupEmail -> CompletableFuture.completedFuture(List.of()))));
+    return groupsClient;
   }
 
   //---------------------------------------------------------------------------
@@ -72,14 +95,13 @@ public class TestAssetInventoryRepository {
   public void whenEffectiveIamPoliciesEmpty_ThenFindProjectBindingsReturnsEmptyList() throws Exception {
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of());
+      .thenReturn(CompletableFuture.completedFuture(List.of()));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
-      Mockito.mock(DirectoryGroupsClient.class),
+      createGroupsClient(),
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
 
@@ -105,21 +127,20 @@ public class TestAssetInventoryRepository {
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource(SAMPLE_PROJECT.path())
           .setPolicy(new Policy()
             .setBindings(List.of(
               bindingForOtherUser,
               bindingForServiceAccount,
-              permanentBindingForGroup)))));
+              permanentBindingForGroup))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
-      Mockito.mock(DirectoryGroupsClient.class),
+      createGroupsClient(),
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
 
@@ -153,10 +174,10 @@ public class TestAssetInventoryRepository {
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource(SAMPLE_PROJECT.path())
           .setPolicy(new Policy()
@@ -164,11 +185,10 @@ public class TestAssetInventoryRepository {
               bindingForOtherUser,
               bindingForServiceAccount,
               permanentBindingForUser,
-              conditionalBindingForUser)))));
+              conditionalBindingForUser))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
-      Mockito.mock(DirectoryGroupsClient.class),
+      createGroupsClient(),
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
 
@@ -197,20 +217,24 @@ public class TestAssetInventoryRepository {
       .setRole("roles/for-other-group")
       .setMembers(List.of("group:other-group@example.com"));
 
-    var groupsClient = Mockito.mock(DirectoryGroupsClient.class);
+    var groupsClient = createGroupsClient();
     when(groupsClient
-      .listDirectGroupMemberships(eq(SAMPLE_USER)))
-      .thenReturn(List.of(
-        new Group().setEmail("GROUP-1@EXAMPLE.COM"), // Group names are case-insensitive
-        new Group().setEmail("group-2@example.com"),
-        new Group().setEmail("junk@example.com")));
+      .iterateDirectGroupMemberships(eq(SAMPLE_USER)))
+      .thenAnswer(invocation -> new PagedIterator<Group>(
+        pageToken -> new PagedIterator.Page<>(List.of(
+          new Group().setEmail("GROUP-1@EXAMPLE.COM"), // Group names are case-insensitive
+          new Group().setEmail("group-2@example.com"),
+          new Group().setEmail("junk@example.com")),
+          null),
+        null,
+        Runnable::run));
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource("organization/0")
           .setPolicy(new Policy()
@@ -221,10 +245,9 @@ public class TestAssetInventoryRepository {
           .setPolicy(new Policy()
             .setBindings(List.of(
               bindingForGroup2,
-              bindingForOtherGroup)))));
+              bindingForOtherGroup))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
       groupsClient,
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
@@ -242,6 +265,100 @@ public class TestAssetInventoryRepository {
       bindings.stream().map(Binding::getRole).collect(Collectors.toList()));
   }
 
+  @Test
+  public void whenCacheEnabled_ThenFindProjectBindingsUsesCachedPolicies() throws Exception {
+    var caiClient = Mockito.mock(AssetInventoryClient.class);
+    when(caiClient
+      .getEffectiveIamPoliciesAsync(
+        eq("organization/0"),
+        eq(SAMPLE_PROJECT)))
+      .thenReturn(CompletableFuture.completedFuture(List.of()));
+
+    var repository = new AssetInventoryRepository(
+      createGroupsClient(),
+      caiClient,
+      new AssetInventoryRepository.Options(
+        "organization/0",
+        new Cache.Options(Duration.ofMinutes(1), 10),
+        Cache.Options.DISABLED,
+        Cache.Options.DISABLED));
+
+    repository.findProjectBindings(SAMPLE_USER, SAMPLE_PROJECT);
+    repository.findProjectBindings(SAMPLE_USER, SAMPLE_PROJECT);
+
+    verify(caiClient, times(1)).getEffectiveIamPoliciesAsync(
+      eq("organization/0"),
+      eq(SAMPLE_PROJECT));
+  }
+
+  @Test
+  public void whenProjectInvalidated_ThenFindProjectBindingsReloadsPolicies() throws Exception {
+    var caiClient = Mockito.mock(AssetInventoryClient.class);
+    when(caiClient
+      .getEffectiveIamPoliciesAsync(
+        eq("organization/0"),
+        eq(SAMPLE_PROJECT)))
+      .thenReturn(CompletableFuture.completedFuture(List.of()));
+
+    var repository = new AssetInventoryRepository(
+      createGroupsClient(),
+      caiClient,
+      new AssetInventoryRepository.Options(
+        "organization/0",
+        new Cache.Options(Duration.ofMinutes(1), 10),
+        Cache.Options.DISABLED,
+        Cache.Options.DISABLED));
+
+    repository.findProjectBindings(SAMPLE_USER, SAMPLE_PROJECT);
+    repository.invalidate(SAMPLE_PROJECT);
+    repository.findProjectBindings(SAMPLE_USER, SAMPLE_PROJECT);
+
+    verify(caiClient, times(2)).getEffectiveIamPoliciesAsync(
+      eq("organization/0"),
+      eq(SAMPLE_PROJECT));
+    assertEquals(
+      1,
+      repository.cacheStatistics().get(AssetInventoryRepository.EFFECTIVE_IAM_POLICIES_CACHE).invalidations());
+  }
+
+  @Test
+  public void whenCacheEnabled_ThenFindProjectBindingsUsesCachedGroupMemberships() throws Exception {
+    var otherProject = new ProjectId("project-2");
+    var bindingForGroup = new Binding()
+      .setRole("roles/for-group")
+      .setMembers(List.of("group:group-1@example.com"));
+
+    var groupsClient = createGroupsClient();
+    when(groupsClient
+      .listDirectGroupMembershipsAsync(eq(SAMPLE_USER)))
+      .thenReturn(CompletableFuture.completedFuture(List.of(
+        new Group().setEmail("group-1@example.com"))));
+
+    var caiClient = Mockito.mock(AssetInventoryClient.class);
+    when(caiClient
+      .getEffectiveIamPoliciesAsync(eq("organization/0"), any()))
+      .thenReturn(CompletableFuture.completedFuture(List.of(
+        new PolicyInfo()
+          .setAttachedResource("organization/0")
+          .setPolicy(new Policy()
+            .setBindings(List.of(bindingForGroup))))));
+
+    var repository = new AssetInventoryRepository(
+      groupsClient,
+      caiClient,
+      new AssetInventoryRepository.Options(
+        "organization/0",
+        Cache.Options.DISABLED,
+        new Cache.Options(Duration.ofMinutes(1), 10),
+        Cache.Options.DISABLED));
+
+    assertEquals(1, repository.findProjectBindings(SAMPLE_USER, SAMPLE_PROJECT).size());
+    assertEquals(1, repository.findProjectBindings(SAMPLE_USER, otherProject).size());
+
+    verify(groupsClient, times(1)).listDirectGroupMembershipsAsync(eq(SAMPLE_USER));
+    verify(groupsClient, times(0)).iterateDirectGroupMemberships(any());
+  }
+
   //---------------------------------------------------------------------------
   // findEntitlements.
   //---------------------------------------------------------------------------
@@ -259,18 +376,17 @@ public class TestAssetInventoryRepository {
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource(SAMPLE_PROJECT.path())
           .setPolicy(new Policy()
-            .setBindings(List.of(jitBindingForUser, mpaBindingForUser)))));
+            .setBindings(List.of(jitBindingForUser, mpaBindingForUser))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
-      Mockito.mock(DirectoryGroupsClient.class),
+      createGroupsClient(),
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
 
@@ -318,21 +434,20 @@ public class TestAssetInventoryRepository {
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource(SAMPLE_PROJECT.path())
           .setPolicy(new Policy()
             .setBindings(List.of(
               jitBindingForUser,
               expiredActivationForUser1,
-              expiredActivationForUser2)))));
+              expiredActivationForUser2))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
-      Mockito.mock(DirectoryGroupsClient.class),
+      createGroupsClient(),
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
 
@@ -367,18 +482,17 @@ public class TestAssetInventoryRepository {
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource(SAMPLE_PROJECT.path())
           .setPolicy(new Policy()
-            .setBindings(List.of(jitBindingForUser, expiredActivationForUser)))));
+            .setBindings(List.of(jitBindingForUser, expiredActivationForUser))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
-      Mockito.mock(DirectoryGroupsClient.class),
+      createGroupsClient(),
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
 
@@ -413,18 +527,17 @@ public class TestAssetInventoryRepository {
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource(SAMPLE_PROJECT.path())
           .setPolicy(new Policy()
-            .setBindings(List.of(otherBinding1, otherBinding2)))));
+            .setBindings(List.of(otherBinding1, otherBinding2))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
-      Mockito.mock(DirectoryGroupsClient.class),
+      createGroupsClient(),
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
 
@@ -442,10 +555,10 @@ public class TestAssetInventoryRepository {
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource("organization/0")
           .setPolicy(new Policy()
@@ -459,11 +572,10 @@ public class TestAssetInventoryRepository {
             .setBindings(List.of(new Binding()
               .setRole(role.role())
               .setCondition(new Expr().setExpression(MPA_CONDITION))
-              .setMembers(List.of("user:user-2@example.com")))))));
+              .setMembers(List.of("user:user-2@example.com"))))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
-      Mockito.mock(DirectoryGroupsClient.class),
+      createGroupsClient(),
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
 
@@ -490,29 +602,29 @@ public class TestAssetInventoryRepository {
       .setCondition(new Expr().setExpression(MPA_CONDITION))
       .setMembers(List.of("group:unavailable-group@example.com"));
 
-    var groupsClient = Mockito.mock(DirectoryGroupsClient.class);
+    var groupsClient = createGroupsClient();
     when(groupsClient
-      .listDirectGroupMembers(eq("group@example.com")))
-      .thenReturn(List.of(
-        new Member().setEmail("user-1@example.com"),
-        new Member().setEmail("user-2@example.com")));
-    when(groupsClient
-      .listDirectGroupMembers(eq("unavailable-group@example.com")))
-      .thenThrow(new AccessDeniedException("mock"));
+      .batchListDirectGroupMembersAsync(any()))
+      .thenReturn(Map.of(
+        "group@example.com",
+        CompletableFuture.completedFuture(List.of(
+          new Member().setEmail("user-1@example.com"),
+          new Member().setEmail("user-2@example.com"))),
+        "unavailable-group@example.com",
+        CompletableFuture.failedFuture(new AccessDeniedException("mock"))));
 
     var caiClient = Mockito.mock(AssetInventoryClient.class);
     when(caiClient
-      .getEffectiveIamPolicies(
+      .getEffectiveIamPoliciesAsync(
         eq("organization/0"),
         eq(SAMPLE_PROJECT)))
-      .thenReturn(List.of(
+      .thenReturn(CompletableFuture.completedFuture(List.of(
         new PolicyInfo()
           .setAttachedResource(SAMPLE_PROJECT.path())
           .setPolicy(new Policy()
-            .setBindings(List.of(groupBinding, unavailableGroupBinding)))));
+            .setBindings(List.of(groupBinding, unavailableGroupBinding))))));
 
     var repository = new AssetInventoryRepository(
-      new SynchronousExecutor(),
       groupsClient,
       caiClient,
       new AssetInventoryRepository.Options("organization/0"));
@@ -526,4 +638,164 @@ public class TestAssetInventoryRepository {
       Set.of(new UserId("user-1@example.com"), new UserId("user-2@example.com")),
       holders);
   }
+
+  @Test
+  public void whenCacheEnabled_ThenFindEntitlementHoldersUsesCachedGroupMembers() throws Exception {
+    var role = new ProjectRole(SAMPLE_PROJECT, "roles/role-1");
+
+    var groupBinding = new Binding()
+      .setRole(role.role())
+      .setCondition(new Expr().setExpression(MPA_CONDITION))
+      .setMembers(List.of("group:group@example.com", "group:external-group@example.com"));
+
+    var groupsClient = createGroupsClient();
+    when(groupsClient
+      .batchListDirectGroupMembersAsync(any()))
+      .thenAnswer(invocation -> Map.of(
+        "group@example.com",
+        CompletableFuture.completedFuture(List.of(
+          new Member().setEmail("user-1@example.com"))),
+        "external-group@example.com",
+        CompletableFuture.failedFuture(new AccessDeniedException("mock"))));
+
+    var caiClient = Mockito.mock(AssetInventoryClient.class);
+    when(caiClient
+      .getEffectiveIamPoliciesAsync(
+        eq("organization/0"),
+        eq(SAMPLE_PROJECT)))
+      .thenReturn(CompletableFuture.completedFuture(List.of(
+        new PolicyInfo()
+          .setAttachedResource(SAMPLE_PROJECT.path())
+          .setPolicy(new Policy()
+            .setBindings(List.of(groupBinding))))));
+
+    var repository = new AssetInventoryRepository(
+      groupsClient,
+      caiClient,
+      new AssetInventoryRepository.Options(
+        "organization/0",
+        Cache.Options.DISABLED,
+        Cache.Options.DISABLED,
+        new Cache.Options(Duration.ofMinutes(1), 10),
+        new Cache.Options(Duration.ofMinutes(1), 10)));
+
+    assertEquals(
+      Set.of(new UserId("user-1@example.com")),
+      repository.findEntitlementHolders(role, ActivationType.MPA));
+    assertEquals(
+      Set.of(new UserId("user-1@example.com")),
+      repository.findEntitlementHolders(role, ActivationType.MPA));
+
+    verify(groupsClient, times(1)).batchListDirectGroupMembersAsync(any());
+    assertEquals(
+      1,
+      repository.cacheStatistics().get(AssetInventoryRepository.GROUP_MEMBERS_CACHE).size());
+    assertEquals(
+      1,
+      repository.cacheStatistics().get(AssetInventoryRepository.INACCESSIBLE_GROUPS_CACHE).size());
+  }
+
+  @Test
+  public void whenInaccessibleGroupsCacheDisabled_ThenFindEntitlementHoldersLooksUpInaccessibleGroupsAgain() throws Exception {
+    var role = new ProjectRole(SAMPLE_PROJECT, "roles/role-1");
+
+    var groupBinding = new Binding()
+      .setRole(role.role())
+      .setCondition(new Expr().setExpression(MPA_CONDITION))
+      .setMembers(List.of("group:group@example.com", "group:external-group@example.com"));
+
+    var groupsClient = createGroupsClient();
+    when(groupsClient
+      .batchListDirectGroupMembersAsync(any()))
+      .thenAnswer(invocation -> ((Collection<String>)invocation.getArgument(0))
+        .stream()
+        .collect(Collectors.toMap(
+          groupEmail -> groupEmail,
+          groupEmail -> groupEmail.equals("group@example.com")
+            ? CompletableFuture.<Collection<Member>>completedFuture(List.of(new Member().setEmail("user-1@example.com")))
+            : CompletableFuture.<Collection<Member>>failedFuture(new AccessDeniedException("mock")))));
+
+    var caiClient = Mockito.mock(AssetInventoryClient.class);
+    when(caiClient
+      .getEffectiveIamPoliciesAsync(
+        eq("organization/0"),
+        eq(SAMPLE_PROJECT)))
+      .thenReturn(CompletableFuture.completedFuture(List.of(
+        new PolicyInfo()
+          .setAttachedResource(SAMPLE_PROJECT.path())
+          .setPolicy(new Policy()
+            .setBindings(List.of(groupBinding))))));
+
+    var repository = new AssetInventoryRepository(
+      groupsClient,
+      caiClient,
+      new AssetInventoryRepository.Options(
+        "organization/0",
+        Cache.Options.DISABLED,
+        Cache.Options.DISABLED,
+        new Cache.Options(Duration.ofMinutes(1), 10),
+        Cache.Options.DISABLED));
+
+    assertEquals(
+      Set.of(new UserId("user-1@example.com")),
+      repository.findEntitlementHolders(role, ActivationType.MPA));
+    assertEquals(
+      Set.of(new UserId("user-1@example.com")),
+      repository.findEntitlementHolders(role, ActivationType.MPA));
+
+    verify(groupsClient, times(2)).batchListDirectGroupMembersAsync(any());
+    verify(groupsClient, times(1)).batchListDirectGroupMembersAsync(eq(List.of("external-group@example.com")));
+    assertEquals(
+      1,
+      repository.cacheStatistics().get(AssetInventoryRepository.GROUP_MEMBERS_CACHE).size());
+    assertEquals(
+      0,
+      repository.cacheStatistics().get(AssetInventoryRepository.INACCESSIBLE_GROUPS_CACHE).size());
+  }
+
+  @Test
+  public void whenBatchResultLacksGroup_ThenFindEntitlementHoldersThrowsException() throws Exception {
+    var role = new ProjectRole(SAMPLE_PROJECT, "roles/role-1");
+
+    var groupBinding = new Binding()
+      .setRole(role.role())
+      .setCondition(new Expr().setExpression(MPA_CONDITION))
+      .setMembers(List.of("group:group@example.com", "group:missing-group@example.com"));
+
+    var groupsClient = createGroupsClient();
+    when(groupsClient
+      .batchListDirectGroupMembersAsync(any()))
+      .thenAnswer(invocation -> Map.of(
+        "group@example.com",
+        CompletableFuture.completedFuture(List.of(
+          new Member().setEmail("user-1@example.com")))));
+
+    var caiClient = Mockito.mock(AssetInventoryClient.class);
+    when(caiClient
+      .getEffectiveIamPoliciesAsync(
+        eq("organization/0"),
+        eq(SAMPLE_PROJECT)))
+      .thenReturn(CompletableFuture.completedFuture(List.of(
+        new PolicyInfo()
+          .setAttachedResource(SAMPLE_PROJECT.path())
+          .setPolicy(new Policy()
+            .setBindings(List.of(groupBinding))))));
+
+    var repository = new AssetInventoryRepository(
+      groupsClient,
+      caiClient,
+      new AssetInventoryRepository.Options(
+        "organization/0",
+        Cache.Options.DISABLED,
+        Cache.Options.DISABLED,
+        new Cache.Options(Duration.ofMinutes(1), 10),
+        new Cache.Options(Duration.ofMinutes(1), 10)));
+
+    assertThrows(
+      IOException.class,
+      () -> repository.findEntitlementHolders(role, ActivationType.MPA));
+    assertEquals(
+      1,
+      repository.cacheStatistics().get(AssetInventoryRepository.GROUP_MEMBERS_CACHE).size());
+  }
 }
@@ -22,6 +22,7 @@
 package com.google.solutions.jitaccess.core.catalog.project;
 
 import com.google.solutions.jitaccess.core.AccessDeniedException;
+import com.google.solutions.jitaccess.core.Cache;
 import com.google.solutions.jitaccess.core.catalog.ProjectId;
 import com.google.solutions.jitaccess.core.auth.UserId;
 import com.google.solutions.jitaccess.core.catalog.*;
@@ -30,7 +31,9 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.eq;
@@ -51,7 +54,8 @@ public class TestMpaProjectRoleCatalog {
   public void whenDurationExceedsMax_ThenValidateRequestThrowsException() throws Exception {
     var catalog = new MpaProjectRoleCatalog(
       Mockito.mock(PolicyAnalyzerRepository.class),
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(30),
@@ -71,7 +75,8 @@ public class TestMpaProjectRoleCatalog {
   public void whenDurationBelowMin_ThenValidateRequestThrowsException() throws Exception {
     var catalog = new MpaProjectRoleCatalog(
       Mockito.mock(PolicyAnalyzerRepository.class),
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(30),
@@ -91,7 +96,8 @@ public class TestMpaProjectRoleCatalog {
   public void whenReviewersMissing_ThenValidateRequestThrowsException() throws Exception {
     var catalog = new MpaProjectRoleCatalog(
       Mockito.mock(PolicyAnalyzerRepository.class),
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(30),
@@ -112,7 +118,8 @@ public class TestMpaProjectRoleCatalog {
   public void whenNumberOfReviewersExceedsMax_ThenValidateRequestThrowsException() throws Exception {
     var catalog = new MpaProjectRoleCatalog(
       Mockito.mock(PolicyAnalyzerRepository.class),
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(30),
@@ -136,7 +143,8 @@ public class TestMpaProjectRoleCatalog {
   public void whenNumberOfReviewersBelowMin_ThenValidateRequestThrowsException() throws Exception {
     var catalog = new MpaProjectRoleCatalog(
       Mockito.mock(PolicyAnalyzerRepository.class),
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(30),
@@ -158,7 +166,8 @@ public class TestMpaProjectRoleCatalog {
   public void whenNumberOfReviewersOk_ThenValidateRequestReturns() throws Exception {
     var catalog = new MpaProjectRoleCatalog(
       Mockito.mock(PolicyAnalyzerRepository.class),
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(30),
@@ -184,7 +193,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(null, Duration.ofMinutes(30), 1, 2));
 
     when(policyAnalyzer
@@ -209,7 +219,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(null, Duration.ofMinutes(30), 1, 2));
 
     var mpaEntitlement = new Entitlement<>(
@@ -243,7 +254,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(null, Duration.ofMinutes(30), 1, 2));
 
     var requestingUserContext = new MpaProjectRoleCatalog.UserContext(SAMPLE_REQUESTING_USER);
@@ -267,7 +279,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(null, Duration.ofMinutes(30), 1, 2));
 
     var mpaEntitlement = new Entitlement<>(
@@ -307,7 +320,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(null, Duration.ofMinutes(30), 1, 2));
 
     var jitEntitlement = new Entitlement<>(
@@ -340,7 +354,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(null, Duration.ofMinutes(30), 1, 2));
 
     var jitEntitlement = new Entitlement<>(
@@ -379,7 +394,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(null, Duration.ofMinutes(30), 1, 2));
 
     var mpaEntitlement = new Entitlement<>(
@@ -413,7 +429,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(null, Duration.ofMinutes(30), 1, 2));
 
     var mpaEntitlement = new Entitlement<>(
@@ -458,7 +475,11 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       Mockito.mock(PolicyAnalyzerRepository.class),
-      resourceManager,
+      new ProjectListRefresher(
+        resourceManager,
+        new ProjectListRefresher.Options("query", Duration.ofMinutes(5)),
+        Mockito.mock(ScheduledExecutorService.class)),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         "query",
         Duration.ofMinutes(5),
@@ -487,7 +508,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         "",
         Duration.ofMinutes(5),
@@ -505,6 +527,56 @@ public class TestMpaProjectRoleCatalog {
       projects);
   }
 
+  @Test
+  public void whenProjectsCached_thenListScopesReturnsCachedProjects() throws Exception {
+    var repository = Mockito.mock(PolicyAnalyzerRepository.class);
+    when(repository.findProjectsWithEntitlements(eq(SAMPLE_REQUESTING_USER)))
+      .thenReturn(new TreeSet<>(Set.of(new ProjectId("project-1"))));
+
+    var catalog = new MpaProjectRoleCatalog(
+      repository,
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
+      new MpaProjectRoleCatalog.Options(
+        null,
+        Duration.ofMinutes(5),
+        1,
+        1,
+        Cache.Options.DISABLED,
+        new Cache.Options(Duration.ofMinutes(30), 10, Duration.ofMinutes(1))));
+
+    var requestingUserContext = new MpaProjectRoleCatalog.UserContext(SAMPLE_REQUESTING_USER);
+    catalog.listScopes(requestingUserContext);
+    var projects = catalog.listScopes(requestingUserContext);
+
+    assertIterableEquals(List.of(new ProjectId("project-1")), projects);
+    assertEquals(1, catalog.cacheStatistics().get(MpaProjectRoleCatalog.SCOPES_CACHE).hits());
+    verify(repository, times(1)).findProjectsWithEntitlements(any());
+  }
+
+  @Test
+  public void whenFindingProjectsFails_thenListScopesThrowsException() throws Exception {
+    var repository = Mockito.mock(PolicyAnalyzerRepository.class);
+    when(repository.findProjectsWithEntitlements(eq(SAMPLE_REQUESTING_USER)))
+      .thenThrow(new AccessDeniedException("mock"));
+
+    var catalog = new MpaProjectRoleCatalog(
+      repository,
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
+      new MpaProjectRoleCatalog.Options(
+        null,
+        Duration.ofMinutes(5),
+        1,
+        1,
+        Cache.Options.DISABLED,
+        new Cache.Options(Duration.ofMinutes(30), 10, Duration.ofMinutes(1))));
+
+    assertThrows(
+      AccessDeniedException.class,
+      () -> catalog.listScopes(new MpaProjectRoleCatalog.UserContext(SAMPLE_REQUESTING_USER)));
+  }
+
   //---------------------------------------------------------------------------
   // listEntitlements.
   //---------------------------------------------------------------------------
@@ -520,7 +592,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(5),
@@ -553,7 +626,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(5),
@@ -588,7 +662,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(5),
@@ -626,7 +701,8 @@ public class TestMpaProjectRoleCatalog {
 
     var catalog = new MpaProjectRoleCatalog(
       policyAnalyzer,
-      Mockito.mock(ResourceManagerClient.class),
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
       new MpaProjectRoleCatalog.Options(
         null,
         Duration.ofMinutes(5),
@@ -640,4 +716,73 @@ public class TestMpaProjectRoleCatalog {
       Set.of(SAMPLE_APPROVING_USER),
       reviewers);
   }
+
+  //---------------------------------------------------------------------------
+  // onRequestProvisioned.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenRequestProvisioned_ThenOnRequestProvisionedInvalidatesProject() {
+    var repository = Mockito.mock(AssetInventoryRepository.class);
+    var catalog = new MpaProjectRoleCatalog(
+      repository,
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
+      new MpaProjectRoleCatalog.Options(
+        null,
+        Duration.ofMinutes(5),
+        1,
+        1)
+    );
+
+    var request = Mockito.mock(ActivationRequest.class);
+    when(request.entitlements()).thenReturn(Set.of(new ProjectRole(SAMPLE_PROJECT, SAMPLE_ROLE)));
+
+    catalog.onRequestProvisioned(request, null);
+
+    verify(repository, times(1)).invalidate(eq(SAMPLE_PROJECT));
+  }
+
+  @Test
+  public void whenRequestProvisioned_ThenOnRequestProvisionedUpdatesCachedEntitlements() throws Exception {
+    var role = new ProjectRole(SAMPLE_PROJECT, SAMPLE_ROLE);
+    var repository = Mockito.mock(ProjectRoleRepository.class);
+    when(repository.findEntitlements(
+      eq(SAMPLE_REQUESTING_USER),
+      eq(SAMPLE_PROJECT),
+      eq(EnumSet.of(ActivationType.JIT, ActivationType.MPA))))
+      .thenReturn(new EntitlementSet<>(
+        new TreeSet<>(Set.of(new Entitlement<>(role, "-", ActivationType.JIT))),
+        Map.of(),
+        Map.of(),
+        Set.of()));
+
+    var catalog = new MpaProjectRoleCatalog(
+      repository,
+      Mockito.mock(ProjectListRefresher.class),
+      Runnable::run,
+      new MpaProjectRoleCatalog.Options(
+        null,
+        Duration.ofMinutes(5),
+        1,
+        1,
+        new Cache.Options(Duration.ofMinutes(1), 10),
+        Cache.Options.DISABLED));
+
+    var userContext = new MpaProjectRoleCatalog.UserContext(SAMPLE_REQUESTING_USER);
+    assertTrue(catalog.listEntitlements(userContext, SAMPLE_PROJECT).currentActivations().isEmpty());
+
+    var request = Mockito.mock(ActivationRequest.class);
+    when(request.requestingUser()).thenReturn(SAMPLE_REQUESTING_USER);
+    when(request.entitlements()).thenReturn(Set.of(role));
+
+    var activation = new Activation(Instant.now(), Duration.ofMinutes(5));
+    catalog.onRequestProvisioned(request, activation);
+
+    var entitlements = catalog.listEntitlements(userContext, SAMPLE_PROJECT);
+    assertEquals(Map.of(role, activation), entitlements.currentActivations());
+    assertEquals(1, entitlements.available().size());
+
+    verify(repository, times(1)).findEntitlements(any(), any(), any());
+  }
 }
@@ -30,6 +30,7 @@ import com.google.solutions.jitaccess.core.clients.PolicyAnalyzerClient;
 import com.google.solutions.jitaccess.core.clients.ResourceManagerClient;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -38,8 +39,10 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
 public class TestPolicyAnalyzerRepository {
@@ -100,6 +103,25 @@ public class TestPolicyAnalyzerRepository {
           new GoogleCloudAssetV1Identity().setName("group:ignoreme@example.com"))));
   }
   
+  /**
+   * Answer that passes the results of an analysis to a handler.
+   */
+  private static Answer<Void> streamAnalysis(IamPolicyAnalysis analysis) {
+    return invocation -> {
+      PolicyAnalyzerClient.AnalysisHandler handler = invocation.getArgument(5);
+
+      if (analysis.getAnalysisResults() != null) {
+        analysis.getAnalysisResults().forEach(handler::onAnalysisResult);
+      }
+
+      if (analysis.getNonCriticalErrors() != null) {
+        analysis.getNonCriticalErrors().forEach(handler::onNonCriticalError);
+      }
+
+      return null;
+    };
+  }
+
   // ---------------------------------------------------------------------
   // findProjectsWithEntitlements.
   // ---------------------------------------------------------------------
@@ -108,14 +130,15 @@ public class TestPolicyAnalyzerRepository {
   public void whenAnalysisResultEmpty_ThenFindProjectsWithEntitlementsReturnsEmptyList() throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()))
+      .when(assetAdapter)
       .findAccessibleResourcesByUser(
         anyString(),
         eq(SAMPLE_USER),
         eq(Optional.of("resourcemanager.projects.get")),
         eq(Optional.empty()),
-        eq(true)))
-      .thenReturn(new IamPolicyAnalysis());
+        eq(true),
+        any());
 
     var analyzer = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -132,14 +155,7 @@ public class TestPolicyAnalyzerRepository {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
     var resourceManagerAdapter = Mockito.mock(ResourceManagerClient.class);
 
-    when(assetAdapter
-      .findAccessibleResourcesByUser(
-        anyString(),
-        eq(SAMPLE_USER),
-        eq(Optional.of("resourcemanager.projects.get")),
-        eq(Optional.empty()),
-        eq(true)))
-      .thenReturn(new IamPolicyAnalysis()
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
         .setAnalysisResults(List.of(
           createConditionalIamPolicyAnalysisResult(
             SAMPLE_PROJECT_ID_1.getFullResourceName(),
@@ -147,7 +163,15 @@ public class TestPolicyAnalyzerRepository {
             SAMPLE_USER,
             "a==b",
             "unrecognized condition",
-            "TRUE"))));
+            "TRUE")))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.of("resourcemanager.projects.get")),
+        eq(Optional.empty()),
+        eq(true),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -164,19 +188,20 @@ public class TestPolicyAnalyzerRepository {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
     var resourceManagerAdapter = Mockito.mock(ResourceManagerClient.class);
 
-    when(assetAdapter
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
+        .setAnalysisResults(List.of(
+          createIamPolicyAnalysisResult(
+            SAMPLE_PROJECT_ID_1.getFullResourceName(),
+            SAMPLE_ROLE_1,
+            SAMPLE_USER)))))
+      .when(assetAdapter)
       .findAccessibleResourcesByUser(
         anyString(),
         eq(SAMPLE_USER),
         eq(Optional.of("resourcemanager.projects.get")),
         eq(Optional.empty()),
-        eq(true)))
-      .thenReturn(new IamPolicyAnalysis()
-        .setAnalysisResults(List.of(
-          createIamPolicyAnalysisResult(
-            SAMPLE_PROJECT_ID_1.getFullResourceName(),
-            SAMPLE_ROLE_1,
-            SAMPLE_USER))));
+        eq(true),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -194,14 +219,7 @@ public class TestPolicyAnalyzerRepository {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
     var resourceManagerAdapter = Mockito.mock(ResourceManagerClient.class);
 
-    when(assetAdapter
-      .findAccessibleResourcesByUser(
-        anyString(),
-        eq(SAMPLE_USER),
-        eq(Optional.of("resourcemanager.projects.get")),
-        eq(Optional.empty()),
-        eq(true)))
-      .thenReturn(new IamPolicyAnalysis()
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
         .setAnalysisResults(List.of(
           createConditionalIamPolicyAnalysisResult(
             SAMPLE_PROJECT_ID_1.getFullResourceName(),
@@ -216,7 +234,15 @@ public class TestPolicyAnalyzerRepository {
             SAMPLE_USER,
             MPA_CONDITION,
             "eligible binding",
-            "CONDITIONAL"))));
+            "CONDITIONAL")))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.of("resourcemanager.projects.get")),
+        eq(Optional.empty()),
+        eq(true),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -237,14 +263,15 @@ public class TestPolicyAnalyzerRepository {
   public void whenAnalysisResultEmpty_ThenFindEntitlementsReturnsEmptyList() throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()))
+      .when(assetAdapter)
       .findAccessibleResourcesByUser(
         anyString(),
         eq(SAMPLE_USER),
         eq(Optional.empty()),
         eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis());
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -266,16 +293,17 @@ public class TestPolicyAnalyzerRepository {
   public void whenAnalysisResultContainsEmptyAcl_ThenFindEntitlementsReturnsEmptyList() throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
+        .setAnalysisResults(List.of(
+          new IamPolicyAnalysisResult().setAttachedResourceFullName(SAMPLE_PROJECT_ID_1.getFullResourceName())))))
+      .when(assetAdapter)
       .findAccessibleResourcesByUser(
         anyString(),
         eq(SAMPLE_USER),
         eq(Optional.empty()),
         eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
-        .setAnalysisResults(List.of(
-          new IamPolicyAnalysisResult().setAttachedResourceFullName(SAMPLE_PROJECT_ID_1.getFullResourceName()))));
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -297,19 +325,20 @@ public class TestPolicyAnalyzerRepository {
   public void whenAnalysisContainsNoEligibleRoles_ThenFindEntitlementsReturnsEmptyList() throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
+        .setAnalysisResults(List.of(
+          createIamPolicyAnalysisResult(
+            SAMPLE_PROJECT_ID_1.getFullResourceName(),
+            SAMPLE_ROLE_1,
+            SAMPLE_USER)))))
+      .when(assetAdapter)
       .findAccessibleResourcesByUser(
         anyString(),
         eq(SAMPLE_USER),
         eq(Optional.empty()),
         eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
-        .setAnalysisResults(List.of(
-          createIamPolicyAnalysisResult(
-            SAMPLE_PROJECT_ID_1.getFullResourceName(),
-            SAMPLE_ROLE_1,
-            SAMPLE_USER))));
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -331,14 +360,7 @@ public class TestPolicyAnalyzerRepository {
   public void whenAnalysisContainsJitEligibleBinding_ThenFindEntitlementsReturnsList() throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
-      .findAccessibleResourcesByUser(
-        anyString(),
-        eq(SAMPLE_USER),
-        eq(Optional.empty()),
-        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
         .setAnalysisResults(List.of(
           createConditionalIamPolicyAnalysisResult(
             SAMPLE_PROJECT_ID_1.getFullResourceName(),
@@ -346,7 +368,15 @@ public class TestPolicyAnalyzerRepository {
             SAMPLE_USER,
             JIT_CONDITION,
             "eligible binding",
-            "CONDITIONAL"))));
+            "CONDITIONAL")))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.empty()),
+        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -376,14 +406,7 @@ public class TestPolicyAnalyzerRepository {
   public void whenAnalysisContainsDuplicateJitEligibleBinding_ThenFindEntitlementsReturnsList() throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
-      .findAccessibleResourcesByUser(
-        anyString(),
-        eq(SAMPLE_USER),
-        eq(Optional.empty()),
-        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
         .setAnalysisResults(List.of(
           createConditionalIamPolicyAnalysisResult(
             SAMPLE_PROJECT_ID_1.getFullResourceName(),
@@ -398,7 +421,15 @@ public class TestPolicyAnalyzerRepository {
             SAMPLE_USER,
             JIT_CONDITION,
             "eligible binding #2",
-            "CONDITIONAL"))));
+            "CONDITIONAL")))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.empty()),
+        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -428,14 +459,7 @@ public class TestPolicyAnalyzerRepository {
   public void whenAnalysisContainsMpaEligibleBinding_ThenFindEntitlementsReturnsList() throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
-      .findAccessibleResourcesByUser(
-        anyString(),
-        eq(SAMPLE_USER),
-        eq(Optional.empty()),
-        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
         .setAnalysisResults(List.of(
           createConditionalIamPolicyAnalysisResult(
             SAMPLE_PROJECT_ID_1.getFullResourceName(),
@@ -443,7 +467,15 @@ public class TestPolicyAnalyzerRepository {
             SAMPLE_USER,
             MPA_CONDITION,
             "eligible binding",
-            "CONDITIONAL"))));
+            "CONDITIONAL")))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.empty()),
+        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -473,14 +505,7 @@ public class TestPolicyAnalyzerRepository {
   public void whenAnalysisContainsDuplicateMpaEligibleBinding_ThenFindEntitlementsReturnsList() throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
-      .findAccessibleResourcesByUser(
-        anyString(),
-        eq(SAMPLE_USER),
-        eq(Optional.empty()),
-        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
         .setAnalysisResults(List.of(
           createConditionalIamPolicyAnalysisResult(
             SAMPLE_PROJECT_ID_1.getFullResourceName(),
@@ -495,7 +520,15 @@ public class TestPolicyAnalyzerRepository {
             SAMPLE_USER,
             MPA_CONDITION,
             "eligible binding # 2",
-            "CONDITIONAL"))));
+            "CONDITIONAL")))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.empty()),
+        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -542,14 +575,16 @@ public class TestPolicyAnalyzerRepository {
       "MPA-eligible binding",
       "CONDITIONAL");
 
-    when(assetAdapter.findAccessibleResourcesByUser(
-      anyString(),
-      eq(SAMPLE_USER),
-      eq(Optional.empty()),
-      eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-      eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
-        .setAnalysisResults(List.of(jitEligibleBinding, mpaEligibleBinding)));
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
+        .setAnalysisResults(List.of(jitEligibleBinding, mpaEligibleBinding))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.empty()),
+        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -601,14 +636,16 @@ public class TestPolicyAnalyzerRepository {
       "MPA-eligible binding",
       "CONDITIONAL");
 
-    when(assetAdapter.findAccessibleResourcesByUser(
-      anyString(),
-      eq(SAMPLE_USER),
-      eq(Optional.empty()),
-      eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-      eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
-        .setAnalysisResults(List.of(jitEligibleBinding, mpaEligibleBinding)));
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
+        .setAnalysisResults(List.of(jitEligibleBinding, mpaEligibleBinding))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.empty()),
+        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -663,19 +700,20 @@ public class TestPolicyAnalyzerRepository {
       ProjectRole.ActivationCondition.TITLE,
       "FALSE");
 
-    when(assetAdapter
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
+        .setAnalysisResults(List.of(
+          eligibleBinding,
+          activatedBinding,
+          activatedExpiredBinding
+        ))))
+      .when(assetAdapter)
       .findAccessibleResourcesByUser(
         anyString(),
         eq(SAMPLE_USER),
         eq(Optional.empty()),
         eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
-        .setAnalysisResults(List.of(
-          eligibleBinding,
-          activatedBinding,
-          activatedExpiredBinding
-        )));
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -707,14 +745,7 @@ public class TestPolicyAnalyzerRepository {
     throws Exception {
     var assetAdapter = Mockito.mock(PolicyAnalyzerClient.class);
 
-    when(assetAdapter
-      .findAccessibleResourcesByUser(
-        anyString(),
-        eq(SAMPLE_USER),
-        eq(Optional.empty()),
-        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
         .setAnalysisResults(List.of(
           createConditionalIamPolicyAnalysisResult(
             SAMPLE_PROJECT_ID_1.getFullResourceName(),
@@ -722,7 +753,15 @@ public class TestPolicyAnalyzerRepository {
             SAMPLE_USER,
             JIT_CONDITION + " && resource.name=='Foo'",
             "eligible binding with extra junk",
-            "CONDITIONAL"))));
+            "CONDITIONAL")))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.empty()),
+        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -762,14 +801,7 @@ public class TestPolicyAnalyzerRepository {
       .setConditionEvaluation(new ConditionEvaluation()
         .setEvaluationValue("CONDITIONAL"));
 
-    when(assetAdapter
-      .findAccessibleResourcesByUser(
-        anyString(),
-        eq(SAMPLE_USER),
-        eq(Optional.empty()),
-        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis()
+    doAnswer(streamAnalysis(new IamPolicyAnalysis()
         .setAnalysisResults(List.of(new IamPolicyAnalysisResult()
           .setAttachedResourceFullName("//cloudresourcemanager.googleapis.com/folders/folder-1")
           .setAccessControlLists(List.of(
@@ -778,7 +810,15 @@ public class TestPolicyAnalyzerRepository {
           .setIamBinding(new Binding()
             .setMembers(List.of("user:" + SAMPLE_USER))
             .setRole(SAMPLE_ROLE_1)
-            .setCondition(new Expr().setExpression(JIT_CONDITION))))));
+            .setCondition(new Expr().setExpression(JIT_CONDITION)))))))
+      .when(assetAdapter)
+      .findAccessibleResourcesByUser(
+        anyString(),
+        eq(SAMPLE_USER),
+        eq(Optional.empty()),
+        eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
+        eq(false),
+        any());
 
     var service = new PolicyAnalyzerRepository(
       assetAdapter,
@@ -828,14 +868,15 @@ public class TestPolicyAnalyzerRepository {
       JIT_CONDITION,
       "eligible binding",
       "CONDITIONAL");
-    when(assetAdapter
+    doAnswer(streamAnalysis(new IamPolicyAnalysis().setAnalysisResults(List.of(mpaBindingResult))))
+      .when(assetAdapter)
       .findAccessibleResourcesByUser(
         anyString(),
         eq(SAMPLE_USER),
         eq(Optional.empty()),
         eq(Optional.of(SAMPLE_PROJECT_ID_1.getFullResourceName())),
-        eq(false)))
-      .thenReturn(new IamPolicyAnalysis().setAnalysisResults(List.of(mpaBindingResult)));
+        eq(false),
+        any());
     when(assetAdapter.findPermissionedPrincipalsByResource(anyString(), anyString(), anyString()))
       .thenReturn(new IamPolicyAnalysis().setAnalysisResults(List.of(mpaBindingResult)));
 
@@ -0,0 +1,200 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.catalog.project;
+
+import com.google.solutions.jitaccess.core.AccessDeniedException;
+import com.google.solutions.jitaccess.core.AccessException;
+import com.google.solutions.jitaccess.core.SingleFlight;
+import com.google.solutions.jitaccess.core.catalog.ProjectId;
+import com.google.solutions.jitaccess.core.clients.ResourceManagerClient;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TestProjectListRefresher {
+  private static final ProjectListRefresher.Options OPTIONS =
+    new ProjectListRefresher.Options("query", Duration.ofMinutes(5));
+
+  // -------------------------------------------------------------------------
+  // start.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenQueryEmpty_ThenStartDoesNothing() {
+    var scheduler = Mockito.mock(ScheduledExecutorService.class);
+    var refresher = new ProjectListRefresher(
+      Mockito.mock(ResourceManagerClient.class),
+      new ProjectListRefresher.Options("", Duration.ofMinutes(5)),
+      scheduler);
+
+    refresher.start();
+
+    assertFalse(refresher.isEnabled());
+    verify(scheduler, never()).execute(any());
+  }
+
+  @Test
+  public void whenStarted_ThenProjectsAreSearchedInBackground() throws Exception {
+    var resourceManager = Mockito.mock(ResourceManagerClient.class);
+    when(resourceManager.searchProjectIds(eq("query")))
+      .thenReturn(new TreeSet<>(Set.of(new ProjectId("project-1"))));
+
+    var refresher = new ProjectListRefresher(
+      resourceManager,
+      OPTIONS,
+      Executors.newSingleThreadScheduledExecutor());
+
+    refresher.start();
+
+    verify(resourceManager, timeout(5000).times(1)).searchProjectIds(eq("query"));
+  }
+
+  // -------------------------------------------------------------------------
+  // projects.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenNotRefreshedYet_ThenProjectsSearchesProjects() throws Exception {
+    var resourceManager = Mockito.mock(ResourceManagerClient.class);
+    when(resourceManager.searchProjectIds(eq("query")))
+      .thenReturn(new TreeSet<>(Set.of(
+        new ProjectId("project-2"),
+        new ProjectId("project-1"))));
+
+    var refresher = new ProjectListRefresher(
+      resourceManager,
+      OPTIONS,
+      Mockito.mock(ScheduledExecutorService.class));
+
+    assertIterableEquals(
+      List.of(new ProjectId("project-1"), new ProjectId("project-2")),
+      refresher.projects());
+  }
+
+  @Test
+  public void whenSearchInFlight_ThenProjectsWaitsForSearch() throws Exception {
+    var searchStarted = new CountDownLatch(1);
+    var searchResult = new CompletableFuture<TreeSet<ProjectId>>();
+
+    var resourceManager = Mockito.mock(ResourceManagerClient.class);
+    when(resourceManager.searchProjectIds(eq("query")))
+      .thenAnswer(invocation -> {
+        searchStarted.countDown();
+        return searchResult.get();
+      });
+
+    var refresher = new ProjectListRefresher(
+      resourceManager,
+      OPTIONS,
+      Mockito.mock(ScheduledExecutorService.class));
+
+    var executor = Executors.newFixedThreadPool(2);
+    var first = CompletableFuture.supplyAsync(
+      () -> {
+        try {
+          return refresher.projects();
+        }
+        catch (AccessException | IOException e) {
+          throw new RuntimeException(e);
+        }
+      },
+      executor);
+
+    searchStarted.await();
+
+    var second = CompletableFuture.supplyAsync(
+      () -> {
+        try {
+          return refresher.projects();
+        }
+        catch (AccessException | IOException e) {
+          throw new RuntimeException(e);
+        }
+      },
+      executor);
+
+    while (refresher.refreshStatistics().coalesced() == 0) {
+      Thread.sleep(10);
+    }
+
+    searchResult.complete(new TreeSet<>(Set.of(new ProjectId("project-1"))));
+
+    assertIterableEquals(List.of(new ProjectId("project-1")), first.get());
+    assertIterableEquals(List.of(new ProjectId("project-1")), second.get());
+    assertEquals(new SingleFlight.Statistics(1, 1), refresher.refreshStatistics());
+    verify(resourceManager, times(1)).searchProjectIds(any());
+
+    executor.shutdown();
+  }
+
+  @Test
+  public void whenRefreshed_ThenProjectsReturnsLastResult() throws Exception {
+    var resourceManager = Mockito.mock(ResourceManagerClient.class);
+    when(resourceManager.searchProjectIds(eq("query")))
+      .thenReturn(new TreeSet<>(Set.of(new ProjectId("project-1"))));
+
+    var refresher = new ProjectListRefresher(
+      resourceManager,
+      OPTIONS,
+      Mockito.mock(ScheduledExecutorService.class));
+
+    refresher.refresh();
+    var projects = refresher.projects();
+
+    assertIterableEquals(List.of(new ProjectId("project-1")), projects);
+    assertThrows(
+      UnsupportedOperationException.class,
+      () -> projects.add(new ProjectId("project-2")));
+    verify(resourceManager, times(1)).searchProjectIds(any());
+  }
+
+  @Test
+  public void whenRefreshFails_ThenProjectsReturnsPreviousResult() throws Exception {
+    var resourceManager = Mockito.mock(ResourceManagerClient.class);
+    when(resourceManager.searchProjectIds(eq("query")))
+      .thenReturn(new TreeSet<>(Set.of(new ProjectId("project-1"))))
+      .thenThrow(new AccessDeniedException("mock"));
+
+    var refresher = new ProjectListRefresher(
+      resourceManager,
+      OPTIONS,
+      Mockito.mock(ScheduledExecutorService.class));
+
+    refresher.refresh();
+    assertThrows(AccessDeniedException.class, () -> refresher.refresh());
+
+    assertIterableEquals(List.of(new ProjectId("project-1")), refresher.projects());
+  }
+}
@@ -27,6 +27,8 @@ import com.google.solutions.jitaccess.core.catalog.ProjectId;
 import com.google.solutions.jitaccess.core.ResourceNotFoundException;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ITestAssetInventoryClient {
@@ -40,7 +42,7 @@ public class ITestAssetInventoryClient {
   public void whenUnauthenticated_ThenGetEffectiveIamPoliciesThrowsException() {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.INVALID_CREDENTIAL,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -53,7 +55,7 @@ public class ITestAssetInventoryClient {
   public void whenCallerLacksPermission_ThenGetEffectiveIamPoliciesThrowsException() {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -66,7 +68,7 @@ public class ITestAssetInventoryClient {
   public void whenProjectDoesNotExist_ThenGetEffectiveIamPoliciesThrowsException() {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       ResourceNotFoundException.class,
@@ -29,6 +29,7 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,7 +45,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     try {
       var groupId = new GroupKey(client.getGroup(TEST_GROUP_EMAIL).getName());
@@ -66,7 +67,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new CloudIdentityGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -79,7 +80,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -92,7 +93,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -107,7 +108,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     client.createGroup(TEST_GROUP_EMAIL, "description");
     var group = client.getGroup(TEST_GROUP_EMAIL);
@@ -124,7 +125,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new CloudIdentityGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -139,7 +140,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       IllegalArgumentException.class,
@@ -153,7 +154,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     //
     // Delete group if it exists.
@@ -183,7 +184,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new CloudIdentityGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -196,7 +197,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       IllegalArgumentException.class,
@@ -213,7 +214,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       IllegalArgumentException.class,
@@ -228,7 +229,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var groupId = client.createGroup(TEST_GROUP_EMAIL, "test group");
 
@@ -256,7 +257,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new CloudIdentityGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -272,7 +273,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       IllegalArgumentException.class,
@@ -287,7 +288,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
     var groupId = client.createGroup(TEST_GROUP_EMAIL, "test group");
     var userEmail = ITestEnvironment.TEMPORARY_ACCESS_USER;
 
@@ -306,7 +307,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var groupId = client.createGroup(TEST_GROUP_EMAIL, "test group");
 
@@ -323,7 +324,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var groupId = client.createGroup(TEST_GROUP_EMAIL, "test group");
     var userEmail = ITestEnvironment.TEMPORARY_ACCESS_USER;
@@ -368,7 +369,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new CloudIdentityGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -382,7 +383,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var groupId = client.createGroup(TEST_GROUP_EMAIL, "test group");
     var id = client.addMembership(
@@ -413,7 +414,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new CloudIdentityGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -426,7 +427,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var groupId = client.createGroup(TEST_GROUP_EMAIL, "test group");
     var membershipExpiry = Instant.now().plusSeconds(300);
@@ -460,7 +461,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new CloudIdentityGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -474,7 +475,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       ResourceNotFoundException.class,
@@ -488,7 +489,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var memberships = client.listMembershipsByUser(
       ITestEnvironment.TEMPORARY_ACCESS_USER);
@@ -504,7 +505,7 @@ public class ITestCloudIdentityGroupsClient {
     var client = new CloudIdentityGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new CloudIdentityGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -517,7 +518,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       IllegalArgumentException.class,
@@ -530,7 +531,7 @@ public class ITestCloudIdentityGroupsClient {
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new CloudIdentityGroupsClient.Options(
         ITestEnvironment.CLOUD_IDENTITY_ACCOUNT_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     client.createGroup(TEST_GROUP_EMAIL, "test group");
     var groups = client.searchGroups(
@@ -24,9 +24,13 @@ package com.google.solutions.jitaccess.core.clients;
 import com.google.solutions.jitaccess.core.AccessDeniedException;
 import com.google.solutions.jitaccess.core.NotAuthenticatedException;
 import com.google.solutions.jitaccess.core.ResourceNotFoundException;
+import com.google.solutions.jitaccess.core.ThrowingCompletableFuture;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ITestDirectoryGroupsClient {
   private final String INVALID_CUSTOMER_ID = "Cinvalid";
@@ -39,7 +43,7 @@ public class ITestDirectoryGroupsClient {
     var adapter = new DirectoryGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -51,7 +55,7 @@ public class ITestDirectoryGroupsClient {
     var adapter = new DirectoryGroupsClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
       new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       ResourceNotFoundException.class,
@@ -63,7 +67,7 @@ public class ITestDirectoryGroupsClient {
     var adapter = new DirectoryGroupsClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
       new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       ResourceNotFoundException.class,
@@ -79,7 +83,7 @@ public class ITestDirectoryGroupsClient {
     var adapter = new DirectoryGroupsClient(
       ITestEnvironment.INVALID_CREDENTIAL,
       new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -91,7 +95,7 @@ public class ITestDirectoryGroupsClient {
     var adapter = new DirectoryGroupsClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
       new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -103,10 +107,75 @@ public class ITestDirectoryGroupsClient {
     var adapter = new DirectoryGroupsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
       new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       ResourceNotFoundException.class,
       () -> adapter.listDirectGroupMembers("unknown-groupkey"));
   }
+
+  //---------------------------------------------------------------------
+  // batchListDirectGroupMembersAsync.
+  //---------------------------------------------------------------------
+
+  @Test
+  public void whenUnauthenticated_ThenBatchListDirectGroupMembersThrowsException() {
+    var adapter = new DirectoryGroupsClient(
+      ITestEnvironment.INVALID_CREDENTIAL,
+      new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
+
+    var futures = adapter.batchListDirectGroupMembersAsync(
+      List.of("group-1@example.com", "group-2@example.com"));
+
+    assertEquals(2, futures.size());
+    for (var future : futures.values()) {
+      assertThrows(
+        NotAuthenticatedException.class,
+        () -> ThrowingCompletableFuture.awaitAndRethrow(future));
+    }
+  }
+
+  @Test
+  public void whenCallerLacksPermission_ThenBatchListDirectGroupMembersThrowsException() {
+    var adapter = new DirectoryGroupsClient(
+      ITestEnvironment.NO_ACCESS_CREDENTIALS,
+      new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
+
+    var futures = adapter.batchListDirectGroupMembersAsync(
+      List.of("group-1@example.com", "group-2@example.com"));
+
+    assertEquals(2, futures.size());
+    for (var future : futures.values()) {
+      assertThrows(
+        AccessDeniedException.class,
+        () -> ThrowingCompletableFuture.awaitAndRethrow(future));
+    }
+  }
+
+  @Test
+  public void whenGroupDoesNotExist_ThenBatchListDirectGroupMembersThrowsException() {
+    var adapter = new DirectoryGroupsClient(
+      ITestEnvironment.APPLICATION_CREDENTIALS,
+      new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
+
+    var futures = adapter.batchListDirectGroupMembersAsync(
+      List.of("unknown-groupkey"));
+
+    assertThrows(
+      ResourceNotFoundException.class,
+      () -> ThrowingCompletableFuture.awaitAndRethrow(futures.get("unknown-groupkey")));
+  }
+
+  @Test
+  public void whenGroupsEmpty_ThenBatchListDirectGroupMembersReturnsEmptyMap() {
+    var adapter = new DirectoryGroupsClient(
+      ITestEnvironment.APPLICATION_CREDENTIALS,
+      new DirectoryGroupsClient.Options(INVALID_CUSTOMER_ID),
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
+
+    assertTrue(adapter.batchListDirectGroupMembersAsync(List.of()).isEmpty());
+  }
 }
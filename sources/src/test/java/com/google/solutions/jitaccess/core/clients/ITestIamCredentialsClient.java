@@ -5,6 +5,8 @@ import com.google.auth.oauth2.TokenVerifier;
 import com.google.solutions.jitaccess.core.AccessDeniedException;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ITestIamCredentialsClient {
@@ -17,7 +19,7 @@ public class ITestIamCredentialsClient {
   public void whenUnauthenticated_ThenSignJwtThrowsException() {
     var adapter = new IamCredentialsClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var payload = new JsonWebToken.Payload()
       .setAudience("test");
@@ -31,7 +33,7 @@ public class ITestIamCredentialsClient {
   public void whenCallerHasPermission_ThenSignJwtSucceeds() throws Exception {
     var adapter = new IamCredentialsClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
     var serviceAccount = ITestEnvironment.NO_ACCESS_USER;
 
     var payload = new JsonWebToken.Payload()
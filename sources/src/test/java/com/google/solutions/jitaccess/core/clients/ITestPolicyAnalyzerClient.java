@@ -30,6 +30,7 @@ import java.net.SocketTimeoutException;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -42,7 +43,7 @@ public class ITestPolicyAnalyzerClient {
   public void whenUnauthenticated_ThenFindAccessibleResourcesByUserThrowsException() {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.INVALID_CREDENTIAL,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -58,7 +59,7 @@ public class ITestPolicyAnalyzerClient {
   public void whenCallerLacksPermission_ThenFindAccessibleResourcesByUserThrowsException() {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -74,10 +75,11 @@ public class ITestPolicyAnalyzerClient {
   public void whenRequestTimesOut_ThenFindAccessibleResourcesByUserThrowsException() {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      new HttpTransport.Options(
+      new ClientFactory(new HttpTransport(new HttpTransport.Options(
         Duration.of(1, ChronoUnit.MILLIS),
         Duration.of(1, ChronoUnit.MILLIS),
-        Duration.of(1, ChronoUnit.MILLIS)));
+        Duration.of(1, ChronoUnit.MILLIS))),
+        ForkJoinPool.commonPool()));
 
     assertThrows(
       SocketTimeoutException.class,
@@ -93,7 +95,7 @@ public class ITestPolicyAnalyzerClient {
   public void whenPermissionDoesNotExist_ThenFindAccessibleResourcesByUserReturnsEmptyResult() throws Exception {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var result = adapter.findAccessibleResourcesByUser(
       "projects/" + ITestEnvironment.PROJECT_ID,
@@ -110,7 +112,7 @@ public class ITestPolicyAnalyzerClient {
   public void whenResourceDoesNotExist_ThenFindAccessibleResourcesByUserReturnsEmptyResult() throws Exception {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var result = adapter.findAccessibleResourcesByUser(
       "projects/" + ITestEnvironment.PROJECT_ID,
@@ -131,7 +133,7 @@ public class ITestPolicyAnalyzerClient {
   public void whenUnauthenticated_ThenPermissionedPrincipalsByResourceThrowsException() {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.INVALID_CREDENTIAL,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -145,7 +147,7 @@ public class ITestPolicyAnalyzerClient {
   public void whenCallerLacksPermission_ThenFindPermissionedPrincipalsByResourceThrowsException() {
     var adapter = new PolicyAnalyzerClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
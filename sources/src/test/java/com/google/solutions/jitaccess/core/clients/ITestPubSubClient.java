@@ -28,6 +28,7 @@ import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -37,7 +38,7 @@ public class ITestPubSubClient {
   public void whenUnauthenticated_ThenPublishThrowsException() {
     var adapter = new PubSubClient(
       ITestEnvironment.INVALID_CREDENTIAL,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -50,7 +51,7 @@ public class ITestPubSubClient {
   public void whenCallerLacksPermission_ThenAddProjectIamBindingThrowsException() {
     var adapter = new PubSubClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
     assertThrows(
       AccessDeniedException.class,
       () -> adapter.publish(
@@ -66,7 +67,7 @@ public class ITestPubSubClient {
 
     var adapter = new PubSubClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var messageId = adapter.publish(
       ITestEnvironment.PUBSUB_TOPIC,
@@ -39,6 +39,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,7 +54,7 @@ public class ITestResourceManagerClient {
   public void whenUnauthenticated_ThenAddIamProjectBindingThrowsException() {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.INVALID_CREDENTIAL,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -71,7 +72,7 @@ public class ITestResourceManagerClient {
   public void whenCallerLacksPermission_ThenAddProjectIamBindingThrowsException() {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -89,7 +90,7 @@ public class ITestResourceManagerClient {
   public void whenRoleNotGrantableOnProject_ThenAddProjectIamBindingThrowsException() {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -107,7 +108,7 @@ public class ITestResourceManagerClient {
   public void whenResourceIsProject_ThenAddIamProjectBindingSucceeds() throws Exception {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     String condition =
       new TemporaryIamCondition(Instant.now(), Duration.ofMinutes(5)).toString();
@@ -126,7 +127,7 @@ public class ITestResourceManagerClient {
   public void whenPurgeExistingTemporaryBindingsFlagIsOn_ThenExistingTemporaryBindingsAreRemoved() throws Exception {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     // Add an "old" temporary IAM binding.
     adapter.addProjectIamBinding(
@@ -155,7 +156,7 @@ public class ITestResourceManagerClient {
       REQUEST_REASON);
 
     var service = new CloudResourceManager.Builder(
-      HttpTransport.newTransport(),
+      new HttpTransport(HttpTransport.Options.DEFAULT).get(),
         new GsonFactory(),
         new HttpCredentialsAdapter(GoogleCredentials.getApplicationDefault()))
       .build();
@@ -226,7 +227,7 @@ public class ITestResourceManagerClient {
   public void whenFailIfBindingExistsFlagIsOnAndBindingExists_ThenAddProjectBindingThrowsException() throws Exception {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var newBinding = new Binding()
       .setMembers(List.of("serviceAccount:" + ITestEnvironment.TEMPORARY_ACCESS_USER.email))
@@ -401,7 +402,7 @@ public class ITestResourceManagerClient {
   public void whenUnauthenticated_ThenTestIamPermissionsThrowsException() {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.INVALID_CREDENTIAL,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -414,7 +415,7 @@ public class ITestResourceManagerClient {
   public void whenAuthorized_ThenTestIamPermissionsSucceeds() throws Exception {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var heldPermissions = adapter.testIamPermissions(
       ITestEnvironment.PROJECT_ID,
@@ -432,7 +433,7 @@ public class ITestResourceManagerClient {
   public void whenUnauthenticated_ThenGetAncestryThrowsException() {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.INVALID_CREDENTIAL,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -443,7 +444,7 @@ public class ITestResourceManagerClient {
   public void whenCallerLacksPermission_ThenGetAncestryThrowsException() {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -454,11 +455,53 @@ public class ITestResourceManagerClient {
   public void whenAuthorized_ThenGetAncestrySucceeds() throws Exception {
     var adapter = new ResourceManagerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     var ancestry = adapter.getAncestry(ITestEnvironment.PROJECT_ID);
 
     assertTrue(ancestry.size() > 1);
     assertEquals(ITestEnvironment.PROJECT_ID, ancestry.stream().findFirst().get());
   }
+
+  //---------------------------------------------------------------------
+  // searchProjectIds.
+  //---------------------------------------------------------------------
+
+  @Test
+  public void whenUnauthenticated_ThenSearchProjectIdsThrowsException() {
+    var adapter = new ResourceManagerClient(
+      ITestEnvironment.INVALID_CREDENTIAL,
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
+
+    assertThrows(
+      NotAuthenticatedException.class,
+      () -> adapter.searchProjectIds("parent:folders/0"));
+  }
+
+  @Test
+  public void whenAuthorized_ThenSearchProjectIdsReturnsProject() throws Exception {
+    var adapter = new ResourceManagerClient(
+      ITestEnvironment.APPLICATION_CREDENTIALS,
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
+
+    var projectIds = adapter.searchProjectIds(
+      String.format("projectId:%s", ITestEnvironment.PROJECT_ID.id()));
+
+    assertEquals(1, projectIds.size());
+    assertEquals(ITestEnvironment.PROJECT_ID, projectIds.first());
+  }
+
+  @Test
+  public void whenAuthorized_ThenIterateProjectIdsReturnsProject() throws Exception {
+    var adapter = new ResourceManagerClient(
+      ITestEnvironment.APPLICATION_CREDENTIALS,
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
+
+    var projectIds = adapter.iterateProjectIds(
+      String.format("projectId:%s", ITestEnvironment.PROJECT_ID.id()));
+
+    assertTrue(projectIds.hasNext());
+    assertEquals(ITestEnvironment.PROJECT_ID, projectIds.next());
+    assertFalse(projectIds.hasNext());
+  }
 }
@@ -36,6 +36,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -52,7 +53,7 @@ public class ITestSecretManagerClient {
 
   private static SecretManager createClient() throws GeneralSecurityException, IOException {
     return new SecretManager.Builder(
-      HttpTransport.newTransport(),
+      new HttpTransport(HttpTransport.Options.DEFAULT).get(),
       new GsonFactory(),
       new HttpCredentialsAdapter(ITestEnvironment.APPLICATION_CREDENTIALS))
       .build();
@@ -99,7 +100,7 @@ public class ITestSecretManagerClient {
   public void whenUnauthenticated_ThenAccessSecretThrowsException() {
     var adapter = new SecretManagerClient(
       ITestEnvironment.INVALID_CREDENTIAL,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       NotAuthenticatedException.class,
@@ -110,7 +111,7 @@ public class ITestSecretManagerClient {
   public void whenCallerLacksPermission_ThenAccessSecretThrowsException() {
     var adapter = new SecretManagerClient(
       ITestEnvironment.NO_ACCESS_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       AccessDeniedException.class,
@@ -121,7 +122,7 @@ public class ITestSecretManagerClient {
   public void whenSecretNotFondPermission_ThenAccessSecretThrowsException() {
     var adapter = new SecretManagerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       ResourceNotFoundException.class,
@@ -134,7 +135,7 @@ public class ITestSecretManagerClient {
   public void whenSecretVersionNotFondPermission_ThenAccessSecretThrowsException() {
     var adapter = new SecretManagerClient(
       ITestEnvironment.APPLICATION_CREDENTIALS,
-      HttpTransport.Options.DEFAULT);
+      new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), ForkJoinPool.commonPool()));
 
     assertThrows(
       ResourceNotFoundException.class,
@@ -0,0 +1,241 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.services.cloudresourcemanager.v3.CloudResourceManager;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBackendPolicies {
+  // -------------------------------------------------------------------------
+  // rateLimiter.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenCalledTwiceWithSameMethod_ThenRateLimiterReturnsSameLimiter() {
+    var policies = new BackendPolicies(
+      Runnable::run,
+      api -> BackendPolicies.ApiOptions.DEFAULT,
+      method -> new BackendPolicies.MethodOptions(
+        new RateLimiter.Options(60, 5, Duration.ZERO),
+        HedgingPolicy.Options.DISABLED));
+
+    var limiter = policies.rateLimiter("AnalyzeIamPolicy");
+
+    assertSame(limiter, policies.rateLimiter("AnalyzeIamPolicy"));
+    assertNotSame(limiter, policies.rateLimiter("BatchGetEffectiveIamPolicies"));
+    assertEquals(60, limiter.options().requestsPerMinute());
+  }
+
+  @Test
+  public void whenRateLimiterUsed_ThenRateLimiterFillLevelsReturnsLevel() throws Exception {
+    var policies = new BackendPolicies(
+      Runnable::run,
+      api -> BackendPolicies.ApiOptions.DEFAULT,
+      method -> new BackendPolicies.MethodOptions(
+        new RateLimiter.Options(1, 2, Duration.ZERO),
+        HedgingPolicy.Options.DISABLED));
+
+    assertTrue(policies.rateLimiterFillLevels().isEmpty());
+
+    policies.rateLimiter("AnalyzeIamPolicy").tryAcquire();
+    policies.rateLimiter("AnalyzeIamPolicy").tryAcquire();
+
+    assertEquals(1, policies.rateLimiterFillLevels().size());
+    assertTrue(policies.rateLimiterFillLevels().get("AnalyzeIamPolicy") < 0.5);
+  }
+
+  // -------------------------------------------------------------------------
+  // hedgingPolicy.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenCalledTwiceWithSameMethod_ThenHedgingPolicyReturnsSamePolicy() {
+    var policies = new BackendPolicies(
+      Runnable::run,
+      api -> BackendPolicies.ApiOptions.DEFAULT,
+      method -> new BackendPolicies.MethodOptions(
+        RateLimiter.Options.UNLIMITED,
+        HedgingPolicy.Options.DEFAULT));
+
+    var policy = policies.hedgingPolicy(CloudResourceManager.class, "GetAncestry");
+
+    assertSame(policy, policies.hedgingPolicy(CloudResourceManager.class, "GetAncestry"));
+    assertNotSame(policy, policies.hedgingPolicy(CloudResourceManager.class, "SearchProjects"));
+    assertEquals(HedgingPolicy.Options.DEFAULT, policy.options());
+  }
+
+  @Test
+  public void whenCallMightBeHedged_ThenHedgingPolicyRunsCallOnHedgingBulkhead() throws Exception {
+    var policies = new BackendPolicies(
+      r -> fail("Shared executor must not be used"),
+      api -> BackendPolicies.ApiOptions.DEFAULT,
+      method -> new BackendPolicies.MethodOptions(
+        RateLimiter.Options.UNLIMITED,
+        new HedgingPolicy.Options(50, Duration.ofSeconds(1), 100)));
+
+    var policy = policies.hedgingPolicy(CloudResourceManager.class, "GetAncestry");
+    for (int i = 0; i < HedgingPolicy.MIN_LATENCY_SAMPLES; i++) {
+      policy.execute(() -> "fast");
+    }
+
+    assertEquals(
+      "bulkhead-hedging-cloudresourcemanager-1",
+      policy.execute(() -> Thread.currentThread().getName()));
+    assertTrue(policies.bulkheads().isEmpty());
+  }
+
+  // -------------------------------------------------------------------------
+  // executor.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenBulkheadDisabled_ThenExecutorReturnsSharedExecutor() {
+    Executor shared = Runnable::run;
+    var policies = new BackendPolicies(shared);
+
+    var executor = policies.executor(CloudResourceManager.class);
+    assertTrue(policies.bulkheads().isEmpty());
+
+    var thread = new AtomicReference<Thread>();
+    executor.execute(() -> thread.set(Thread.currentThread()));
+    assertSame(Thread.currentThread(), thread.get());
+  }
+
+  @Test
+  public void whenBulkheadEnabled_ThenExecutorReturnsBulkheadPerApi() throws Exception {
+    var policies = new BackendPolicies(
+      Runnable::run,
+      api -> new BackendPolicies.ApiOptions(
+        RetryPolicy.Options.DEFAULT,
+        CircuitBreaker.Options.DISABLED,
+        Bulkhead.Options.DEFAULT),
+      method -> BackendPolicies.MethodOptions.DEFAULT);
+
+    var future = new CompletableFuture<String>();
+    policies
+      .executor(CloudResourceManager.class)
+      .execute(() -> future.complete(Thread.currentThread().getName()));
+
+    assertEquals("bulkhead-cloudresourcemanager-1", future.get());
+    assertEquals(Set.of("CLOUDRESOURCEMANAGER"), policies.bulkheads().keySet());
+  }
+
+  // -------------------------------------------------------------------------
+  // circuitBreakerStates.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenCircuitOpen_ThenCircuitBreakerStatesReturnsOpen() {
+    var policies = new BackendPolicies(
+      Runnable::run,
+      api -> new BackendPolicies.ApiOptions(
+        RetryPolicy.Options.DEFAULT,
+        new CircuitBreaker.Options(50, 2, Duration.ofMinutes(1)),
+        Bulkhead.Options.DISABLED),
+      method -> BackendPolicies.MethodOptions.DEFAULT);
+
+    var circuitBreaker = policies.circuitBreaker(CloudResourceManager.class);
+    assertEquals(
+      CircuitBreaker.State.CLOSED,
+      policies.circuitBreakerStates().get("CLOUDRESOURCEMANAGER"));
+
+    circuitBreaker.record(false);
+    circuitBreaker.record(false);
+
+    assertEquals(
+      CircuitBreaker.State.OPEN,
+      policies.circuitBreakerStates().get("CLOUDRESOURCEMANAGER"));
+  }
+
+  @Test
+  public void whenCircuitBreakerDisabled_ThenCircuitBreakerStatesReturnsEmptyMap() {
+    var policies = new BackendPolicies(Runnable::run);
+
+    policies.circuitBreaker(CloudResourceManager.class);
+
+    assertTrue(policies.circuitBreakerStates().isEmpty());
+  }
+
+  // -------------------------------------------------------------------------
+  // diagnose.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenCircuitOpenAndReadinessNotAffected_ThenDiagnoseReturnsEmptyList() {
+    var policies = new BackendPolicies(
+      Runnable::run,
+      api -> new BackendPolicies.ApiOptions(
+        RetryPolicy.Options.DEFAULT,
+        new CircuitBreaker.Options(50, 2, Duration.ofMinutes(1)),
+        Bulkhead.Options.DISABLED),
+      method -> BackendPolicies.MethodOptions.DEFAULT);
+
+    var circuitBreaker = policies.circuitBreaker(CloudResourceManager.class);
+    circuitBreaker.record(false);
+    circuitBreaker.record(false);
+
+    assertTrue(policies.diagnose().isEmpty());
+  }
+
+  @Test
+  public void whenCircuitOpenAndReadinessAffected_ThenDiagnoseReturnsFailure() {
+    var policies = new BackendPolicies(
+      Runnable::run,
+      api -> new BackendPolicies.ApiOptions(
+        RetryPolicy.Options.DEFAULT,
+        new CircuitBreaker.Options(50, 2, Duration.ofMinutes(1)),
+        Bulkhead.Options.DISABLED),
+      method -> BackendPolicies.MethodOptions.DEFAULT,
+      true);
+
+    var circuitBreaker = policies.circuitBreaker(CloudResourceManager.class);
+
+    var results = policies.diagnose();
+    assertEquals(1, results.size());
+    assertTrue(results.stream().allMatch(r -> r.successful()));
+
+    circuitBreaker.record(false);
+    circuitBreaker.record(false);
+
+    results = policies.diagnose();
+    assertEquals(1, results.size());
+    assertFalse(results.stream().allMatch(r -> r.successful()));
+    assertEquals("CLOUDRESOURCEMANAGERApiIsAvailable", results.iterator().next().name());
+  }
+
+  @Test
+  public void whenCircuitBreakerDisabled_ThenDiagnoseReturnsEmptyList() {
+    var policies = new BackendPolicies(Runnable::run);
+
+    policies.circuitBreaker(CloudResourceManager.class);
+
+    assertTrue(policies.diagnose().isEmpty());
+  }
+}
@@ -0,0 +1,148 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.solutions.jitaccess.core.BackendUnavailableException;
+import com.google.solutions.jitaccess.core.ThrowingCompletableFuture;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBulkhead {
+  /**
+   * Occupy the bulkhead's only thread until the latch is released.
+   */
+  private static void block(
+    Bulkhead bulkhead,
+    CountDownLatch started,
+    CountDownLatch release
+  ) {
+    bulkhead.execute(() -> {
+      started.countDown();
+      try {
+        release.await();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+
+  //---------------------------------------------------------------------------
+  // execute.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenThreadsAvailable_ThenExecuteRunsTaskOnBulkheadThread() throws Exception {
+    var bulkhead = new Bulkhead("test", Bulkhead.Options.DEFAULT);
+    var future = new CompletableFuture<String>();
+
+    bulkhead.execute(() -> future.complete(Thread.currentThread().getName()));
+
+    assertEquals("bulkhead-test-1", future.get());
+  }
+
+  @Test
+  public void whenThreadsBusy_ThenExecuteQueuesTask() throws Exception {
+    var bulkhead = new Bulkhead(
+      "test",
+      new Bulkhead.Options(1, 1, Bulkhead.RejectionPolicy.ABORT));
+    var started = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+
+    block(bulkhead, started, release);
+    started.await();
+
+    var future = new CompletableFuture<Void>();
+    bulkhead.execute(() -> future.complete(null));
+
+    assertEquals(1, bulkhead.statistics().queueDepth());
+    assertEquals(1, bulkhead.statistics().activeThreads());
+
+    release.countDown();
+    future.get();
+    assertEquals(0, bulkhead.statistics().rejectedTasks());
+  }
+
+  @Test
+  public void whenQueueFullAndPolicyIsAbort_ThenExecuteThrowsException() throws Exception {
+    var bulkhead = new Bulkhead(
+      "test",
+      new Bulkhead.Options(1, 0, Bulkhead.RejectionPolicy.ABORT));
+    var started = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+
+    block(bulkhead, started, release);
+    started.await();
+
+    assertThrows(
+      RejectedExecutionException.class,
+      () -> bulkhead.execute(() -> {}));
+    assertEquals(1, bulkhead.statistics().rejectedTasks());
+
+    release.countDown();
+  }
+
+  @Test
+  public void whenQueueFullAndPolicyIsCallerRuns_ThenExecuteRunsTaskOnCallingThread() throws Exception {
+    var bulkhead = new Bulkhead(
+      "test",
+      new Bulkhead.Options(1, 0, Bulkhead.RejectionPolicy.CALLER_RUNS));
+    var started = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+
+    block(bulkhead, started, release);
+    started.await();
+
+    var thread = new CompletableFuture<Thread>();
+    bulkhead.execute(() -> thread.complete(Thread.currentThread()));
+
+    assertSame(Thread.currentThread(), thread.get());
+    assertEquals(1, bulkhead.statistics().rejectedTasks());
+
+    release.countDown();
+  }
+
+  @Test
+  public void whenQueueFull_ThenSubmittedFutureFailsWithBackendUnavailableException() throws Exception {
+    var bulkhead = new Bulkhead(
+      "test",
+      new Bulkhead.Options(1, 0, Bulkhead.RejectionPolicy.ABORT));
+    var started = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+
+    block(bulkhead, started, release);
+    started.await();
+
+    var future = ThrowingCompletableFuture.submit(() -> "result", bulkhead);
+
+    var exception = assertThrows(ExecutionException.class, () -> future.get());
+    assertInstanceOf(BackendUnavailableException.class, exception.getCause());
+
+    release.countDown();
+  }
+}
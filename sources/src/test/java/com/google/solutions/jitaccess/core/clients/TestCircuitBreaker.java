@@ -0,0 +1,345 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.solutions.jitaccess.core.BackendUnavailableException;
+import com.google.solutions.jitaccess.core.Deadline;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCircuitBreaker {
+  private static final Duration COOL_DOWN = Duration.ofSeconds(10);
+  private static final GenericUrl SAMPLE_URL = new GenericUrl("https://example.com/");
+
+  private long nanos = 0;
+
+  private CircuitBreaker newCircuitBreaker(int failureRateThreshold, int windowSize) {
+    return new CircuitBreaker(
+      new CircuitBreaker.Options(failureRateThreshold, windowSize, COOL_DOWN),
+      () -> this.nanos);
+  }
+
+  private static MockHttpTransport newFailingTransport() {
+    return new MockHttpTransport.Builder()
+      .setLowLevelHttpRequest(new MockLowLevelHttpRequest() {
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+          throw new IOException("mock");
+        }
+      })
+      .build();
+  }
+
+  private void advance(Duration duration) {
+    this.nanos += duration.toNanos();
+  }
+
+  // -------------------------------------------------------------------------
+  // Options.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenFailureRateThresholdOutOfRange_ThenOptionsThrowsException() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new CircuitBreaker.Options(0, 10, COOL_DOWN));
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new CircuitBreaker.Options(101, 10, COOL_DOWN));
+  }
+
+  // -------------------------------------------------------------------------
+  // record, tryAcquire.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenDisabled_ThenCircuitNeverOpens() {
+    var breaker = newCircuitBreaker(50, 0);
+
+    for (int i = 0; i < 100; i++) {
+      breaker.record(false);
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(CircuitBreaker.Permit.REQUEST, breaker.tryAcquire());
+  }
+
+  @Test
+  public void whenWindowNotFull_ThenCircuitStaysClosed() {
+    var breaker = newCircuitBreaker(50, 4);
+
+    breaker.record(false);
+    breaker.record(false);
+    breaker.record(false);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(1.0, breaker.failureRate());
+  }
+
+  @Test
+  public void whenFailureRateBelowThreshold_ThenCircuitStaysClosed() {
+    var breaker = newCircuitBreaker(50, 4);
+
+    breaker.record(false);
+    breaker.record(true);
+    breaker.record(true);
+    breaker.record(true);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(0.25, breaker.failureRate());
+  }
+
+  @Test
+  public void whenOldFailuresEvicted_ThenCircuitStaysClosed() {
+    var breaker = newCircuitBreaker(50, 4);
+
+    breaker.record(false);
+    breaker.record(true);
+    breaker.record(true);
+    breaker.record(true);
+    breaker.record(false); // Evicts the first failure.
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(0.25, breaker.failureRate());
+  }
+
+  @Test
+  public void whenFailureRateReachesThreshold_ThenTryAcquireReturnsNull() {
+    var breaker = newCircuitBreaker(50, 4);
+
+    breaker.record(false);
+    breaker.record(true);
+    breaker.record(false);
+    breaker.record(true);
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertNull(breaker.tryAcquire());
+  }
+
+  @Test
+  public void whenCoolDownElapsed_ThenTryAcquireAllowsSingleProbe() {
+    var breaker = newCircuitBreaker(50, 2);
+
+    breaker.record(false);
+    breaker.record(false);
+    assertNull(breaker.tryAcquire());
+
+    advance(COOL_DOWN);
+
+    assertEquals(CircuitBreaker.Permit.PROBE, breaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    assertNull(breaker.tryAcquire());
+  }
+
+  @Test
+  public void whenProbeNeverReportsBack_ThenTryAcquireAllowsAnotherProbe() {
+    var breaker = newCircuitBreaker(50, 2);
+
+    breaker.record(false);
+    breaker.record(false);
+    advance(COOL_DOWN);
+
+    assertEquals(CircuitBreaker.Permit.PROBE, breaker.tryAcquire());
+    assertNull(breaker.tryAcquire());
+
+    advance(COOL_DOWN);
+
+    assertEquals(CircuitBreaker.Permit.PROBE, breaker.tryAcquire());
+  }
+
+  @Test
+  public void whenProbeSucceeds_ThenCircuitCloses() {
+    var breaker = newCircuitBreaker(50, 2);
+
+    breaker.record(false);
+    breaker.record(false);
+    advance(COOL_DOWN);
+    var probe = breaker.tryAcquire();
+    assertEquals(CircuitBreaker.Permit.PROBE, probe);
+
+    breaker.record(probe, true);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(0.0, breaker.failureRate());
+    assertEquals(CircuitBreaker.Permit.REQUEST, breaker.tryAcquire());
+  }
+
+  @Test
+  public void whenProbeFails_ThenCircuitReopens() {
+    var breaker = newCircuitBreaker(50, 2);
+
+    breaker.record(false);
+    breaker.record(false);
+    advance(COOL_DOWN);
+    var probe = breaker.tryAcquire();
+    assertEquals(CircuitBreaker.Permit.PROBE, probe);
+
+    breaker.record(probe, false);
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertNull(breaker.tryAcquire());
+  }
+
+  @Test
+  public void whenRequestCompletesWhileHalfOpen_ThenOnlyProbeDecides() {
+    var breaker = newCircuitBreaker(50, 2);
+
+    breaker.record(false);
+    breaker.record(false);
+    advance(COOL_DOWN);
+
+    var probe = breaker.tryAcquire();
+    assertEquals(CircuitBreaker.Permit.PROBE, probe);
+
+    //
+    // Late outcomes of requests sent before the circuit opened.
+    //
+    breaker.record(true);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    breaker.record(false);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+    breaker.record(probe, true);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  // -------------------------------------------------------------------------
+  // apply.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenCircuitOpen_ThenRequestIsRejected() throws Exception {
+    var breaker = newCircuitBreaker(50, 2);
+    var transport = new MockHttpTransport();
+    var requestFactory = transport.createRequestFactory(breaker::apply);
+
+    breaker.record(false);
+    breaker.record(false);
+
+    var exception = assertThrows(
+      CircuitBreaker.OpenCircuitException.class,
+      () -> requestFactory.buildGetRequest(SAMPLE_URL).execute());
+    assertInstanceOf(BackendUnavailableException.class, exception.getCause());
+  }
+
+  @Test
+  public void whenCircuitClosed_ThenRequestOutcomeIsRecorded() throws Exception {
+    var breaker = newCircuitBreaker(50, 2);
+    var transport = new MockHttpTransport.Builder()
+      .setLowLevelHttpResponse(new MockLowLevelHttpResponse().setStatusCode(503))
+      .build();
+    var requestFactory = transport.createRequestFactory(breaker::apply);
+
+    for (int i = 0; i < 2; i++) {
+      var request = requestFactory.buildGetRequest(SAMPLE_URL);
+      request.setNumberOfRetries(0);
+      assertThrows(HttpResponseException.class, request::execute);
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+  }
+
+  @Test
+  public void whenIOException_ThenOutcomeIsRecorded() throws Exception {
+    var breaker = newCircuitBreaker(50, 2);
+    var requestFactory = newFailingTransport().createRequestFactory(breaker::apply);
+
+    for (int i = 0; i < 2; i++) {
+      var request = requestFactory.buildGetRequest(SAMPLE_URL);
+      request.setNumberOfRetries(0);
+      assertThrows(IOException.class, request::execute);
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+  }
+
+  @Test
+  public void whenIOExceptionAndDeadlineExpired_ThenOutcomeIsIgnored() throws Exception {
+    var breaker = newCircuitBreaker(50, 2);
+    var requestFactory = newFailingTransport().createRequestFactory(breaker::apply);
+
+    try (var scope = Deadline.enter(Deadline.after(Duration.ZERO))) {
+      for (int i = 0; i < 2; i++) {
+        var request = requestFactory.buildGetRequest(SAMPLE_URL);
+        request.setNumberOfRetries(0);
+        assertThrows(IOException.class, request::execute);
+      }
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(0.0, breaker.failureRate());
+  }
+
+  @Test
+  public void whenIOExceptionAndTimeoutCappedByDeadline_ThenOutcomeIsIgnored() throws Exception {
+    var breaker = newCircuitBreaker(50, 2);
+    var requestFactory = newFailingTransport().createRequestFactory(request -> {
+      breaker.apply(request);
+
+      //
+      // Shorten the timeout like the deadline interceptor does.
+      //
+      var next = request.getInterceptor();
+      request.setInterceptor(r -> {
+        r.setReadTimeout(1);
+        next.intercept(r);
+      });
+    });
+
+    for (int i = 0; i < 2; i++) {
+      var request = requestFactory.buildGetRequest(SAMPLE_URL);
+      request.setNumberOfRetries(0);
+      assertThrows(IOException.class, request::execute);
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  // -------------------------------------------------------------------------
+  // isFailure.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenStatusIsClientError_ThenIsFailureReturnsFalse() {
+    assertFalse(CircuitBreaker.isFailure(200));
+    assertFalse(CircuitBreaker.isFailure(403));
+    assertFalse(CircuitBreaker.isFailure(404));
+    assertFalse(CircuitBreaker.isFailure(429));
+  }
+
+  @Test
+  public void whenStatusIsServerErrorOrTimeout_ThenIsFailureReturnsTrue() {
+    assertTrue(CircuitBreaker.isFailure(408));
+    assertTrue(CircuitBreaker.isFailure(500));
+    assertTrue(CircuitBreaker.isFailure(503));
+  }
+}
@@ -0,0 +1,143 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.services.cloudresourcemanager.v3.CloudResourceManager;
+import com.google.api.services.iamcredentials.v1.IAMCredentials;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.solutions.jitaccess.core.BackendUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestClientFactory {
+  private static final GoogleCredentials CREDENTIALS_1 =
+    GoogleCredentials.create(new AccessToken("token-1", null));
+  private static final GoogleCredentials CREDENTIALS_2 =
+    GoogleCredentials.create(new AccessToken("token-1", null));
+
+  private static CloudResourceManager getResourceManager(
+    ClientFactory factory,
+    GoogleCredentials credentials
+  ) throws Exception {
+    return factory.getClient(
+      CloudResourceManager.class,
+      credentials,
+      (transport, jsonFactory, initializer) -> new CloudResourceManager
+        .Builder(transport, jsonFactory, initializer)
+        .build());
+  }
+
+  // -------------------------------------------------------------------------
+  // getClient.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenCalledTwiceWithSameCredentials_ThenGetClientReturnsSameClient() throws Exception {
+    var factory = new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), Runnable::run);
+
+    var client1 = getResourceManager(factory, CREDENTIALS_1);
+    var client2 = getResourceManager(factory, CREDENTIALS_1);
+
+    assertSame(client1, client2);
+    assertEquals(1, factory.clientsBuilt());
+  }
+
+  @Test
+  public void whenCalledWithDifferentCredentials_ThenGetClientReturnsDifferentClients() throws Exception {
+    var factory = new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), Runnable::run);
+
+    var client1 = getResourceManager(factory, CREDENTIALS_1);
+    var client2 = getResourceManager(factory, CREDENTIALS_2);
+
+    assertNotSame(client1, client2);
+    assertEquals(2, factory.clientsBuilt());
+  }
+
+  @Test
+  public void whenCalledWithDifferentClientClasses_ThenGetClientReturnsDifferentClients() throws Exception {
+    var factory = new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), Runnable::run);
+
+    getResourceManager(factory, CREDENTIALS_1);
+    factory.getClient(
+      IAMCredentials.class,
+      CREDENTIALS_1,
+      (transport, jsonFactory, initializer) -> new IAMCredentials
+        .Builder(transport, jsonFactory, initializer)
+        .build());
+
+    var statistics = factory.statistics();
+    assertEquals(2, factory.clientsBuilt());
+    assertEquals(1, statistics.get("CloudResourceManager").clientsBuilt());
+    assertEquals(1, statistics.get("IAMCredentials").clientsBuilt());
+  }
+
+  @Test
+  public void whenBuilderThrowsException_ThenGetClientPropagatesException() {
+    var factory = new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), Runnable::run);
+
+    assertThrows(
+      IOException.class,
+      () -> factory.getClient(
+        CloudResourceManager.class,
+        CREDENTIALS_1,
+        (transport, jsonFactory, initializer) -> {
+          throw new IOException("mock");
+        }));
+    assertEquals(0, factory.clientsBuilt());
+  }
+
+  // -------------------------------------------------------------------------
+  // circuitBreaker.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenCircuitOpen_ThenRequestThrowsException() throws Exception {
+    var policies = new BackendPolicies(
+      Runnable::run,
+      api -> new BackendPolicies.ApiOptions(
+        RetryPolicy.Options.DEFAULT,
+        new CircuitBreaker.Options(50, 2, Duration.ofMinutes(1)),
+        Bulkhead.Options.DISABLED),
+      method -> BackendPolicies.MethodOptions.DEFAULT);
+    var factory = new ClientFactory(new HttpTransport(HttpTransport.Options.DEFAULT), policies);
+
+    var client = getResourceManager(factory, CREDENTIALS_1);
+
+    var circuitBreaker = policies.circuitBreaker(CloudResourceManager.class);
+    circuitBreaker.record(false);
+    circuitBreaker.record(false);
+
+    //
+    // The stub has been built before the circuit opened, but
+    // requests must be rejected nevertheless.
+    //
+    var exception = assertThrows(
+      CircuitBreaker.OpenCircuitException.class,
+      () -> client.projects().get("projects/project-1").execute());
+    assertInstanceOf(BackendUnavailableException.class, exception.getCause());
+  }
+}
@@ -0,0 +1,166 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestClientMetrics {
+  private static final Duration LATENCY = Duration.ofMillis(30);
+  private static final String URL = "https://example.com/v1/projects/project-1:getAncestry";
+
+  private long nanos = 0;
+
+  private ClientMetrics newMetrics() {
+    //
+    // Let each clock reading advance the time so that each attempt
+    // appears to take LATENCY.
+    //
+    return new ClientMetrics(() -> {
+      var now = this.nanos;
+      this.nanos += LATENCY.toNanos();
+      return now;
+    });
+  }
+
+  private static HttpRequest newRequest(MockLowLevelHttpResponse response) throws IOException {
+    return new MockHttpTransport.Builder()
+      .setLowLevelHttpResponse(response)
+      .build()
+      .createRequestFactory()
+      .buildPostRequest(new GenericUrl(URL), null);
+  }
+
+  // -------------------------------------------------------------------------
+  // methodName.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenPathContainsCollection_ThenMethodNameContainsCollection() {
+    assertEquals(
+      "GET groups",
+      ClientMetrics.methodName("GET", "/admin/directory/v1/groups"));
+    assertEquals(
+      "POST projects:search",
+      ClientMetrics.methodName("POST", "/v3/projects:search"));
+  }
+
+  @Test
+  public void whenPathContainsResourceIds_ThenMethodNameReplacesIds() {
+    assertEquals(
+      "GET groups/*/members",
+      ClientMetrics.methodName("GET", "/admin/directory/v1/groups/group@example.com/members"));
+    assertEquals(
+      "POST projects/*:getAncestry",
+      ClientMetrics.methodName("POST", "/v3/projects/project-1:getAncestry"));
+    assertEquals(
+      "GET projects/*/secrets/*/versions/*:access",
+      ClientMetrics.methodName("GET", "/v1/projects/1/secrets/secret-1/versions/latest:access"));
+  }
+
+  @Test
+  public void whenPathLacksVersion_ThenMethodNameContainsPath() {
+    assertEquals(
+      "POST /batch/admin/directory_v1",
+      ClientMetrics.methodName("POST", "/batch/admin/directory_v1"));
+  }
+
+  // -------------------------------------------------------------------------
+  // apply.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenRequestSucceeds_ThenMetricsRecordResponse() throws Exception {
+    var metrics = newMetrics();
+
+    var request = newRequest(new MockLowLevelHttpResponse()
+      .setStatusCode(200)
+      .addHeader("Content-Length", "2")
+      .setContent("{}"));
+    metrics.apply(request);
+    request.execute();
+
+    var method = metrics.methods().get("POST projects/*:getAncestry");
+    assertNotNull(method);
+    assertEquals(0, method.inFlight());
+    assertEquals(2, method.bytesReceived());
+    assertEquals(0, method.ioErrors());
+    assertEquals(Map.of(200, 1L), method.statusCodes());
+    assertEquals(LATENCY, method.totalLatency());
+    assertEquals(1, method.latencyBuckets()[3]); // 50ms bucket.
+  }
+
+  @Test
+  public void whenRequestFails_ThenMetricsRecordStatusCode() throws Exception {
+    var metrics = newMetrics();
+
+    var request = newRequest(new MockLowLevelHttpResponse()
+      .setStatusCode(404)
+      .setContent("{}"));
+    request.setThrowExceptionOnExecuteError(false);
+    metrics.apply(request);
+    request.execute();
+
+    var method = metrics.methods().get("POST projects/*:getAncestry");
+    assertEquals(0, method.inFlight());
+    assertEquals(Map.of(404, 1L), method.statusCodes());
+  }
+
+  @Test
+  public void whenRequestThrowsIOException_ThenMetricsRecordIOError() throws Exception {
+    var metrics = newMetrics();
+
+    var request = new MockHttpTransport() {
+      @Override
+      public LowLevelHttpRequest buildRequest(String method, String url) {
+        return new MockLowLevelHttpRequest() {
+          @Override
+          public LowLevelHttpResponse execute() throws IOException {
+            throw new IOException("mock");
+          }
+        };
+      }
+    }
+      .createRequestFactory()
+      .buildPostRequest(new GenericUrl(URL), null);
+    metrics.apply(request);
+
+    assertThrows(IOException.class, request::execute);
+
+    var method = metrics.methods().get("POST projects/*:getAncestry");
+    assertEquals(0, method.inFlight());
+    assertEquals(1, method.ioErrors());
+    assertTrue(method.statusCodes().isEmpty());
+  }
+}
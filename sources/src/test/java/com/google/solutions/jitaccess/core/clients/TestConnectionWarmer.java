@@ -0,0 +1,179 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestConnectionWarmer {
+  private static final List<GenericUrl> ENDPOINTS = List.of(
+    new GenericUrl("https://one.example.com/"),
+    new GenericUrl("https://two.example.com/"));
+
+  private static final Executor NEVER = task -> {};
+
+  /**
+   * Transport that records requests and responds with a 404.
+   */
+  private static class FakeTransport extends HttpTransport {
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private final boolean fail;
+
+    private FakeTransport(boolean fail) {
+      super(HttpTransport.Options.DEFAULT);
+      this.fail = fail;
+    }
+
+    @Override
+    public com.google.api.client.http.HttpTransport get() {
+      return new MockHttpTransport() {
+        @Override
+        public LowLevelHttpRequest buildRequest(String method, String url) throws IOException {
+          if (fail) {
+            throw new IOException("mock");
+          }
+
+          requests.add(method + " " + url);
+          return new MockLowLevelHttpRequest(url)
+            .setResponse(new MockLowLevelHttpResponse().setStatusCode(404));
+        }
+      };
+    }
+  }
+
+  private static class FakeClock {
+    private long nanos = 0;
+  }
+
+  //---------------------------------------------------------------------------
+  // start.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenStarted_ThenStartContactsAllEndpoints() {
+    var transport = new FakeTransport(false);
+    var warmer = new ConnectionWarmer(
+      transport,
+      ENDPOINTS,
+      ConnectionWarmer.Options.DEFAULT,
+      Runnable::run);
+
+    assertFalse(warmer.isComplete());
+
+    warmer.start();
+
+    assertTrue(warmer.isComplete());
+    assertEquals(
+      List.of("HEAD https://one.example.com/", "HEAD https://two.example.com/"),
+      transport.requests);
+  }
+
+  @Test
+  public void whenStartedTwice_ThenStartContactsEndpointsOnce() {
+    var transport = new FakeTransport(false);
+    var warmer = new ConnectionWarmer(
+      transport,
+      ENDPOINTS,
+      ConnectionWarmer.Options.DEFAULT,
+      Runnable::run);
+
+    warmer.start();
+    warmer.start();
+
+    assertEquals(2, transport.requests.size());
+  }
+
+  @Test
+  public void whenEndpointsUnreachable_ThenWarmupCompletes() {
+    var warmer = new ConnectionWarmer(
+      new FakeTransport(true),
+      ENDPOINTS,
+      ConnectionWarmer.Options.DEFAULT,
+      Runnable::run);
+
+    warmer.start();
+
+    assertTrue(warmer.isComplete());
+  }
+
+  @Test
+  public void whenDisabled_ThenStartDoesNothing() {
+    var transport = new FakeTransport(false);
+    var warmer = new ConnectionWarmer(
+      transport,
+      ENDPOINTS,
+      ConnectionWarmer.Options.DISABLED,
+      Runnable::run);
+
+    warmer.start();
+
+    assertTrue(warmer.isComplete());
+    assertEquals(0, transport.requests.size());
+  }
+
+  //---------------------------------------------------------------------------
+  // diagnose.
+  //---------------------------------------------------------------------------
+
+  @Test
+  public void whenNotStarted_ThenDiagnoseReturnsFailure() {
+    var warmer = new ConnectionWarmer(
+      new FakeTransport(false),
+      ENDPOINTS,
+      ConnectionWarmer.Options.DEFAULT,
+      Runnable::run);
+
+    var results = List.copyOf(warmer.diagnose());
+    assertEquals(1, results.size());
+    assertFalse(results.get(0).successful());
+  }
+
+  @Test
+  public void whenWarmupPending_ThenDiagnoseReturnsFailureUntilTimeout() {
+    var clock = new FakeClock();
+    var warmer = new ConnectionWarmer(
+      new FakeTransport(false),
+      ENDPOINTS,
+      new ConnectionWarmer.Options(Duration.ofSeconds(5)),
+      NEVER,
+      () -> clock.nanos);
+
+    warmer.start();
+    assertFalse(List.copyOf(warmer.diagnose()).get(0).successful());
+
+    clock.nanos += Duration.ofSeconds(5).toNanos();
+    assertTrue(List.copyOf(warmer.diagnose()).get(0).successful());
+  }
+}
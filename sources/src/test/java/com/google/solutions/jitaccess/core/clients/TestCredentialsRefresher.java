@@ -0,0 +1,155 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCredentialsRefresher {
+  private static final Instant NOW = Instant.ofEpochSecond(1_700_000_000);
+  private static final CredentialsRefresher.Options OPTIONS = new CredentialsRefresher.Options(
+    Duration.ofMinutes(10),
+    Duration.ZERO,
+    Duration.ofSeconds(30),
+    Duration.ofMinutes(2));
+
+  /**
+   * Credentials that issue tokens with a fixed lifetime, or fail.
+   */
+  private static class MockCredentials extends GoogleCredentials {
+    private final Duration tokenLifetime;
+    private final boolean fail;
+    private int refreshes = 0;
+
+    private MockCredentials(Duration tokenLifetime, boolean fail) {
+      this.tokenLifetime = tokenLifetime;
+      this.fail = fail;
+    }
+
+    @Override
+    public AccessToken refreshAccessToken() throws IOException {
+      if (this.fail) {
+        throw new IOException("mock");
+      }
+
+      this.refreshes++;
+      return new AccessToken(
+        "token-" + this.refreshes,
+        Date.from(NOW.plus(this.tokenLifetime)));
+    }
+  }
+
+  private static CredentialsRefresher newRefresher(GoogleCredentials credentials) {
+    return new CredentialsRefresher(
+      credentials,
+      OPTIONS,
+      Executors.newSingleThreadScheduledExecutor(),
+      Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  // -------------------------------------------------------------------------
+  // refresh.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenRefreshSucceeds_ThenNextRefreshIsAheadOfExpiry() {
+    var credentials = new MockCredentials(Duration.ofMinutes(60), false);
+    var refresher = newRefresher(credentials);
+
+    assertEquals(Duration.ofMinutes(50), refresher.refresh());
+    assertEquals("token-1", credentials.getAccessToken().getTokenValue());
+
+    var statistics = refresher.statistics();
+    assertEquals(Duration.ZERO, statistics.tokenAge());
+    assertEquals(Duration.ZERO, statistics.lastRefreshLatency());
+    assertEquals(1, statistics.refreshes());
+    assertEquals(0, statistics.failedRefreshes());
+  }
+
+  @Test
+  public void whenTokenLifetimeShorterThanRefreshAhead_ThenNextRefreshIsAfterRetryBackoff() {
+    var refresher = newRefresher(new MockCredentials(Duration.ofMinutes(5), false));
+
+    assertEquals(OPTIONS.retryBackoff(), refresher.refresh());
+  }
+
+  @Test
+  public void whenRefreshFails_ThenRetryBacksOffExponentially() {
+    var refresher = newRefresher(new MockCredentials(Duration.ofMinutes(60), true));
+
+    assertEquals(Duration.ofSeconds(30), refresher.refresh());
+    assertEquals(Duration.ofSeconds(60), refresher.refresh());
+    assertEquals(Duration.ofSeconds(120), refresher.refresh());
+    assertEquals(Duration.ofSeconds(120), refresher.refresh());
+
+    var statistics = refresher.statistics();
+    assertNull(statistics.tokenAge());
+    assertNull(statistics.lastRefreshLatency());
+    assertEquals(0, statistics.refreshes());
+    assertEquals(4, statistics.failedRefreshes());
+  }
+
+  // -------------------------------------------------------------------------
+  // start.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenStarted_ThenTokenIsRefreshedInBackground() throws Exception {
+    var credentials = new MockCredentials(Duration.ofMinutes(60), false);
+    var refresher = newRefresher(credentials);
+
+    refresher.start();
+
+    for (int i = 0; i < 100 && refresher.statistics().refreshes() == 0; i++) {
+      Thread.sleep(50);
+    }
+
+    assertEquals(1, refresher.statistics().refreshes());
+    assertNotNull(credentials.getAccessToken());
+  }
+
+  // -------------------------------------------------------------------------
+  // Options.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenRetryBackoffNotPositive_ThenOptionsThrowsException() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new CredentialsRefresher.Options(
+        Duration.ofMinutes(10),
+        Duration.ZERO,
+        Duration.ZERO,
+        Duration.ofMinutes(2)));
+  }
+}
@@ -0,0 +1,339 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.solutions.jitaccess.core.AccessDeniedException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestHedgingPolicy {
+  private static final Duration MIN_DELAY = Duration.ofMillis(20);
+
+  private final Executor executor = Executors.newCachedThreadPool();
+  private long nanos = 0;
+
+  private static void sleep(Duration duration) throws InterruptedIOException {
+    try {
+      Thread.sleep(duration.toMillis());
+    }
+    catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    }
+  }
+
+  private static void await(CountDownLatch latch) throws InterruptedIOException {
+    try {
+      latch.await();
+    }
+    catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    }
+  }
+
+  private HedgingPolicy newHedgingPolicy(int percentile, int budget) throws Exception {
+    return newHedgingPolicy(percentile, budget, this.executor);
+  }
+
+  private HedgingPolicy newHedgingPolicy(
+    int percentile,
+    int budget,
+    Executor executor
+  ) throws Exception {
+    var policy = new HedgingPolicy(
+      new HedgingPolicy.Options(percentile, MIN_DELAY, budget),
+      executor);
+
+    //
+    // Record enough (fast) calls so that the policy starts hedging.
+    //
+    for (int i = 0; i < HedgingPolicy.MIN_LATENCY_SAMPLES; i++) {
+      policy.execute(() -> "fast");
+    }
+
+    return policy;
+  }
+
+  // -------------------------------------------------------------------------
+  // Options.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenPercentileOutOfRange_ThenOptionsThrowsException() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new HedgingPolicy.Options(-1, MIN_DELAY, 10));
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new HedgingPolicy.Options(100, MIN_DELAY, 10));
+  }
+
+  @Test
+  public void whenBudgetOutOfRange_ThenOptionsThrowsException() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new HedgingPolicy.Options(95, MIN_DELAY, 101));
+  }
+
+  // -------------------------------------------------------------------------
+  // hedgingDelay.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenTooFewLatenciesRecorded_ThenHedgingDelayIsNull() throws Exception {
+    var policy = new HedgingPolicy(
+      new HedgingPolicy.Options(90, Duration.ZERO, 10),
+      Runnable::run,
+      () -> this.nanos);
+
+    for (int i = 1; i < HedgingPolicy.MIN_LATENCY_SAMPLES; i++) {
+      policy.execute(() -> this.nanos += Duration.ofMillis(10).toNanos());
+    }
+
+    assertNull(policy.hedgingDelay());
+  }
+
+  @Test
+  public void whenLatenciesRecorded_ThenHedgingDelayIsPercentile() throws Exception {
+    var policy = new HedgingPolicy(
+      new HedgingPolicy.Options(90, Duration.ZERO, 10),
+      Runnable::run,
+      () -> this.nanos);
+
+    for (int i = 1; i <= HedgingPolicy.LATENCY_SAMPLES; i++) {
+      var latency = Duration.ofMillis(i);
+      policy.execute(() -> this.nanos += latency.toNanos());
+    }
+
+    assertEquals(Duration.ofMillis(90), policy.hedgingDelay());
+  }
+
+  @Test
+  public void whenPercentileBelowMinDelay_ThenHedgingDelayIsMinDelay() throws Exception {
+    var policy = new HedgingPolicy(
+      new HedgingPolicy.Options(90, MIN_DELAY, 10),
+      Runnable::run,
+      () -> this.nanos);
+
+    for (int i = 0; i < HedgingPolicy.LATENCY_SAMPLES; i++) {
+      policy.execute(() -> this.nanos += Duration.ofMillis(1).toNanos());
+    }
+
+    assertEquals(MIN_DELAY, policy.hedgingDelay());
+  }
+
+  // -------------------------------------------------------------------------
+  // execute.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenDisabled_ThenExecuteRunsCallOnCurrentThread() throws Exception {
+    var policy = new HedgingPolicy(
+      HedgingPolicy.Options.DISABLED,
+      r -> fail("Executor must not be used"));
+
+    var thread = policy.execute(() -> Thread.currentThread());
+
+    assertSame(Thread.currentThread(), thread);
+    assertEquals(0, policy.statistics().calls());
+  }
+
+  @Test
+  public void whenTooFewLatenciesRecorded_ThenExecuteRunsCallOnCurrentThread() throws Exception {
+    var policy = new HedgingPolicy(
+      HedgingPolicy.Options.DEFAULT,
+      r -> fail("Executor must not be used"));
+
+    var thread = policy.execute(() -> Thread.currentThread());
+
+    assertSame(Thread.currentThread(), thread);
+    assertEquals(1, policy.statistics().calls());
+  }
+
+  @Test
+  public void whenBudgetExhausted_ThenExecuteRunsCallOnCurrentThread() throws Exception {
+    var policy = newHedgingPolicy(50, 0);
+
+    var thread = policy.execute(() -> Thread.currentThread());
+
+    assertSame(Thread.currentThread(), thread);
+  }
+
+  @Test
+  public void whenExecutorSaturated_ThenExecuteRunsCallOnCurrentThread() throws Exception {
+    var policy = newHedgingPolicy(
+      50,
+      100,
+      r -> {
+        throw new RejectedExecutionException("mock");
+      });
+
+    var thread = policy.execute(() -> Thread.currentThread());
+
+    assertSame(Thread.currentThread(), thread);
+    assertEquals(0, policy.statistics().hedgedCalls());
+  }
+
+  @Test
+  public void whenCallSlow_ThenHedgedCallWins() throws Exception {
+    var policy = newHedgingPolicy(50, 100);
+
+    var release = new CountDownLatch(1);
+    var attempts = new AtomicInteger();
+    try {
+      var result = policy.execute(() -> {
+        if (attempts.incrementAndGet() == 1) {
+          await(release);
+          return "slow";
+        }
+        return "fast";
+      });
+
+      assertEquals("fast", result);
+      assertEquals(2, attempts.get());
+      assertEquals(1, policy.statistics().hedgedCalls());
+      assertEquals(1, policy.statistics().hedgedCallsWon());
+    }
+    finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void whenHedgedCallWins_ThenPrimaryCallIsAbandoned() throws Exception {
+    var policy = newHedgingPolicy(50, 100);
+
+    var release = new CountDownLatch(1);
+    var done = new CountDownLatch(1);
+    var attempts = new AtomicInteger();
+    var primaryAbandoned = new AtomicBoolean();
+    var result = policy.execute(() -> {
+      if (attempts.incrementAndGet() == 1) {
+        await(release);
+        primaryAbandoned.set(HedgingPolicy.isCurrentCallAbandoned());
+        done.countDown();
+        return "slow";
+      }
+
+      assertFalse(HedgingPolicy.isCurrentCallAbandoned());
+      return "fast";
+    });
+
+    assertEquals("fast", result);
+
+    release.countDown();
+    await(done);
+    assertTrue(primaryAbandoned.get());
+    assertFalse(HedgingPolicy.isCurrentCallAbandoned());
+  }
+
+  @Test
+  public void whenBudgetExhausted_ThenCallIsNotHedged() throws Exception {
+    var policy = newHedgingPolicy(50, 0);
+
+    var attempts = new AtomicInteger();
+    var result = policy.execute(() -> {
+      attempts.incrementAndGet();
+      sleep(MIN_DELAY.multipliedBy(3));
+      return "slow";
+    });
+
+    assertEquals("slow", result);
+    assertEquals(1, attempts.get());
+    assertEquals(0, policy.statistics().hedgedCalls());
+  }
+
+  @Test
+  public void whenExecutorSaturatedByPrimaryCall_ThenCallIsNotHedged() throws Exception {
+    var policy = newHedgingPolicy(
+      50,
+      100,
+      new Bulkhead("test", new Bulkhead.Options(1, 0, Bulkhead.RejectionPolicy.ABORT)));
+
+    var attempts = new AtomicInteger();
+    var result = policy.execute(() -> {
+      attempts.incrementAndGet();
+      sleep(MIN_DELAY.multipliedBy(3));
+      return "slow";
+    });
+
+    assertEquals("slow", result);
+    assertEquals(1, attempts.get());
+    assertEquals(0, policy.statistics().hedgedCalls());
+  }
+
+  @Test
+  public void whenHedgedCallFails_ThenPrimaryResultIsUsed() throws Exception {
+    var policy = newHedgingPolicy(50, 100);
+
+    var attempts = new AtomicInteger();
+    var result = policy.execute(() -> {
+      if (attempts.incrementAndGet() == 1) {
+        sleep(MIN_DELAY.multipliedBy(3));
+        return "slow";
+      }
+      throw new IOException("mock");
+    });
+
+    assertEquals("slow", result);
+    assertEquals(2, attempts.get());
+    assertEquals(0, policy.statistics().hedgedCallsWon());
+  }
+
+  @Test
+  public void whenBothCallsFail_ThenExecuteThrowsException() throws Exception {
+    var policy = newHedgingPolicy(50, 100);
+
+    assertThrows(
+      AccessDeniedException.class,
+      () -> policy.execute(() -> {
+        sleep(MIN_DELAY.multipliedBy(3));
+        throw new AccessDeniedException("mock");
+      }));
+  }
+
+  @Test
+  public void whenCallFailsBeforeDelay_ThenExecuteThrowsExceptionWithoutHedging() throws Exception {
+    var policy = newHedgingPolicy(50, 100);
+
+    var attempts = new AtomicInteger();
+    assertThrows(
+      AccessDeniedException.class,
+      () -> policy.execute(() -> {
+        attempts.incrementAndGet();
+        throw new AccessDeniedException("mock");
+      }));
+
+    assertEquals(1, attempts.get());
+    assertEquals(0, policy.statistics().hedgedCalls());
+  }
+}
@@ -0,0 +1,195 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestHttp2Transport {
+  private HttpServer server;
+  private final AtomicReference<HttpExchange> lastExchange = new AtomicReference<>();
+  private final AtomicReference<String> lastRequestBody = new AtomicReference<>();
+
+  @BeforeEach
+  public void startServer() throws Exception {
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.server.createContext("/ok", exchange -> {
+      record(exchange);
+      var body = "{\"name\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.getResponseHeaders().add("X-Test", "value-1");
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    this.server.createContext("/not-found", exchange -> {
+      record(exchange);
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    this.server.createContext("/slow", exchange -> {
+      record(exchange);
+      try {
+        Thread.sleep(2000);
+      }
+      catch (InterruptedException ignored) {
+      }
+      exchange.sendResponseHeaders(204, -1);
+      exchange.close();
+    });
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.server.stop(0);
+  }
+
+  private void record(HttpExchange exchange) throws IOException {
+    this.lastRequestBody.set(new String(
+      exchange.getRequestBody().readAllBytes(),
+      StandardCharsets.UTF_8));
+    this.lastExchange.set(exchange);
+  }
+
+  private GenericUrl url(String path) {
+    return new GenericUrl(String.format(
+      "http://localhost:%d%s",
+      this.server.getAddress().getPort(),
+      path));
+  }
+
+  private static Http2Transport newTransport() throws Exception {
+    return new Http2Transport(SSLContext.getDefault(), Duration.ofSeconds(5));
+  }
+
+  // -------------------------------------------------------------------------
+  // Requests.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenRequestHasContent_ThenExecuteSendsMethodHeadersAndContent() throws Exception {
+    var request = newTransport()
+      .createRequestFactory()
+      .buildPostRequest(
+        url("/ok"),
+        ByteArrayContent.fromString("application/json", "{\"request\":1}"));
+    request.getHeaders().set("X-Custom", "custom-value");
+    request.execute().disconnect();
+
+    var exchange = this.lastExchange.get();
+    assertEquals("POST", exchange.getRequestMethod());
+    assertEquals("custom-value", exchange.getRequestHeaders().getFirst("X-Custom"));
+    assertEquals("application/json", exchange.getRequestHeaders().getFirst("Content-Type"));
+    assertEquals("{\"request\":1}", this.lastRequestBody.get());
+  }
+
+  @Test
+  public void whenRequestHasRestrictedHeader_ThenExecuteIgnoresHeader() throws Exception {
+    var request = newTransport()
+      .createRequestFactory()
+      .buildGetRequest(url("/ok"));
+    request.getHeaders().set("Connection", "close");
+    request.execute().disconnect();
+
+    assertEquals("GET", this.lastExchange.get().getRequestMethod());
+  }
+
+  // -------------------------------------------------------------------------
+  // Responses.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenServerResponds_ThenResponseContainsStatusHeadersAndContent() throws Exception {
+    var response = newTransport()
+      .createRequestFactory()
+      .buildGetRequest(url("/ok"))
+      .execute();
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals("application/json", response.getContentType());
+    assertEquals("value-1", response.getHeaders().getFirstHeaderStringValue("X-Test"));
+    assertEquals("{\"name\":\"value\"}", response.parseAsString());
+  }
+
+  @Test
+  public void whenServerReturnsError_ThenExecuteThrowsException() throws Exception {
+    var request = newTransport()
+      .createRequestFactory()
+      .buildGetRequest(url("/not-found"));
+
+    var exception = assertThrows(HttpResponseException.class, request::execute);
+    assertEquals(404, exception.getStatusCode());
+  }
+
+  // -------------------------------------------------------------------------
+  // Timeouts.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenServerRespondsTooSlowly_ThenExecuteThrowsException() throws Exception {
+    var request = newTransport()
+      .createRequestFactory()
+      .buildGetRequest(url("/slow"))
+      .setReadTimeout(100)
+      .setWriteTimeout(100);
+
+    assertThrows(SocketTimeoutException.class, request::execute);
+  }
+
+  @Test
+  public void whenReadAndWriteTimeoutSet_ThenTimeoutIsSum() throws Exception {
+    var request = (Http2Transport.Request)newTransport().buildRequest("GET", "http://localhost/");
+
+    request.setTimeout(0, 1000);
+    request.setWriteTimeout(500);
+
+    assertEquals(Duration.ofMillis(1500), request.timeout());
+  }
+
+  @Test
+  public void whenReadTimeoutIsZero_ThenTimeoutIsZero() throws Exception {
+    var request = (Http2Transport.Request)newTransport().buildRequest("GET", "http://localhost/");
+
+    request.setTimeout(0, 0);
+    request.setWriteTimeout(500);
+
+    assertEquals(Duration.ZERO, request.timeout());
+  }
+}
@@ -0,0 +1,87 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestHttpTransport {
+  private static final GoogleCredentials CREDENTIALS =
+    GoogleCredentials.create(new AccessToken("token-1", null));
+
+  private static com.google.api.client.http.HttpRequest buildRequest(
+    HttpTransport.Options options
+  ) throws Exception {
+    var initializer = new HttpTransport(options).newAuthenticatingRequestInitializer(
+      CREDENTIALS,
+      new RetryPolicy(RetryPolicy.Options.DEFAULT),
+      new CircuitBreaker(CircuitBreaker.Options.DISABLED),
+      new ClientMetrics());
+
+    return new MockHttpTransport()
+      .createRequestFactory(initializer)
+      .buildGetRequest(new GenericUrl("https://example.com/"));
+  }
+
+  // -------------------------------------------------------------------------
+  // newAuthenticatingRequestInitializer.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenProtocolIsHttp11_ThenWriteTimeoutIsNotApplied() throws Exception {
+    var request = buildRequest(new HttpTransport.Options(
+      Duration.ofSeconds(1),
+      Duration.ofSeconds(2),
+      Duration.ofSeconds(3),
+      HttpTransport.Options.DEFAULT_MAX_CONNECTIONS,
+      HttpTransport.Options.DEFAULT_CONNECTION_IDLE_TIMEOUT,
+      HttpTransport.Options.DEFAULT_CONNECTION_TIME_TO_LIVE,
+      HttpTransport.Protocol.HTTP_1_1));
+
+    assertEquals(1000, request.getConnectTimeout());
+    assertEquals(2000, request.getReadTimeout());
+    assertEquals(0, request.getWriteTimeout());
+  }
+
+  @Test
+  public void whenProtocolIsHttp2_ThenWriteTimeoutIsApplied() throws Exception {
+    var request = buildRequest(new HttpTransport.Options(
+      Duration.ofSeconds(1),
+      Duration.ofSeconds(2),
+      Duration.ofSeconds(3),
+      HttpTransport.Options.DEFAULT_MAX_CONNECTIONS,
+      HttpTransport.Options.DEFAULT_CONNECTION_IDLE_TIMEOUT,
+      HttpTransport.Options.DEFAULT_CONNECTION_TIME_TO_LIVE,
+      HttpTransport.Protocol.HTTP_2));
+
+    assertEquals(1000, request.getConnectTimeout());
+    assertEquals(2000, request.getReadTimeout());
+    assertEquals(3000, request.getWriteTimeout());
+  }
+}
@@ -0,0 +1,143 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.solutions.jitaccess.core.AccessDeniedException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPagedIterator {
+  /**
+   * Fetcher that serves pages from a map, keyed by page token.
+   */
+  private static class FakeFetcher implements PagedIterator.PageFetcher<String> {
+    private final @NotNull Map<String, PagedIterator.Page<String>> pages;
+    private final List<String> requestedTokens = new ArrayList<>();
+
+    FakeFetcher(@NotNull Map<String, PagedIterator.Page<String>> pages) {
+      this.pages = pages;
+    }
+
+    @Override
+    public @NotNull PagedIterator.Page<String> fetch(
+      @Nullable String pageToken
+    ) throws AccessDeniedException {
+      var key = pageToken == null ? "" : pageToken;
+      this.requestedTokens.add(key);
+
+      var page = this.pages.get(key);
+      if (page == null) {
+        throw new AccessDeniedException("mock");
+      }
+
+      return page;
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // hasNext, next.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenFirstPageEmpty_ThenHasNextReturnsFalse() throws Exception {
+    var fetcher = new FakeFetcher(Map.of(
+      "", new PagedIterator.Page<>(List.of(), null)));
+    var iterator = new PagedIterator<>(fetcher, null, Runnable::run);
+
+    assertFalse(iterator.hasNext());
+    assertThrows(NoSuchElementException.class, iterator::next);
+  }
+
+  @Test
+  public void whenMultiplePages_ThenIteratorReturnsAllItems() throws Exception {
+    var fetcher = new FakeFetcher(Map.of(
+      "", new PagedIterator.Page<>(List.of("a", "b"), "page-2"),
+      "page-2", new PagedIterator.Page<>(List.of(), "page-3"),
+      "page-3", new PagedIterator.Page<>(List.of("c"), "")));
+    var iterator = new PagedIterator<>(fetcher, null, Runnable::run);
+
+    assertEquals(List.of("a", "b", "c"), iterator.toList());
+    assertEquals(List.of("", "page-2", "page-3"), fetcher.requestedTokens);
+  }
+
+  @Test
+  public void whenPageTokenProvided_ThenIteratorStartsAtPage() throws Exception {
+    var fetcher = new FakeFetcher(Map.of(
+      "page-2", new PagedIterator.Page<>(List.of("c"), null)));
+    var iterator = new PagedIterator<>(fetcher, "page-2", Runnable::run);
+
+    assertEquals(List.of("c"), iterator.toList());
+  }
+
+  @Test
+  public void whenCallerStopsEarly_ThenIteratorFetchesAtMostOneMorePage() throws Exception {
+    var fetcher = new FakeFetcher(Map.of(
+      "", new PagedIterator.Page<>(List.of("a", "b"), "page-2"),
+      "page-2", new PagedIterator.Page<>(List.of("c"), "page-3"),
+      "page-3", new PagedIterator.Page<>(List.of("d"), null)));
+    var iterator = new PagedIterator<>(fetcher, null, Runnable::run);
+
+    assertEquals("a", iterator.next());
+    assertEquals(List.of("", "page-2"), fetcher.requestedTokens);
+  }
+
+  @Test
+  public void whenFetchFails_ThenNextThrowsException() throws Exception {
+    var fetcher = new FakeFetcher(Map.of(
+      "", new PagedIterator.Page<>(List.of("a"), "missing")));
+    var iterator = new PagedIterator<>(fetcher, null, Runnable::run);
+
+    assertEquals("a", iterator.next());
+    assertThrows(AccessDeniedException.class, iterator::next);
+  }
+
+  // -------------------------------------------------------------------------
+  // close.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenClosedBeforePrefetchStarts_ThenPrefetchIsSkipped() throws Exception {
+    var fetcher = new FakeFetcher(Map.of(
+      "", new PagedIterator.Page<>(List.of("a", "b"), "page-2"),
+      "page-2", new PagedIterator.Page<>(List.of("c"), null)));
+    var tasks = new ArrayList<Runnable>();
+    var iterator = new PagedIterator<>(fetcher, null, tasks::add);
+
+    tasks.remove(0).run();
+    assertEquals("a", iterator.next());
+    assertEquals(1, tasks.size());
+
+    iterator.close();
+    tasks.remove(0).run();
+
+    assertEquals(List.of(""), fetcher.requestedTokens);
+    assertFalse(iterator.hasNext());
+  }
+}
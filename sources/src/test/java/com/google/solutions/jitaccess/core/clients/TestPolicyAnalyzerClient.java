@@ -0,0 +1,123 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.services.cloudasset.v1.model.IamPolicyAnalysisResult;
+import com.google.api.services.cloudasset.v1.model.IamPolicyAnalysisState;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPolicyAnalyzerClient {
+  private static class CollectingHandler implements PolicyAnalyzerClient.AnalysisHandler {
+    private final List<IamPolicyAnalysisResult> results = new ArrayList<>();
+    private final List<IamPolicyAnalysisState> errors = new ArrayList<>();
+
+    @Override
+    public void onAnalysisResult(@NotNull IamPolicyAnalysisResult result) {
+      this.results.add(result);
+    }
+
+    @Override
+    public void onNonCriticalError(@NotNull IamPolicyAnalysisState error) {
+      this.errors.add(error);
+    }
+  }
+
+  private static @NotNull CollectingHandler parse(@NotNull String json) throws IOException {
+    var handler = new CollectingHandler();
+    PolicyAnalyzerClient.parseAnalysis(
+      new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+      StandardCharsets.UTF_8,
+      handler);
+    return handler;
+  }
+
+  // -------------------------------------------------------------------------
+  // parseAnalysis.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenResponseIsNotAnObject_ThenParseAnalysisThrowsException() {
+    assertThrows(IOException.class, () -> parse("[]"));
+  }
+
+  @Test
+  public void whenResponseLacksMainAnalysis_ThenParseAnalysisReturnsNothing() throws Exception {
+    var handler = parse("{\"fullyExplored\": true}");
+
+    assertEquals(0, handler.results.size());
+    assertEquals(0, handler.errors.size());
+  }
+
+  @Test
+  public void whenMainAnalysisEmpty_ThenParseAnalysisReturnsNothing() throws Exception {
+    var handler = parse("{\"mainAnalysis\": {\"analysisResults\": []}}");
+
+    assertEquals(0, handler.results.size());
+    assertEquals(0, handler.errors.size());
+  }
+
+  @Test
+  public void whenMainAnalysisContainsResults_ThenParseAnalysisReturnsResults() throws Exception {
+    var handler = parse(
+      "{" +
+        "\"serviceAccountImpersonationAnalysis\": [{\"analysisResults\": [{}]}]," +
+        "\"mainAnalysis\": {" +
+          "\"analysisQuery\": {\"scope\": \"organizations/0\"}," +
+          "\"analysisResults\": [" +
+            "{" +
+              "\"iamBinding\": {\"role\": \"roles/role-1\", \"condition\": {\"expression\": \"true\"}}," +
+              "\"accessControlLists\": [{" +
+                "\"resources\": [{\"fullResourceName\": \"//cloudresourcemanager.googleapis.com/projects/project-1\"}]," +
+                "\"conditionEvaluation\": {\"evaluationValue\": \"CONDITIONAL\"}" +
+              "}]" +
+            "}," +
+            "{" +
+              "\"iamBinding\": {\"role\": \"roles/role-2\"}," +
+              "\"unknownField\": {\"nested\": [1, 2, 3]}" +
+            "}" +
+          "]," +
+          "\"fullyExplored\": true," +
+          "\"nonCriticalErrors\": [{\"cause\": \"Something went wrong\"}]" +
+        "}" +
+      "}");
+
+    assertEquals(2, handler.results.size());
+    assertEquals("roles/role-1", handler.results.get(0).getIamBinding().getRole());
+    assertEquals("true", handler.results.get(0).getIamBinding().getCondition().getExpression());
+    assertEquals(
+      "CONDITIONAL",
+      handler.results.get(0).getAccessControlLists().get(0).getConditionEvaluation().getEvaluationValue());
+    assertEquals("roles/role-2", handler.results.get(1).getIamBinding().getRole());
+
+    assertEquals(1, handler.errors.size());
+    assertEquals("Something went wrong", handler.errors.get(0).getCause());
+  }
+}
@@ -0,0 +1,181 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRateLimiter {
+  /**
+   * Sleeper and clock that don't actually wait.
+   */
+  private static class FakeClock {
+    private final List<Long> sleeps = new ArrayList<>();
+    private long nanos = 0;
+
+    void advance(@NotNull Duration duration) {
+      this.nanos += duration.toNanos();
+    }
+
+    @NotNull RateLimiter newRateLimiter(@NotNull RateLimiter.Options options) {
+      return new RateLimiter(
+        options,
+        millis -> {
+          this.sleeps.add(millis);
+          advance(Duration.ofMillis(millis));
+        },
+        () -> this.nanos);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // tryAcquire.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenUnlimited_ThenTryAcquireReturnsTrue() throws Exception {
+    var clock = new FakeClock();
+    var limiter = clock.newRateLimiter(RateLimiter.Options.UNLIMITED);
+
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limiter.tryAcquire());
+    }
+
+    assertEquals(0, clock.sleeps.size());
+    assertEquals(1.0, limiter.fillLevel());
+  }
+
+  @Test
+  public void whenBucketFull_ThenTryAcquireReturnsWithoutWaiting() throws Exception {
+    var clock = new FakeClock();
+    var limiter = clock.newRateLimiter(new RateLimiter.Options(60, 3, Duration.ZERO));
+
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertEquals(0, clock.sleeps.size());
+  }
+
+  @Test
+  public void whenBucketEmptyAndWaitWithinMaxWait_ThenTryAcquireWaits() throws Exception {
+    var clock = new FakeClock();
+    var limiter = clock.newRateLimiter(new RateLimiter.Options(60, 1, Duration.ofSeconds(5)));
+
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+
+    assertEquals(List.of(1000L), clock.sleeps);
+  }
+
+  @Test
+  public void whenBucketEmptyAndWaitExceedsMaxWait_ThenTryAcquireReturnsFalse() throws Exception {
+    var clock = new FakeClock();
+    var limiter = clock.newRateLimiter(new RateLimiter.Options(6, 1, Duration.ofSeconds(5)));
+
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+
+    assertEquals(0, clock.sleeps.size());
+  }
+
+  @Test
+  public void whenTimePasses_ThenBucketIsRefilled() throws Exception {
+    var clock = new FakeClock();
+    var limiter = clock.newRateLimiter(new RateLimiter.Options(60, 2, Duration.ZERO));
+
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+
+    clock.advance(Duration.ofSeconds(1));
+
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+  }
+
+  // -------------------------------------------------------------------------
+  // fillLevel.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenPermitsAcquired_ThenFillLevelDecreases() throws Exception {
+    var clock = new FakeClock();
+    var limiter = clock.newRateLimiter(new RateLimiter.Options(60, 4, Duration.ZERO));
+
+    assertEquals(1.0, limiter.fillLevel());
+
+    limiter.tryAcquire();
+    assertEquals(0.75, limiter.fillLevel());
+
+    limiter.tryAcquire();
+    limiter.tryAcquire();
+    limiter.tryAcquire();
+    assertEquals(0.0, limiter.fillLevel());
+
+    clock.advance(Duration.ofMinutes(1));
+    assertEquals(1.0, limiter.fillLevel());
+  }
+
+  // -------------------------------------------------------------------------
+  // enter.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenNotEntered_ThenCurrentReturnsNull() {
+    assertNull(RateLimiter.current());
+  }
+
+  @Test
+  public void whenEntered_ThenCurrentReturnsRateLimiter() {
+    var outer = new RateLimiter(RateLimiter.Options.UNLIMITED);
+    var inner = new RateLimiter(RateLimiter.Options.UNLIMITED);
+
+    try (var outerScope = outer.enter()) {
+      assertSame(outer, RateLimiter.current());
+
+      try (var innerScope = inner.enter()) {
+        assertSame(inner, RateLimiter.current());
+      }
+
+      assertSame(outer, RateLimiter.current());
+    }
+
+    assertNull(RateLimiter.current());
+  }
+
+  // -------------------------------------------------------------------------
+  // Options.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenBurstIsZero_ThenOptionsThrowsException() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new RateLimiter.Options(60, 0, Duration.ZERO));
+  }
+}
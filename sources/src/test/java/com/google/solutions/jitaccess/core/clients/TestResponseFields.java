@@ -0,0 +1,212 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestResponseFields {
+  /**
+   * Parser that expands a field mask into the paths it selects,
+   * for example, "a(b,c/d)" into "a/b" and "a/c/d".
+   */
+  private static class FieldMask {
+    private final @NotNull String mask;
+    private final @NotNull Set<String> paths = new HashSet<>();
+    private int position = 0;
+
+    private FieldMask(@NotNull String mask) {
+      this.mask = mask;
+      parseList("");
+      assertEquals(mask.length(), this.position, "Unexpected character in mask");
+    }
+
+    private void parseList(@NotNull String prefix) {
+      parseItem(prefix);
+      while (this.position < this.mask.length() && this.mask.charAt(this.position) == ',') {
+        this.position++;
+        parseItem(prefix);
+      }
+    }
+
+    private void parseItem(@NotNull String prefix) {
+      var start = this.position;
+      while (this.position < this.mask.length() && "(),".indexOf(this.mask.charAt(this.position)) < 0) {
+        this.position++;
+      }
+
+      var path = prefix + this.mask.substring(start, this.position);
+      assertFalse(path.isEmpty() || path.endsWith("/"), "Empty field name in mask");
+
+      if (this.position < this.mask.length() && this.mask.charAt(this.position) == '(') {
+        this.position++;
+        parseList(path + "/");
+        assertEquals(')', this.mask.charAt(this.position), "Unbalanced parentheses in mask");
+        this.position++;
+      }
+      else {
+        this.paths.add(path);
+      }
+    }
+
+    /**
+     * Check if the mask selects a field, either directly or
+     * by selecting one of its parents.
+     */
+    boolean covers(@NotNull String field) {
+      return this.paths
+        .stream()
+        .anyMatch(p -> field.equals(p) || field.startsWith(p + "/"));
+    }
+  }
+
+  private static void assertCovers(@NotNull String mask, String... fields) {
+    var fieldMask = new FieldMask(mask);
+    for (var field : fields) {
+      assertTrue(fieldMask.covers(field), String.format("Mask does not cover %s", field));
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // FieldMask.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenMaskSelectsParent_ThenMaskCoversChildren() {
+    var mask = new FieldMask("a/b(c,d/e),f");
+
+    assertTrue(mask.covers("a/b/c"));
+    assertTrue(mask.covers("a/b/c/x"));
+    assertTrue(mask.covers("a/b/d/e"));
+    assertTrue(mask.covers("f"));
+
+    assertFalse(mask.covers("a/b"));
+    assertFalse(mask.covers("a/b/d/x"));
+    assertFalse(mask.covers("a/bc"));
+  }
+
+  // -------------------------------------------------------------------------
+  // Asset Inventory.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenBatchGetEffectiveIamPolicies_ThenMaskCoversConsumedFields() {
+    assertCovers(
+      ResponseFields.BATCH_GET_EFFECTIVE_IAM_POLICIES,
+      "policyResults/policies/policy/bindings/role",
+      "policyResults/policies/policy/bindings/members",
+      "policyResults/policies/policy/bindings/condition/title",
+      "policyResults/policies/policy/bindings/condition/expression");
+  }
+
+  @Test
+  public void whenAnalyzeIamPolicyAccessibleResources_ThenMaskCoversConsumedFields() {
+    assertCovers(
+      ResponseFields.ANALYZE_IAM_POLICY_ACCESSIBLE_RESOURCES,
+      "mainAnalysis/analysisResults/iamBinding/role",
+      "mainAnalysis/analysisResults/iamBinding/condition/title",
+      "mainAnalysis/analysisResults/iamBinding/condition/expression",
+      "mainAnalysis/analysisResults/accessControlLists/resources/fullResourceName",
+      "mainAnalysis/analysisResults/accessControlLists/conditionEvaluation/evaluationValue",
+      "mainAnalysis/nonCriticalErrors/cause");
+  }
+
+  @Test
+  public void whenAnalyzeIamPolicyPermissionedPrincipals_ThenMaskCoversConsumedFields() {
+    assertCovers(
+      ResponseFields.ANALYZE_IAM_POLICY_PERMISSIONED_PRINCIPALS,
+      "mainAnalysis/analysisResults/iamBinding/role",
+      "mainAnalysis/analysisResults/iamBinding/condition/title",
+      "mainAnalysis/analysisResults/iamBinding/condition/expression",
+      "mainAnalysis/analysisResults/identityList/identities/name");
+  }
+
+  // -------------------------------------------------------------------------
+  // Cloud Identity.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenLookupName_ThenMaskCoversConsumedFields() {
+    assertCovers(ResponseFields.LOOKUP_NAME, "name");
+  }
+
+  // -------------------------------------------------------------------------
+  // Directory.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenListGroups_ThenMaskCoversConsumedFields() {
+    assertCovers(
+      ResponseFields.LIST_GROUPS,
+      "groups/email",
+      "nextPageToken");
+  }
+
+  @Test
+  public void whenListMembers_ThenMaskCoversConsumedFields() {
+    assertCovers(
+      ResponseFields.LIST_MEMBERS,
+      "members/email",
+      "members/type",
+      "members/status",
+      "nextPageToken");
+  }
+
+  // -------------------------------------------------------------------------
+  // Resource Manager.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenSearchProjects_ThenMaskCoversConsumedFields() {
+    assertCovers(
+      ResponseFields.SEARCH_PROJECTS,
+      "projects/projectId",
+      "nextPageToken");
+  }
+
+  @Test
+  public void whenGetAncestry_ThenMaskCoversConsumedFields() {
+    assertCovers(
+      ResponseFields.GET_ANCESTRY,
+      "ancestor/resourceId/type",
+      "ancestor/resourceId/id");
+  }
+
+  @Test
+  public void whenTestIamPermissions_ThenMaskCoversConsumedFields() {
+    assertCovers(ResponseFields.TEST_IAM_PERMISSIONS, "permissions");
+  }
+
+  // -------------------------------------------------------------------------
+  // Secret Manager.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenAccessSecretVersion_ThenMaskCoversConsumedFields() {
+    assertCovers(ResponseFields.ACCESS_SECRET_VERSION, "payload/data");
+  }
+}
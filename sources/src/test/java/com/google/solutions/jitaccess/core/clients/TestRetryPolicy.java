@@ -0,0 +1,375 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.core.clients;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.solutions.jitaccess.core.Deadline;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRetryPolicy {
+  private static final RetryPolicy.Options OPTIONS = new RetryPolicy.Options(
+    4,
+    Duration.ofMillis(100),
+    Duration.ofSeconds(1),
+    Duration.ofSeconds(10));
+
+  private static final GenericUrl SAMPLE_URL = new GenericUrl("https://example.com/");
+
+  /**
+   * Sleeper and clock that don't actually wait.
+   */
+  private static class FakeClock {
+    private final List<Long> sleeps = new ArrayList<>();
+    private long nanos = 0;
+
+    @NotNull RetryPolicy newPolicy(@NotNull RetryPolicy.Options options) {
+      return new RetryPolicy(
+        options,
+        millis -> {
+          this.sleeps.add(millis);
+          this.nanos += Duration.ofMillis(millis).toNanos();
+        },
+        () -> this.nanos);
+    }
+  }
+
+  /**
+   * Transport that returns a predefined sequence of responses.
+   */
+  private static class FakeTransport extends MockHttpTransport {
+    private final LinkedList<MockLowLevelHttpResponse> responses;
+    private int requestCount = 0;
+
+    private FakeTransport(MockLowLevelHttpResponse... responses) {
+      this.responses = new LinkedList<>(List.of(responses));
+    }
+
+    @Override
+    public LowLevelHttpRequest buildRequest(String method, String url) {
+      this.requestCount++;
+      return new MockLowLevelHttpRequest(url).setResponse(this.responses.removeFirst());
+    }
+  }
+
+  private static MockLowLevelHttpResponse response(int statusCode) {
+    return new MockLowLevelHttpResponse().setStatusCode(statusCode);
+  }
+
+  // -------------------------------------------------------------------------
+  // isRetryable.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenStatusIsTransient_ThenIsRetryableReturnsTrue() {
+    assertTrue(RetryPolicy.isRetryable(429));
+    assertTrue(RetryPolicy.isRetryable(500));
+    assertTrue(RetryPolicy.isRetryable(503));
+  }
+
+  @Test
+  public void whenStatusIsPermanent_ThenIsRetryableReturnsFalse() {
+    assertFalse(RetryPolicy.isRetryable(400));
+    assertFalse(RetryPolicy.isRetryable(403));
+    assertFalse(RetryPolicy.isRetryable(404));
+    assertFalse(RetryPolicy.isRetryable(412));
+  }
+
+  // -------------------------------------------------------------------------
+  // backoff.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenAttemptIncreases_ThenBackoffIsCapped() {
+    var policy = new RetryPolicy(OPTIONS);
+
+    for (int attempt = 0; attempt < 100; attempt++) {
+      var ceiling = Math.min(1000, 100L << Math.min(attempt, 20));
+      var backoff = policy.backoff(attempt).toMillis();
+
+      assertTrue(backoff >= 0);
+      assertTrue(backoff <= ceiling);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // parseRetryAfter.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenRetryAfterIsNullOrInvalid_ThenParseRetryAfterReturnsEmpty() {
+    assertEquals(Optional.empty(), RetryPolicy.parseRetryAfter(null, Instant.EPOCH));
+    assertEquals(Optional.empty(), RetryPolicy.parseRetryAfter("", Instant.EPOCH));
+    assertEquals(Optional.empty(), RetryPolicy.parseRetryAfter("soon", Instant.EPOCH));
+  }
+
+  @Test
+  public void whenRetryAfterIsSeconds_ThenParseRetryAfterReturnsDuration() {
+    assertEquals(
+      Optional.of(Duration.ofSeconds(3)),
+      RetryPolicy.parseRetryAfter(" 3 ", Instant.EPOCH));
+  }
+
+  @Test
+  public void whenRetryAfterIsDate_ThenParseRetryAfterReturnsDuration() {
+    assertEquals(
+      Optional.of(Duration.ofSeconds(10)),
+      RetryPolicy.parseRetryAfter("Thu, 01 Jan 1970 00:00:10 GMT", Instant.EPOCH));
+    assertEquals(
+      Optional.of(Duration.ZERO),
+      RetryPolicy.parseRetryAfter("Thu, 01 Jan 1970 00:00:10 GMT", Instant.ofEpochSecond(20)));
+  }
+
+  // -------------------------------------------------------------------------
+  // isIdempotent.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenMethodIsGet_ThenIsIdempotentReturnsTrue() throws Exception {
+    var request = new MockHttpTransport()
+      .createRequestFactory()
+      .buildGetRequest(SAMPLE_URL);
+
+    assertTrue(RetryPolicy.isIdempotent(request));
+  }
+
+  @Test
+  public void whenMethodIsPostWithReadOnlyCustomMethod_ThenIsIdempotentReturnsTrue() throws Exception {
+    var request = new MockHttpTransport()
+      .createRequestFactory()
+      .buildPostRequest(new GenericUrl("https://example.com/v1/projects/p-1:getIamPolicy"), null);
+
+    assertTrue(RetryPolicy.isIdempotent(request));
+  }
+
+  @Test
+  public void whenMethodIsPostWithOtherCustomMethod_ThenIsIdempotentReturnsFalse() throws Exception {
+    var request = new MockHttpTransport()
+      .createRequestFactory()
+      .buildPostRequest(new GenericUrl("https://example.com/v1/projects/p-1:setIamPolicy"), null);
+
+    assertFalse(RetryPolicy.isIdempotent(request));
+  }
+
+  @Test
+  public void whenMethodIsPostWithoutCustomMethod_ThenIsIdempotentReturnsFalse() throws Exception {
+    var request = new MockHttpTransport()
+      .createRequestFactory()
+      .buildPostRequest(new GenericUrl("https://example.com/v1/projects/p-1/topics/t:1/messages"), null);
+
+    assertFalse(RetryPolicy.isIdempotent(request));
+  }
+
+  // -------------------------------------------------------------------------
+  // apply.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenResponseIsTransientError_ThenRequestIsRetried() throws Exception {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(response(503), response(429), response(200));
+
+    var response = transport
+      .createRequestFactory(policy::apply)
+      .buildGetRequest(SAMPLE_URL)
+      .execute();
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals(3, transport.requestCount);
+    assertEquals(2, clock.sleeps.size());
+  }
+
+  @Test
+  public void whenResponseIsPermanentError_ThenRequestIsNotRetried() {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(response(404), response(200));
+
+    var exception = assertThrows(
+      HttpResponseException.class,
+      () -> transport
+        .createRequestFactory(policy::apply)
+        .buildGetRequest(SAMPLE_URL)
+        .execute());
+
+    assertEquals(404, exception.getStatusCode());
+    assertEquals(1, transport.requestCount);
+    assertEquals(0, clock.sleeps.size());
+  }
+
+  @Test
+  public void whenRequestIsNotIdempotent_ThenRequestIsNotRetried() {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(response(503), response(200));
+
+    var exception = assertThrows(
+      HttpResponseException.class,
+      () -> transport
+        .createRequestFactory(policy::apply)
+        .buildPostRequest(new GenericUrl("https://example.com/v1/topics/t:publish"), null)
+        .execute());
+
+    assertEquals(503, exception.getStatusCode());
+    assertEquals(1, transport.requestCount);
+    assertEquals(0, clock.sleeps.size());
+  }
+
+  @Test
+  public void whenRateLimiterHasNoPermits_ThenRequestIsNotRetried() throws Exception {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(response(503), response(200));
+
+    var rateLimiter = new RateLimiter(new RateLimiter.Options(1, 1, Duration.ZERO));
+    assertTrue(rateLimiter.tryAcquire());
+
+    try (var scope = rateLimiter.enter()) {
+      var exception = assertThrows(
+        HttpResponseException.class,
+        () -> transport
+          .createRequestFactory(policy::apply)
+          .buildGetRequest(SAMPLE_URL)
+          .execute());
+
+      assertEquals(503, exception.getStatusCode());
+      assertEquals(1, transport.requestCount);
+    }
+  }
+
+  @Test
+  public void whenRateLimiterHasPermits_ThenRequestIsRetried() throws Exception {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(response(503), response(200));
+
+    var rateLimiter = new RateLimiter(new RateLimiter.Options(60, 10, Duration.ZERO));
+
+    try (var scope = rateLimiter.enter()) {
+      var response = transport
+        .createRequestFactory(policy::apply)
+        .buildGetRequest(SAMPLE_URL)
+        .execute();
+
+      assertEquals(200, response.getStatusCode());
+      assertEquals(2, transport.requestCount);
+      assertTrue(rateLimiter.fillLevel() < 1.0);
+    }
+  }
+
+  @Test
+  public void whenMaxAttemptsExceeded_ThenRequestFails() {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(
+      response(503),
+      response(503),
+      response(503),
+      response(503),
+      response(200));
+
+    var exception = assertThrows(
+      HttpResponseException.class,
+      () -> transport
+        .createRequestFactory(policy::apply)
+        .buildGetRequest(SAMPLE_URL)
+        .execute());
+
+    assertEquals(503, exception.getStatusCode());
+    assertEquals(4, transport.requestCount);
+    assertEquals(3, clock.sleeps.size());
+  }
+
+  @Test
+  public void whenRetryAfterPresent_ThenRequestIsRetriedAfterDelay() throws Exception {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(
+      response(429).addHeader("Retry-After", "2"),
+      response(200));
+
+    var response = transport
+      .createRequestFactory(policy::apply)
+      .buildGetRequest(SAMPLE_URL)
+      .execute();
+
+    assertEquals(200, response.getStatusCode());
+    assertEquals(List.of(2000L), clock.sleeps);
+  }
+
+  @Test
+  public void whenRetryAfterExceedsMaxElapsedTime_ThenRequestFails() {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(
+      response(429).addHeader("Retry-After", "60"),
+      response(200));
+
+    var exception = assertThrows(
+      HttpResponseException.class,
+      () -> transport
+        .createRequestFactory(policy::apply)
+        .buildGetRequest(SAMPLE_URL)
+        .execute());
+
+    assertEquals(429, exception.getStatusCode());
+    assertEquals(1, transport.requestCount);
+    assertEquals(0, clock.sleeps.size());
+  }
+
+  @Test
+  public void whenRetryAfterExceedsDeadline_ThenRequestFails() {
+    var clock = new FakeClock();
+    var policy = clock.newPolicy(OPTIONS);
+    var transport = new FakeTransport(
+      response(429).addHeader("Retry-After", "5"),
+      response(200));
+
+    try (var scope = Deadline.enter(Deadline.after(Duration.ofSeconds(2)))) {
+      var exception = assertThrows(
+        HttpResponseException.class,
+        () -> transport
+          .createRequestFactory(policy::apply)
+          .buildGetRequest(SAMPLE_URL)
+          .execute());
+
+      assertEquals(429, exception.getStatusCode());
+      assertEquals(1, transport.requestCount);
+      assertEquals(0, clock.sleeps.size());
+    }
+  }
+}
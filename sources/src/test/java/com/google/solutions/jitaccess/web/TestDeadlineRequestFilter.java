@@ -0,0 +1,93 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.web;
+
+import com.google.solutions.jitaccess.core.Deadline;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDeadlineRequestFilter {
+  private static DeadlineRequestFilter newFilter(Duration timeout) {
+    var filter = new DeadlineRequestFilter();
+    filter.options = new DeadlineRequestFilter.Options(timeout);
+    filter.requestDeadline = new DeadlineRequestFilter.RequestDeadline();
+    return filter;
+  }
+
+  @AfterEach
+  public void clearDeadline() {
+    Deadline.enter(null).close();
+  }
+
+  @Test
+  public void whenTimeoutIsZero_ThenRequestHasNoDeadline() {
+    var filter = newFilter(Duration.ZERO);
+
+    filter.filter(Mockito.mock(ContainerRequestContext.class));
+
+    assertNull(Deadline.current());
+  }
+
+  @Test
+  public void whenResponseFiltered_ThenDeadlineIsRemoved() {
+    var filter = newFilter(Duration.ofMinutes(1));
+    var request = Mockito.mock(ContainerRequestContext.class);
+
+    filter.filter(request);
+    assertNotNull(Deadline.current());
+
+    filter.filter(request, Mockito.mock(ContainerResponseContext.class));
+    assertNull(Deadline.current());
+  }
+
+  @Test
+  public void whenResponseNotFiltered_ThenClosingRequestDeadlineRemovesDeadline() {
+    var filter = newFilter(Duration.ofMinutes(1));
+
+    filter.filter(Mockito.mock(ContainerRequestContext.class));
+    assertNotNull(Deadline.current());
+
+    filter.requestDeadline.close();
+    assertNull(Deadline.current());
+  }
+
+  @Test
+  public void whenRequestDeadlineClosedTwice_ThenPreviousDeadlineIsRestored() {
+    var previous = Deadline.after(Duration.ofHours(1));
+    Deadline.enter(previous);
+
+    var requestDeadline = new DeadlineRequestFilter.RequestDeadline();
+    requestDeadline.enter(Deadline.after(Duration.ofMinutes(1)));
+    assertNotSame(previous, Deadline.current());
+
+    requestDeadline.close();
+    requestDeadline.close();
+    assertSame(previous, Deadline.current());
+  }
+}
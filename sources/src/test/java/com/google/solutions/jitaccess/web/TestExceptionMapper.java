@@ -23,6 +23,8 @@ package com.google.solutions.jitaccess.web;
 
 import com.google.solutions.jitaccess.core.AccessDeniedException;
 import com.google.solutions.jitaccess.core.AccessException;
+import com.google.solutions.jitaccess.core.Deadline;
+import com.google.solutions.jitaccess.core.DeadlineExceededException;
 import com.google.solutions.jitaccess.core.NotAuthenticatedException;
 import com.google.solutions.jitaccess.core.ResourceNotFoundException;
 import com.google.solutions.jitaccess.core.auth.UserId;
@@ -34,6 +36,7 @@ import jakarta.ws.rs.core.MediaType;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -69,6 +72,13 @@ public class TestExceptionMapper {
       throw new AccessDeniedException("mock");
     }
 
+    @GET
+    @Path("deadline-exception")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void throwDeadlineExceededException() throws DeadlineExceededException {
+      throw new DeadlineExceededException("mock");
+    }
+
     @GET
     @Path("notfound-exception")
     @Produces(MediaType.APPLICATION_JSON)
@@ -172,4 +182,28 @@ public class TestExceptionMapper {
     var body = response.getBody();
     assertEquals("mock", body.getMessage());
   }
+
+  @Test
+  public void whenMappedResourceThrowsDeadlineExceededException_ThenGetReturnsError() throws Exception {
+    var response = new RestDispatcher<>(new Resource(), SAMPLE_USER)
+      .get("/api/deadline-exception", ExceptionMappers.ErrorEntity.class);
+
+    assertEquals(504, response.getStatus());
+
+    var body = response.getBody();
+    assertEquals("mock", body.getMessage());
+  }
+
+  @Test
+  public void whenDeadlineExpiredAndResourceThrowsAccessException_ThenGetReturnsError() throws Exception {
+    try (var scope = Deadline.enter(Deadline.after(Duration.ZERO))) {
+      var response = new RestDispatcher<>(new Resource(), SAMPLE_USER)
+        .get("/api/access-exception", ExceptionMappers.ErrorEntity.class);
+
+      assertEquals(504, response.getStatus());
+
+      var body = response.getBody();
+      assertEquals("mock", body.getMessage());
+    }
+  }
 }
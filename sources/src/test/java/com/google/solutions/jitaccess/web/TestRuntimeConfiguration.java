@@ -21,7 +21,14 @@
 
 package com.google.solutions.jitaccess.web;
 
+import com.google.solutions.jitaccess.core.clients.Bulkhead;
+import com.google.solutions.jitaccess.core.clients.CircuitBreaker;
+import com.google.solutions.jitaccess.core.clients.CredentialsRefresher;
 import com.google.solutions.jitaccess.core.clients.DirectoryGroupsClient;
+import com.google.solutions.jitaccess.core.clients.HedgingPolicy;
+import com.google.solutions.jitaccess.core.clients.HttpTransport;
+import com.google.solutions.jitaccess.core.clients.RateLimiter;
+import com.google.solutions.jitaccess.core.clients.RetryPolicy;
 import com.google.solutions.jitaccess.core.notifications.MailNotificationService;
 import org.junit.jupiter.api.Test;
 
@@ -246,4 +253,193 @@ public class TestRuntimeConfiguration {
     var configuration = new RuntimeConfiguration(settings);
     assertFalse(configuration.isSmtpAuthenticationConfigured());
   }
+
+  // -------------------------------------------------------------------------
+  // Backend settings.
+  // -------------------------------------------------------------------------
+
+  @Test
+  public void whenNotSet_ThenBackendConnectionSettingsSetToDefault() {
+    var configuration = new RuntimeConfiguration(Map.of());
+
+    assertEquals(20, configuration.backendMaxConnections.getValue());
+    assertEquals(Duration.ofSeconds(60), configuration.backendConnectionIdleTimeout.getValue());
+  }
+
+  @Test
+  public void whenSet_ThenBackendConnectionSettingsReturnSettings() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "BACKEND_MAX_CONNECTIONS", " 50 ",
+      "BACKEND_CONNECTION_IDLE_TIMEOUT", "30"
+    ));
+
+    assertEquals(50, configuration.backendMaxConnections.getValue());
+    assertEquals(Duration.ofSeconds(30), configuration.backendConnectionIdleTimeout.getValue());
+  }
+
+  @Test
+  public void whenNotSet_ThenBackendProtocolIsHttp11() {
+    var configuration = new RuntimeConfiguration(Map.of());
+
+    assertEquals(HttpTransport.Protocol.HTTP_1_1, configuration.backendProtocol.getValue());
+  }
+
+  @Test
+  public void whenSet_ThenBackendProtocolReturnsSetting() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "BACKEND_PROTOCOL", " http_2 "
+    ));
+
+    assertEquals(HttpTransport.Protocol.HTTP_2, configuration.backendProtocol.getValue());
+  }
+
+  @Test
+  public void whenNotSet_ThenBackendRetryOptionsSetToDefault() {
+    var configuration = new RuntimeConfiguration(Map.of());
+
+    assertEquals(RetryPolicy.Options.DEFAULT, configuration.getBackendRetryOptions("CLOUDASSET"));
+  }
+
+  @Test
+  public void whenSet_ThenBackendRetryOptionsReturnSettings() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "BACKEND_RETRY_MAX_ATTEMPTS", "2",
+      "BACKEND_RETRY_INITIAL_BACKOFF", "100",
+      "BACKEND_RETRY_MAX_BACKOFF", "1000",
+      "BACKEND_RETRY_MAX_ELAPSED_TIME", "5"
+    ));
+
+    var options = configuration.getBackendRetryOptions("CLOUDASSET");
+    assertEquals(2, options.maxAttempts());
+    assertEquals(Duration.ofMillis(100), options.initialBackoff());
+    assertEquals(Duration.ofSeconds(1), options.maxBackoff());
+    assertEquals(Duration.ofSeconds(5), options.maxElapsedTime());
+  }
+
+  @Test
+  public void whenApiSpecificSettingSet_ThenBackendRetryOptionsPreferApiSpecificSetting() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "BACKEND_RETRY_MAX_ATTEMPTS", "2",
+      "BACKEND_RETRY_MAX_ATTEMPTS_CLOUDASSET", "6"
+    ));
+
+    assertEquals(6, configuration.getBackendRetryOptions("CLOUDASSET").maxAttempts());
+    assertEquals(2, configuration.getBackendRetryOptions("DIRECTORY").maxAttempts());
+  }
+
+  @Test
+  public void whenNotSet_ThenBackendRateLimitOptionsAreUnlimited() {
+    var configuration = new RuntimeConfiguration(Map.of());
+
+    var options = configuration.getBackendRateLimitOptions("AnalyzeIamPolicy");
+    assertTrue(options.isUnlimited());
+    assertEquals(RateLimiter.Options.DEFAULT_MAX_WAIT, options.maxWait());
+  }
+
+  @Test
+  public void whenSet_ThenBackendRateLimitOptionsReturnSettings() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "BACKEND_RATE_LIMIT_ANALYZEIAMPOLICY", "100",
+      "BACKEND_RATE_LIMIT_BURST_ANALYZEIAMPOLICY", "20",
+      "BACKEND_RATE_LIMIT_MAX_WAIT", "2"
+    ));
+
+    var options = configuration.getBackendRateLimitOptions("AnalyzeIamPolicy");
+    assertEquals(100, options.requestsPerMinute());
+    assertEquals(20, options.burst());
+    assertEquals(Duration.ofSeconds(2), options.maxWait());
+
+    assertTrue(configuration.getBackendRateLimitOptions("BatchGetEffectiveIamPolicies").isUnlimited());
+  }
+
+  @Test
+  public void whenNotSet_ThenBackendCircuitBreakerOptionsSetToDefault() {
+    var configuration = new RuntimeConfiguration(Map.of());
+
+    assertEquals(
+      CircuitBreaker.Options.DEFAULT,
+      configuration.getBackendCircuitBreakerOptions("DIRECTORY"));
+  }
+
+  @Test
+  public void whenApiSpecificSettingSet_ThenBackendCircuitBreakerOptionsPreferApiSpecificSetting() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "BACKEND_CIRCUIT_BREAKER_FAILURE_RATE", "80",
+      "BACKEND_CIRCUIT_BREAKER_WINDOW_SIZE", "10",
+      "BACKEND_CIRCUIT_BREAKER_WINDOW_SIZE_DIRECTORY", "0",
+      "BACKEND_CIRCUIT_BREAKER_COOL_DOWN", "5"
+    ));
+
+    var options = configuration.getBackendCircuitBreakerOptions("CLOUDASSET");
+    assertEquals(80, options.failureRateThreshold());
+    assertEquals(10, options.windowSize());
+    assertEquals(Duration.ofSeconds(5), options.coolDown());
+
+    assertEquals(0, configuration.getBackendCircuitBreakerOptions("DIRECTORY").windowSize());
+  }
+
+  @Test
+  public void whenNotSet_ThenCredentialsRefresherOptionsUseDefaults() {
+    var configuration = new RuntimeConfiguration(Map.of());
+
+    assertEquals(
+      CredentialsRefresher.Options.DEFAULT,
+      configuration.getCredentialsRefresherOptions());
+  }
+
+  @Test
+  public void whenSet_ThenCredentialsRefresherOptionsUseSettings() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "CREDENTIALS_REFRESH_AHEAD", "900",
+      "CREDENTIALS_REFRESH_RETRY_BACKOFF", "300"
+    ));
+
+    var options = configuration.getCredentialsRefresherOptions();
+    assertEquals(Duration.ofMinutes(15), options.refreshAhead());
+    assertEquals(Duration.ofMinutes(5), options.retryBackoff());
+    assertEquals(Duration.ofMinutes(5), options.maxRetryBackoff());
+  }
+
+  @Test
+  public void whenNotSet_ThenBackendHedgingDisabled() {
+    var configuration = new RuntimeConfiguration(Map.of());
+
+    assertEquals(
+      HedgingPolicy.Options.DISABLED,
+      configuration.getBackendHedgingOptions("GetAncestry"));
+  }
+
+  @Test
+  public void whenMethodSpecificSettingSet_ThenBackendHedgingOptionsPreferMethodSpecificSetting() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "BACKEND_HEDGING_PERCENTILE", "95",
+      "BACKEND_HEDGING_PERCENTILE_GETANCESTRY", "0",
+      "BACKEND_HEDGING_MIN_DELAY", "20",
+      "BACKEND_HEDGING_BUDGET", "5"
+    ));
+
+    var options = configuration.getBackendHedgingOptions("ListGroups");
+    assertEquals(95, options.percentile());
+    assertEquals(Duration.ofMillis(20), options.minDelay());
+    assertEquals(5, options.budget());
+
+    assertEquals(0, configuration.getBackendHedgingOptions("GetAncestry").percentile());
+  }
+
+  @Test
+  public void whenApiSpecificSettingSet_ThenBackendBulkheadOptionsPreferApiSpecificSetting() {
+    var configuration = new RuntimeConfiguration(Map.of(
+      "BACKEND_BULKHEAD_MAX_THREADS", "4",
+      "BACKEND_BULKHEAD_MAX_THREADS_DIRECTORY", "2",
+      "BACKEND_BULKHEAD_MAX_QUEUE_SIZE", "8",
+      "BACKEND_BULKHEAD_REJECTION_POLICY_DIRECTORY", "CALLER_RUNS"
+    ));
+
+    assertEquals(
+      new Bulkhead.Options(4, 8, Bulkhead.RejectionPolicy.ABORT),
+      configuration.getBackendBulkheadOptions("CLOUDASSET"));
+    assertEquals(
+      new Bulkhead.Options(2, 8, Bulkhead.RejectionPolicy.CALLER_RUNS),
+      configuration.getBackendBulkheadOptions("DIRECTORY"));
+  }
 }
@@ -0,0 +1,137 @@
+//
+// Copyright 2024 Google LLC
+//
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+//
+
+package com.google.solutions.jitaccess.web.rest;
+
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.cloudresourcemanager.v3.CloudResourceManager;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.solutions.jitaccess.core.Cache;
+import com.google.solutions.jitaccess.core.catalog.project.MpaProjectRoleCatalog;
+import com.google.solutions.jitaccess.core.clients.BackendPolicies;
+import com.google.solutions.jitaccess.core.clients.ClientFactory;
+import com.google.solutions.jitaccess.core.clients.CredentialsRefresher;
+import com.google.solutions.jitaccess.core.clients.HttpTransport;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+public class TestMetricsResource {
+  private static final GoogleCredentials CREDENTIALS =
+    GoogleCredentials.create(new AccessToken("token-1", null));
+
+  private static CredentialsRefresher newCredentialsRefresher() {
+    return new CredentialsRefresher(
+      CREDENTIALS,
+      CredentialsRefresher.Options.DEFAULT,
+      Executors.newSingleThreadScheduledExecutor());
+  }
+
+  @Test
+  public void whenNoRequestsSent_ThenGetMetricsReturnsEmptyMetrics() {
+    var resource = new MetricsResource();
+    resource.policies = new BackendPolicies(Runnable::run);
+    resource.credentialsRefresher = newCredentialsRefresher();
+    resource.catalog = Mockito.mock(MpaProjectRoleCatalog.class);
+
+    var metrics = resource.getMetrics();
+
+    assertTrue(metrics.contains("# TYPE jitaccess_backend_request_duration_seconds histogram"));
+    assertFalse(metrics.contains("api="));
+    assertFalse(metrics.contains("jitaccess_credentials_token_age_seconds"));
+    assertTrue(metrics.contains("jitaccess_credentials_refreshes_total{result=\"success\"} 0\n"));
+  }
+
+  @Test
+  public void whenRequestsSent_ThenGetMetricsReturnsMetricsPerMethod() throws Exception {
+    var transport = new HttpTransport(HttpTransport.Options.DEFAULT) {
+      @Override
+      public com.google.api.client.http.HttpTransport get() {
+        return new MockHttpTransport.Builder()
+          .setLowLevelHttpResponse(new MockLowLevelHttpResponse()
+            .setStatusCode(200)
+            .addHeader("Content-Length", "2")
+            .setContent("{}"))
+          .build();
+      }
+    };
+
+    var resource = new MetricsResource();
+    resource.policies = new BackendPolicies(Runnable::run);
+    resource.credentialsRefresher = newCredentialsRefresher();
+    resource.catalog = Mockito.mock(MpaProjectRoleCatalog.class);
+    new ClientFactory(transport, resource.policies)
+      .getClient(
+        CloudResourceManager.class,
+        CREDENTIALS,
+        (httpTransport, jsonFactory, initializer) -> new CloudResourceManager
+          .Builder(httpTransport, jsonFactory, initializer)
+          .build())
+      .projects()
+      .get("projects/project-1")
+      .execute();
+
+    var metrics = resource.getMetrics();
+    var labels = "api=\"CLOUDRESOURCEMANAGER\",method=\"GET projects/*\"";
+
+    assertTrue(metrics.contains(
+      "jitaccess_backend_request_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} 1\n"));
+    assertTrue(metrics.contains(
+      "jitaccess_backend_request_duration_seconds_count{" + labels + "} 1\n"));
+    assertTrue(metrics.contains(
+      "jitaccess_backend_requests_in_flight{" + labels + "} 0\n"));
+    assertTrue(metrics.contains(
+      "jitaccess_backend_responses_total{" + labels + ",code=\"200\"} 1\n"));
+    assertTrue(metrics.contains(
+      "jitaccess_backend_response_bytes_total{" + labels + "} 2\n"));
+  }
+
+  @Test
+  public void whenCatalogUsesCache_ThenGetMetricsReturnsCacheMetrics() {
+    var catalog = Mockito.mock(MpaProjectRoleCatalog.class);
+    when(catalog.cacheStatistics())
+      .thenReturn(Map.of("cache-1", new Cache.Statistics(3, 1, 0, 2, 1, 2, 1, Duration.ofSeconds(6))));
+
+    var resource = new MetricsResource();
+    resource.policies = new BackendPolicies(Runnable::run);
+    resource.credentialsRefresher = newCredentialsRefresher();
+    resource.catalog = catalog;
+
+    var metrics = resource.getMetrics();
+
+    assertTrue(metrics.contains("jitaccess_cache_requests_total{cache=\"cache-1\",result=\"hit\"} 3\n"));
+    assertTrue(metrics.contains("jitaccess_cache_requests_total{cache=\"cache-1\",result=\"miss\"} 1\n"));
+    assertTrue(metrics.contains("jitaccess_cache_invalidations_total{cache=\"cache-1\"} 2\n"));
+    assertTrue(metrics.contains("jitaccess_cache_refreshes_total{cache=\"cache-1\"} 1\n"));
+    assertTrue(metrics.contains("jitaccess_cache_stale_hits_total{cache=\"cache-1\"} 2\n"));
+    assertTrue(metrics.contains("jitaccess_cache_size{cache=\"cache-1\"} 1\n"));
+    assertTrue(metrics.contains("jitaccess_cache_hit_age_seconds_sum{cache=\"cache-1\"} 6.0\n"));
+    assertTrue(metrics.contains("jitaccess_cache_hit_age_seconds_count{cache=\"cache-1\"} 3\n"));
+  }
+}